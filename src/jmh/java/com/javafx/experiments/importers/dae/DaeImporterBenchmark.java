@@ -0,0 +1,70 @@
+package com.javafx.experiments.importers.dae;
+
+import javafx.scene.Group;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports a synthetic document far bigger than the models, generated once per trial.
+ *
+ * @author Eclion
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DaeImporterBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int vertexCount;
+
+    @Param({"3", "4"})
+    public int polygonSize;
+
+    @Param({"64"})
+    public int jointCount;
+
+    @Param({"false", "true"})
+    public boolean parallelSections;
+
+    private Path directory;
+    private String document;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("dae-benchmark");
+        document = new SyntheticDaeGenerator().
+                withVertexCount(vertexCount).
+                withPolygonSize(polygonSize).
+                withJointCount(jointCount).
+                withInfluencesPerVertex(4).
+                withKeyFrameCount(48).
+                withMaterialCount(4).
+                write(directory, "grid").
+                toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("grid.dae"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Group importDocument() throws Exception {
+        final DaeImporter importer = new DaeImporter().withParallelSections(parallelSections);
+        importer.importFile(document);
+        return importer.getRoot();
+    }
+}
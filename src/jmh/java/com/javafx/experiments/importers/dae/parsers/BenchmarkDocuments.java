@@ -0,0 +1,96 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import com.javafx.experiments.importers.dae.io.ResourceResolver;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The documents the benchmarks run on, read once so that the disk access isn't measured.
+ *
+ * @author Eclion
+ */
+final class BenchmarkDocuments {
+    static final String ANIMATED_CUBE = "models/animated_cube.dae";
+    static final String ANIMATED_BALL = "models/animated_ball.dae";
+    static final String NEMUNEKO = "models/nemuneko-animated.dae";
+
+    private BenchmarkDocuments() {
+    }
+
+    static ResourceResolver resourceResolver(final String model) {
+        return ResourceResolver.forDirectory(Paths.get(model).toAbsolutePath().getParent());
+    }
+
+    static byte[] read(final String model) throws IOException {
+        return Files.readAllBytes(Paths.get(model));
+    }
+
+    /**
+     * @return The handler of the whole document, with all its numeric contents decoded
+     */
+    static DaeSaxHandler parse(final String model, final byte[] content)
+            throws ParserConfigurationException, SAXException, IOException {
+        final DaeSaxHandler handler = new DaeSaxHandler(resourceResolver(model), new SharedResources());
+        SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(content), handler.getLibraryHandler());
+        handler.completeParsersDecoding();
+        return handler;
+    }
+
+    /**
+     * Records the events of a library, the library element included, so that they can be replayed to its parser
+     * without measuring the XML tokenizing.
+     *
+     * @return The events of the library, none if the document doesn't have it
+     */
+    static List<Consumer<LibraryHandler>> recordLibrary(final byte[] content, final String library)
+            throws ParserConfigurationException, SAXException, IOException {
+        final List<Consumer<LibraryHandler>> events = new ArrayList<>();
+        SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(content), new DefaultHandler() {
+            private int depth;
+            private boolean recording;
+
+            @Override
+            public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) {
+                if (depth++ == 1 && library.equals(qName)) {
+                    recording = true;
+                }
+                if (recording) {
+                    final Attributes attributesCopy = new AttributesImpl(attributes);
+                    events.add(handler -> handler.startElement(qName, attributesCopy));
+                }
+            }
+
+            @Override
+            public void endElement(final String uri, final String localName, final String qName) {
+                if (recording) {
+                    events.add(handler -> handler.endElement(qName));
+                }
+                if (--depth == 1) {
+                    recording = false;
+                }
+            }
+
+            @Override
+            public void characters(final char[] ch, final int start, final int length) {
+                if (recording) {
+                    final char[] chars = Arrays.copyOfRange(ch, start, start + length);
+                    events.add(handler -> handler.characters(chars, 0, chars.length));
+                }
+            }
+        });
+        return events;
+    }
+}
@@ -0,0 +1,83 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import com.javafx.experiments.importers.dae.structures.DaeAnimation;
+import com.javafx.experiments.importers.dae.structures.DaeSkeleton;
+import javafx.animation.KeyFrame;
+import javafx.scene.Group;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the whole import of the documents and its two stages done after the parsing: the scene build and the
+ * key frames calculation.
+ *
+ * @author Eclion
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DaeSaxHandlerBenchmark {
+
+    @Param({BenchmarkDocuments.ANIMATED_CUBE, BenchmarkDocuments.ANIMATED_BALL, BenchmarkDocuments.NEMUNEKO})
+    public String model;
+
+    private byte[] content;
+    private Collection<DaeSkeleton> skeletons;
+    private Collection<DaeAnimation> animations;
+
+    @Setup
+    public void setUp() throws Exception {
+        content = BenchmarkDocuments.read(model);
+        final DaeSaxHandler handler = BenchmarkDocuments.parse(model, content);
+        final LibraryVisualSceneParser visualSceneParser = (LibraryVisualSceneParser) handler.getParser(DaeSaxHandler.LIBRARY_VISUAL_SCENES_TAG);
+        final LibraryAnimationsParser animationsParser = (LibraryAnimationsParser) handler.getParser(DaeSaxHandler.LIBRARY_ANIMATIONS_TAG);
+        skeletons = visualSceneParser.scenes.peek().skeletons.values();
+        animations = animationsParser != null ? animationsParser.animations.values() : new ArrayList<>();
+    }
+
+    @Benchmark
+    public Group importDocument() throws Exception {
+        return BenchmarkDocuments.parse(model, content).buildScene();
+    }
+
+    @Benchmark
+    public Group buildScene(final ParsedDocument document) {
+        return document.handler.buildScene();
+    }
+
+    @Benchmark
+    public void calculateAnimation(final Blackhole blackhole) {
+        for (final DaeSkeleton skeleton : skeletons) {
+            for (final DaeAnimation animation : animations) {
+                final List<KeyFrame> keyFrames = animation.calculateAnimation(skeleton);
+                blackhole.consume(keyFrames);
+            }
+        }
+    }
+
+    /**
+     * A document parsed anew before every build, the build moving the parsed nodes into the scene.
+     */
+    @State(Scope.Thread)
+    public static class ParsedDocument {
+        private DaeSaxHandler handler;
+
+        @Setup(Level.Invocation)
+        public void setUp(final DaeSaxHandlerBenchmark benchmark) throws Exception {
+            handler = BenchmarkDocuments.parse(benchmark.model, benchmark.content);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import com.javafx.experiments.importers.dae.io.ResourceResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Replays the recorded events of a library to a new parser of this library, so that only the parser is measured and
+ * not the XML tokenizing.
+ *
+ * @author Eclion
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LibraryParsersBenchmark {
+    private static final Map<String, Function<ResourceResolver, AbstractParser>> PARSERS = new HashMap<>();
+
+    static {
+        PARSERS.put(DaeSaxHandler.ASSET_TAG, resourceResolver -> new AssetParser());
+        PARSERS.put(DaeSaxHandler.LIBRARY_ANIMATIONS_TAG, resourceResolver -> new LibraryAnimationsParser());
+        PARSERS.put(DaeSaxHandler.LIBRARY_CAMERAS_TAG, resourceResolver -> new LibraryCamerasParser());
+        PARSERS.put(DaeSaxHandler.LIBRARY_CONTROLLERS_TAG, resourceResolver -> new LibraryControllerParser());
+        PARSERS.put(DaeSaxHandler.LIBRARY_EFFECTS_TAG, resourceResolver -> new LibraryEffectsParser());
+        PARSERS.put(DaeSaxHandler.LIBRARY_GEOMETRIES_TAG, resourceResolver -> new LibraryGeometriesParser());
+        PARSERS.put(DaeSaxHandler.LIBRARY_IMAGES_TAG, resourceResolver -> new LibraryImagesParser(resourceResolver, new SharedResources()));
+        PARSERS.put(DaeSaxHandler.LIBRARY_LIGHTS_TAG, resourceResolver -> new LibraryLightsParser());
+        PARSERS.put(DaeSaxHandler.LIBRARY_MATERIALS_TAG, resourceResolver -> new LibraryMaterialsParser());
+        PARSERS.put(DaeSaxHandler.LIBRARY_VISUAL_SCENES_TAG, resourceResolver -> new LibraryVisualSceneParser());
+    }
+
+    @Param({BenchmarkDocuments.ANIMATED_CUBE, BenchmarkDocuments.ANIMATED_BALL, BenchmarkDocuments.NEMUNEKO})
+    public String model;
+
+    @Param({DaeSaxHandler.LIBRARY_ANIMATIONS_TAG, DaeSaxHandler.LIBRARY_CONTROLLERS_TAG, DaeSaxHandler.LIBRARY_EFFECTS_TAG,
+            DaeSaxHandler.LIBRARY_GEOMETRIES_TAG, DaeSaxHandler.LIBRARY_IMAGES_TAG, DaeSaxHandler.LIBRARY_MATERIALS_TAG,
+            DaeSaxHandler.LIBRARY_VISUAL_SCENES_TAG})
+    public String library;
+
+    private ResourceResolver resourceResolver;
+    private List<Consumer<LibraryHandler>> events;
+
+    @Setup
+    public void setUp() throws Exception {
+        resourceResolver = BenchmarkDocuments.resourceResolver(model);
+        events = BenchmarkDocuments.recordLibrary(BenchmarkDocuments.read(model), library);
+    }
+
+    @Benchmark
+    public AbstractParser parseLibrary() {
+        final AbstractParser parser = PARSERS.get(library).apply(resourceResolver);
+        final LibraryHandler handler = parser.getLibraryHandler();
+        events.forEach(event -> event.accept(handler));
+        parser.completeDecoding();
+        return parser;
+    }
+}
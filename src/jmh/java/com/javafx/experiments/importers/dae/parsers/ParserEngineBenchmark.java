@@ -0,0 +1,57 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import com.javafx.experiments.importers.dae.ParserEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the SAX and StAX engines on the parsing of the documents, their numeric contents decoding included, the
+ * scene build being the same for both engines.
+ *
+ * @author Eclion
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParserEngineBenchmark {
+
+    @Param({BenchmarkDocuments.ANIMATED_CUBE, BenchmarkDocuments.ANIMATED_BALL, BenchmarkDocuments.NEMUNEKO})
+    public String model;
+
+    @Param({"SAX", "STAX"})
+    public ParserEngine parserEngine;
+
+    private byte[] content;
+    private SAXParserFactory saxParserFactory;
+
+    @Setup
+    public void setUp() throws Exception {
+        content = BenchmarkDocuments.read(model);
+        saxParserFactory = SAXParserFactory.newInstance();
+    }
+
+    @Benchmark
+    public DaeSaxHandler parseDocument() throws Exception {
+        final DaeSaxHandler handler = new DaeSaxHandler(BenchmarkDocuments.resourceResolver(model), new SharedResources());
+        try (InputStream inputStream = new ByteArrayInputStream(content)) {
+            if (parserEngine == ParserEngine.STAX) {
+                DaeStaxReader.read(inputStream, handler);
+            } else {
+                saxParserFactory.newSAXParser().parse(inputStream, handler.getLibraryHandler());
+            }
+        }
+        handler.completeParsersDecoding();
+        return handler;
+    }
+}
@@ -0,0 +1,52 @@
+package com.javafx.experiments.importers.dae.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Eclion
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParserUtilsBenchmark {
+
+    @Param({"1000", "100000"})
+    public int count;
+
+    private String floatContent;
+    private String intContent;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(count);
+        final StringBuilder floats = new StringBuilder();
+        final StringBuilder ints = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            floats.append(String.format(Locale.ROOT, "%.6f ", random.nextFloat() * 200 - 100));
+            ints.append(random.nextInt(count)).append(' ');
+        }
+        floatContent = floats.toString().trim();
+        intContent = ints.toString().trim();
+    }
+
+    @Benchmark
+    public float[] extractFloatArray() {
+        return ParserUtils.extractFloatArray(floatContent);
+    }
+
+    @Benchmark
+    public int[] extractIntArray() {
+        return ParserUtils.extractIntArray(intContent);
+    }
+}
@@ -0,0 +1,77 @@
+package com.javafx.experiments.shape3d;
+
+import com.javafx.experiments.importers.dae.DaeImporter;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.beans.value.WritableValue;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.shape.MeshView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Updates the skinned meshes of the nemuneko model after moving its joints to the next key frame of their animations,
+ * as a frame of the running timelines does.
+ *
+ * @author Eclion
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SkinningMeshBenchmark {
+    private static final String MODEL = "models/nemuneko-animated.dae";
+
+    private final List<SkinningMesh> meshes = new ArrayList<>();
+    private List<List<KeyFrame>> animations;
+    private int frame;
+
+    @Setup
+    public void setUp() throws Exception {
+        final DaeImporter importer = new DaeImporter();
+        importer.load(MODEL);
+        collectMeshes(importer.getRoot());
+        animations = importer.getTimelines().values().stream().
+                map(Timeline::getKeyFrames).
+                filter(keyFrames -> !keyFrames.isEmpty()).
+                collect(Collectors.toList());
+        if (meshes.isEmpty() || animations.isEmpty()) {
+            throw new IllegalStateException(MODEL + " isn't an animated skinned model");
+        }
+    }
+
+    private void collectMeshes(final Node node) {
+        if (node instanceof MeshView && ((MeshView) node).getMesh() instanceof SkinningMesh) {
+            meshes.add((SkinningMesh) ((MeshView) node).getMesh());
+        }
+        if (node instanceof Parent) {
+            ((Parent) node).getChildrenUnmodifiable().forEach(this::collectMeshes);
+        }
+    }
+
+    @Benchmark
+    public List<SkinningMesh> update() {
+        frame++;
+        for (final List<KeyFrame> keyFrames : animations) {
+            keyFrames.get(frame % keyFrames.size()).getValues().forEach(SkinningMeshBenchmark::apply);
+        }
+        meshes.forEach(SkinningMesh::update);
+        return meshes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void apply(final KeyValue keyValue) {
+        ((WritableValue<Object>) keyValue.getTarget()).setValue(keyValue.getEndValue());
+    }
+}
@@ -0,0 +1,255 @@
+package com.javafx.experiments.importers.dae;
+
+import com.javafx.experiments.importers.dae.parsers.SharedResources;
+import com.javafx.experiments.importers.dae.utils.ImportStatistics;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Imports many ".dae" files concurrently, with at most {@link #withParallelism(int) parallelism} files being parsed at
+ * the same time. The images and materials are shared by all the files of the importer and the SAX parsers are reused
+ * from a file to another.
+ * <p>
+ * A file failing to import doesn't abort the others, its failure being part of the results.
+ *
+ * @author Eclion
+ */
+public final class DaeBatchImporter {
+    private static final Logger LOGGER = Logger.getLogger(DaeBatchImporter.class.getSimpleName());
+
+    private final SharedResources sharedResources = new SharedResources();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean virtualThreads;
+    private ParserEngine parserEngine = ParserEngine.SAX;
+    private Path sceneCacheDirectory;
+    private boolean animations = true;
+    private boolean referencedEntriesOnly;
+    private boolean parallelSections;
+    private boolean welding;
+    private boolean vertexCacheOptimization;
+    private int levelsOfDetail;
+    private boolean staticBatching;
+    private Consumer<ImportStatistics> statisticsListener;
+
+    /**
+     * Sets the maximum number of files parsed at the same time, the number of processors by default.
+     */
+    public DaeBatchImporter withParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Runs every file on its own virtual thread when the runtime supports them, instead of a pool of platform threads.
+     */
+    public DaeBatchImporter withVirtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public DaeBatchImporter withParserEngine(final ParserEngine parserEngine) {
+        this.parserEngine = parserEngine;
+        return this;
+    }
+
+    public DaeBatchImporter withSceneCache(final Path directory) {
+        this.sceneCacheDirectory = directory;
+        return this;
+    }
+
+    /**
+     * @see DaeImporter#withAnimations(boolean)
+     */
+    public DaeBatchImporter withAnimations(final boolean animations) {
+        this.animations = animations;
+        return this;
+    }
+
+    /**
+     * @see DaeImporter#withReferencedEntriesOnly(boolean)
+     */
+    public DaeBatchImporter withReferencedEntriesOnly(final boolean referencedEntriesOnly) {
+        this.referencedEntriesOnly = referencedEntriesOnly;
+        return this;
+    }
+
+    /**
+     * @see DaeImporter#withParallelSections(boolean)
+     */
+    public DaeBatchImporter withParallelSections(final boolean parallelSections) {
+        this.parallelSections = parallelSections;
+        return this;
+    }
+
+    /**
+     * @see DaeImporter#withWelding(boolean)
+     */
+    public DaeBatchImporter withWelding(final boolean welding) {
+        this.welding = welding;
+        return this;
+    }
+
+    /**
+     * @see DaeImporter#withVertexCacheOptimization(boolean)
+     */
+    public DaeBatchImporter withVertexCacheOptimization(final boolean vertexCacheOptimization) {
+        this.vertexCacheOptimization = vertexCacheOptimization;
+        return this;
+    }
+
+    /**
+     * @see DaeImporter#withLevelsOfDetail(int)
+     */
+    public DaeBatchImporter withLevelsOfDetail(final int levelsOfDetail) {
+        this.levelsOfDetail = levelsOfDetail;
+        return this;
+    }
+
+    /**
+     * @see DaeImporter#withStaticBatching(boolean)
+     */
+    public DaeBatchImporter withStaticBatching(final boolean staticBatching) {
+        this.staticBatching = staticBatching;
+        return this;
+    }
+
+    /**
+     * Hands over the statistics of every imported file, the listener being called concurrently by the importing threads.
+     *
+     * @see DaeImporter#withStatisticsListener(Consumer)
+     */
+    public DaeBatchImporter withStatisticsListener(final Consumer<ImportStatistics> statisticsListener) {
+        this.statisticsListener = statisticsListener;
+        return this;
+    }
+
+    public SharedResources getSharedResources() {
+        return sharedResources;
+    }
+
+    /**
+     * Imports the given files, waiting for all of them.
+     *
+     * @param urls The urls of the 3D files to load
+     * @return The result of every file, in the order of the urls
+     */
+    public List<Result> importAll(final Collection<String> urls) {
+        final long start = System.currentTimeMillis();
+        final ExecutorService executor = createExecutor();
+        final Semaphore permits = new Semaphore(parallelism);
+        try {
+            final List<CompletableFuture<Result>> futures = new ArrayList<>(urls.size());
+            for (final String url : urls) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        return importFile(url);
+                    } finally {
+                        permits.release();
+                    }
+                }, executor));
+            }
+
+            final List<Result> results = new ArrayList<>(futures.size());
+            futures.forEach(future -> results.add(future.join()));
+
+            final long end = System.currentTimeMillis();
+            LOGGER.log(Level.INFO, "Imported {0} files in {1} ms, {2} failed", new Object[]{results.size(), end - start,
+                    results.stream().filter(result -> !result.isSuccess()).count()});
+            return Collections.unmodifiableList(results);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Result importFile(final String url) {
+        final DaeImporter importer = new DaeImporter().
+                withParserEngine(parserEngine).
+                withSharedResources(sharedResources).
+                withAnimations(animations).
+                withReferencedEntriesOnly(referencedEntriesOnly).
+                withParallelSections(parallelSections).
+                withWelding(welding).
+                withVertexCacheOptimization(vertexCacheOptimization).
+                withLevelsOfDetail(levelsOfDetail).
+                withStaticBatching(staticBatching).
+                withStatisticsListener(statisticsListener);
+        if (sceneCacheDirectory != null) {
+            importer.withSceneCache(sceneCacheDirectory);
+        }
+        try {
+            importer.importFile(url);
+            return new Result(url, importer, null);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Couldn''t import {0} : \n{1}", new Object[]{url, e.getMessage()});
+            return new Result(url, null, e);
+        }
+    }
+
+    private ExecutorService createExecutor() {
+        if (virtualThreads) {
+            try {
+                final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) method.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.log(Level.FINE, "Virtual threads not available, falling back to platform threads");
+            }
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "dae-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(parallelism, threadFactory);
+    }
+
+    /**
+     * Outcome of the import of a file: either the importer holding the loaded scene, or the failure.
+     */
+    public static final class Result {
+        private final String url;
+        private final DaeImporter importer;
+        private final Exception failure;
+
+        Result(final String url, final DaeImporter importer, final Exception failure) {
+            this.url = url;
+            this.importer = importer;
+            this.failure = failure;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public boolean isSuccess() {
+            return failure == null;
+        }
+
+        public Optional<DaeImporter> getImporter() {
+            return Optional.ofNullable(importer);
+        }
+
+        public Optional<Exception> getFailure() {
+            return Optional.ofNullable(failure);
+        }
+    }
+}
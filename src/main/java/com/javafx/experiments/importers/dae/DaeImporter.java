@@ -32,8 +32,19 @@
 package com.javafx.experiments.importers.dae;
 
 import com.javafx.experiments.importers.Importer;
+import com.javafx.experiments.importers.dae.io.DaeIndex;
+import com.javafx.experiments.importers.dae.io.DocumentFormat;
+import com.javafx.experiments.importers.dae.io.ResourceResolver;
+import com.javafx.experiments.importers.dae.io.ZaeArchive;
 import com.javafx.experiments.importers.dae.parsers.DaeSaxHandler;
+import com.javafx.experiments.importers.dae.parsers.DaeSceneCache;
+import com.javafx.experiments.importers.dae.parsers.DaeStaxReader;
+import com.javafx.experiments.importers.dae.parsers.SharedResources;
+import com.javafx.experiments.importers.dae.utils.ImportStatistics;
+import com.javafx.experiments.importers.dae.utils.ProgressInputStream;
+import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.scene.Camera;
 import javafx.scene.Group;
 import javafx.scene.Scene;
@@ -43,10 +54,41 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -59,11 +101,157 @@ import java.util.logging.Logger;
  */
 @SuppressWarnings("UnusedDeclaration")
 public final class DaeImporter implements Importer {
+    /**
+     * Version of the importer, part of the scene cache keys so that the entries written by another version are
+     * never read back.
+     */
+    public static final String VERSION = "1.3";
     private static final Logger LOGGER = Logger.getLogger(DaeImporter.class.getSimpleName());
+    private static final String DAE_EXTENSION = "dae";
+    private static final String ZAE_EXTENSION = "zae";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String SCENE_CACHE_PHASE = "scene cache";
+    private static final String INDEX_PHASE = "index";
+    private static final String SECTIONS_PHASE = "sections";
+    private static final String LIBRARY_GEOMETRIES_SECTION = "library_geometries";
+    private static final long GEOMETRIES_CHUNK_LENGTH = 4L << 20;
+    private static final SAXParserFactory SAX_PARSER_FACTORY = SAXParserFactory.newInstance();
+    private static final Queue<SAXParser> SAX_PARSERS = new ConcurrentLinkedQueue<>();
+    private static final DoubleConsumer NO_PROGRESS = progress -> {
+    };
+    private static final Executor LOADING_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "dae-loading");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Executor PARSING_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                final Thread thread = new Thread(runnable, "dae-parsing");
+                thread.setDaemon(true);
+                return thread;
+            });
     private Group rootNode = new Group();
     private Camera firstCamera;
     private double firstCameraAspectRatio;
     private final Map<String, Timeline> timelines = new HashMap<>();
+    private ParserEngine parserEngine = ParserEngine.SAX;
+    private Path sceneCacheDirectory;
+    private boolean animations = true;
+    private boolean referencedEntriesOnly;
+    private boolean parallelSections;
+    private boolean welding;
+    private boolean vertexCacheOptimization;
+    private int levelsOfDetail;
+    private boolean staticBatching;
+    private SharedResources sharedResources;
+    private Consumer<ImportStatistics> statisticsListener;
+
+    /**
+     * Selects the XML engine used by the next loads, {@link ParserEngine#SAX} by default.
+     */
+    public DaeImporter withParserEngine(final ParserEngine parserEngine) {
+        this.parserEngine = parserEngine;
+        return this;
+    }
+
+    /**
+     * Caches the parsed data of the local files in the given directory, so that loading an unchanged file again skips
+     * its XML parsing.
+     */
+    public DaeImporter withSceneCache(final Path directory) {
+        this.sceneCacheDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Skips the animations library of the next loads when false, so that no time is spent parsing key frames that
+     * won't be played. True by default.
+     */
+    public DaeImporter withAnimations(final boolean animations) {
+        this.animations = animations;
+        return this;
+    }
+
+    /**
+     * Only parses the library entries the visual scene depends on when true: the local plain documents are indexed
+     * first, and the geometries, materials, effects, images or animations the scene never refers to are skipped. False
+     * by default, the documents being parsed whole.
+     */
+    public DaeImporter withReferencedEntriesOnly(final boolean referencedEntriesOnly) {
+        this.referencedEntriesOnly = referencedEntriesOnly;
+        return this;
+    }
+
+    /**
+     * Parses the libraries of the local plain documents concurrently when true: the document is indexed first, then
+     * each library, and each chunk of a few megabytes of the geometries, is parsed on its own thread. False by
+     * default, the documents being parsed by the loading thread.
+     */
+    public DaeImporter withParallelSections(final boolean parallelSections) {
+        this.parallelSections = parallelSections;
+        return this;
+    }
+
+    /**
+     * Welds the meshes of the next loads when true: their duplicated and unreferenced points, normals and texture
+     * coordinates are removed and their faces remapped, only the texture coordinates of the skinned meshes being welded.
+     * False by default.
+     */
+    public DaeImporter withWelding(final boolean welding) {
+        this.welding = welding;
+        return this;
+    }
+
+    /**
+     * Reorders the faces of the meshes of the next loads for the vertex cache of the GPU when true, and renumbers their
+     * points, normals and texture coordinates in that order, the points of the skinned meshes being kept. False by
+     * default, the faces keeping the order they're exported in.
+     */
+    public DaeImporter withVertexCacheOptimization(final boolean vertexCacheOptimization) {
+        this.vertexCacheOptimization = vertexCacheOptimization;
+        return this;
+    }
+
+    /**
+     * Simplifies each mesh of the next loads into the given number of coarser levels of detail, each one having about
+     * half the faces of the previous one, and shows them in a {@link com.javafx.experiments.shape3d.LodGroup} switching
+     * between them with the distance to the camera. The borders, the seams of the texture coordinates and the creases
+     * of the normals are kept, and the levels of the skinned meshes are skinned with the same weights. 0 by default.
+     */
+    public DaeImporter withLevelsOfDetail(final int levelsOfDetail) {
+        this.levelsOfDetail = levelsOfDetail;
+        return this;
+    }
+
+    /**
+     * Merges the meshes of the static nodes of the next loads into one mesh per material when true, their transforms
+     * being baked into the merged meshes, which are {@link com.javafx.experiments.shape3d.BatchedMeshView}s mapping
+     * their faces back to the ids of their nodes for picking. False by default, each mesh having its own MeshView.
+     */
+    public DaeImporter withStaticBatching(final boolean staticBatching) {
+        this.staticBatching = staticBatching;
+        return this;
+    }
+
+    /**
+     * Shares the images and materials of the next loads with the other importers using the same resources, each load
+     * having its own resources by default.
+     */
+    public DaeImporter withSharedResources(final SharedResources sharedResources) {
+        this.sharedResources = sharedResources;
+        return this;
+    }
+
+    /**
+     * Hands over the statistics of every following load to the given listener, once the scene is built: the time
+     * spent in each library and build phase, the bytes read and the size of the imported scene. The listener is called
+     * from the thread building the scene, i.e. the FX thread for an asynchronous load.
+     */
+    public DaeImporter withStatisticsListener(final Consumer<ImportStatistics> statisticsListener) {
+        this.statisticsListener = statisticsListener;
+        return this;
+    }
 
     public Scene createScene(final int width) {
         final Scene scene = new Scene(rootNode, width, (int) (width / firstCameraAspectRatio), true);
@@ -87,36 +275,395 @@ public final class DaeImporter implements Importer {
 
     @Override
     public void load(final String url) throws IOException {
-        final int dotPosition = url.lastIndexOf('.');
-        final String extension = url.substring(dotPosition + 1, url.length());
-        if (!isSupported(extension)) {
-            throw new IOException("unsupported 3D format");
-        }
+        checkSupported(url);
 
         final long start = System.currentTimeMillis();
         try {
-            final SAXParserFactory factory = SAXParserFactory.newInstance();
-            final SAXParser saxParser = factory.newSAXParser();
+            importFile(url);
+        } catch (ParserConfigurationException | SAXException | XMLStreamException | IOException e) {
+            LOGGER.log(Level.SEVERE, "Couldn''t import {0} : \n{1}", new Object[]{url, e.getMessage()});
+            return;
+        }
+        final long end = System.currentTimeMillis();
+        LOGGER.log(Level.INFO, "Imported [{0}] in {1} ms", new Object[]{url, end - start});
+    }
+
+    /**
+     * Loads a document from a stream, e.g. a resource of a bundle. Its format is detected from its first bytes, so the
+     * stream can hold a plain, a gzip compressed or a zae document, which is decompressed on the fly.
+     *
+     * @param inputStream      The document, not closed by this method
+     * @param resourceResolver The resolver of the textures the document refers to, ignored for a zae document whose
+     *                         textures come from the archive
+     * @throws IOException If the document couldn't be read or parsed
+     */
+    public void load(final InputStream inputStream, final ResourceResolver resourceResolver) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            final ProgressInputStream countingStream = new ProgressInputStream(inputStream, -1, NO_PROGRESS, () -> false);
+            final DaeSaxHandler handler = readDocument(countingStream, resourceResolver);
+            handler.getStatistics().setBytesRead(countingStream.getBytesRead());
+            buildScene(handler, handler.getKeyFramesMap());
+            reportStatistics(handler, start);
+        } catch (ParserConfigurationException | SAXException | XMLStreamException e) {
+            throw new IOException(e);
+        }
+        LOGGER.log(Level.INFO, "Imported stream in {0} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @see #load(InputStream, ResourceResolver)
+     */
+    public void load(final ReadableByteChannel channel, final ResourceResolver resourceResolver) throws IOException {
+        load(Channels.newInputStream(channel), resourceResolver);
+    }
+
+    /**
+     * @see #load(InputStream, ResourceResolver)
+     */
+    public void load(final byte[] content, final ResourceResolver resourceResolver) throws IOException {
+        load(new ByteArrayInputStream(content), resourceResolver);
+    }
+
+    /**
+     * Same as {@link #load(String)}, failing instead of logging the errors.
+     */
+    void importFile(final String url) throws ParserConfigurationException, SAXException, XMLStreamException, IOException {
+        checkSupported(url);
+        final long start = System.nanoTime();
+        final DaeSaxHandler handler = loadHandler(url, NO_PROGRESS, () -> false);
+        buildScene(handler, handler.getKeyFramesMap());
+        reportStatistics(handler, start);
+    }
+
+    /**
+     * @see #loadAsync(String, DoubleConsumer)
+     */
+    public CompletableFuture<DaeImporter> loadAsync(final String url) {
+        return loadAsync(url, NO_PROGRESS);
+    }
 
-            final DaeSaxHandler handler = new DaeSaxHandler(extractRootPath(url));
-            saxParser.parse(url, handler.getLibraryHandler());
+    /**
+     * Loads the 3D file without blocking the FX thread: the XML parsing, the numeric decoding and the key frames
+     * calculation are done on a background thread, only the scene graph assembly being left to the FX thread.
+     * <p>
+     * The returned future is completed on the FX thread, once {@link #getRoot()} and {@link #getTimelines()} are
+     * ready. Cancelling it aborts the parsing.
+     *
+     * @param url              The url of the 3D file to load
+     * @param progressListener Called from the loading thread with the fraction of the file parsed so far
+     */
+    public CompletableFuture<DaeImporter> loadAsync(final String url, final DoubleConsumer progressListener) {
+        final CompletableFuture<DaeImporter> future = new CompletableFuture<>();
+        LOADING_EXECUTOR.execute(() -> {
+            final long start = System.nanoTime();
+            try {
+                checkSupported(url);
+                final DaeSaxHandler handler = loadHandler(url, progressListener, future::isCancelled);
+                handler.completeParsersDecoding();
+                final Map<String, List<KeyFrame>> keyFramesMap = handler.getKeyFramesMap();
+                Platform.runLater(() -> {
+                    if (future.isCancelled()) {
+                        return;
+                    }
+                    try {
+                        buildScene(handler, keyFramesMap);
+                        reportStatistics(handler, start);
+                        progressListener.accept(1.0);
+                        future.complete(this);
+                    } catch (RuntimeException e) {
+                        future.completeExceptionally(e);
+                        return;
+                    }
+                    LOGGER.log(Level.INFO, "Imported [{0}] in {1} ms",
+                            new Object[]{url, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+                });
+            } catch (ParserConfigurationException | SAXException | XMLStreamException | IOException | RuntimeException e) {
+                if (!future.isCancelled()) {
+                    LOGGER.log(Level.SEVERE, "Couldn''t import {0} : \n{1}", new Object[]{url, e.getMessage()});
+                }
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
 
-            buildTimelines(handler);
+    private void checkSupported(final String url) throws IOException {
+        if (!isSupported(extractExtension(url))) {
+            throw new IOException("unsupported 3D format");
+        }
+    }
 
-            rootNode = handler.buildScene();
-            firstCamera = handler.getFirstCamera();
-            firstCameraAspectRatio = handler.getFirstCameraAspectRatio();
+    // the extension of the path, ignoring the query of an url and a ".gz" suffix, e.g. "dae" for "model.dae.gz"
+    private static String extractExtension(final String url) {
+        String path = url.toLowerCase(Locale.ROOT);
+        final int queryPosition = path.indexOf('?');
+        if (queryPosition >= 0) {
+            path = path.substring(0, queryPosition);
+        }
+        if (path.endsWith(GZIP_SUFFIX)) {
+            path = path.substring(0, path.length() - GZIP_SUFFIX.length());
+        }
+        final int dotPosition = path.lastIndexOf('.');
+        return path.substring(dotPosition + 1);
+    }
+
+    private void buildScene(final DaeSaxHandler handler, final Map<String, List<KeyFrame>> keyFramesMap) {
+        buildTimelines(keyFramesMap);
+
+        rootNode = handler.buildScene();
+        firstCamera = handler.getFirstCamera();
+        firstCameraAspectRatio = handler.getFirstCameraAspectRatio();
+    }
 
-        } catch (ParserConfigurationException | SAXException | IOException e) {
-            LOGGER.log(Level.SEVERE, "Couldn't import {0} : \n{1}", new Object[]{url, e.getMessage()});
+    private void reportStatistics(final DaeSaxHandler handler, final long start) {
+        if (statisticsListener == null) {
             return;
         }
-        final long end = System.currentTimeMillis();
-        LOGGER.log(Level.INFO, "Imported [{0}] in {1} ms", new Object[]{url, end - start});
+        final ImportStatistics statistics = handler.getStatistics();
+        statistics.setTotalNanos(System.nanoTime() - start);
+        statisticsListener.accept(statistics);
+    }
+
+    private DaeSaxHandler loadHandler(final String url, final DoubleConsumer progressListener, final BooleanSupplier cancelled)
+            throws ParserConfigurationException, SAXException, XMLStreamException, IOException {
+        final File file = new File(url);
+        final ResourceResolver resourceResolver = file.exists()
+                ? ResourceResolver.forDirectory(file.getCanonicalFile().getParentFile().toPath())
+                : ResourceResolver.forUrl(new URL(url));
+        // the textures of a zae archive are only available while reading it
+        if (sceneCacheDirectory == null || !file.isFile() || ZAE_EXTENSION.equals(extractExtension(url))) {
+            return readDocument(url, resourceResolver, progressListener, cancelled);
+        }
+
+        // the entries parsed without animations, without unreferenced entries or with processed meshes are kept apart
+        // from the plain ones
+        final String version = VERSION + (animations ? "" : "-no-animations") + (referencedEntriesOnly ? "-referenced-only" : "")
+                + (welding ? "-welded" : "") + (vertexCacheOptimization ? "-vertex-cache" : "");
+        final DaeSceneCache sceneCache = new DaeSceneCache(sceneCacheDirectory, version);
+        final DaeSaxHandler emptyHandler = createHandler(resourceResolver);
+        emptyHandler.getStatistics().startPhase(SCENE_CACHE_PHASE);
+        final Optional<DaeSaxHandler> cachedHandler = sceneCache.load(file.toPath(), emptyHandler);
+        emptyHandler.getStatistics().endPhase(SCENE_CACHE_PHASE);
+        if (cachedHandler.isPresent()) {
+            return cachedHandler.get();
+        }
+        final DaeSaxHandler handler = readDocument(url, resourceResolver, progressListener, cancelled);
+        try {
+            sceneCache.store(file.toPath(), handler);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Couldn''t cache {0} : \n{1}", new Object[]{url, e.getMessage()});
+        }
+        return handler;
+    }
+
+    private DaeSaxHandler readDocument(final String url, final ResourceResolver resourceResolver,
+                                       final DoubleConsumer progressListener, final BooleanSupplier cancelled)
+            throws ParserConfigurationException, SAXException, XMLStreamException, IOException {
+        final File file = new File(url);
+        if ((referencedEntriesOnly || parallelSections) && file.isFile() && DAE_EXTENSION.equals(extractExtension(url))
+                && !url.toLowerCase(Locale.ROOT).endsWith(GZIP_SUFFIX)) {
+            final DaeSaxHandler handler = createHandler(resourceResolver);
+            handler.getStatistics().startPhase(INDEX_PHASE);
+            final DaeIndex index;
+            try {
+                index = DaeIndex.map(file.toPath());
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Couldn''t index {0}, parsing it whole : \n{1}", new Object[]{url, e.getMessage()});
+                return readWholeDocument(url, resourceResolver, progressListener, cancelled);
+            }
+            final Set<DaeIndex.Entry> entries = referencedEntriesOnly ? index.getSceneClosure() : index.getEntries();
+            handler.getStatistics().endPhase(INDEX_PHASE);
+            if (parallelSections) {
+                return readSections(index, entries, handler, resourceResolver, progressListener, cancelled);
+            }
+            try (ProgressInputStream inputStream = new ProgressInputStream(index.open(entries),
+                    index.getLength(entries), progressListener, cancelled)) {
+                parse(inputStream, handler);
+                handler.getStatistics().setBytesRead(inputStream.getBytesRead());
+                return handler;
+            }
+        }
+        return readWholeDocument(url, resourceResolver, progressListener, cancelled);
+    }
+
+    // Parses every section, and every chunk of the geometries, with its own handler on the parsing threads, the biggest
+    // first, then merges the handlers in the document order.
+    private DaeSaxHandler readSections(final DaeIndex index, final Set<DaeIndex.Entry> entries, final DaeSaxHandler handler,
+                                       final ResourceResolver resourceResolver, final DoubleConsumer progressListener,
+                                       final BooleanSupplier cancelled)
+            throws ParserConfigurationException, SAXException, XMLStreamException, IOException {
+        final List<DaeIndex.Section> partSections = new ArrayList<>();
+        final List<Set<DaeIndex.Entry>> partEntries = new ArrayList<>();
+        index.getSections().forEach(section -> splitSection(section, entries).forEach(chunk -> {
+            partSections.add(section);
+            partEntries.add(chunk);
+        }));
+        final long[] partLengths = new long[partSections.size()];
+        for (int i = 0; i < partLengths.length; i++) {
+            partLengths[i] = index.getLength(partSections.get(i), partEntries.get(i));
+        }
+        final long length = LongStream.of(partLengths).sum();
+
+        handler.getStatistics().startPhase(SECTIONS_PHASE);
+        final List<CompletableFuture<DaeSaxHandler>> parts = new ArrayList<>(Collections.nCopies(partLengths.length, null));
+        IntStream.range(0, partLengths.length).boxed().
+                sorted(Comparator.comparingLong(part -> -partLengths[part])).
+                forEach(part -> parts.set(part, CompletableFuture.supplyAsync(() -> {
+                    // the meshes are processed and batched once merged, the skinned ones being only known then
+                    final DaeSaxHandler partHandler = createHandler(resourceResolver).
+                            withWelding(false).
+                            withVertexCacheOptimization(false).
+                            withLevelsOfDetail(0).
+                            withStaticBatching(false);
+                    try (ProgressInputStream inputStream = new ProgressInputStream(
+                            index.open(partSections.get(part), partEntries.get(part)), -1, NO_PROGRESS, cancelled)) {
+                        parse(inputStream, partHandler);
+                        partHandler.completeParsersDecoding();
+                        return partHandler;
+                    } catch (ParserConfigurationException | SAXException | XMLStreamException | IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, PARSING_EXECUTOR)));
+
+        long bytesRead = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            handler.merge(join(parts.get(i)));
+            bytesRead += partLengths[i];
+            progressListener.accept((double) bytesRead / length);
+        }
+        handler.getStatistics().endPhase(SECTIONS_PHASE);
+        handler.getStatistics().setBytesRead(bytesRead);
+        return handler;
+    }
+
+    // the given entries of the section, the geometries being split in chunks of a few megabytes
+    private static List<Set<DaeIndex.Entry>> splitSection(final DaeIndex.Section section, final Set<DaeIndex.Entry> entries) {
+        final List<Set<DaeIndex.Entry>> chunks = new ArrayList<>();
+        Set<DaeIndex.Entry> chunk = new HashSet<>();
+        long chunkLength = 0;
+        for (final DaeIndex.Entry entry : section.getEntries()) {
+            if (!entries.contains(entry)) {
+                continue;
+            }
+            if (chunkLength >= GEOMETRIES_CHUNK_LENGTH && LIBRARY_GEOMETRIES_SECTION.equals(section.getName())) {
+                chunks.add(chunk);
+                chunk = new HashSet<>();
+                chunkLength = 0;
+            }
+            chunk.add(entry);
+            chunkLength += entry.getEnd() - entry.getStart();
+        }
+        // a section without entries, e.g. the asset, is parsed whole
+        if (!chunk.isEmpty() || chunks.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static DaeSaxHandler join(final CompletableFuture<DaeSaxHandler> future)
+            throws ParserConfigurationException, SAXException, XMLStreamException, IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ParserConfigurationException) {
+                throw (ParserConfigurationException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof XMLStreamException) {
+                throw (XMLStreamException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private DaeSaxHandler readWholeDocument(final String url, final ResourceResolver resourceResolver,
+                                            final DoubleConsumer progressListener, final BooleanSupplier cancelled)
+            throws ParserConfigurationException, SAXException, XMLStreamException, IOException {
+        try (ProgressInputStream inputStream = openStream(url, progressListener, cancelled)) {
+            final DaeSaxHandler handler = readDocument(inputStream, resourceResolver);
+            handler.getStatistics().setBytesRead(inputStream.getBytesRead());
+            return handler;
+        }
+    }
+
+    private DaeSaxHandler createHandler(final ResourceResolver resourceResolver) {
+        return new DaeSaxHandler(resourceResolver, sharedResources != null ? sharedResources : new SharedResources()).
+                withAnimations(animations).
+                withWelding(welding).
+                withVertexCacheOptimization(vertexCacheOptimization).
+                withLevelsOfDetail(levelsOfDetail).
+                withStaticBatching(staticBatching);
+    }
+
+    private DaeSaxHandler readDocument(final InputStream inputStream, final ResourceResolver resourceResolver)
+            throws ParserConfigurationException, SAXException, XMLStreamException, IOException {
+        final InputStream bufferedStream = inputStream.markSupported()
+                ? inputStream
+                : new BufferedInputStream(inputStream, BUFFER_SIZE);
+        switch (DocumentFormat.detect(bufferedStream)) {
+            case GZIP:
+                return readDocument(new GZIPInputStream(bufferedStream, BUFFER_SIZE), resourceResolver);
+            case ZIP:
+                return ZaeArchive.read(bufferedStream, (documentStream, archiveResolver) -> {
+                    try {
+                        return parse(documentStream, createHandler(archiveResolver));
+                    } catch (ParserConfigurationException | SAXException | XMLStreamException e) {
+                        throw new IOException(e);
+                    }
+                });
+            case XML:
+            default:
+                return parse(bufferedStream, createHandler(resourceResolver));
+        }
+    }
+
+    private DaeSaxHandler parse(final InputStream inputStream, final DaeSaxHandler handler)
+            throws ParserConfigurationException, SAXException, XMLStreamException, IOException {
+        switch (parserEngine) {
+            case STAX:
+                DaeStaxReader.read(inputStream, handler);
+                break;
+            case SAX:
+            default:
+                final SAXParser saxParser = acquireSaxParser();
+                try {
+                    saxParser.parse(inputStream, handler.getLibraryHandler());
+                } finally {
+                    saxParser.reset();
+                    SAX_PARSERS.offer(saxParser);
+                }
+                break;
+        }
+        return handler;
     }
 
-    private void buildTimelines(final DaeSaxHandler parser) {
-        parser.getKeyFramesMap().forEach((key, value) -> {
+    // the parsers are pooled rather than bound to threads, so that they're reused by short-lived threads too.
+    private static SAXParser acquireSaxParser() throws ParserConfigurationException, SAXException {
+        final SAXParser saxParser = SAX_PARSERS.poll();
+        if (saxParser != null) {
+            return saxParser;
+        }
+        synchronized (SAX_PARSER_FACTORY) {
+            return SAX_PARSER_FACTORY.newSAXParser();
+        }
+    }
+
+    private ProgressInputStream openStream(final String url, final DoubleConsumer progressListener, final BooleanSupplier cancelled)
+            throws IOException {
+        final File file = new File(url);
+        if (file.exists()) {
+            return new ProgressInputStream(new FileInputStream(file), file.length(), progressListener, cancelled);
+        }
+        final URLConnection connection = new URL(url).openConnection();
+        return new ProgressInputStream(connection.getInputStream(), connection.getContentLengthLong(), progressListener, cancelled);
+    }
+
+    private void buildTimelines(final Map<String, List<KeyFrame>> keyFramesMap) {
+        keyFramesMap.forEach((key, value) -> {
             if (!timelines.containsKey(key)) {
                 timelines.put(key, new Timeline());
             }
@@ -126,16 +673,11 @@ public final class DaeImporter implements Importer {
 
     @Override
     public boolean isSupported(final String extension) {
-        return "dae".equalsIgnoreCase(extension);
+        return DAE_EXTENSION.equalsIgnoreCase(extension) || ZAE_EXTENSION.equalsIgnoreCase(extension);
     }
 
     @Override
     public Map<String, Timeline> getTimelines() {
         return timelines;
     }
-
-    private String extractRootPath(final String relativeUrl) throws IOException {
-        final File file = new File(relativeUrl);
-        return file.getCanonicalFile().getParent();
-    }
 }
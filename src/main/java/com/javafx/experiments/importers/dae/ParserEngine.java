@@ -0,0 +1,18 @@
+package com.javafx.experiments.importers.dae;
+
+/**
+ * The XML engines able to drive the dae parsers.
+ *
+ * @author Eclion
+ */
+public enum ParserEngine {
+    /**
+     * Push parsing through {@link javax.xml.parsers.SAXParser}, the default one.
+     */
+    SAX,
+    /**
+     * Pull parsing through {@link javax.xml.stream.XMLStreamReader}, skipping the libraries no parser consumes and,
+     * within the libraries, the elements their parser doesn't pull.
+     */
+    STAX
+}
@@ -0,0 +1,441 @@
+package com.javafx.experiments.importers.dae.geometry;
+
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Simplifies meshes into coarser levels of detail by collapsing their edges, the cheapest first, the cost of a collapse
+ * being measured with the quadric error metric of Garland and Heckbert: the sum of the squared distances to the planes
+ * of the faces merged into a point, weighted by their areas.
+ * <p>
+ * The edges are collapsed onto one of their points, so that the points are never moved and no new point is created:
+ * the simplified mesh keeps the points array of the original one, and the weights of the joints of a skinned mesh,
+ * indexed by its points, still apply to it. The points on a border, on a seam of the texture coordinates or on a crease
+ * of the normals are never collapsed, which keeps the silhouettes, the textures and the hard edges in place.
+ *
+ * @author Eclion
+ */
+public final class MeshSimplifier {
+    // the points whose normals are further apart than about 25 degrees are on a crease
+    private static final double CREASE_COSINE = 0.9;
+    private static final int QUADRIC_SIZE = 10;
+
+    private MeshSimplifier() {
+    }
+
+    /**
+     * Collapses the edges of the mesh until it's down to the given number of faces, or until no edge can be collapsed
+     * anymore. The given mesh is left untouched.
+     *
+     * @return The simplified mesh, with the points, normals and texture coordinates of the given one, and only the
+     * faces left
+     */
+    public static TriangleMesh simplify(final TriangleMesh mesh, final int targetFaceCount) {
+        final VertexFormat vertexFormat = mesh.getVertexFormat();
+        final int vertexIndexSize = vertexFormat.getVertexIndexSize();
+        final int[] faces = mesh.getFaces().toArray(null);
+        final float[] points = mesh.getPoints().toArray(null);
+        final float[] normals = vertexFormat == VertexFormat.POINT_NORMAL_TEXCOORD ? mesh.getNormals().toArray(null) : null;
+        final float[] texCoords = mesh.getTexCoords().toArray(null);
+
+        final Collapser collapser = new Collapser(faces, vertexFormat, points, normals, texCoords);
+        collapser.collapse(targetFaceCount);
+
+        final TriangleMesh simplified = new TriangleMesh(vertexFormat);
+        simplified.getPoints().setAll(points);
+        if (normals != null) {
+            simplified.getNormals().setAll(normals);
+        }
+        simplified.getTexCoords().setAll(texCoords);
+        final int[] smoothingGroups = mesh.getFaceSmoothingGroups().toArray(null);
+        final int faceSize = vertexIndexSize * 3;
+        final int[] simplifiedFaces = new int[collapser.faceCount * faceSize];
+        final int[] simplifiedSmoothingGroups = new int[smoothingGroups.length == collapser.alive.length ? collapser.faceCount : 0];
+        for (int face = 0, simplifiedFace = 0; face < collapser.alive.length; face++) {
+            if (collapser.alive[face]) {
+                for (int corner = 0; corner < 3; corner++) {
+                    final int vertex = simplifiedFace * faceSize + corner * vertexIndexSize;
+                    final int index = face * 3 + corner;
+                    simplifiedFaces[vertex + vertexFormat.getPointIndexOffset()] = collapser.facePoints[index];
+                    simplifiedFaces[vertex + vertexFormat.getTexCoordIndexOffset()] = collapser.faceTexCoords[index];
+                    if (normals != null) {
+                        simplifiedFaces[vertex + vertexFormat.getNormalIndexOffset()] = collapser.faceNormals[index];
+                    }
+                }
+                if (simplifiedSmoothingGroups.length > 0) {
+                    simplifiedSmoothingGroups[simplifiedFace] = smoothingGroups[face];
+                }
+                simplifiedFace++;
+            }
+        }
+        simplified.getFaces().setAll(simplifiedFaces);
+        simplified.getFaceSmoothingGroups().setAll(simplifiedSmoothingGroups);
+        return simplified;
+    }
+
+    /**
+     * The collapse of the point u onto its neighbour v, valid as long as the stamp of u hasn't changed.
+     */
+    private static final class Collapse implements Comparable<Collapse> {
+        final double cost;
+        final int u;
+        final int v;
+        final int stamp;
+
+        Collapse(final double cost, final int u, final int v, final int stamp) {
+            this.cost = cost;
+            this.u = u;
+            this.v = v;
+            this.stamp = stamp;
+        }
+
+        @Override
+        public int compareTo(final Collapse other) {
+            return Double.compare(cost, other.cost);
+        }
+    }
+
+    /**
+     * The working state of a simplification: the corners of the faces, split by kind, and the faces around each point.
+     */
+    private static final class Collapser {
+        final int[] facePoints;
+        final int[] faceTexCoords;
+        final int[] faceNormals;
+        final boolean[] alive;
+        int faceCount;
+
+        private final float[] points;
+        private final float[] normals;
+        private final float[] texCoords;
+        private final int[][] pointFaces;
+        private final int[] pointFaceCounts;
+        private final double[] quadrics;
+        // the sum of the quadrics of the two points of an edge, reused from a cost to the next
+        private final double[] mergedQuadric = new double[QUADRIC_SIZE];
+        private final boolean[] locked;
+        // true when all the corners of the point share their normal, which then follows the collapses
+        private final boolean[] smooth;
+        private final boolean[] removed;
+        private final int[] stamps;
+        private final PriorityQueue<Collapse> collapses = new PriorityQueue<>();
+
+        Collapser(final int[] faces, final VertexFormat vertexFormat, final float[] points, final float[] normals,
+                  final float[] texCoords) {
+            this.points = points;
+            this.normals = normals;
+            this.texCoords = texCoords;
+            final int vertexIndexSize = vertexFormat.getVertexIndexSize();
+            final int cornerCount = faces.length / vertexIndexSize;
+            faceCount = cornerCount / 3;
+            facePoints = new int[faceCount * 3];
+            faceTexCoords = new int[faceCount * 3];
+            faceNormals = new int[faceCount * 3];
+            alive = new boolean[faceCount];
+            Arrays.fill(alive, true);
+            for (int corner = 0; corner < faceCount * 3; corner++) {
+                facePoints[corner] = faces[corner * vertexIndexSize + vertexFormat.getPointIndexOffset()];
+                faceTexCoords[corner] = faces[corner * vertexIndexSize + vertexFormat.getTexCoordIndexOffset()];
+                faceNormals[corner] = normals != null ? faces[corner * vertexIndexSize + vertexFormat.getNormalIndexOffset()] : -1;
+            }
+
+            final int pointCount = points.length / 3;
+            pointFaces = new int[pointCount][];
+            pointFaceCounts = new int[pointCount];
+            quadrics = new double[pointCount * QUADRIC_SIZE];
+            locked = new boolean[pointCount];
+            smooth = new boolean[pointCount];
+            removed = new boolean[pointCount];
+            stamps = new int[pointCount];
+            Arrays.fill(smooth, true);
+            if (!isValid(texCoords.length / 2, normals != null ? normals.length / 3 : 0)) {
+                // a broken mesh is left as it is
+                Arrays.fill(locked, true);
+                return;
+            }
+            addFaces();
+            lockBorders();
+            lockSeams();
+            for (int point = 0; point < pointCount; point++) {
+                queueCollapse(point);
+            }
+        }
+
+        private boolean isValid(final int texCoordCount, final int normalCount) {
+            final int pointCount = points.length / 3;
+            for (int corner = 0; corner < facePoints.length; corner++) {
+                if (facePoints[corner] < 0 || facePoints[corner] >= pointCount
+                        || faceTexCoords[corner] < 0 || faceTexCoords[corner] >= texCoordCount
+                        || normals != null && (faceNormals[corner] < 0 || faceNormals[corner] >= normalCount)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addFaces() {
+            for (int face = 0; face < faceCount; face++) {
+                final int a = facePoints[face * 3];
+                final int b = facePoints[face * 3 + 1];
+                final int c = facePoints[face * 3 + 2];
+                if (a == b || b == c || c == a) {
+                    locked[a] = locked[b] = locked[c] = true;
+                }
+                addPointFace(a, face);
+                addPointFace(b, face);
+                addPointFace(c, face);
+                addFaceQuadric(a, b, c);
+            }
+        }
+
+        private void addPointFace(final int point, final int face) {
+            if (pointFaces[point] == null) {
+                pointFaces[point] = new int[8];
+            } else if (pointFaceCounts[point] == pointFaces[point].length) {
+                pointFaces[point] = Arrays.copyOf(pointFaces[point], pointFaceCounts[point] * 2);
+            }
+            pointFaces[point][pointFaceCounts[point]++] = face;
+        }
+
+        // the quadric of the plane of the face, weighted by its area, is added to its three points
+        private void addFaceQuadric(final int a, final int b, final int c) {
+            final double[] normal = normal(a, b, c);
+            final double length = Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+            if (length == 0) {
+                return;
+            }
+            final double area = length / 2;
+            final double nx = normal[0] / length;
+            final double ny = normal[1] / length;
+            final double nz = normal[2] / length;
+            final double d = -(nx * points[a * 3] + ny * points[a * 3 + 1] + nz * points[a * 3 + 2]);
+            final double[] plane = {nx * nx, nx * ny, nx * nz, nx * d, ny * ny, ny * nz, ny * d, nz * nz, nz * d, d * d};
+            for (final int point : new int[]{a, b, c}) {
+                for (int i = 0; i < QUADRIC_SIZE; i++) {
+                    quadrics[point * QUADRIC_SIZE + i] += plane[i] * area;
+                }
+            }
+        }
+
+        // the points of the edges shared by other than two faces are on a border, or on a non manifold edge
+        private void lockBorders() {
+            final Map<Long, Integer> edgeFaceCounts = new HashMap<>();
+            final long pointCount = points.length / 3;
+            for (int face = 0; face < faceCount; face++) {
+                for (int corner = 0; corner < 3; corner++) {
+                    final int a = facePoints[face * 3 + corner];
+                    final int b = facePoints[face * 3 + (corner + 1) % 3];
+                    edgeFaceCounts.merge(Math.min(a, b) * pointCount + Math.max(a, b), 1, Integer::sum);
+                }
+            }
+            edgeFaceCounts.forEach((edge, count) -> {
+                if (count != 2) {
+                    locked[(int) (edge / pointCount)] = true;
+                    locked[(int) (edge % pointCount)] = true;
+                }
+            });
+        }
+
+        // the points whose corners have several texture coordinates, or normals too far apart, are on a seam
+        private void lockSeams() {
+            for (int point = 0; point < pointFaces.length; point++) {
+                int firstCorner = -1;
+                for (int i = 0; i < pointFaceCounts[point] && !locked[point]; i++) {
+                    final int corner = cornerOf(pointFaces[point][i], point);
+                    if (firstCorner < 0) {
+                        firstCorner = corner;
+                        continue;
+                    }
+                    final int t0 = faceTexCoords[firstCorner] * 2;
+                    final int t1 = faceTexCoords[corner] * 2;
+                    if (texCoords[t0] != texCoords[t1] || texCoords[t0 + 1] != texCoords[t1 + 1]) {
+                        locked[point] = true;
+                    }
+                    if (normals != null && faceNormals[firstCorner] != faceNormals[corner]) {
+                        smooth[point] = false;
+                        final int n0 = faceNormals[firstCorner] * 3;
+                        final int n1 = faceNormals[corner] * 3;
+                        final double dot = normals[n0] * normals[n1] + normals[n0 + 1] * normals[n1 + 1] + normals[n0 + 2] * normals[n1 + 2];
+                        final double lengths = Math.sqrt((normals[n0] * normals[n0] + normals[n0 + 1] * normals[n0 + 1] + normals[n0 + 2] * normals[n0 + 2])
+                                * (normals[n1] * normals[n1] + normals[n1 + 1] * normals[n1 + 1] + normals[n1 + 2] * normals[n1 + 2]));
+                        if (dot < CREASE_COSINE * lengths) {
+                            locked[point] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        void collapse(final int targetFaceCount) {
+            while (faceCount > targetFaceCount && !collapses.isEmpty()) {
+                final Collapse collapse = collapses.poll();
+                if (collapse.stamp == stamps[collapse.u] && !removed[collapse.u] && !removed[collapse.v]
+                        && canCollapse(collapse.u, collapse.v)) {
+                    collapse(collapse.u, collapse.v);
+                }
+            }
+        }
+
+        // queues the cheapest collapse of the point onto one of its neighbours
+        private void queueCollapse(final int u) {
+            stamps[u]++;
+            if (locked[u] || removed[u]) {
+                return;
+            }
+            double bestCost = Double.POSITIVE_INFINITY;
+            int best = -1;
+            for (int i = 0; i < pointFaceCounts[u]; i++) {
+                final int face = pointFaces[u][i];
+                if (alive[face]) {
+                    for (int corner = face * 3; corner < face * 3 + 3; corner++) {
+                        final int v = facePoints[corner];
+                        if (v != u) {
+                            final double cost = cost(u, v);
+                            if (cost < bestCost) {
+                                bestCost = cost;
+                                best = v;
+                            }
+                        }
+                    }
+                }
+            }
+            if (best >= 0) {
+                collapses.add(new Collapse(bestCost, u, best, stamps[u]));
+            }
+        }
+
+        // the error of the merged quadrics at the position of v
+        private double cost(final int u, final int v) {
+            final double x = points[v * 3];
+            final double y = points[v * 3 + 1];
+            final double z = points[v * 3 + 2];
+            final double[] q = mergedQuadric;
+            for (int i = 0; i < QUADRIC_SIZE; i++) {
+                q[i] = quadrics[u * QUADRIC_SIZE + i] + quadrics[v * QUADRIC_SIZE + i];
+            }
+            return q[0] * x * x + 2 * q[1] * x * y + 2 * q[2] * x * z + 2 * q[3] * x
+                    + q[4] * y * y + 2 * q[5] * y * z + 2 * q[6] * y
+                    + q[7] * z * z + 2 * q[8] * z
+                    + q[9];
+        }
+
+        // the collapse keeps the mesh manifold when u and v only share the neighbours of the two faces of their edge,
+        // and mustn't flip any face moved from u to v
+        private boolean canCollapse(final int u, final int v) {
+            int sharedFaces = 0;
+            final Map<Integer, Integer> neighbours = new HashMap<>();
+            for (final int point : new int[]{u, v}) {
+                for (int i = 0; i < pointFaceCounts[point]; i++) {
+                    final int face = pointFaces[point][i];
+                    if (!alive[face]) {
+                        continue;
+                    }
+                    if (point == u && hasPoint(face, v)) {
+                        sharedFaces++;
+                    }
+                    for (int corner = face * 3; corner < face * 3 + 3; corner++) {
+                        final int neighbour = facePoints[corner];
+                        if (neighbour != u && neighbour != v) {
+                            neighbours.merge(neighbour, point == u ? 1 : 2, (a, b) -> a | b);
+                        }
+                    }
+                }
+            }
+            if (sharedFaces != 2 || neighbours.values().stream().filter(sides -> sides == 3).count() != 2) {
+                return false;
+            }
+            for (int i = 0; i < pointFaceCounts[u]; i++) {
+                final int face = pointFaces[u][i];
+                if (alive[face] && !hasPoint(face, v)) {
+                    final int a = facePoints[face * 3];
+                    final int b = facePoints[face * 3 + 1];
+                    final int c = facePoints[face * 3 + 2];
+                    final double[] before = normal(a, b, c);
+                    final double[] after = normal(a == u ? v : a, b == u ? v : b, c == u ? v : c);
+                    if (before[0] * after[0] + before[1] * after[1] + before[2] * after[2] <= 0) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void collapse(final int u, final int v) {
+            int texCoord = -1;
+            int normal = -1;
+            for (int i = 0; i < pointFaceCounts[u]; i++) {
+                final int face = pointFaces[u][i];
+                if (alive[face] && hasPoint(face, v)) {
+                    texCoord = faceTexCoords[cornerOf(face, v)];
+                    normal = faceNormals[cornerOf(face, v)];
+                    alive[face] = false;
+                    faceCount--;
+                }
+            }
+            for (int i = 0; i < pointFaceCounts[u]; i++) {
+                final int face = pointFaces[u][i];
+                if (alive[face]) {
+                    final int corner = cornerOf(face, u);
+                    facePoints[corner] = v;
+                    faceTexCoords[corner] = texCoord;
+                    if (smooth[u]) {
+                        faceNormals[corner] = normal;
+                    }
+                    addPointFace(v, face);
+                }
+            }
+            for (int i = 0; i < QUADRIC_SIZE; i++) {
+                quadrics[v * QUADRIC_SIZE + i] += quadrics[u * QUADRIC_SIZE + i];
+            }
+            removed[u] = true;
+            pointFaceCounts[u] = 0;
+            if (!smooth[u]) {
+                smooth[v] = false;
+            }
+
+            queueCollapse(v);
+            for (int i = 0; i < pointFaceCounts[v]; i++) {
+                final int face = pointFaces[v][i];
+                if (alive[face]) {
+                    for (int corner = face * 3; corner < face * 3 + 3; corner++) {
+                        if (facePoints[corner] != v) {
+                            queueCollapse(facePoints[corner]);
+                        }
+                    }
+                }
+            }
+        }
+
+        private boolean hasPoint(final int face, final int point) {
+            return facePoints[face * 3] == point || facePoints[face * 3 + 1] == point || facePoints[face * 3 + 2] == point;
+        }
+
+        private int cornerOf(final int face, final int point) {
+            for (int corner = face * 3; corner < face * 3 + 3; corner++) {
+                if (facePoints[corner] == point) {
+                    return corner;
+                }
+            }
+            return -1;
+        }
+
+        // the normal of the face a, b, c, twice as long as its area
+        private double[] normal(final int a, final int b, final int c) {
+            final int pa = a * 3;
+            final int pb = b * 3;
+            final int pc = c * 3;
+            final double abx = points[pb] - points[pa];
+            final double aby = points[pb + 1] - points[pa + 1];
+            final double abz = points[pb + 2] - points[pa + 2];
+            final double acx = points[pc] - points[pa];
+            final double acy = points[pc + 1] - points[pa + 1];
+            final double acz = points[pc + 2] - points[pa + 2];
+            return new double[]{aby * acz - abz * acy, abz * acx - abx * acz, abx * acy - aby * acx};
+        }
+    }
+}
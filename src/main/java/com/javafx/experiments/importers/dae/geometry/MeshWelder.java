@@ -0,0 +1,129 @@
+package com.javafx.experiments.importers.dae.geometry;
+
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+
+import java.util.Arrays;
+
+/**
+ * Removes the duplicated and unreferenced points, normals and texture coordinates of meshes, and remaps their faces.
+ * Exported meshes usually hold a normal and a texture coordinate per face corner, most of them equal.
+ * <p>
+ * A TriangleMesh indexes its points, normals and texture coordinates separately, so each of them is welded on its own,
+ * the equal elements being found through an open-addressing hash table of their float bits. The welded elements keep
+ * the order they're first referenced in.
+ *
+ * @author Eclion
+ */
+public final class MeshWelder {
+    private static final int POINT_SIZE = 3;
+    private static final int NORMAL_SIZE = 3;
+    private static final int TEX_COORD_SIZE = 2;
+
+    private MeshWelder() {
+    }
+
+    /**
+     * @param skinned True to keep the points of a skinned mesh, the weights of its joints being indexed by them. Its
+     *                normals are welded, so that the faces sharing each of them are smoothed once it's skinned
+     * @return The number of bytes saved
+     */
+    public static long weld(final TriangleMesh mesh, final boolean skinned) {
+        final int[] faces = mesh.getFaces().toArray(null);
+        final VertexFormat vertexFormat = mesh.getVertexFormat();
+        final int vertexIndexSize = vertexFormat.getVertexIndexSize();
+        long savedBytes = 0;
+        if (!skinned) {
+            final float[] points = mesh.getPoints().toArray(null);
+            final float[] weldedPoints = weld(points, POINT_SIZE, faces, vertexFormat.getPointIndexOffset(), vertexIndexSize);
+            if (weldedPoints != points) {
+                mesh.getPoints().setAll(weldedPoints);
+                savedBytes += (long) (points.length - weldedPoints.length) * Float.BYTES;
+            }
+        }
+        if (vertexFormat == VertexFormat.POINT_NORMAL_TEXCOORD) {
+            final float[] normals = mesh.getNormals().toArray(null);
+            final float[] weldedNormals = weld(normals, NORMAL_SIZE, faces, vertexFormat.getNormalIndexOffset(), vertexIndexSize);
+            if (weldedNormals != normals) {
+                mesh.getNormals().setAll(weldedNormals);
+                savedBytes += (long) (normals.length - weldedNormals.length) * Float.BYTES;
+            }
+        }
+        final float[] texCoords = mesh.getTexCoords().toArray(null);
+        final float[] weldedTexCoords = weld(texCoords, TEX_COORD_SIZE, faces, vertexFormat.getTexCoordIndexOffset(), vertexIndexSize);
+        if (weldedTexCoords != texCoords) {
+            mesh.getTexCoords().setAll(weldedTexCoords);
+            savedBytes += (long) (texCoords.length - weldedTexCoords.length) * Float.BYTES;
+        }
+        if (savedBytes > 0) {
+            mesh.getFaces().setAll(faces);
+        }
+        return savedBytes;
+    }
+
+    /**
+     * Welds the elements of one kind, remapping their indices in the faces.
+     *
+     * @return The welded elements, or the given ones if nothing could be removed, the faces being left untouched then
+     */
+    static float[] weld(final float[] values, final int elementSize, final int[] faces, final int indexOffset,
+                        final int vertexIndexSize) {
+        final int elementCount = values.length / elementSize;
+        for (int i = indexOffset; i < faces.length; i += vertexIndexSize) {
+            if (faces[i] < 0 || faces[i] >= elementCount) {
+                // a broken mesh is left as it is
+                return values;
+            }
+        }
+        final int[] remap = new int[elementCount];
+        Arrays.fill(remap, -1);
+        final int mask = Integer.highestOneBit(Math.max(elementCount, 1) * 2 - 1) * 2 - 1;
+        // the welded index + 1 of the element hashed in each slot, 0 for an empty slot
+        final int[] slots = new int[mask + 1];
+        final float[] welded = new float[values.length];
+        int weldedCount = 0;
+        for (int i = indexOffset; i < faces.length; i += vertexIndexSize) {
+            final int element = faces[i];
+            if (remap[element] < 0) {
+                int slot = hash(values, element * elementSize, elementSize) & mask;
+                while (slots[slot] != 0 && !equal(welded, (slots[slot] - 1) * elementSize, values, element * elementSize, elementSize)) {
+                    slot = (slot + 1) & mask;
+                }
+                if (slots[slot] == 0) {
+                    System.arraycopy(values, element * elementSize, welded, weldedCount * elementSize, elementSize);
+                    slots[slot] = ++weldedCount;
+                }
+                remap[element] = slots[slot] - 1;
+            }
+        }
+        if (weldedCount == elementCount) {
+            return values;
+        }
+        for (int i = indexOffset; i < faces.length; i += vertexIndexSize) {
+            faces[i] = remap[faces[i]];
+        }
+        return Arrays.copyOf(welded, weldedCount * elementSize);
+    }
+
+    // -0 and 0 are the same coordinate
+    private static int bits(final float value) {
+        return value == 0 ? 0 : Float.floatToIntBits(value);
+    }
+
+    private static int hash(final float[] values, final int start, final int elementSize) {
+        int hash = 0;
+        for (int i = start; i < start + elementSize; i++) {
+            hash = hash * 0x9E3779B1 + bits(values[i]);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equal(final float[] a, final int aStart, final float[] b, final int bStart, final int elementSize) {
+        for (int i = 0; i < elementSize; i++) {
+            if (bits(a[aStart + i]) != bits(b[bStart + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
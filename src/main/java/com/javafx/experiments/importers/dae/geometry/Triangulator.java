@@ -0,0 +1,245 @@
+package com.javafx.experiments.importers.dae.geometry;
+
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the primitives of a mesh into triangles. The triangles are returned as their corners: the numbers of the
+ * vertices of the primitives, in document order, so that the faces are then built from the indices of these vertices.
+ * <p>
+ * Every primitive of n vertices gives n - 2 triangles, which lets the primitives of a big mesh be split in parallel,
+ * every one of them writing its triangles at its own place.
+ *
+ * @author Eclion
+ */
+public final class Triangulator {
+    private static final int MIN_PARALLEL_PRIMITIVES = 1 << 14;
+    private static final float EPSILON = 1e-12f;
+
+    private Triangulator() {
+    }
+
+    /**
+     * @return The number of triangles the primitives are split into
+     */
+    public static int countTriangles(final int[] vertexCounts) {
+        int triangleCount = 0;
+        for (final int vertexCount : vertexCounts) {
+            triangleCount += Math.max(vertexCount - 2, 0);
+        }
+        return triangleCount;
+    }
+
+    /**
+     * Splits the polygons with a fan from their first vertex when they're convex, which is the usual case, and by
+     * clipping their ears otherwise. The polygons are projected onto the plane of their main axes to be clipped.
+     *
+     * @param vertexCounts  The number of vertices of each polygon
+     * @param positionIndex The index in the positions of a vertex, from its number
+     * @param positions     The x, y, z coordinates of the positions
+     */
+    public static int[] triangulatePolygons(final int[] vertexCounts, final IntUnaryOperator positionIndex,
+                                            final float[] positions) {
+        return triangulate(vertexCounts, new PrimitiveSplitter() {
+            private final ThreadLocal<PolygonClipper> clippers = ThreadLocal.withInitial(PolygonClipper::new);
+
+            @Override
+            public void split(final int firstVertex, final int vertexCount, final int[] corners, final int firstCorner) {
+                if (vertexCount == 3) {
+                    corners[firstCorner] = firstVertex;
+                    corners[firstCorner + 1] = firstVertex + 1;
+                    corners[firstCorner + 2] = firstVertex + 2;
+                } else {
+                    clippers.get().split(firstVertex, vertexCount, positionIndex, positions, corners, firstCorner);
+                }
+            }
+        });
+    }
+
+    /**
+     * Splits the strips, every other triangle being flipped to keep the winding of the first one.
+     */
+    public static int[] triangulateStrips(final int[] vertexCounts) {
+        return triangulate(vertexCounts, (firstVertex, vertexCount, corners, firstCorner) -> {
+            for (int i = 0, corner = firstCorner; i < vertexCount - 2; i++, corner += 3) {
+                final boolean flipped = (i & 1) == 1;
+                corners[corner] = firstVertex + (flipped ? i + 1 : i);
+                corners[corner + 1] = firstVertex + (flipped ? i : i + 1);
+                corners[corner + 2] = firstVertex + i + 2;
+            }
+        });
+    }
+
+    /**
+     * Splits the fans, all the triangles of a fan sharing its first vertex.
+     */
+    public static int[] triangulateFans(final int[] vertexCounts) {
+        return triangulate(vertexCounts, Triangulator::splitFan);
+    }
+
+    private static void splitFan(final int firstVertex, final int vertexCount, final int[] corners, final int firstCorner) {
+        for (int i = 1, corner = firstCorner; i < vertexCount - 1; i++, corner += 3) {
+            corners[corner] = firstVertex;
+            corners[corner + 1] = firstVertex + i;
+            corners[corner + 2] = firstVertex + i + 1;
+        }
+    }
+
+    private static int[] triangulate(final int[] vertexCounts, final PrimitiveSplitter splitter) {
+        final int primitiveCount = vertexCounts.length;
+        final int[] firstVertices = new int[primitiveCount + 1];
+        final int[] firstCorners = new int[primitiveCount + 1];
+        for (int i = 0; i < primitiveCount; i++) {
+            firstVertices[i + 1] = firstVertices[i] + vertexCounts[i];
+            firstCorners[i + 1] = firstCorners[i] + Math.max(vertexCounts[i] - 2, 0) * 3;
+        }
+        final int[] corners = new int[firstCorners[primitiveCount]];
+        final int chunkCount = Math.max(1, primitiveCount / MIN_PARALLEL_PRIMITIVES);
+        final IntStream chunks = IntStream.range(0, chunkCount);
+        (chunkCount > 1 ? chunks.parallel() : chunks).forEach(chunk -> {
+            final int end = (int) ((long) primitiveCount * (chunk + 1) / chunkCount);
+            for (int i = (int) ((long) primitiveCount * chunk / chunkCount); i < end; i++) {
+                if (vertexCounts[i] >= 3) {
+                    splitter.split(firstVertices[i], vertexCounts[i], corners, firstCorners[i]);
+                }
+            }
+        });
+        return corners;
+    }
+
+    @FunctionalInterface
+    private interface PrimitiveSplitter {
+        /**
+         * Writes the vertexCount - 2 triangles of a primitive from the given corner on.
+         */
+        void split(int firstVertex, int vertexCount, int[] corners, int firstCorner);
+    }
+
+    /**
+     * Clips the ears of polygons, with working arrays reused from one polygon to the next.
+     */
+    private static final class PolygonClipper {
+        private float[] us = new float[0];
+        private float[] vs = new float[0];
+        private int[] previous = new int[0];
+        private int[] next = new int[0];
+
+        void split(final int firstVertex, final int vertexCount, final IntUnaryOperator positionIndex,
+                   final float[] positions, final int[] corners, final int firstCorner) {
+            if (us.length < vertexCount) {
+                us = new float[vertexCount];
+                vs = new float[vertexCount];
+                previous = new int[vertexCount];
+                next = new int[vertexCount];
+            }
+            project(firstVertex, vertexCount, positionIndex, positions);
+            if (isConvex(vertexCount)) {
+                splitFan(firstVertex, vertexCount, corners, firstCorner);
+            } else {
+                clipEars(firstVertex, vertexCount, corners, firstCorner);
+            }
+        }
+
+        // Projects the polygon onto the plane of the two axes its Newell normal is the least aligned with, mirrored
+        // if needed so that it's counterclockwise in that plane.
+        private void project(final int firstVertex, final int vertexCount, final IntUnaryOperator positionIndex,
+                             final float[] positions) {
+            float nx = 0;
+            float ny = 0;
+            float nz = 0;
+            for (int i = 0; i < vertexCount; i++) {
+                final int current = positionIndex.applyAsInt(firstVertex + i) * 3;
+                final int following = positionIndex.applyAsInt(firstVertex + (i + 1) % vertexCount) * 3;
+                nx += (positions[current + 1] - positions[following + 1]) * (positions[current + 2] + positions[following + 2]);
+                ny += (positions[current + 2] - positions[following + 2]) * (positions[current] + positions[following]);
+                nz += (positions[current] - positions[following]) * (positions[current + 1] + positions[following + 1]);
+            }
+            final int uAxis;
+            final int vAxis;
+            final float normal;
+            if (Math.abs(nx) >= Math.abs(ny) && Math.abs(nx) >= Math.abs(nz)) {
+                uAxis = 1;
+                vAxis = 2;
+                normal = nx;
+            } else if (Math.abs(ny) >= Math.abs(nz)) {
+                uAxis = 2;
+                vAxis = 0;
+                normal = ny;
+            } else {
+                uAxis = 0;
+                vAxis = 1;
+                normal = nz;
+            }
+            final float mirror = normal < 0 ? -1 : 1;
+            for (int i = 0; i < vertexCount; i++) {
+                final int position = positionIndex.applyAsInt(firstVertex + i) * 3;
+                us[i] = positions[position + uAxis] * mirror;
+                vs[i] = positions[position + vAxis];
+                previous[i] = (i + vertexCount - 1) % vertexCount;
+                next[i] = (i + 1) % vertexCount;
+            }
+        }
+
+        private boolean isConvex(final int vertexCount) {
+            for (int i = 0; i < vertexCount; i++) {
+                if (cross(previous[i], i, next[i]) < -EPSILON) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void clipEars(final int firstVertex, final int vertexCount, final int[] corners, final int firstCorner) {
+            int corner = firstCorner;
+            int remaining = vertexCount;
+            int current = 0;
+            int checked = 0;
+            while (remaining > 3) {
+                if (isEar(current)) {
+                    corners[corner] = firstVertex + previous[current];
+                    corners[corner + 1] = firstVertex + current;
+                    corners[corner + 2] = firstVertex + next[current];
+                    corner += 3;
+                    next[previous[current]] = next[current];
+                    previous[next[current]] = previous[current];
+                    current = previous[current];
+                    remaining--;
+                    checked = 0;
+                } else if (++checked > remaining) {
+                    // self-intersecting or degenerate, the rest is split as a fan
+                    break;
+                } else {
+                    current = next[current];
+                }
+            }
+            for (int vertex = next[current]; remaining >= 3; vertex = next[vertex], remaining--) {
+                corners[corner] = firstVertex + current;
+                corners[corner + 1] = firstVertex + vertex;
+                corners[corner + 2] = firstVertex + next[vertex];
+                corner += 3;
+            }
+        }
+
+        private boolean isEar(final int vertex) {
+            final int a = previous[vertex];
+            final int c = next[vertex];
+            if (cross(a, vertex, c) <= EPSILON) {
+                return false;
+            }
+            for (int other = next[c]; other != a; other = next[other]) {
+                if (isInside(other, a, vertex, c)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isInside(final int point, final int a, final int b, final int c) {
+            return cross(a, b, point) >= 0 && cross(b, c, point) >= 0 && cross(c, a, point) >= 0;
+        }
+
+        private float cross(final int a, final int b, final int c) {
+            return (us[b] - us[a]) * (vs[c] - vs[b]) - (vs[b] - vs[a]) * (us[c] - us[b]);
+        }
+    }
+}
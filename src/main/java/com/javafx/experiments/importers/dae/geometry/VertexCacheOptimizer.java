@@ -0,0 +1,301 @@
+package com.javafx.experiments.importers.dae.geometry;
+
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Reorders the faces of meshes for the post-transform vertex cache of the GPU, with the linear-speed algorithm of
+ * Tom Forsyth: the next face is the one scoring best from the recently used vertices and from the number of faces
+ * their vertices still belong to. The points, normals and texture coordinates are then renumbered in the order the
+ * faces use them, so that they're fetched sequentially.
+ * <p>
+ * The points are the vertices of the cache, the normals and texture coordinates following them in exported meshes.
+ *
+ * @author Eclion
+ */
+public final class VertexCacheOptimizer {
+    /**
+     * The size of the cache the faces are ordered for, which suits the caches of the current GPUs.
+     */
+    public static final int CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    private VertexCacheOptimizer() {
+    }
+
+    /**
+     * @param skinned True to keep the points of a skinned mesh in their order, the weights of its joints being indexed
+     *                by them
+     */
+    public static void optimize(final TriangleMesh mesh, final boolean skinned) {
+        final VertexFormat vertexFormat = mesh.getVertexFormat();
+        final int vertexIndexSize = vertexFormat.getVertexIndexSize();
+        final int faceSize = vertexIndexSize * 3;
+        final int[] faces = mesh.getFaces().toArray(null);
+        final int faceCount = faces.length / faceSize;
+        final int[] points = corners(faces, vertexIndexSize, vertexFormat.getPointIndexOffset());
+        final int pointCount = mesh.getPoints().size() / mesh.getPointElementSize();
+        if (faceCount == 0 || IntStream.of(points).anyMatch(point -> point < 0 || point >= pointCount)) {
+            return;
+        }
+
+        final int[] order = orderTriangles(points, pointCount, CACHE_SIZE);
+        final int[] orderedFaces = new int[faceCount * faceSize];
+        for (int i = 0; i < faceCount; i++) {
+            System.arraycopy(faces, order[i] * faceSize, orderedFaces, i * faceSize, faceSize);
+        }
+        final int[] smoothingGroups = mesh.getFaceSmoothingGroups().toArray(null);
+        if (smoothingGroups.length == faceCount) {
+            final int[] orderedSmoothingGroups = new int[faceCount];
+            for (int i = 0; i < faceCount; i++) {
+                orderedSmoothingGroups[i] = smoothingGroups[order[i]];
+            }
+            mesh.getFaceSmoothingGroups().setAll(orderedSmoothingGroups);
+        }
+
+        if (!skinned) {
+            mesh.getPoints().setAll(renumber(mesh.getPoints().toArray(null), mesh.getPointElementSize(),
+                    orderedFaces, vertexIndexSize, vertexFormat.getPointIndexOffset()));
+        }
+        if (vertexFormat == VertexFormat.POINT_NORMAL_TEXCOORD) {
+            mesh.getNormals().setAll(renumber(mesh.getNormals().toArray(null), mesh.getNormalElementSize(),
+                    orderedFaces, vertexIndexSize, vertexFormat.getNormalIndexOffset()));
+        }
+        mesh.getTexCoords().setAll(renumber(mesh.getTexCoords().toArray(null), mesh.getTexCoordElementSize(),
+                orderedFaces, vertexIndexSize, vertexFormat.getTexCoordIndexOffset()));
+        mesh.getFaces().setAll(orderedFaces);
+    }
+
+    /**
+     * @return The average cache miss ratio of the faces: the number of points missing from a FIFO cache of the given
+     * size per face, from 3 for the worst order down to about 0.5 for a regular grid
+     */
+    public static double averageCacheMissRatio(final TriangleMesh mesh, final int cacheSize) {
+        final VertexFormat vertexFormat = mesh.getVertexFormat();
+        return averageCacheMissRatio(corners(mesh.getFaces().toArray(null), vertexFormat.getVertexIndexSize(),
+                vertexFormat.getPointIndexOffset()), cacheSize);
+    }
+
+    /**
+     * @param vertices The vertices of the triangles, three by three
+     */
+    public static double averageCacheMissRatio(final int[] vertices, final int cacheSize) {
+        if (vertices.length < 3) {
+            return 0;
+        }
+        final int[] cache = new int[cacheSize];
+        Arrays.fill(cache, -1);
+        int next = 0;
+        int misses = 0;
+        for (final int vertex : vertices) {
+            boolean cached = false;
+            for (final int cachedVertex : cache) {
+                if (cachedVertex == vertex) {
+                    cached = true;
+                    break;
+                }
+            }
+            if (!cached) {
+                cache[next] = vertex;
+                next = (next + 1) % cacheSize;
+                misses++;
+            }
+        }
+        return (double) misses / (vertices.length / 3);
+    }
+
+    /**
+     * @param vertices    The vertices of the triangles, three by three
+     * @param vertexCount The number of vertices, greater than any of the given ones
+     * @return The triangles, by their index, in the order to draw them
+     */
+    public static int[] orderTriangles(final int[] vertices, final int vertexCount, final int cacheSize) {
+        final int triangleCount = vertices.length / 3;
+
+        // the triangles of every vertex, which the emitted ones are removed from
+        final int[] triangleStarts = new int[vertexCount + 1];
+        for (int i = 0; i < triangleCount * 3; i++) {
+            triangleStarts[vertices[i] + 1]++;
+        }
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            triangleStarts[vertex + 1] += triangleStarts[vertex];
+        }
+        final int[] remainingTriangles = new int[vertexCount];
+        final int[] vertexTriangles = new int[triangleCount * 3];
+        for (int i = 0; i < triangleCount * 3; i++) {
+            final int vertex = vertices[i];
+            vertexTriangles[triangleStarts[vertex] + remainingTriangles[vertex]++] = i / 3;
+        }
+
+        final int[] cachePositions = new int[vertexCount];
+        Arrays.fill(cachePositions, -1);
+        final float[] vertexScores = new float[vertexCount];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            vertexScores[vertex] = score(-1, remainingTriangles[vertex], cacheSize);
+        }
+        final float[] triangleScores = new float[triangleCount];
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            triangleScores[triangle] = vertexScores[vertices[triangle * 3]] + vertexScores[vertices[triangle * 3 + 1]]
+                    + vertexScores[vertices[triangle * 3 + 2]];
+        }
+
+        final boolean[] emitted = new boolean[triangleCount];
+        final int[] order = new int[triangleCount];
+        // the cache holds the 3 vertices of the emitted triangle on top of the ones it already held
+        int[] cache = new int[cacheSize + 3];
+        int[] nextCache = new int[cacheSize + 3];
+        int cacheLength = 0;
+        int bestTriangle = bestTriangle(triangleScores);
+        int scanStart = 0;
+        for (int i = 0; i < triangleCount; i++) {
+            if (bestTriangle < 0) {
+                // none of the cached vertices has triangles left, the next part of the mesh is started in the face
+                // order rather than looking for its best triangle, which would take quadratic time for triangle soups
+                while (emitted[scanStart]) {
+                    scanStart++;
+                }
+                bestTriangle = scanStart;
+            }
+            order[i] = bestTriangle;
+            emitted[bestTriangle] = true;
+
+            // the vertices of the triangle move to the front of the cache
+            int nextLength = 0;
+            for (int corner = 0; corner < 3; corner++) {
+                final int vertex = vertices[bestTriangle * 3 + corner];
+                if (!contains(nextCache, nextLength, vertex)) {
+                    nextCache[nextLength++] = vertex;
+                }
+                removeTriangle(vertexTriangles, triangleStarts[vertex], remainingTriangles, vertex, bestTriangle);
+            }
+            final int triangleVertexCount = nextLength;
+            for (int position = 0; position < cacheLength; position++) {
+                final int vertex = cache[position];
+                if (!contains(nextCache, triangleVertexCount, vertex)) {
+                    nextCache[nextLength++] = vertex;
+                }
+            }
+            final int[] previousCache = cache;
+            cache = nextCache;
+            nextCache = previousCache;
+            cacheLength = nextLength;
+
+            // the vertices pushed out of the cache and the ones still in it are scored again, with their triangles
+            for (int position = 0; position < cacheLength; position++) {
+                final int vertex = cache[position];
+                cachePositions[vertex] = position < cacheSize ? position : -1;
+                final float scoreChange = score(cachePositions[vertex], remainingTriangles[vertex], cacheSize) - vertexScores[vertex];
+                vertexScores[vertex] += scoreChange;
+                for (int t = triangleStarts[vertex]; t < triangleStarts[vertex] + remainingTriangles[vertex]; t++) {
+                    triangleScores[vertexTriangles[t]] += scoreChange;
+                }
+            }
+            cacheLength = Math.min(cacheLength, cacheSize);
+
+            bestTriangle = -1;
+            float bestScore = -1;
+            for (int position = 0; position < cacheLength; position++) {
+                final int vertex = cache[position];
+                for (int t = triangleStarts[vertex]; t < triangleStarts[vertex] + remainingTriangles[vertex]; t++) {
+                    final int triangle = vertexTriangles[t];
+                    if (triangleScores[triangle] > bestScore) {
+                        bestScore = triangleScores[triangle];
+                        bestTriangle = triangle;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    private static int bestTriangle(final float[] triangleScores) {
+        int bestTriangle = triangleScores.length > 0 ? 0 : -1;
+        for (int triangle = 1; triangle < triangleScores.length; triangle++) {
+            if (triangleScores[triangle] > triangleScores[bestTriangle]) {
+                bestTriangle = triangle;
+            }
+        }
+        return bestTriangle;
+    }
+
+    private static boolean contains(final int[] array, final int length, final int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void removeTriangle(final int[] vertexTriangles, final int start, final int[] remainingTriangles,
+                                       final int vertex, final int triangle) {
+        final int end = start + remainingTriangles[vertex];
+        for (int t = start; t < end; t++) {
+            if (vertexTriangles[t] == triangle) {
+                vertexTriangles[t] = vertexTriangles[end - 1];
+                remainingTriangles[vertex]--;
+                return;
+            }
+        }
+    }
+
+    private static float score(final int cachePosition, final int remainingTriangles, final int cacheSize) {
+        if (remainingTriangles == 0) {
+            return -1;
+        }
+        float score = 0;
+        if (cachePosition >= 3) {
+            score = (float) Math.pow(1 - (float) (cachePosition - 3) / (cacheSize - 3), CACHE_DECAY_POWER);
+        } else if (cachePosition >= 0) {
+            // the vertices of the last triangle are scored lower, not to draw strips
+            score = LAST_TRIANGLE_SCORE;
+        }
+        // the vertices left with few triangles are favoured, to get rid of them
+        return score + VALENCE_BOOST_SCALE * (float) Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+    }
+
+    private static int[] corners(final int[] faces, final int vertexIndexSize, final int indexOffset) {
+        final int[] corners = new int[faces.length / vertexIndexSize];
+        for (int i = 0; i < corners.length; i++) {
+            corners[i] = faces[i * vertexIndexSize + indexOffset];
+        }
+        return corners;
+    }
+
+    // Moves the elements in the order the faces refer to them first, the ones never referred to being moved last,
+    // and renumbers them in the faces.
+    private static float[] renumber(final float[] values, final int elementSize, final int[] faces,
+                                    final int vertexIndexSize, final int indexOffset) {
+        final int elementCount = values.length / elementSize;
+        final int[] remap = new int[elementCount];
+        Arrays.fill(remap, -1);
+        int renumbered = 0;
+        for (int i = indexOffset; i < faces.length; i += vertexIndexSize) {
+            if (faces[i] < 0 || faces[i] >= elementCount) {
+                return values;
+            }
+            if (remap[faces[i]] < 0) {
+                remap[faces[i]] = renumbered++;
+            }
+        }
+        for (int element = 0; element < elementCount; element++) {
+            if (remap[element] < 0) {
+                remap[element] = renumbered++;
+            }
+        }
+        final float[] renumberedValues = new float[values.length];
+        for (int element = 0; element < elementCount; element++) {
+            System.arraycopy(values, element * elementSize, renumberedValues, remap[element] * elementSize, elementSize);
+        }
+        for (int i = indexOffset; i < faces.length; i += vertexIndexSize) {
+            faces[i] = remap[faces[i]];
+        }
+        return renumberedValues;
+    }
+}
@@ -0,0 +1,622 @@
+package com.javafx.experiments.importers.dae.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Byte offsets of the sections of a dae document (the children of the root element, e.g. the libraries) and of their
+ * entries (the children of the sections, e.g. the geometries), found by a scan of the bytes which doesn't decode
+ * anything but the ids of the entries.
+ * <p>
+ * The index tells which entries the visual scene depends on and serves a document reduced to them, so that the
+ * entries the scene never instantiates aren't parsed. Only the encodings compatible with ASCII are supported.
+ *
+ * @author Eclion
+ */
+public final class DaeIndex {
+    private static final String VISUAL_SCENES_SECTION = "library_visual_scenes";
+    private static final String VISUAL_SCENE_ENTRY = "visual_scene";
+    private static final String ANIMATIONS_SECTION = "library_animations";
+    private static final String INIT_FROM_TAG = "init_from";
+    private static final String ID_ATTRIBUTE = "id";
+    private static final String SID_ATTRIBUTE = "sid";
+    private static final String TARGET_ATTRIBUTE = "target";
+    private static final String TEXTURE_ATTRIBUTE = "texture";
+    private static final byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PROCESSING_INSTRUCTION_END = "?>".getBytes(StandardCharsets.US_ASCII);
+
+    private final ByteBuffer document;
+    private final int rootStartTagEnd;
+    private final List<Section> sections;
+    private final Map<String, Entry> entriesById;
+
+    private DaeIndex(final ByteBuffer document, final int rootStartTagEnd, final List<Section> sections) {
+        this.document = document;
+        this.rootStartTagEnd = rootStartTagEnd;
+        this.sections = Collections.unmodifiableList(sections);
+        this.entriesById = new HashMap<>();
+        sections.forEach(section -> section.entries.stream().
+                filter(entry -> entry.id != null).
+                forEach(entry -> entriesById.putIfAbsent(entry.id, entry)));
+    }
+
+    /**
+     * Memory-maps the file and indexes it.
+     *
+     * @throws IOException If the file isn't a plain XML document in an encoding compatible with ASCII
+     */
+    public static DaeIndex map(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("documents over 2GB can't be indexed");
+            }
+            return scan(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @see #map(Path)
+     */
+    public static DaeIndex scan(final ByteBuffer document) throws IOException {
+        return new Scanner(document.duplicate()).scan();
+    }
+
+    /**
+     * @return The children of the root element, in document order
+     */
+    public List<Section> getSections() {
+        return sections;
+    }
+
+    /**
+     * @return The entries of all the sections, in document order
+     */
+    public Set<Entry> getEntries() {
+        final Set<Entry> entries = new LinkedHashSet<>();
+        sections.forEach(section -> entries.addAll(section.entries));
+        return entries;
+    }
+
+    public Optional<Entry> getEntry(final String id) {
+        return Optional.ofNullable(entriesById.get(id));
+    }
+
+    /**
+     * The entries the visual scene built by the importer (the last one of the document) depends on: the scene itself,
+     * the geometries, controllers, cameras and lights it instantiates, their materials, effects and images, the
+     * animations targeting its nodes and the entries without id. All the entries are returned if the document has no
+     * visual scene.
+     */
+    public Set<Entry> getSceneClosure() {
+        final Optional<Entry> scene = sections.stream().
+                filter(section -> VISUAL_SCENES_SECTION.equals(section.name)).
+                flatMap(section -> section.entries.stream()).
+                filter(entry -> VISUAL_SCENE_ENTRY.equals(entry.name)).
+                reduce((first, second) -> second);
+        if (!scene.isPresent()) {
+            return getEntries();
+        }
+
+        // the entries without id, e.g. the instance of the scene, can't be referenced and are always kept
+        final Set<Entry> closure = new HashSet<>();
+        sections.forEach(section -> section.entries.stream().filter(entry -> entry.id == null).forEach(closure::add));
+        final Deque<Entry> pending = new ArrayDeque<>();
+        closure.add(scene.get());
+        pending.push(scene.get());
+        while (!pending.isEmpty()) {
+            getReferences(pending.pop()).stream().
+                    map(entriesById::get).
+                    filter(entry -> entry != null && closure.add(entry)).
+                    forEach(pending::push);
+        }
+
+        // the animations target the nodes of the scene by their id or sid, e.g. "Bone/transform"
+        final Set<String> nodeIds = new HashSet<>();
+        forEachAttribute(scene.get(), (name, value) -> {
+            if (ID_ATTRIBUTE.equals(name) || SID_ATTRIBUTE.equals(name)) {
+                nodeIds.add(value);
+            }
+        });
+        sections.stream().
+                filter(section -> ANIMATIONS_SECTION.equals(section.name)).
+                flatMap(section -> section.entries.stream()).
+                filter(animation -> getTargets(animation).stream().anyMatch(nodeIds::contains)).
+                forEach(closure::add);
+        return closure;
+    }
+
+    /**
+     * @return The ids the entry refers to: the "#id" attribute values, the images of the surfaces and of the textures
+     */
+    public Set<String> getReferences(final Entry entry) {
+        final Set<String> references = new HashSet<>();
+        forEachAttribute(entry, (name, value) -> {
+            if (value.length() > 1 && value.charAt(0) == '#') {
+                references.add(value.substring(1));
+            } else if (TEXTURE_ATTRIBUTE.equals(name)) {
+                references.add(value);
+            }
+        });
+        forEachText(entry, INIT_FROM_TAG, references::add);
+        return references;
+    }
+
+    private Set<String> getTargets(final Entry animation) {
+        final Set<String> targets = new HashSet<>();
+        forEachAttribute(animation, (name, value) -> {
+            if (TARGET_ATTRIBUTE.equals(name)) {
+                final int separator = value.indexOf('/');
+                targets.add(separator < 0 ? value : value.substring(0, separator));
+            }
+        });
+        return targets;
+    }
+
+    /**
+     * Calls the consumer with the name and the value of every attribute of the entry and of its descendants.
+     */
+    public void forEachAttribute(final Entry entry, final BiConsumer<String, String> consumer) {
+        final Scanner scanner = new Scanner(slice(entry.start, entry.end));
+        scanner.forEachStartTag((name, attributes) -> attributes.forEach(consumer));
+    }
+
+    private void forEachText(final Entry entry, final String element, final Consumer<String> consumer) {
+        final Scanner scanner = new Scanner(slice(entry.start, entry.end));
+        scanner.forEachText(element, consumer);
+    }
+
+    /**
+     * @return The length of the document reduced to the given entries
+     */
+    public long getLength(final Set<Entry> entries) {
+        return length(getSlices(sections, entries));
+    }
+
+    /**
+     * @return The length of the document reduced to the given entries of the section
+     * @see #open(Section, Set)
+     */
+    public long getLength(final Section section, final Set<Entry> entries) {
+        return length(getSlices(Collections.singletonList(section), entries));
+    }
+
+    /**
+     * Opens the document reduced to the given entries: the sections without entry (e.g. the asset) are kept whole,
+     * the others only hold the given entries, in document order.
+     */
+    public InputStream open(final Set<Entry> entries) {
+        return new SlicesInputStream(getSlices(sections, entries));
+    }
+
+    /**
+     * Opens the document reduced to a single section, holding the given entries of the section, so that the sections
+     * or even the parts of a section can be parsed independently from each other.
+     */
+    public InputStream open(final Section section, final Set<Entry> entries) {
+        return new SlicesInputStream(getSlices(Collections.singletonList(section), entries));
+    }
+
+    private static long length(final List<ByteBuffer> slices) {
+        return slices.stream().mapToLong(ByteBuffer::remaining).sum();
+    }
+
+    // the prolog and the root start tag, the sections and finally what follows the last section, i.e. the root end tag,
+    // the whitespaces between the sections being left out
+    private List<ByteBuffer> getSlices(final List<Section> openedSections, final Set<Entry> entries) {
+        final List<ByteBuffer> slices = new ArrayList<>();
+        slices.add(slice(0, rootStartTagEnd));
+        for (final Section section : openedSections) {
+            if (section.entries.isEmpty()) {
+                slices.add(slice(section.start, section.end));
+            } else {
+                slices.add(slice(section.start, section.startTagEnd));
+                section.entries.stream().
+                        filter(entries::contains).
+                        forEach(entry -> slices.add(slice(entry.start, entry.end)));
+                slices.add(slice(section.endTagStart, section.end));
+            }
+        }
+        slices.add(slice(sections.isEmpty() ? rootStartTagEnd : sections.get(sections.size() - 1).end, document.limit()));
+        return slices;
+    }
+
+    ByteBuffer slice(final int start, final int end) {
+        final ByteBuffer slice = document.duplicate();
+        slice.limit(end).position(start);
+        return slice.slice();
+    }
+
+    /**
+     * A child of the root element, e.g. a library.
+     */
+    public static final class Section {
+        private final String name;
+        private final int start;
+        private final int startTagEnd;
+        private final List<Entry> entries = new ArrayList<>();
+        private int endTagStart;
+        private int end;
+
+        Section(final String name, final int start, final int startTagEnd) {
+            this.name = name;
+            this.start = start;
+            this.startTagEnd = startTagEnd;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The offset of the start tag of the section
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * @return The offset following the end tag of the section
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        public List<Entry> getEntries() {
+            return Collections.unmodifiableList(entries);
+        }
+    }
+
+    /**
+     * A child of a section, e.g. a geometry of the geometries library.
+     */
+    public static final class Entry {
+        private final Section section;
+        private final String name;
+        private final String id;
+        private final int start;
+        private int end;
+
+        Entry(final Section section, final String name, final String id, final int start) {
+            this.section = section;
+            this.name = name;
+            this.id = id;
+            this.start = start;
+        }
+
+        public Section getSection() {
+            return section;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The id of the entry, null if it has none
+         */
+        public String getId() {
+            return id;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return name + (id != null ? "#" + id : "") + "[" + start + ", " + end + "[";
+        }
+    }
+
+    /**
+     * Walks through the markup of a buffer, skipping the text, the comments, the CDATA sections and the declarations.
+     */
+    private static final class Scanner {
+        private final ByteBuffer buffer;
+        private final int limit;
+        private int position;
+
+        Scanner(final ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.position = buffer.position();
+            this.limit = buffer.limit();
+        }
+
+        DaeIndex scan() throws IOException {
+            checkEncoding();
+            final List<Section> sections = new ArrayList<>();
+            int rootStartTagEnd = -1;
+            int depth = 0;
+            Section section = null;
+            Entry entry = null;
+            while (nextTag()) {
+                final int tagStart = position;
+                final byte kind = buffer.get(position + 1);
+                if (kind == '/') {
+                    skipPast('>');
+                    depth--;
+                    if (depth == 2 && entry != null) {
+                        entry.end = position;
+                        entry = null;
+                    } else if (depth == 1 && section != null) {
+                        section.endTagStart = tagStart;
+                        section.end = position;
+                        section = null;
+                    }
+                    continue;
+                }
+                if (kind == '?' || kind == '!') {
+                    skipMarkupDeclaration(kind);
+                    continue;
+                }
+                final String name = readName(position + 1);
+                final boolean wantsId = depth == 2;
+                final Map<String, String> attributes = wantsId ? new HashMap<>() : null;
+                final boolean empty = readAttributes(attributes);
+                if (depth == 0) {
+                    rootStartTagEnd = position;
+                } else if (depth == 1) {
+                    section = new Section(name, tagStart, position);
+                    sections.add(section);
+                } else if (depth == 2 && section != null) {
+                    entry = new Entry(section, name, attributes.get(ID_ATTRIBUTE), tagStart);
+                    section.entries.add(entry);
+                }
+                if (empty) {
+                    if (depth == 2 && entry != null) {
+                        entry.end = position;
+                        entry = null;
+                    } else if (depth == 1 && section != null) {
+                        section.endTagStart = position;
+                        section.end = position;
+                        section = null;
+                    }
+                } else {
+                    depth++;
+                }
+            }
+            if (rootStartTagEnd < 0 || depth != 0) {
+                throw new IOException("Not a complete XML document");
+            }
+            return new DaeIndex(buffer, rootStartTagEnd, sections);
+        }
+
+        // UTF-16 and UTF-32 documents start with a byte order mark or a null byte instead of '<'
+        private void checkEncoding() throws IOException {
+            int first = position;
+            if (limit - first >= 3 && (buffer.get(first) & 0xFF) == 0xEF && (buffer.get(first + 1) & 0xFF) == 0xBB
+                    && (buffer.get(first + 2) & 0xFF) == 0xBF) {
+                first += 3;
+            }
+            while (first < limit && isWhitespace(buffer.get(first))) {
+                first++;
+            }
+            if (first >= limit || buffer.get(first) != '<') {
+                throw new IOException("Not an XML document in an encoding compatible with ASCII");
+            }
+        }
+
+        void forEachStartTag(final BiConsumer<String, Map<String, String>> consumer) {
+            while (nextTag()) {
+                final byte kind = buffer.get(position + 1);
+                if (kind == '/') {
+                    skipPast('>');
+                } else if (kind == '?' || kind == '!') {
+                    skipMarkupDeclaration(kind);
+                } else {
+                    final String name = readName(position + 1);
+                    final Map<String, String> attributes = new HashMap<>();
+                    readAttributes(attributes);
+                    consumer.accept(name, attributes);
+                }
+            }
+        }
+
+        void forEachText(final String element, final Consumer<String> consumer) {
+            while (nextTag()) {
+                final byte kind = buffer.get(position + 1);
+                if (kind == '/') {
+                    skipPast('>');
+                } else if (kind == '?' || kind == '!') {
+                    skipMarkupDeclaration(kind);
+                } else {
+                    final String name = readName(position + 1);
+                    final boolean empty = readAttributes(null);
+                    if (!empty && element.equals(name)) {
+                        final int textStart = position;
+                        if (nextTag()) {
+                            consumer.accept(decode(textStart, position).trim());
+                        }
+                    }
+                }
+            }
+        }
+
+        // moves to the next '<', returns false at the end of the buffer
+        private boolean nextTag() {
+            while (position < limit && buffer.get(position) != '<') {
+                position++;
+            }
+            return position + 1 < limit;
+        }
+
+        private void skipMarkupDeclaration(final byte kind) {
+            if (kind == '?') {
+                skipPast(PROCESSING_INSTRUCTION_END);
+            } else if (startsWith(position, "<!--")) {
+                skipPast(COMMENT_END);
+            } else if (startsWith(position, "<![CDATA[")) {
+                skipPast(CDATA_END);
+            } else {
+                // a declaration, e.g. a DOCTYPE whose internal subset is between brackets
+                int brackets = 0;
+                while (position < limit) {
+                    final byte b = buffer.get(position++);
+                    if (b == '[') {
+                        brackets++;
+                    } else if (b == ']') {
+                        brackets--;
+                    } else if (b == '>' && brackets <= 0) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private String readName(final int start) {
+            int end = start;
+            while (end < limit && !isWhitespace(buffer.get(end)) && buffer.get(end) != '>' && buffer.get(end) != '/') {
+                end++;
+            }
+            final String name = decode(start, end);
+            position = end;
+            return name;
+        }
+
+        // reads the attributes up to the end of the start tag, returns true if the element is empty, e.g. "<a/>"
+        private boolean readAttributes(final Map<String, String> attributes) {
+            while (position < limit) {
+                final byte b = buffer.get(position);
+                if (b == '>') {
+                    position++;
+                    return buffer.get(position - 2) == '/';
+                }
+                if (b == '"' || b == '\'') {
+                    final int valueStart = position + 1;
+                    position = valueStart;
+                    while (position < limit && buffer.get(position) != b) {
+                        position++;
+                    }
+                    if (attributes != null) {
+                        attributes.put(attributeName(valueStart - 1), decode(valueStart, position));
+                    }
+                }
+                position++;
+            }
+            return false;
+        }
+
+        // the name preceding the '=' before the quote at the given position
+        private String attributeName(final int quote) {
+            int end = quote - 1;
+            while (isWhitespace(buffer.get(end)) || buffer.get(end) == '=') {
+                end--;
+            }
+            int start = end;
+            while (!isWhitespace(buffer.get(start - 1))) {
+                start--;
+            }
+            return decode(start, end + 1);
+        }
+
+        private void skipPast(final char c) {
+            while (position < limit && buffer.get(position) != c) {
+                position++;
+            }
+            position++;
+        }
+
+        private void skipPast(final byte[] sequence) {
+            while (position < limit && !startsWith(position, sequence)) {
+                position++;
+            }
+            position += sequence.length;
+        }
+
+        private boolean startsWith(final int start, final String prefix) {
+            return startsWith(start, prefix.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private boolean startsWith(final int start, final byte[] prefix) {
+            if (start + prefix.length > limit) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (buffer.get(start + i) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String decode(final int start, final int end) {
+            final byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static boolean isWhitespace(final byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+        }
+    }
+
+    /**
+     * Reads the slices of the document one after the other.
+     */
+    private static final class SlicesInputStream extends InputStream {
+        private final List<ByteBuffer> slices;
+        private int current;
+
+        SlicesInputStream(final List<ByteBuffer> slices) {
+            this.slices = slices;
+        }
+
+        @Override
+        public int read() {
+            final ByteBuffer slice = currentSlice();
+            return slice == null ? -1 : slice.get() & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            final ByteBuffer slice = currentSlice();
+            if (slice == null) {
+                return -1;
+            }
+            final int count = Math.min(len, slice.remaining());
+            slice.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            final ByteBuffer slice = currentSlice();
+            return slice == null ? 0 : slice.remaining();
+        }
+
+        private ByteBuffer currentSlice() {
+            while (current < slices.size() && !slices.get(current).hasRemaining()) {
+                current++;
+            }
+            return current < slices.size() ? slices.get(current) : null;
+        }
+    }
+}
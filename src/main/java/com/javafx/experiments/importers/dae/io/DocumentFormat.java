@@ -0,0 +1,46 @@
+package com.javafx.experiments.importers.dae.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The containers a dae document can come in, told apart from their first bytes rather than from a file extension.
+ *
+ * @author Eclion
+ */
+public enum DocumentFormat {
+    /**
+     * The plain XML document.
+     */
+    XML,
+    /**
+     * A gzip compressed document, e.g. ".dae.gz".
+     */
+    GZIP,
+    /**
+     * A zip archive holding the document and its resources, e.g. ".zae".
+     */
+    ZIP;
+
+    private static final int GZIP_MAGIC = 0x1F8B;
+    private static final int ZIP_MAGIC = 0x504B;
+
+    /**
+     * Peeks at the first bytes of the stream, which is left at its current position.
+     *
+     * @param inputStream A stream supporting {@link InputStream#mark(int)}
+     */
+    public static DocumentFormat detect(final InputStream inputStream) throws IOException {
+        inputStream.mark(2);
+        final int magic = (inputStream.read() << 8) | inputStream.read();
+        inputStream.reset();
+        switch (magic) {
+            case GZIP_MAGIC:
+                return GZIP;
+            case ZIP_MAGIC:
+                return ZIP;
+            default:
+                return XML;
+        }
+    }
+}
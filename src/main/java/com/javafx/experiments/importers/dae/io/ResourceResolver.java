@@ -0,0 +1,103 @@
+package com.javafx.experiments.importers.dae.io;
+
+import javafx.scene.image.Image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Resolves the resources a dae document refers to, e.g. the textures of its images library, relatively to the
+ * document.
+ *
+ * @author Eclion
+ */
+public interface ResourceResolver {
+
+    /**
+     * @param path The path as written in the document
+     * @return The absolute location of the resource, identifying it among all the imported documents
+     */
+    String resolve(String path);
+
+    /**
+     * @param path The path as written in the document
+     */
+    InputStream open(String path) throws IOException;
+
+    /**
+     * @param path The path as written in the document
+     */
+    default Image loadImage(final String path) throws IOException {
+        try (InputStream inputStream = open(path)) {
+            return new Image(inputStream);
+        }
+    }
+
+    /**
+     * Resolves the resources from the folder of a local document.
+     */
+    static ResourceResolver forDirectory(final Path directory) {
+        return new ResourceResolver() {
+            @Override
+            public String resolve(final String path) {
+                return "file:" + directory.resolve(path);
+            }
+
+            @Override
+            public InputStream open(final String path) throws IOException {
+                return Files.newInputStream(directory.resolve(path));
+            }
+
+            @Override
+            public Image loadImage(final String path) {
+                return new Image(resolve(path));
+            }
+        };
+    }
+
+    /**
+     * Resolves the resources relatively to the url of the document.
+     */
+    static ResourceResolver forUrl(final URL documentUrl) {
+        return new ResourceResolver() {
+            @Override
+            public String resolve(final String path) {
+                try {
+                    return new URL(documentUrl, path).toExternalForm();
+                } catch (IOException e) {
+                    throw new IllegalArgumentException(e);
+                }
+            }
+
+            @Override
+            public InputStream open(final String path) throws IOException {
+                return new URL(documentUrl, path).openStream();
+            }
+
+            @Override
+            public Image loadImage(final String path) {
+                return new Image(resolve(path));
+            }
+        };
+    }
+
+    /**
+     * For the documents without any external resource, e.g. read from memory.
+     */
+    static ResourceResolver none() {
+        return new ResourceResolver() {
+            @Override
+            public String resolve(final String path) {
+                return path;
+            }
+
+            @Override
+            public InputStream open(final String path) throws IOException {
+                throw new IOException("no resource available for " + path);
+            }
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package com.javafx.experiments.importers.dae.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streams a ".zae" archive: the dae document is parsed straight from the zip stream and the other entries are kept in
+ * memory, so that they're resolved as the resources of the document without any temporary file.
+ * <p>
+ * The document is the one named by the "manifest.xml" entry when it comes first, as written by the usual tools, the
+ * first ".dae" entry otherwise.
+ *
+ * @author Eclion
+ */
+public final class ZaeArchive implements ResourceResolver {
+    private static final String MANIFEST_ENTRY = "manifest.xml";
+    private static final Pattern DAE_ROOT_PATTERN = Pattern.compile("<dae_root>\\s*(.*?)\\s*</dae_root>", Pattern.DOTALL);
+    private static final AtomicLong ARCHIVE_COUNT = new AtomicLong();
+
+    private final String id = "zae" + ARCHIVE_COUNT.incrementAndGet();
+    private final Map<String, byte[]> entries = new HashMap<>();
+    private String documentDirectory = "";
+
+    /**
+     * Reads the document of the archive.
+     */
+    @FunctionalInterface
+    public interface DocumentReader<T> {
+        /**
+         * @param documentStream The content of the document entry, only valid during the call
+         * @param resolver       The resolver of the other entries, complete once the whole archive is read
+         */
+        T read(InputStream documentStream, ResourceResolver resolver) throws IOException;
+    }
+
+    private ZaeArchive() {
+    }
+
+    public static <T> T read(final InputStream inputStream, final DocumentReader<T> documentReader) throws IOException {
+        final ZaeArchive archive = new ZaeArchive();
+        final ZipInputStream zipStream = new ZipInputStream(inputStream);
+        String documentEntry = null;
+        T document = null;
+        boolean documentRead = false;
+
+        for (ZipEntry entry = zipStream.getNextEntry(); entry != null; entry = zipStream.getNextEntry()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            final String name = normalize(entry.getName());
+            final boolean isDae = name.toLowerCase().endsWith(".dae");
+            if (!documentRead && isDae && (documentEntry == null || documentEntry.equals(name))) {
+                final int lastSlash = name.lastIndexOf('/');
+                archive.documentDirectory = lastSlash < 0 ? "" : name.substring(0, lastSlash + 1);
+                document = documentReader.read(new NonClosingInputStream(zipStream), archive);
+                documentRead = true;
+            } else {
+                final byte[] content = readEntry(zipStream);
+                archive.entries.put(name, content);
+                if (MANIFEST_ENTRY.equals(name) && !documentRead) {
+                    documentEntry = extractDaeRoot(content);
+                }
+            }
+            zipStream.closeEntry();
+        }
+        if (!documentRead) {
+            throw new IOException("no dae document in the archive");
+        }
+        return document;
+    }
+
+    @Override
+    public String resolve(final String path) {
+        return id + ":/" + normalize(documentDirectory + path);
+    }
+
+    @Override
+    public InputStream open(final String path) throws IOException {
+        final byte[] content = entries.get(normalize(documentDirectory + path));
+        if (content == null) {
+            throw new IOException("no entry " + path + " in the archive");
+        }
+        return new ByteArrayInputStream(content);
+    }
+
+    private static String extractDaeRoot(final byte[] manifest) {
+        final Matcher matcher = DAE_ROOT_PATTERN.matcher(new String(manifest, StandardCharsets.UTF_8));
+        return matcher.find() ? normalize(matcher.group(1)) : null;
+    }
+
+    private static byte[] readEntry(final InputStream zipStream) throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1 << 14];
+        for (int count = zipStream.read(buffer); count != -1; count = zipStream.read(buffer)) {
+            content.write(buffer, 0, count);
+        }
+        return content.toByteArray();
+    }
+
+    // resolves the "." and ".." segments, the entries being compared by name
+    private static String normalize(final String path) {
+        final Deque<String> segments = new ArrayDeque<>();
+        for (final String segment : path.replace('\\', '/').split("/")) {
+            if (segment.isEmpty() || ".".equals(segment)) {
+                continue;
+            }
+            if ("..".equals(segment)) {
+                segments.pollLast();
+            } else {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * The XML parsers close their input once done, which would close the whole archive.
+     */
+    private static final class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(final InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public void close() {
+            // the zip stream is closed by its owner
+        }
+    }
+}
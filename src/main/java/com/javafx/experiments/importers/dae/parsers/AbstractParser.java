@@ -2,7 +2,12 @@ package com.javafx.experiments.importers.dae.parsers;
 
 import org.xml.sax.Attributes;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
 /**
  * @author Eclion
@@ -10,11 +15,20 @@ import java.util.function.BiConsumer;
 public class AbstractParser {
 
     private final LibraryHandler handler = new LibraryHandler();
+    private final List<Runnable> pendingAssemblies = new ArrayList<>();
+    private final List<CompletableFuture<?>> pendingDecodings = new ArrayList<>();
 
     public final LibraryHandler getLibraryHandler() {
         return handler;
     }
 
+    /**
+     * @return The elements being parsed, shared by all the parsers of the document
+     */
+    final ElementContext getContext() {
+        return handler.getContext();
+    }
+
 
     final void addStartElementBiConsumer(final String tag, final BiConsumer<String, Attributes> startElementBiConsumer) {
         handler.addStartElementBiConsumer(tag, startElementBiConsumer);
@@ -23,4 +37,47 @@ public class AbstractParser {
     final void addEndElementBiConsumer(final String tag, final BiConsumer<String, String> endElementBiConsumer) {
         handler.addEndElementBiConsumer(tag, endElementBiConsumer);
     }
+
+    /**
+     * @see LibraryHandler#addPulledElements(String...)
+     */
+    final void addPulledElements(final String... tags) {
+        handler.addPulledElements(tags);
+    }
+
+    final void addFloatArrayBiConsumer(final String tag, final BiConsumer<String, float[]> floatArrayBiConsumer) {
+        handler.addFloatArrayBiConsumer(tag, (qName, floatArray) -> floatArrayBiConsumer.accept(qName, floatArray.join()));
+    }
+
+    final void addDeferredFloatArrayBiConsumer(final String tag, final BiConsumer<String, CompletableFuture<float[]>> floatArrayBiConsumer) {
+        handler.addFloatArrayBiConsumer(tag, floatArrayBiConsumer);
+    }
+
+    final void addDeferredIntArrayBiConsumer(final String tag, final ToIntFunction<Attributes> countHint,
+                                             final BiConsumer<String, CompletableFuture<int[]>> intArrayBiConsumer) {
+        handler.addIntArrayBiConsumer(tag, countHint, intArrayBiConsumer);
+    }
+
+    /**
+     * Runs the assembly right away if all the arrays are already decoded, otherwise postpones it until
+     * {@link #completeDecoding()} so that the parsing doesn't wait for the decoding threads.
+     */
+    final void whenDecoded(final Runnable assembly, final CompletableFuture<?>... arrays) {
+        if (pendingAssemblies.isEmpty() && Stream.of(arrays).allMatch(CompletableFuture::isDone)) {
+            assembly.run();
+        } else {
+            Stream.of(arrays).forEach(pendingDecodings::add);
+            pendingAssemblies.add(assembly);
+        }
+    }
+
+    /**
+     * Waits for the arrays still being decoded and runs the postponed assemblies in their parsing order.
+     */
+    final void completeDecoding() {
+        pendingDecodings.forEach(CompletableFuture::join);
+        pendingDecodings.clear();
+        pendingAssemblies.forEach(Runnable::run);
+        pendingAssemblies.clear();
+    }
 }
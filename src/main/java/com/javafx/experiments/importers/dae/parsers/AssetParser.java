@@ -9,11 +9,11 @@ final class AssetParser extends AbstractParser {
     private static final String UP_AXIS_TAG = "up_axis";
     private static final String UNIT_TAG = "unit";
 
-    private String author;
-    private String authoringTool;
-    private String unit;
-    private float scale;
-    private String upAxis;
+    String author;
+    String authoringTool;
+    String unit;
+    float scale;
+    String upAxis;
 
     AssetParser() {
 
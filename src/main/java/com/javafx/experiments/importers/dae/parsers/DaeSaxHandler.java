@@ -1,61 +1,206 @@
 package com.javafx.experiments.importers.dae.parsers;
 
+import com.javafx.experiments.importers.dae.geometry.MeshSimplifier;
+import com.javafx.experiments.importers.dae.geometry.MeshWelder;
+import com.javafx.experiments.importers.dae.geometry.VertexCacheOptimizer;
+import com.javafx.experiments.importers.dae.io.ResourceResolver;
 import com.javafx.experiments.importers.dae.structures.*;
+import com.javafx.experiments.importers.dae.utils.ImportStatistics;
 import javafx.animation.KeyFrame;
 import javafx.scene.Camera;
 import javafx.scene.Group;
+import javafx.scene.shape.TriangleMesh;
 import javafx.scene.transform.Rotate;
-import org.xml.sax.Attributes;
 
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * @author Eclion
  */
 public final class DaeSaxHandler extends AbstractParser {
 
-    private static final String ALL = "*";
-    private static final String ASSET_TAG = "asset";
-    private static final String SCENE_TAG = "scene";
-    private static final String LIBRARY_ANIMATIONS_TAG = "library_animations";
-    private static final String LIBRARY_CAMERAS_TAG = "library_cameras";
-    private static final String LIBRARY_CONTROLLERS_TAG = "library_controllers";
-    private static final String LIBRARY_EFFECTS_TAG = "library_effects";
-    private static final String LIBRARY_GEOMETRIES_TAG = "library_geometries";
-    private static final String LIBRARY_IMAGES_TAG = "library_images";
-    private static final String LIBRARY_LIGHTS_TAG = "library_lights";
-    private static final String LIBRARY_MATERIALS_TAG = "library_materials";
-    private static final String LIBRARY_VISUAL_SCENES_TAG = "library_visual_scenes";
-
-    private AbstractParser subHandler;
+    static final String ASSET_TAG = "asset";
+    static final String SCENE_TAG = "scene";
+    static final String LIBRARY_ANIMATIONS_TAG = "library_animations";
+    static final String LIBRARY_CAMERAS_TAG = "library_cameras";
+    static final String LIBRARY_CONTROLLERS_TAG = "library_controllers";
+    static final String LIBRARY_EFFECTS_TAG = "library_effects";
+    static final String LIBRARY_GEOMETRIES_TAG = "library_geometries";
+    static final String LIBRARY_IMAGES_TAG = "library_images";
+    static final String LIBRARY_LIGHTS_TAG = "library_lights";
+    static final String LIBRARY_MATERIALS_TAG = "library_materials";
+    static final String LIBRARY_VISUAL_SCENES_TAG = "library_visual_scenes";
+
+    private static final String DECODING_PHASE = "decoding";
+    private static final String WELDING_PHASE = "welding";
+    private static final String LEVELS_OF_DETAIL_PHASE = "levels of detail";
+    private static final String VERTEX_CACHE_PHASE = "vertex cache";
+    private static final String IMAGES_PHASE = "images";
+    private static final String MATERIALS_PHASE = "materials";
+    private static final String SCENE_PHASE = "scene";
+    private static final String STATIC_BATCHING_PHASE = "static batching";
+    private static final String KEY_FRAMES_PHASE = "key frames";
 
     private final Map<String, AbstractParser> parsers = new HashMap<>();
-
+    private final ResourceResolver resourceResolver;
+    private final SharedResources sharedResources;
+    private final ImportStatistics statistics = new ImportStatistics();
+    private final IdIndex idIndex = new IdIndex();
+    private final Map<String, List<List<TriangleMesh>>> meshLevels = new HashMap<>();
+    private boolean animations = true;
+    private boolean welding;
+    private boolean vertexCacheOptimization;
+    private int levelsOfDetail;
+    private boolean staticBatching;
+    private boolean meshesProcessed;
+    // the geometries read from a scene cache entry were welded and optimized before being stored
+    private boolean geometriesProcessed;
+    private boolean imagesLoaded;
+    private DaeBuildHelper buildHelper;
+    private List<StaticMeshBatcher.Batch> staticBatches;
+    private int mergedElementCount;
+
+    /**
+     * @param fileUrl The folder of the document, its images being resolved from it
+     */
     public DaeSaxHandler(final String fileUrl) {
-        addStartElementBiConsumer(ALL, this::delegateElement);
+        this(ResourceResolver.forDirectory(Paths.get(fileUrl)), new SharedResources());
+    }
+
+    /**
+     * @param resourceResolver The resolver of the images the document refers to
+     * @param sharedResources  The images and materials to share with the other files imported with it
+     */
+    public DaeSaxHandler(final ResourceResolver resourceResolver, final SharedResources sharedResources) {
+        this.resourceResolver = resourceResolver;
+        this.sharedResources = sharedResources;
+        // the libraries are the children of the root element, e.g. an asset element of a node isn't a library
+        getLibraryHandler().setDispatchDepth(1);
         addStartElementBiConsumer(ASSET_TAG, (qName, attributes) -> setParser(qName, new AssetParser()));
         addStartElementBiConsumer(SCENE_TAG, (qName, attributes) -> setParser(qName, new SceneParser()));
-        addStartElementBiConsumer(LIBRARY_ANIMATIONS_TAG, (qName, attributes) -> setParser(qName, new LibraryAnimationsParser()));
+        addStartElementBiConsumer(LIBRARY_ANIMATIONS_TAG, (qName, attributes) -> {
+            if (animations) {
+                setParser(qName, new LibraryAnimationsParser(idIndex));
+            } else {
+                statistics.startPhase(qName);
+                getLibraryHandler().setDelegate(new LibraryHandler());
+            }
+        });
         addStartElementBiConsumer(LIBRARY_CAMERAS_TAG, (qName, attributes) -> setParser(qName, new LibraryCamerasParser()));
-        addStartElementBiConsumer(LIBRARY_CONTROLLERS_TAG, (qName, attributes) -> setParser(qName, new LibraryControllerParser()));
+        addStartElementBiConsumer(LIBRARY_CONTROLLERS_TAG, (qName, attributes) -> setParser(qName, new LibraryControllerParser(idIndex)));
         addStartElementBiConsumer(LIBRARY_EFFECTS_TAG, (qName, attributes) -> setParser(qName, new LibraryEffectsParser()));
-        addStartElementBiConsumer(LIBRARY_GEOMETRIES_TAG, (qName, attributes) -> setParser(qName, new LibraryGeometriesParser()));
-        addStartElementBiConsumer(LIBRARY_IMAGES_TAG, (qName, attributes) -> setParser(qName, new LibraryImagesParser(fileUrl)));
+        addStartElementBiConsumer(LIBRARY_GEOMETRIES_TAG, (qName, attributes) -> setParser(qName, new LibraryGeometriesParser(idIndex)));
+        addStartElementBiConsumer(LIBRARY_IMAGES_TAG, (qName, attributes) -> setParser(qName, new LibraryImagesParser(resourceResolver, sharedResources)));
         addStartElementBiConsumer(LIBRARY_LIGHTS_TAG, (qName, attributes) -> setParser(qName, new LibraryLightsParser()));
         addStartElementBiConsumer(LIBRARY_MATERIALS_TAG, (qName, attributes) -> setParser(qName, new LibraryMaterialsParser()));
         addStartElementBiConsumer(LIBRARY_VISUAL_SCENES_TAG, (qName, attributes) -> setParser(qName, new LibraryVisualSceneParser()));
 
-        addEndElementBiConsumer(ALL, (qName, content) -> subHandler.getLibraryHandler().endElement(qName, content));
+        Stream.of(ASSET_TAG, SCENE_TAG, LIBRARY_ANIMATIONS_TAG, LIBRARY_CAMERAS_TAG, LIBRARY_CONTROLLERS_TAG,
+                LIBRARY_EFFECTS_TAG, LIBRARY_GEOMETRIES_TAG, LIBRARY_IMAGES_TAG, LIBRARY_LIGHTS_TAG,
+                LIBRARY_MATERIALS_TAG, LIBRARY_VISUAL_SCENES_TAG).
+                forEach(tag -> addEndElementBiConsumer(tag, (qName, content) -> statistics.endPhase(qName)));
     }
 
-    private void delegateElement(final String qName, final Attributes attributes) {
-        Optional.ofNullable(subHandler).
-                ifPresent(handler -> handler.getLibraryHandler().startElement(qName, attributes));
+    /**
+     * When false, the animations library is skipped: no consumer is called for it, so the StAX engine doesn't even
+     * dispatch its events.
+     */
+    public DaeSaxHandler withAnimations(final boolean animations) {
+        this.animations = animations;
+        return this;
+    }
+
+    /**
+     * When true, the duplicated and unreferenced points, normals and texture coordinates of the meshes are removed once
+     * decoded. Only the texture coordinates of the skinned meshes are welded, see {@link MeshWelder#weld}.
+     */
+    public DaeSaxHandler withWelding(final boolean welding) {
+        this.welding = welding;
+        return this;
+    }
+
+    /**
+     * When true, the faces of the meshes are reordered for the vertex cache of the GPU once decoded, and their points,
+     * normals and texture coordinates renumbered in that order, see {@link VertexCacheOptimizer}.
+     */
+    public DaeSaxHandler withVertexCacheOptimization(final boolean vertexCacheOptimization) {
+        this.vertexCacheOptimization = vertexCacheOptimization;
+        return this;
+    }
+
+    /**
+     * Simplifies each mesh into the given number of coarser levels of detail once decoded, each level having about
+     * half the faces of the previous one, see {@link MeshSimplifier}. The levels keep the points of the meshes, so that
+     * the skinned ones are skinned with the same weights.
+     */
+    public DaeSaxHandler withLevelsOfDetail(final int levelsOfDetail) {
+        this.levelsOfDetail = levelsOfDetail;
+        return this;
+    }
+
+    /**
+     * When true, the meshes of the static nodes are merged into one mesh per material by
+     * {@link #completeParsersDecoding()}, and shown instead of them once the scene is built, see
+     * {@link StaticMeshBatcher}.
+     */
+    public DaeSaxHandler withStaticBatching(final boolean staticBatching) {
+        this.staticBatching = staticBatching;
+        return this;
+    }
+
+    ResourceResolver getResourceResolver() {
+        return resourceResolver;
+    }
+
+    /**
+     * @return The statistics of the parsing, completed by the scene build and the key frames calculation
+     */
+    public ImportStatistics getStatistics() {
+        statistics.setElementCount(getLibraryHandler().getElementCount() + mergedElementCount);
+        return statistics;
+    }
+
+    SharedResources getSharedResources() {
+        return sharedResources;
+    }
+
+    AbstractParser getParser(final String tag) {
+        return parsers.get(tag);
+    }
+
+    void putParser(final String tag, final AbstractParser parser) {
+        parsers.put(tag, parser);
+    }
+
+    /**
+     * Takes over the libraries another handler parsed from a part of the same document, e.g. a section parsed on
+     * another thread, once their decoding is completed. The parts are to be merged in the document order: the
+     * geometries are added to the ones merged before, the other libraries replace the ones of the same kind as a later
+     * section of the document does.
+     */
+    public void merge(final DaeSaxHandler part) {
+        part.completeParsersDecoding();
+        // the root element is counted by every part, and the geometries library by every part of it
+        int recountedElements = getLibraryHandler().getElementCount() + mergedElementCount > 0 ? 1 : 0;
+        for (final Map.Entry<String, AbstractParser> entry : part.parsers.entrySet()) {
+            final AbstractParser parsed = parsers.get(entry.getKey());
+            if (parsed instanceof LibraryGeometriesParser) {
+                ((LibraryGeometriesParser) parsed).merge((LibraryGeometriesParser) entry.getValue());
+                recountedElements++;
+            } else {
+                parsers.put(entry.getKey(), entry.getValue());
+            }
+        }
+        mergedElementCount += part.getLibraryHandler().getElementCount() - recountedElements;
+        statistics.addPhases(part.statistics);
     }
 
     private void setParser(final String tag, final AbstractParser parser) {
+        statistics.startPhase(tag);
         parsers.put(tag, parser);
-        subHandler = parsers.get(tag);
+        getLibraryHandler().setDelegate(parser.getLibraryHandler());
     }
 
     public Camera getFirstCamera() {
@@ -71,6 +216,9 @@ public final class DaeSaxHandler extends AbstractParser {
     }
 
     public Group buildScene() {
+        completeParsersDecoding();
+        countMeshes();
+
         final LibraryVisualSceneParser visualSceneParser = (LibraryVisualSceneParser) parsers.get(LIBRARY_VISUAL_SCENES_TAG);
 
         if (visualSceneParser == null || visualSceneParser.scenes.isEmpty()) {
@@ -89,20 +237,153 @@ public final class DaeSaxHandler extends AbstractParser {
             rootNode.getTransforms().add(new Rotate(180, 0, 0, 0, Rotate.X_AXIS));
         }
 
-        final DaeBuildHelper buildHelper = new DaeBuildHelper();
-
-        addCamerasToBuildHelper(buildHelper);
-        addControllersToBuildHelper(buildHelper);
-        addGeometriesToBuildHelper(buildHelper);
-        addMaterialsToBuildHelper(buildHelper);
-
+        final DaeBuildHelper buildHelper = getBuildHelper();
         buildHelper.withSkeletons(rootNode.skeletons);
+        statistics.setJointCount(rootNode.skeletons.values().stream().mapToInt(DaeSkeleton::getJointCount).sum());
 
+        statistics.startPhase(SCENE_PHASE);
         rootNode.build(buildHelper);
+        statistics.endPhase(SCENE_PHASE);
+
+        if (staticBatches != null) {
+            StaticMeshBatcher.attach(rootNode, staticBatches);
+        }
 
         return rootNode;
     }
 
+    // created once, by the static batching if any, so that the materials are built off the FX thread then
+    private DaeBuildHelper getBuildHelper() {
+        if (buildHelper == null) {
+            buildHelper = new DaeBuildHelper();
+            addCamerasToBuildHelper(buildHelper);
+            addControllersToBuildHelper(buildHelper);
+            addGeometriesToBuildHelper(buildHelper);
+            statistics.startPhase(MATERIALS_PHASE);
+            addMaterialsToBuildHelper(buildHelper);
+            statistics.endPhase(MATERIALS_PHASE);
+        }
+        return buildHelper;
+    }
+
+    private void countMeshes() {
+        final LibraryGeometriesParser geometriesParser = (LibraryGeometriesParser) parsers.get(LIBRARY_GEOMETRIES_TAG);
+        if (geometriesParser == null || statistics.getMeshCount() > 0) {
+            return;
+        }
+        geometriesParser.meshes.values().forEach(meshes -> meshes.forEach(mesh -> statistics.addMesh(
+                mesh.getPoints().size() / mesh.getPointElementSize(),
+                mesh.getFaces().size() / mesh.getFaceElementSize())));
+    }
+
+    /**
+     * Waits for the big numeric contents, decoded in parallel with the parsing, assembles the meshes and controllers
+     * depending on them, loads the images of the effects and merges the static meshes. Called by {@link #buildScene()}
+     * if it wasn't beforehand, e.g. off the FX thread.
+     */
+    public void completeParsersDecoding() {
+        statistics.startPhase(DECODING_PHASE);
+        parsers.values().forEach(AbstractParser::completeDecoding);
+        statistics.endPhase(DECODING_PHASE);
+        if ((welding || vertexCacheOptimization || levelsOfDetail > 0) && !meshesProcessed) {
+            processMeshes();
+        }
+        if (!imagesLoaded) {
+            loadImages();
+        }
+        if (staticBatching && staticBatches == null) {
+            prepareStaticBatches();
+        }
+    }
+
+    // once the meshes are processed, their levels of detail not being merged
+    private void prepareStaticBatches() {
+        final LibraryVisualSceneParser visualSceneParser = (LibraryVisualSceneParser) parsers.get(LIBRARY_VISUAL_SCENES_TAG);
+        if (visualSceneParser == null || visualSceneParser.scenes.isEmpty()) {
+            return;
+        }
+        final DaeBuildHelper buildHelper = getBuildHelper();
+        statistics.startPhase(STATIC_BATCHING_PHASE);
+        staticBatches = StaticMeshBatcher.prepare(visualSceneParser.scenes.peek(), buildHelper);
+        statistics.endPhase(STATIC_BATCHING_PHASE);
+    }
+
+    private void loadImages() {
+        final LibraryEffectsParser effectsParser = (LibraryEffectsParser) parsers.get(LIBRARY_EFFECTS_TAG);
+        final LibraryImagesParser imagesParser = (LibraryImagesParser) parsers.get(LIBRARY_IMAGES_TAG);
+        if (effectsParser == null || imagesParser == null) {
+            return;
+        }
+        statistics.startPhase(IMAGES_PHASE);
+        imagesParser.loadImages(effectsParser.getImageIds());
+        statistics.endPhase(IMAGES_PHASE);
+        imagesLoaded = true;
+    }
+
+    /**
+     * Marks the geometries as already welded and optimized, the scene cache storing them once processed: only their
+     * levels of detail, which aren't stored, are still to be generated.
+     */
+    void setGeometriesProcessed() {
+        geometriesProcessed = true;
+    }
+
+    // the skinned meshes keep their points, which the weights of their controllers are indexed by
+    private void processMeshes() {
+        final LibraryGeometriesParser geometriesParser = (LibraryGeometriesParser) parsers.get(LIBRARY_GEOMETRIES_TAG);
+        if (geometriesParser == null) {
+            return;
+        }
+        final Set<String> skinIds = new HashSet<>();
+        Optional.ofNullable((LibraryControllerParser) parsers.get(LIBRARY_CONTROLLERS_TAG)).
+                ifPresent(controllerParser -> controllerParser.controllers.values().
+                        forEach(controller -> skinIds.add(controller.getSkinId())));
+        if (welding && !geometriesProcessed) {
+            statistics.startPhase(WELDING_PHASE);
+            geometriesParser.meshes.forEach((geometryId, meshes) -> meshes.forEach(mesh ->
+                    statistics.addWeldedBytes(MeshWelder.weld(mesh, skinIds.contains(geometryId)))));
+            statistics.endPhase(WELDING_PHASE);
+        }
+        if (levelsOfDetail > 0) {
+            statistics.startPhase(LEVELS_OF_DETAIL_PHASE);
+            geometriesParser.meshes.forEach((geometryId, meshes) -> {
+                final List<List<TriangleMesh>> levels = new ArrayList<>();
+                meshes.forEach(mesh -> levels.add(simplify(mesh, skinIds.contains(geometryId))));
+                meshLevels.put(geometryId, levels);
+            });
+            statistics.endPhase(LEVELS_OF_DETAIL_PHASE);
+        }
+        if (vertexCacheOptimization && (!geometriesProcessed || !meshLevels.isEmpty())) {
+            statistics.startPhase(VERTEX_CACHE_PHASE);
+            if (!geometriesProcessed) {
+                geometriesParser.meshes.forEach((geometryId, meshes) -> meshes.forEach(mesh ->
+                        VertexCacheOptimizer.optimize(mesh, skinIds.contains(geometryId))));
+            }
+            meshLevels.forEach((geometryId, levels) -> levels.forEach(meshes -> meshes.forEach(mesh ->
+                    VertexCacheOptimizer.optimize(mesh, skinIds.contains(geometryId)))));
+            statistics.endPhase(VERTEX_CACHE_PHASE);
+        }
+        meshesProcessed = true;
+    }
+
+    // each level is simplified from the previous one, down to half its faces, until the mesh can't be simplified further
+    private List<TriangleMesh> simplify(final TriangleMesh mesh, final boolean skinned) {
+        final List<TriangleMesh> levels = new ArrayList<>();
+        TriangleMesh previous = mesh;
+        for (int i = 0; i < levelsOfDetail; i++) {
+            final int faceCount = previous.getFaces().size() / previous.getFaceElementSize();
+            final TriangleMesh level = MeshSimplifier.simplify(previous, faceCount / 2);
+            if (level.getFaces().size() / level.getFaceElementSize() >= faceCount) {
+                break;
+            }
+            // the unreferenced elements of the level are dropped, the points of a skinned one being kept
+            MeshWelder.weld(level, skinned);
+            levels.add(level);
+            previous = level;
+        }
+        return levels;
+    }
+
     private void addCamerasToBuildHelper(final DaeBuildHelper buildHelper) {
         Optional.ofNullable((LibraryCamerasParser) parsers.get(LIBRARY_CAMERAS_TAG)).
                 ifPresent(camerasParser -> buildHelper.withCameras(camerasParser.cameras));
@@ -117,6 +398,7 @@ public final class DaeSaxHandler extends AbstractParser {
         Optional.ofNullable((LibraryGeometriesParser) parsers.get(LIBRARY_GEOMETRIES_TAG)).
                 ifPresent(geometriesParser ->
                         buildHelper.withMeshes(geometriesParser.meshes).
+                                withMeshLevels(meshLevels).
                                 withMeshMaterialIds(geometriesParser.materials));
     }
 
@@ -126,7 +408,7 @@ public final class DaeSaxHandler extends AbstractParser {
         final LibraryImagesParser imagesParser = (LibraryImagesParser) parsers.get(LIBRARY_IMAGES_TAG);
 
         if (imagesParser != null && effectsParser != null) {
-            effectsParser.buildEffects(imagesParser.images);
+            effectsParser.buildEffects(imagesParser::getImage, sharedResources);
         }
 
         if (materialsParser != null && effectsParser != null) {
@@ -139,17 +421,22 @@ public final class DaeSaxHandler extends AbstractParser {
     }
 
     public Map<String, List<KeyFrame>> getKeyFramesMap() {
+        completeParsersDecoding();
+
         final LibraryAnimationsParser animationsParser = (LibraryAnimationsParser) parsers.get(LIBRARY_ANIMATIONS_TAG);
         final LibraryVisualSceneParser visualSceneParser = (LibraryVisualSceneParser) parsers.get(LIBRARY_VISUAL_SCENES_TAG);
         if (animationsParser == null || visualSceneParser == null) {
             return new HashMap<>();
         }
 
+        statistics.startPhase(KEY_FRAMES_PHASE);
         final Map<String, List<KeyFrame>> frames = new HashMap<>();
         visualSceneParser.scenes.peek().skeletons.values().
                 forEach(skeleton -> animationsParser.animations.values().
                         forEach(animation -> frames.put(animation.id, animation.calculateAnimation(skeleton)))
                 );
+        statistics.endPhase(KEY_FRAMES_PHASE);
+        statistics.setKeyFrameCount(frames.values().stream().mapToInt(List::size).sum());
         return frames;
     }
 
@@ -0,0 +1,813 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import com.javafx.experiments.importers.dae.structures.DaeAnimation;
+import com.javafx.experiments.importers.dae.structures.DaeController;
+import com.javafx.experiments.importers.dae.structures.DaeEffect;
+import com.javafx.experiments.importers.dae.structures.DaeNode;
+import com.javafx.experiments.importers.dae.structures.DaeScene;
+import com.javafx.experiments.shape3d.SkinWeights;
+import javafx.geometry.Point3D;
+import javafx.scene.Camera;
+import javafx.scene.PerspectiveCamera;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+import javafx.scene.transform.Affine;
+import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Transform;
+import javafx.scene.transform.Translate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of the parsed intermediate data of dae files, so that unchanged files are reloaded without
+ * going through the XML parsing.
+ * <p>
+ * Every entry is named after the SHA-256 of the importer version and of the dae content. It is made of a header
+ * (magic, format version, importer version, content hash), the parsers data and a CRC32 of that data. Entries are
+ * memory-mapped when read back; the stale or corrupt ones are deleted so that they get rebuilt.
+ *
+ * @author Eclion
+ */
+public final class DaeSceneCache {
+    private static final Logger LOGGER = Logger.getLogger(DaeSceneCache.class.getSimpleName());
+    private static final int MAGIC = 0x44414543; // "DAEC"
+    private static final int FORMAT_VERSION = 3;
+    private static final String EXTENSION = ".daec";
+    private static final int HASH_LENGTH = 32;
+    private static final int CRC_LENGTH = Long.BYTES;
+    // the magic number, the format version, the importer version length, the hash and the checksum
+    private static final int MIN_ENTRY_LENGTH = Integer.BYTES * 3 + HASH_LENGTH + CRC_LENGTH;
+
+    private static final byte AFFINE = 0;
+    private static final byte TRANSLATE = 1;
+    private static final byte ROTATE = 2;
+    private static final byte SCALE = 3;
+
+    private final Path directory;
+    private final String importerVersion;
+
+    public DaeSceneCache(final Path directory, final String importerVersion) {
+        this.directory = directory;
+        this.importerVersion = importerVersion;
+    }
+
+    /**
+     * Rebuilds the handler of the given dae file from its cache entry.
+     *
+     * @param daeFile The dae file
+     * @param handler A handler yet to parse anything, filled from the entry
+     * @return The handler ready to build the scene, or nothing if there's no valid entry for this file content, in
+     * which case the given handler must be discarded
+     */
+    public Optional<DaeSaxHandler> load(final Path daeFile, final DaeSaxHandler handler) throws IOException {
+        final byte[] hash = hash(daeFile);
+        final Path entry = entryPath(hash);
+        if (!Files.isRegularFile(entry)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Optional.of(new Reader(buffer, hash, handler).read());
+        } catch (RuntimeException e) {
+            // whatever a truncated or corrupt entry makes the reader throw, it's stale: the file is parsed again
+            LOGGER.log(Level.WARNING, "Discarding the cache entry {0}: {1}", new Object[]{entry, e});
+            Files.deleteIfExists(entry);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes the cache entry of the given dae file from the handler that parsed it.
+     */
+    public void store(final Path daeFile, final DaeSaxHandler handler) throws IOException {
+        final byte[] hash = hash(daeFile);
+        Files.createDirectories(directory);
+        final Path entry = entryPath(hash);
+        final Path tempEntry = Files.createTempFile(directory, "entry", EXTENSION + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempEntry, StandardOpenOption.WRITE)) {
+                new Writer(channel).write(hash, handler);
+            }
+            Files.move(tempEntry, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempEntry);
+        }
+    }
+
+    private Path entryPath(final byte[] hash) {
+        final StringBuilder name = new StringBuilder();
+        for (final byte b : hash) {
+            name.append(String.format("%02x", b));
+        }
+        return directory.resolve(name.append(EXTENSION).toString());
+    }
+
+    private byte[] hash(final Path daeFile) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        digest.update(importerVersion.getBytes(StandardCharsets.UTF_8));
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(daeFile), digest)) {
+            final byte[] buffer = new byte[1 << 16];
+            while (inputStream.read(buffer) != -1) {
+                // the digest is updated by the stream
+            }
+        }
+        return digest.digest();
+    }
+
+    private final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private final CRC32 crc = new CRC32();
+        private boolean payload;
+
+        Writer(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(final byte[] hash, final DaeSaxHandler handler) throws IOException {
+            handler.completeParsersDecoding();
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(FORMAT_VERSION);
+            putString(importerVersion);
+            buffer.put(hash);
+            flush();
+            payload = true;
+
+            writeAsset((AssetParser) handler.getParser(DaeSaxHandler.ASSET_TAG));
+            writeCameras((LibraryCamerasParser) handler.getParser(DaeSaxHandler.LIBRARY_CAMERAS_TAG));
+            writeControllers((LibraryControllerParser) handler.getParser(DaeSaxHandler.LIBRARY_CONTROLLERS_TAG));
+            writeEffects((LibraryEffectsParser) handler.getParser(DaeSaxHandler.LIBRARY_EFFECTS_TAG));
+            writeGeometries((LibraryGeometriesParser) handler.getParser(DaeSaxHandler.LIBRARY_GEOMETRIES_TAG));
+            writeImages((LibraryImagesParser) handler.getParser(DaeSaxHandler.LIBRARY_IMAGES_TAG));
+            writeMaterials((LibraryMaterialsParser) handler.getParser(DaeSaxHandler.LIBRARY_MATERIALS_TAG));
+            writeVisualScenes((LibraryVisualSceneParser) handler.getParser(DaeSaxHandler.LIBRARY_VISUAL_SCENES_TAG));
+            writeAnimations((LibraryAnimationsParser) handler.getParser(DaeSaxHandler.LIBRARY_ANIMATIONS_TAG));
+            flush();
+
+            payload = false;
+            buffer.putLong(crc.getValue());
+            flush();
+        }
+
+        private boolean putPresence(final Object parser) throws IOException {
+            putBoolean(parser != null);
+            return parser != null;
+        }
+
+        private void writeAsset(final AssetParser parser) throws IOException {
+            if (putPresence(parser)) {
+                putString(parser.author);
+                putString(parser.authoringTool);
+                putString(parser.unit);
+                ensure(Float.BYTES);
+                buffer.putFloat(parser.scale);
+                putString(parser.upAxis);
+            }
+        }
+
+        private void writeCameras(final LibraryCamerasParser parser) throws IOException {
+            if (!putPresence(parser)) {
+                return;
+            }
+            String firstCameraId = null;
+            putInt(parser.cameras.size());
+            for (final Map.Entry<String, Camera> entry : parser.cameras.entrySet()) {
+                final PerspectiveCamera camera = (PerspectiveCamera) entry.getValue();
+                putString(entry.getKey());
+                putDouble(camera.getFieldOfView());
+                putBoolean(camera.isVerticalFieldOfView());
+                putDouble(camera.getNearClip());
+                putDouble(camera.getFarClip());
+                if (camera == parser.firstCamera) {
+                    firstCameraId = entry.getKey();
+                }
+            }
+            putString(firstCameraId);
+            putDouble(parser.firstCameraAspectRatio);
+        }
+
+        private void writeControllers(final LibraryControllerParser parser) throws IOException {
+            if (!putPresence(parser)) {
+                return;
+            }
+            putInt(parser.controllers.size());
+            for (final Map.Entry<String, DaeController> entry : parser.controllers.entrySet()) {
+                final DaeController controller = entry.getValue();
+                putString(entry.getKey());
+                putString(controller.getName());
+                putString(controller.getSkinId());
+                putBoolean(controller.getBindShapeMatrix() != null);
+                if (controller.getBindShapeMatrix() != null) {
+                    putAffine(controller.getBindShapeMatrix());
+                }
+                putStringArray(controller.getJointNames());
+                final SkinWeights weights = controller.getVertexWeights();
+                putInt(weights == null ? -1 : weights.getJointCount());
+                if (weights != null) {
+                    putIntArray(weights.getFirstInfluences());
+                    putIntArray(weights.getJoints());
+                    putFloatArray(weights.getWeights());
+                }
+                putInt(controller.bindPoses.size());
+                for (final Affine bindPose : controller.bindPoses) {
+                    putAffine(bindPose);
+                }
+            }
+        }
+
+        private void writeEffects(final LibraryEffectsParser parser) throws IOException {
+            if (!putPresence(parser)) {
+                return;
+            }
+            putInt(parser.effects.size());
+            for (final DaeEffect effect : parser.effects) {
+                putString(effect.id);
+                putString(effect.getType());
+                putStringMap(effect.surfaces);
+                putStringMap(effect.samplers);
+                putStringMap(effect.textureIds);
+                putInt(effect.colors.size());
+                for (final Map.Entry<String, Color> color : effect.colors.entrySet()) {
+                    putString(color.getKey());
+                    putDouble(color.getValue().getRed());
+                    putDouble(color.getValue().getGreen());
+                    putDouble(color.getValue().getBlue());
+                    putDouble(color.getValue().getOpacity());
+                }
+            }
+        }
+
+        private void writeGeometries(final LibraryGeometriesParser parser) throws IOException {
+            if (!putPresence(parser)) {
+                return;
+            }
+            putInt(parser.meshes.size());
+            for (final Map.Entry<String, List<TriangleMesh>> entry : parser.meshes.entrySet()) {
+                putString(entry.getKey());
+                putInt(entry.getValue().size());
+                for (final TriangleMesh mesh : entry.getValue()) {
+                    putBoolean(mesh.getVertexFormat() == VertexFormat.POINT_NORMAL_TEXCOORD);
+                    putFloatArray(mesh.getPoints().toArray(null));
+                    putFloatArray(mesh.getTexCoords().toArray(null));
+                    putFloatArray(mesh.getNormals().toArray(null));
+                    putIntArray(mesh.getFaces().toArray(null));
+                    putIntArray(mesh.getFaceSmoothingGroups().toArray(null));
+                }
+            }
+            putInt(parser.materials.size());
+            for (final Map.Entry<String, List<String>> entry : parser.materials.entrySet()) {
+                putString(entry.getKey());
+                putStringArray(entry.getValue().toArray(new String[0]));
+            }
+        }
+
+        private void writeImages(final LibraryImagesParser parser) throws IOException {
+            if (putPresence(parser)) {
+                putStringMap(parser.imagePaths);
+            }
+        }
+
+        private void writeMaterials(final LibraryMaterialsParser parser) throws IOException {
+            if (putPresence(parser)) {
+                putStringMap(parser.materialIdToEffectIdMap);
+            }
+        }
+
+        private void writeVisualScenes(final LibraryVisualSceneParser parser) throws IOException {
+            if (!putPresence(parser)) {
+                return;
+            }
+            putInt(parser.scenes.size());
+            for (final DaeScene scene : parser.scenes) {
+                putString(scene.getId());
+                putNodes(scene.getChildren().stream().
+                        filter(child -> child instanceof DaeNode).
+                        map(child -> (DaeNode) child).
+                        toArray(DaeNode[]::new));
+            }
+        }
+
+        private void putNodes(final DaeNode[] nodes) throws IOException {
+            putInt(nodes.length);
+            for (final DaeNode node : nodes) {
+                putString(node.getId());
+                putString(node.name);
+                putString(node.type);
+                putInt(node.getInstanceCategory().ordinal());
+                putString(node.getInstanceId());
+                putInt(node.getTransforms().size());
+                for (final Transform transform : node.getTransforms()) {
+                    putTransform(transform);
+                }
+                putNodes(node.getDaeNodeChildStream().toArray(DaeNode[]::new));
+            }
+        }
+
+        private void putTransform(final Transform transform) throws IOException {
+            if (transform instanceof Translate) {
+                final Translate translate = (Translate) transform;
+                putByte(TRANSLATE);
+                putDoubles(translate.getX(), translate.getY(), translate.getZ());
+            } else if (transform instanceof Rotate) {
+                final Rotate rotate = (Rotate) transform;
+                putByte(ROTATE);
+                putDoubles(rotate.getAngle(), rotate.getAxis().getX(), rotate.getAxis().getY(), rotate.getAxis().getZ(),
+                        rotate.getPivotX(), rotate.getPivotY(), rotate.getPivotZ());
+            } else if (transform instanceof Scale) {
+                final Scale scale = (Scale) transform;
+                putByte(SCALE);
+                putDoubles(scale.getX(), scale.getY(), scale.getZ(), scale.getPivotX(), scale.getPivotY(), scale.getPivotZ());
+            } else {
+                putByte(AFFINE);
+                putAffine(transform);
+            }
+        }
+
+        private void writeAnimations(final LibraryAnimationsParser parser) throws IOException {
+            if (!putPresence(parser)) {
+                return;
+            }
+            putInt(parser.animations.size());
+            for (final Map.Entry<String, DaeAnimation> entry : parser.animations.entrySet()) {
+                putString(entry.getKey());
+                putAnimation(entry.getValue());
+            }
+        }
+
+        private void putAnimation(final DaeAnimation animation) throws IOException {
+            putString(animation.id);
+            putString(animation.getTarget());
+            putStringArray(animation.getInterpolations());
+            putBoolean(animation.getInput() != null);
+            if (animation.getInput() != null) {
+                putFloatArray(animation.getInput());
+            }
+            putBoolean(animation.getOutput() != null);
+            if (animation.getOutput() != null) {
+                putFloatArray(animation.getOutput());
+            }
+            putInt(animation.getChildren().size());
+            for (final DaeAnimation child : animation.getChildren()) {
+                putAnimation(child);
+            }
+        }
+
+        private void putAffine(final Transform transform) throws IOException {
+            putDoubles(transform.toArray(javafx.scene.transform.MatrixType.MT_3D_3x4));
+        }
+
+        private void putStringMap(final Map<String, String> map) throws IOException {
+            putInt(map.size());
+            for (final Map.Entry<String, String> entry : map.entrySet()) {
+                putString(entry.getKey());
+                putString(entry.getValue());
+            }
+        }
+
+        private void putStringArray(final String[] strings) throws IOException {
+            putInt(strings == null ? -1 : strings.length);
+            if (strings != null) {
+                for (final String string : strings) {
+                    putString(string);
+                }
+            }
+        }
+
+        private void putString(final String string) throws IOException {
+            if (string == null) {
+                putInt(-1);
+                return;
+            }
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                final int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private void putFloatArray(final float[] array) throws IOException {
+            putInt(array.length);
+            for (int offset = 0; offset < array.length; ) {
+                ensure(Float.BYTES);
+                final int length = Math.min(buffer.remaining() / Float.BYTES, array.length - offset);
+                buffer.asFloatBuffer().put(array, offset, length);
+                buffer.position(buffer.position() + length * Float.BYTES);
+                offset += length;
+            }
+        }
+
+        private void putIntArray(final int[] array) throws IOException {
+            putInt(array.length);
+            for (int offset = 0; offset < array.length; ) {
+                ensure(Integer.BYTES);
+                final int length = Math.min(buffer.remaining() / Integer.BYTES, array.length - offset);
+                buffer.asIntBuffer().put(array, offset, length);
+                buffer.position(buffer.position() + length * Integer.BYTES);
+                offset += length;
+            }
+        }
+
+        private void putDoubles(final double... array) throws IOException {
+            putInt(array.length);
+            for (int offset = 0; offset < array.length; ) {
+                ensure(Double.BYTES);
+                final int length = Math.min(buffer.remaining() / Double.BYTES, array.length - offset);
+                buffer.asDoubleBuffer().put(array, offset, length);
+                buffer.position(buffer.position() + length * Double.BYTES);
+                offset += length;
+            }
+        }
+
+        private void putByte(final byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        private void putBoolean(final boolean value) throws IOException {
+            putByte(value ? (byte) 1 : (byte) 0);
+        }
+
+        private void putInt(final int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        private void putDouble(final double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        private void ensure(final int length) throws IOException {
+            if (buffer.remaining() < length) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            if (payload) {
+                crc.update(buffer.duplicate());
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private final class Reader {
+        private final ByteBuffer buffer;
+        private final byte[] expectedHash;
+        private final DaeSaxHandler handler;
+
+        Reader(final ByteBuffer buffer, final byte[] expectedHash, final DaeSaxHandler handler) {
+            this.buffer = buffer;
+            this.expectedHash = expectedHash;
+            this.handler = handler;
+        }
+
+        DaeSaxHandler read() {
+            check(buffer.remaining() >= MIN_ENTRY_LENGTH, "truncated entry");
+            check(buffer.getInt() == MAGIC, "not a cache entry");
+            check(buffer.getInt() == FORMAT_VERSION, "format version mismatch");
+            check(importerVersion.equals(getString()), "importer version mismatch");
+            final byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(hash);
+            check(Arrays.equals(hash, expectedHash), "content hash mismatch");
+
+            final int payloadStart = buffer.position();
+            final int payloadEnd = buffer.limit() - CRC_LENGTH;
+            check(payloadEnd >= payloadStart, "truncated entry");
+            final CRC32 crc = new CRC32();
+            final ByteBuffer payload = buffer.duplicate();
+            payload.position(payloadStart).limit(payloadEnd);
+            crc.update(payload);
+            check(crc.getValue() == buffer.getLong(payloadEnd), "checksum mismatch");
+
+            readParser(handler, DaeSaxHandler.ASSET_TAG, this::readAsset);
+            readParser(handler, DaeSaxHandler.LIBRARY_CAMERAS_TAG, this::readCameras);
+            readParser(handler, DaeSaxHandler.LIBRARY_CONTROLLERS_TAG, this::readControllers);
+            readParser(handler, DaeSaxHandler.LIBRARY_EFFECTS_TAG, this::readEffects);
+            readParser(handler, DaeSaxHandler.LIBRARY_GEOMETRIES_TAG, this::readGeometries);
+            readParser(handler, DaeSaxHandler.LIBRARY_IMAGES_TAG, this::readImages);
+            readParser(handler, DaeSaxHandler.LIBRARY_MATERIALS_TAG, this::readMaterials);
+            readParser(handler, DaeSaxHandler.LIBRARY_VISUAL_SCENES_TAG, this::readVisualScenes);
+            readParser(handler, DaeSaxHandler.LIBRARY_ANIMATIONS_TAG, this::readAnimations);
+            check(buffer.position() == payloadEnd, "unexpected trailing data");
+            // the meshes were stored once processed, as the version of the entry says
+            handler.setGeometriesProcessed();
+            return handler;
+        }
+
+        private void check(final boolean condition, final String message) {
+            if (!condition) {
+                throw new IllegalStateException(message);
+            }
+        }
+
+        // Reads a count, or a length, of elements taking at least elementBytes each, checking it against the remaining
+        // bytes before anything is allocated; -1 stands for null where nullable
+        private int getCount(final int elementBytes, final boolean nullable) {
+            final int count = buffer.getInt();
+            if (count == -1 && nullable) {
+                return count;
+            }
+            check(count >= 0 && count <= buffer.remaining() / elementBytes, "corrupt length " + count);
+            return count;
+        }
+
+        private int getCount(final int elementBytes) {
+            return getCount(elementBytes, false);
+        }
+
+        private void readParser(final DaeSaxHandler handler, final String tag, final Supplier<AbstractParser> reader) {
+            if (getBoolean()) {
+                handler.putParser(tag, reader.get());
+            }
+        }
+
+        private AbstractParser readAsset() {
+            final AssetParser parser = new AssetParser();
+            parser.author = getString();
+            parser.authoringTool = getString();
+            parser.unit = getString();
+            parser.scale = buffer.getFloat();
+            parser.upAxis = getString();
+            return parser;
+        }
+
+        private AbstractParser readCameras() {
+            final LibraryCamerasParser parser = new LibraryCamerasParser();
+            final int count = getCount(Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                final String id = getString();
+                final PerspectiveCamera camera = new PerspectiveCamera(true);
+                camera.setFieldOfView(buffer.getDouble());
+                camera.setVerticalFieldOfView(getBoolean());
+                camera.setNearClip(buffer.getDouble());
+                camera.setFarClip(buffer.getDouble());
+                parser.cameras.put(id, camera);
+            }
+            final String firstCameraId = getString();
+            parser.firstCamera = firstCameraId == null ? null : parser.cameras.get(firstCameraId);
+            parser.firstCameraAspectRatio = buffer.getDouble();
+            return parser;
+        }
+
+        private AbstractParser readControllers() {
+            final LibraryControllerParser parser = new LibraryControllerParser();
+            final int count = getCount(Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                final String id = getString();
+                final DaeController controller = new DaeController(getString());
+                controller.setSkinId(getString());
+                if (getBoolean()) {
+                    controller.setBindShapeMatrix(getAffine());
+                }
+                controller.setJointNames(getStringArray());
+                final int nbJoints = buffer.getInt();
+                if (nbJoints >= 0) {
+                    controller.setVertexWeights(new SkinWeights(nbJoints, getIntArray(), getIntArray(), getFloatArray()));
+                }
+                final int nbBindPoses = getCount(Integer.BYTES);
+                for (int j = 0; j < nbBindPoses; j++) {
+                    controller.bindPoses.add(getAffine());
+                }
+                parser.controllers.put(id, controller);
+            }
+            return parser;
+        }
+
+        private AbstractParser readEffects() {
+            final LibraryEffectsParser parser = new LibraryEffectsParser();
+            final int count = getCount(Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                final DaeEffect effect = new DaeEffect(getString());
+                effect.setType(getString());
+                getStringMap(effect.surfaces);
+                getStringMap(effect.samplers);
+                getStringMap(effect.textureIds);
+                final int nbColors = getCount(Integer.BYTES);
+                for (int j = 0; j < nbColors; j++) {
+                    effect.colors.put(getString(),
+                            new Color(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble()));
+                }
+                parser.effects.add(effect);
+            }
+            return parser;
+        }
+
+        private AbstractParser readGeometries() {
+            final LibraryGeometriesParser parser = new LibraryGeometriesParser();
+            final int count = getCount(Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                final String id = getString();
+                final int nbMeshes = getCount(Integer.BYTES);
+                final List<TriangleMesh> meshes = new ArrayList<>(nbMeshes);
+                for (int j = 0; j < nbMeshes; j++) {
+                    final TriangleMesh mesh = new TriangleMesh(getBoolean()
+                            ? VertexFormat.POINT_NORMAL_TEXCOORD
+                            : VertexFormat.POINT_TEXCOORD);
+                    mesh.getPoints().setAll(getFloatArray());
+                    mesh.getTexCoords().setAll(getFloatArray());
+                    mesh.getNormals().setAll(getFloatArray());
+                    mesh.getFaces().setAll(getIntArray());
+                    mesh.getFaceSmoothingGroups().setAll(getIntArray());
+                    meshes.add(mesh);
+                }
+                parser.meshes.put(id, meshes);
+            }
+            final int nbMaterials = getCount(Integer.BYTES);
+            for (int i = 0; i < nbMaterials; i++) {
+                parser.materials.put(getString(), new ArrayList<>(Arrays.asList(getStringArray())));
+            }
+            return parser;
+        }
+
+        private AbstractParser readImages() {
+            final LibraryImagesParser parser = new LibraryImagesParser(handler.getResourceResolver(), handler.getSharedResources());
+            getStringMap(new LinkedHashMap<>()).forEach(parser::addImage);
+            return parser;
+        }
+
+        private AbstractParser readMaterials() {
+            final LibraryMaterialsParser parser = new LibraryMaterialsParser();
+            getStringMap(parser.materialIdToEffectIdMap);
+            return parser;
+        }
+
+        private AbstractParser readVisualScenes() {
+            final LibraryVisualSceneParser parser = new LibraryVisualSceneParser();
+            final int count = getCount(Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                final DaeScene scene = new DaeScene(getString());
+                for (final DaeNode node : getNodes()) {
+                    scene.getChildren().add(node);
+                    LibraryVisualSceneParser.buildSkeletonIfChildrenHaveJoints(scene, node);
+                }
+                parser.scenes.add(scene);
+            }
+            return parser;
+        }
+
+        private List<DaeNode> getNodes() {
+            final int count = getCount(Integer.BYTES);
+            final List<DaeNode> nodes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final DaeNode node = new DaeNode(getString(), getString(), getString());
+                final DaeNode.Category category = DaeNode.Category.values()[buffer.getInt()];
+                node.setInstance(category, getString());
+                final int nbTransforms = getCount(Integer.BYTES);
+                for (int j = 0; j < nbTransforms; j++) {
+                    node.getTransforms().add(getTransform());
+                }
+                node.getChildren().addAll(getNodes());
+                nodes.add(node);
+            }
+            return nodes;
+        }
+
+        private Transform getTransform() {
+            final byte type = buffer.get();
+            final double[] values;
+            switch (type) {
+                case TRANSLATE:
+                    values = getDoubles();
+                    return new Translate(values[0], values[1], values[2]);
+                case ROTATE:
+                    values = getDoubles();
+                    return new Rotate(values[0], values[4], values[5], values[6], new Point3D(values[1], values[2], values[3]));
+                case SCALE:
+                    values = getDoubles();
+                    return new Scale(values[0], values[1], values[2], values[3], values[4], values[5]);
+                case AFFINE:
+                    return getAffine();
+                default:
+                    throw new IllegalStateException("unknown transform type " + type);
+            }
+        }
+
+        private AbstractParser readAnimations() {
+            final LibraryAnimationsParser parser = new LibraryAnimationsParser();
+            final int count = getCount(Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                parser.animations.put(getString(), getAnimation());
+            }
+            return parser;
+        }
+
+        private DaeAnimation getAnimation() {
+            final DaeAnimation animation = new DaeAnimation(getString());
+            animation.setTarget(getString());
+            final String[] interpolations = getStringArray();
+            if (interpolations != null) {
+                animation.setInterpolations(interpolations);
+            }
+            if (getBoolean()) {
+                animation.setInput(getFloatArray());
+            }
+            if (getBoolean()) {
+                animation.setOutput(getFloatArray());
+            }
+            final int nbChildren = getCount(Integer.BYTES);
+            for (int i = 0; i < nbChildren; i++) {
+                animation.addChild(getAnimation());
+            }
+            return animation;
+        }
+
+        private Affine getAffine() {
+            final double[] m = getDoubles();
+            check(m.length == 12, "invalid matrix");
+            return new Affine(m[0], m[1], m[2], m[3], m[4], m[5], m[6], m[7], m[8], m[9], m[10], m[11]);
+        }
+
+        private Map<String, String> getStringMap(final Map<String, String> map) {
+            final int count = getCount(Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                map.put(getString(), getString());
+            }
+            return map;
+        }
+
+        private String[] getStringArray() {
+            final int count = getCount(Integer.BYTES, true);
+            if (count < 0) {
+                return null;
+            }
+            final String[] strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                strings[i] = getString();
+            }
+            return strings;
+        }
+
+        private String getString() {
+            final int length = getCount(1, true);
+            if (length < 0) {
+                return null;
+            }
+            final byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private float[] getFloatArray() {
+            final float[] array = new float[getCount(Float.BYTES)];
+            buffer.asFloatBuffer().get(array);
+            buffer.position(buffer.position() + array.length * Float.BYTES);
+            return array;
+        }
+
+        private int[] getIntArray() {
+            final int[] array = new int[getCount(Integer.BYTES)];
+            buffer.asIntBuffer().get(array);
+            buffer.position(buffer.position() + array.length * Integer.BYTES);
+            return array;
+        }
+
+        private double[] getDoubles() {
+            final double[] array = new double[getCount(Double.BYTES)];
+            buffer.asDoubleBuffer().get(array);
+            buffer.position(buffer.position() + array.length * Double.BYTES);
+            return array;
+        }
+
+        private boolean getBoolean() {
+            return buffer.get() != 0;
+        }
+    }
+}
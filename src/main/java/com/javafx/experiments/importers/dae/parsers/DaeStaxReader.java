@@ -0,0 +1,204 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import org.xml.sax.Attributes;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Pull-parser alternative to the SAX engine: it feeds the same library parsers from a {@link XMLStreamReader}, but
+ * only with the elements they pull.
+ * <p>
+ * The libraries whose parser doesn't consume anything (e.g. lights) are skipped without dispatching any of their
+ * events. Within the libraries whose parser declares the elements it pulls (the geometries, the controllers and the
+ * animations), the subtrees of the other elements are skipped the same way, e.g. the extras and the techniques of
+ * other profiles. The tag of every element is looked up once, and the text content is handed over from the reader
+ * buffer without copy.
+ *
+ * @author Eclion
+ */
+public final class DaeStaxReader {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final XMLStreamReader reader;
+    private final LibraryHandler handler;
+    private final StaxAttributes attributes;
+
+    private DaeStaxReader(final XMLStreamReader reader, final DaeSaxHandler daeHandler) {
+        this.reader = reader;
+        this.handler = daeHandler.getLibraryHandler();
+        this.attributes = new StaxAttributes(reader);
+    }
+
+    private static XMLInputFactory createFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        return factory;
+    }
+
+    public static void read(final InputStream inputStream, final DaeSaxHandler daeHandler) throws XMLStreamException {
+        final XMLStreamReader reader;
+        synchronized (FACTORY) {
+            reader = FACTORY.createXMLStreamReader(inputStream);
+        }
+        try {
+            new DaeStaxReader(reader, daeHandler).read();
+        } finally {
+            reader.close();
+        }
+    }
+
+    // the libraries are at depth 2, below the root element, and their elements are only dispatched if pulled
+    private void read() throws XMLStreamException {
+        int depth = 0;
+        int[] tags = new int[16];
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    final String qName = qName();
+                    final int tag = TagTable.lookup(qName);
+                    if (depth >= 2 && handler.skips(tag)) {
+                        skipElement();
+                        break;
+                    }
+                    handler.startTaggedElement(tag, qName, attributes);
+                    if (++depth == 2 && handler.isIdle()) {
+                        skipElement();
+                        handler.endTaggedElement(tag, qName);
+                        depth--;
+                    } else {
+                        if (depth == tags.length) {
+                            tags = Arrays.copyOf(tags, depth * 2);
+                        }
+                        tags[depth] = tag;
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    handler.endTaggedElement(tags[depth], qName());
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    handler.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private String qName() {
+        final String prefix = reader.getPrefix();
+        return prefix == null || prefix.isEmpty()
+                ? reader.getLocalName()
+                : prefix + ':' + reader.getLocalName();
+    }
+
+    /**
+     * SAX view of the attributes of the current start element, only valid during the dispatch of this element.
+     */
+    private static final class StaxAttributes implements Attributes {
+        private final XMLStreamReader reader;
+
+        StaxAttributes(final XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int getLength() {
+            return reader.getAttributeCount();
+        }
+
+        @Override
+        public String getURI(final int index) {
+            final String uri = reader.getAttributeNamespace(index);
+            return uri == null ? "" : uri;
+        }
+
+        @Override
+        public String getLocalName(final int index) {
+            return reader.getAttributeLocalName(index);
+        }
+
+        @Override
+        public String getQName(final int index) {
+            final String prefix = reader.getAttributePrefix(index);
+            return prefix == null || prefix.isEmpty()
+                    ? reader.getAttributeLocalName(index)
+                    : prefix + ':' + reader.getAttributeLocalName(index);
+        }
+
+        @Override
+        public String getType(final int index) {
+            return reader.getAttributeType(index);
+        }
+
+        @Override
+        public String getValue(final int index) {
+            return reader.getAttributeValue(index);
+        }
+
+        @Override
+        public int getIndex(final String uri, final String localName) {
+            for (int i = 0; i < getLength(); i++) {
+                if (getURI(i).equals(uri) && getLocalName(i).equals(localName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int getIndex(final String qName) {
+            for (int i = 0; i < getLength(); i++) {
+                if (qName.equals(getQName(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String getType(final String uri, final String localName) {
+            final int index = getIndex(uri, localName);
+            return index < 0 ? null : getType(index);
+        }
+
+        @Override
+        public String getType(final String qName) {
+            final int index = getIndex(qName);
+            return index < 0 ? null : getType(index);
+        }
+
+        @Override
+        public String getValue(final String uri, final String localName) {
+            final int index = getIndex(uri, localName);
+            return index < 0 ? null : getValue(index);
+        }
+
+        @Override
+        public String getValue(final String qName) {
+            final int index = getIndex(qName);
+            return index < 0 ? null : getValue(index);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import org.xml.sax.Attributes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The elements being parsed, from the root element to the current one, with their id and sid. The stack is kept by
+ * the handler receiving the events and shared with the handlers it delegates to, so that the parsers look the ids of
+ * the enclosing elements up rather than recording the id of every element they receive.
+ * <p>
+ * The ids are deduplicated, the ones of a document being retained many times by the parsed structures.
+ *
+ * @author Eclion
+ */
+final class ElementContext {
+    private static final String ID_ATTRIBUTE = "id";
+    private static final String SID_ATTRIBUTE = "sid";
+    private static final int INITIAL_DEPTH = 16;
+
+    private final Map<String, String> strings = new HashMap<>();
+    private String[] tags = new String[INITIAL_DEPTH];
+    private String[] ids = new String[INITIAL_DEPTH];
+    private String[] sids = new String[INITIAL_DEPTH];
+    private int depth;
+
+    void push(final String qName, final Attributes attributes) {
+        if (depth == tags.length) {
+            tags = Arrays.copyOf(tags, depth * 2);
+            ids = Arrays.copyOf(ids, depth * 2);
+            sids = Arrays.copyOf(sids, depth * 2);
+        }
+        tags[depth] = qName;
+        ids[depth] = deduplicate(attributes.getValue(ID_ATTRIBUTE));
+        sids[depth] = attributes.getValue(SID_ATTRIBUTE);
+        depth++;
+    }
+
+    void pop() {
+        depth--;
+        tags[depth] = null;
+        ids[depth] = null;
+        sids[depth] = null;
+    }
+
+    /**
+     * @return The id of the innermost element being parsed having the given tag, the current one included, null if
+     * there's none or if it has no id
+     */
+    String getId(final String tag) {
+        final int position = find(tag);
+        return position < 0 ? null : ids[position];
+    }
+
+    /**
+     * @see #getId(String)
+     */
+    String getSid(final String tag) {
+        final int position = find(tag);
+        return position < 0 ? null : sids[position];
+    }
+
+    private int find(final String tag) {
+        for (int i = depth - 1; i >= 0; i--) {
+            if (tag.equals(tags[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The instance of the string the context already holds, or the given one which is held from now on
+     */
+    String deduplicate(final String string) {
+        if (string == null) {
+            return null;
+        }
+        final String existing = strings.putIfAbsent(string, string);
+        return existing != null ? existing : string;
+    }
+}
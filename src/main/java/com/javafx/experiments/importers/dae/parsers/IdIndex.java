@@ -0,0 +1,49 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The entities of a document by id, e.g. its sources, shared by the parsers resolving the "#id" references of the
+ * document while parsing it.
+ *
+ * @author Eclion
+ */
+final class IdIndex {
+    private static final char FRAGMENT_SEPARATOR = '#';
+
+    private final Map<String, Object> entities = new HashMap<>();
+
+    void put(final String id, final Object entity) {
+        if (id != null) {
+            entities.put(id, entity);
+        }
+    }
+
+    /**
+     * @param reference The id of the entity or a reference to it, e.g. "#id"
+     * @return The entity, if it has the given type
+     */
+    <T> Optional<T> find(final String reference, final Class<T> type) {
+        return Optional.ofNullable(entities.get(fragment(reference))).
+                filter(type::isInstance).
+                map(type::cast);
+    }
+
+    /**
+     * @return The id a reference points to, i.e. what follows the '#' of "#id" or "file.dae#id", or the reference
+     * itself if it's already an id
+     */
+    static String fragment(final String reference) {
+        if (reference == null) {
+            return null;
+        }
+        final int separator = reference.indexOf(FRAGMENT_SEPARATOR);
+        return separator < 0 ? reference : reference.substring(separator + 1);
+    }
+
+    int size() {
+        return entities.size();
+    }
+}
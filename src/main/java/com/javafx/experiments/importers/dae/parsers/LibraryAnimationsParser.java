@@ -1,11 +1,13 @@
 package com.javafx.experiments.importers.dae.parsers;
 
 import com.javafx.experiments.importers.dae.structures.DaeAnimation;
+import com.javafx.experiments.importers.dae.structures.Input;
 import com.javafx.experiments.importers.dae.utils.ParserUtils;
 
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * @author Eclion.
@@ -13,19 +15,28 @@ import java.util.Map;
 final class LibraryAnimationsParser extends AbstractParser {
     private static final String ANIMATION_TAG = "animation";
     private static final String CHANNEL_TAG = "channel";
-    private static final String FLOAT_ARRAY_TAG = "float_array";
-    private static final String NAME_ARRAY_TAG = "Name_array";
-    private static final String SOURCE_TAG = "source";
+    private static final String INPUT_TAG = "input";
+    private static final String SAMPLER_TAG = "sampler";
+    private static final int MATRIX_SIZE = 16;
 
-    private final Map<String, String> currentId = new HashMap<>();
     private String currentAnimationId = "";
     final Map<String, DaeAnimation> animations = new HashMap<>();
     private final LinkedList<DaeAnimation> currentAnimations = new LinkedList<>();
+    private final Map<String, Input> inputs = new HashMap<>();
+    private final SourceStore sourceStore;
 
     LibraryAnimationsParser() {
-        addStartElementBiConsumer("*", (qName, attributes) -> currentId.put(qName, attributes.getValue("id")));
+        this(new IdIndex());
+    }
+
+    /**
+     * @param idIndex The index of the document, filled with the sources of the animations
+     */
+    LibraryAnimationsParser(final IdIndex idIndex) {
+        this.sourceStore = new SourceStore(idIndex);
+        sourceStore.collect(this);
         addStartElementBiConsumer(ANIMATION_TAG, (qName, attributes) -> {
-            currentAnimationId = currentId.get(qName);
+            currentAnimationId = getContext().getId(qName);
             currentAnimations.push(new DaeAnimation(currentAnimationId));
         });
         addStartElementBiConsumer(CHANNEL_TAG, (qName, attributes) -> currentAnimations.peek().setTarget(attributes.getValue("target")));
@@ -38,15 +49,25 @@ final class LibraryAnimationsParser extends AbstractParser {
                 currentAnimations.peek().addChild(animation);
             }
         });
-        addEndElementBiConsumer(FLOAT_ARRAY_TAG, (qName, content) -> {
-            String sourceId = currentId.get(SOURCE_TAG);
-            if (sourceId.equalsIgnoreCase(currentAnimationId + "-input")) {
-                currentAnimations.peek().setInput(ParserUtils.extractFloatArray(content));
-            } else if (sourceId.equalsIgnoreCase(currentAnimationId + "-output")) {
-                currentAnimations.peek().setOutput(ParserUtils.extractDoubleArray(content));
-            }
+        addStartElementBiConsumer(INPUT_TAG, (qName, attributes) -> {
+            final Input input = ParserUtils.createInput(attributes);
+            inputs.put(input.semantic, input);
         });
-        addEndElementBiConsumer(NAME_ARRAY_TAG, (qName, content) -> currentAnimations.peek().setInterpolations(content.split("\\s+")
-        ));
+        addEndElementBiConsumer(SAMPLER_TAG, (qName, content) -> saveSampler());
+    }
+
+    // the key times, the 4x4 matrices whatever their stride, and the interpolations of the current animation
+    private void saveSampler() {
+        final DaeAnimation animation = currentAnimations.peek();
+        Optional.ofNullable(inputs.get("INPUT")).
+                flatMap(input -> sourceStore.find(input.source)).
+                ifPresent(source -> whenDecoded(() -> animation.setInput(source.toPackedFloats(1)), source.getFloats()));
+        Optional.ofNullable(inputs.get("OUTPUT")).
+                flatMap(input -> sourceStore.find(input.source)).
+                ifPresent(source -> whenDecoded(() -> animation.setOutput(source.toPackedFloats(MATRIX_SIZE)), source.getFloats()));
+        Optional.ofNullable(inputs.get("INTERPOLATION")).
+                flatMap(input -> sourceStore.find(input.source)).
+                ifPresent(source -> animation.setInterpolations(source.getNames()));
+        inputs.clear();
     }
 }
@@ -19,7 +19,6 @@ final class LibraryCamerasParser extends AbstractParser {
     private static final String ZFAR_TAG = "zfar";
     private static final String ZNEAR_TAG = "znear";
 
-    private final Map<String, String> currentId = new HashMap<>();
     private Double aspectRatio;
     private Double xfov;
     private Double yfov;
@@ -30,7 +29,6 @@ final class LibraryCamerasParser extends AbstractParser {
     double firstCameraAspectRatio = DEFAULT_ASPECT_RATIO;
 
     LibraryCamerasParser() {
-        addStartElementBiConsumer("*", (qName, attributes) -> currentId.put(qName, attributes.getValue("id")));
         addStartElementBiConsumer(CAMERA_TAG, (qName, attributes) -> aspectRatio = xfov = yfov = znear = zfar = null);
 
         addEndElementBiConsumer(ASPECT_RATIO_TAG, (qName, content) -> aspectRatio = Double.parseDouble(content));
@@ -54,7 +52,7 @@ final class LibraryCamerasParser extends AbstractParser {
         });
         Optional.ofNullable(znear).ifPresent(camera::setNearClip);
         Optional.ofNullable(zfar).ifPresent(camera::setFarClip);
-        cameras.put(currentId.get(CAMERA_TAG), camera);
+        cameras.put(getContext().getId(CAMERA_TAG), camera);
 
         if (firstCamera == null) {
             firstCamera = camera;
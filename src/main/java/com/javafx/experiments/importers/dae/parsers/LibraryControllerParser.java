@@ -2,13 +2,17 @@ package com.javafx.experiments.importers.dae.parsers;
 
 import com.javafx.experiments.importers.dae.structures.DaeController;
 import com.javafx.experiments.importers.dae.structures.Input;
-import com.javafx.experiments.importers.dae.structures.Param;
+import com.javafx.experiments.importers.dae.structures.Source;
 import com.javafx.experiments.importers.dae.utils.ParserUtils;
+import com.javafx.experiments.shape3d.SkinWeights;
 import javafx.scene.transform.Affine;
 import javafx.scene.transform.MatrixType;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 /**
  * @author Eclion
@@ -16,10 +20,8 @@ import java.util.Map;
 final class LibraryControllerParser extends AbstractParser {
     private static final String BIND_SHAPE_MATRIX_TAG = "bind_shape_matrix";
     private static final String CONTROLLER_TAG = "controller";
-    private static final String FLOAT_ARRAY_TAG = "float_array";
     private static final String INPUT_TAG = "input";
-    private static final String NAME_ARRAY_TAG = "Name_array";
-    private static final String PARAM_TAG = "param";
+    private static final String JOINTS_TAG = "joints";
     private static final String SKIN_TAG = "skin";
     private static final String V_TAG = "v";
     private static final String VCOUNT_TAG = "vcount";
@@ -29,30 +31,32 @@ final class LibraryControllerParser extends AbstractParser {
     private static final String SOURCE_STR = "source";
 
     private String currentControllerId = "";
-    private final Map<String, String> currentId = new HashMap<>();
     private final Map<String, Input> inputs = new HashMap<>();
-    private final Map<String, Param> params = new HashMap<>();
-    private final Map<String, float[]> floatArrays = new HashMap<>();
+    private final SourceStore sourceStore;
     final Map<String, DaeController> controllers = new HashMap<>();
-    private int[] vCounts;
-    private int[] v;
+    private CompletableFuture<int[]> vCounts;
+    private CompletableFuture<int[]> v;
     private int nbPoints;
 
     LibraryControllerParser() {
-        addStartElementBiConsumer("*", (qName, attributes) -> currentId.put(qName, attributes.getValue("id")));
+        this(new IdIndex());
+    }
+
+    /**
+     * @param idIndex The index of the document, filled with the sources of the controllers
+     */
+    LibraryControllerParser(final IdIndex idIndex) {
+        this.sourceStore = new SourceStore(idIndex);
+        sourceStore.collect(this);
         addStartElementBiConsumer(CONTROLLER_TAG, (qName, attributes) -> {
-            currentControllerId = currentId.get(qName);
+            currentControllerId = getContext().getId(qName);
             controllers.put(currentControllerId, new DaeController(attributes.getValue("name")));
         });
         addStartElementBiConsumer(INPUT_TAG, (qName, attributes) -> {
             Input input = ParserUtils.createInput(attributes);
             inputs.put(input.semantic, input);
         });
-        addStartElementBiConsumer(PARAM_TAG, (qName, attributes) -> {
-            String sourceId = currentId.get(SOURCE_STR);
-            params.put(sourceId, new Param(attributes.getValue("name"), attributes.getValue("type")));
-        });
-        addStartElementBiConsumer(SKIN_TAG, (qName, attributes) -> controllers.get(currentControllerId).setSkinId(attributes.getValue(SOURCE_STR).substring(1)));
+        addStartElementBiConsumer(SKIN_TAG, (qName, attributes) -> controllers.get(currentControllerId).setSkinId(IdIndex.fragment(attributes.getValue(SOURCE_STR))));
         addStartElementBiConsumer(VERTEX_WEIGTHS_TAG, (qName, attributes) -> nbPoints = Integer.parseInt(attributes.getValue("count")));
 
         addEndElementBiConsumer(BIND_SHAPE_MATRIX_TAG, (qName, content) -> {
@@ -60,54 +64,68 @@ final class LibraryControllerParser extends AbstractParser {
             controllers.get(currentControllerId).setBindShapeMatrix(extractMatrixTransformation(matrixValues));
         });
         addEndElementBiConsumer(CONTROLLER_TAG, (qName, content) -> init());
-        addEndElementBiConsumer(FLOAT_ARRAY_TAG, (qName, content) -> {
-            floatArrays.put(currentId.get(SOURCE_STR), ParserUtils.extractFloatArray(content));
-            if (!currentId.get(SOURCE_STR).contains("bind_poses")) {
-                return;
-            }
-            double[] doubleArray = ParserUtils.extractDoubleArray(content);
-            for (int i = 0; i < doubleArray.length / 16; i++) {
-                controllers.get(currentControllerId).bindPoses.add(new Affine(doubleArray, MatrixType.MT_3D_4x4, i * 16));
-            }
-        });
-        addEndElementBiConsumer(NAME_ARRAY_TAG, (qName, content) -> controllers.get(currentControllerId).setJointNames(content.split(WHITESPACES_REGEX)));
-        addEndElementBiConsumer(V_TAG, (qName, content) -> v = ParserUtils.extractIntArray(content));
-        addEndElementBiConsumer(VCOUNT_TAG, (qName, content) -> vCounts = ParserUtils.extractIntArray(content));
+        addEndElementBiConsumer(JOINTS_TAG, (qName, content) -> saveJoints());
+        addDeferredIntArrayBiConsumer(V_TAG, attributes -> expectedInfluencesCount() * 2, (qName, intArray) -> v = intArray);
+        addDeferredIntArrayBiConsumer(VCOUNT_TAG, attributes -> nbPoints, (qName, intArray) -> vCounts = intArray);
         addEndElementBiConsumer(VERTEX_WEIGTHS_TAG, (qName, content) -> saveWeights());
     }
 
     private void init() {
         currentControllerId = "";
-        currentId.clear();
         inputs.clear();
-        params.clear();
-        floatArrays.clear();
-        vCounts = new int[0];
-        v = new int[0];
+        vCounts = CompletableFuture.completedFuture(new int[0]);
+        v = CompletableFuture.completedFuture(new int[0]);
         nbPoints = 0;
     }
 
-    private void saveWeights() {
-        Input jointInput = inputs.get("JOINT");
-        int jointOffset = jointInput.offset;
-        Input weightInput = inputs.get("WEIGHT");
-        int weightOffset = weightInput.offset;
-        float[] weightValues = floatArrays.get(weightInput.source.substring(1));
+    // The exact count is only known once the vcount content is decoded, 4 influences per vertex are assumed otherwise.
+    private int expectedInfluencesCount() {
+        return vCounts != null && vCounts.isDone()
+                ? IntStream.of(vCounts.join()).sum()
+                : nbPoints * 4;
+    }
 
-        int nbJoints = controllers.get(currentControllerId).getJointNames().length;
-        float[][] weights = new float[nbJoints][nbPoints];
+    // the joints element names the joints and their inverse bind matrices, read as 4x4 matrices whatever their stride
+    private void saveJoints() {
+        final DaeController controller = controllers.get(currentControllerId);
+        Optional.ofNullable(inputs.get("JOINT")).
+                flatMap(input -> sourceStore.find(input.source)).
+                ifPresent(source -> controller.setJointNames(source.getNames()));
+        Optional.ofNullable(inputs.get("INV_BIND_MATRIX")).
+                flatMap(input -> sourceStore.find(input.source)).
+                ifPresent(source -> whenDecoded(() -> {
+                    for (int i = 0; i < source.getCount(); i++) {
+                        controller.bindPoses.add(new Affine(
+                                source.getFloat(i, 0), source.getFloat(i, 1), source.getFloat(i, 2), source.getFloat(i, 3),
+                                source.getFloat(i, 4), source.getFloat(i, 5), source.getFloat(i, 6), source.getFloat(i, 7),
+                                source.getFloat(i, 8), source.getFloat(i, 9), source.getFloat(i, 10), source.getFloat(i, 11)));
+                    }
+                }, source.getFloats()));
+    }
 
-        int index = 0;
-        for (int i = 0; i < vCounts.length; i++) {
-            for (int vCountIter = 0; vCountIter < vCounts[i]; ++vCountIter) {
-                int jointIndex = v[index + jointOffset];
-                int weightIndex = v[index + weightOffset];
-                weights[jointIndex][i] = weightValues[weightIndex];
-                index += 2;
-            }
-        }
+    private void saveWeights() {
+        final int jointOffset = inputs.get("JOINT").offset;
+        final Input weightInput = inputs.get("WEIGHT");
+        final int weightOffset = weightInput.offset;
+        final Source weightSource = sourceStore.find(weightInput.source).orElse(new Source(weightInput.source));
+        final CompletableFuture<float[]> weightValues = weightSource.getFloats();
+        final CompletableFuture<int[]> verticesCounts = vCounts;
+        final CompletableFuture<int[]> vertexInfluences = v;
+        final DaeController controller = controllers.get(currentControllerId);
+        final int nbJoints = controller.getJointNames().length;
+        final int nbVertices = nbPoints;
+
+        whenDecoded(() -> controller.setVertexWeights(calcWeights(nbJoints, nbVertices, jointOffset, weightOffset,
+                weightSource.toPackedFloats(1), verticesCounts.join(), vertexInfluences.join())),
+                weightValues, verticesCounts, vertexInfluences);
+    }
 
-        controllers.get(currentControllerId).setVertexWeights(weights);
+    // the influences are kept per vertex, most of the joints having no influence on a vertex
+    private SkinWeights calcWeights(final int nbJoints, final int nbVertices, final int jointOffset, final int weightOffset,
+                                    final float[] weightValues, final int[] verticesCounts, final int[] vertexInfluences) {
+        final int influenceStride = Math.max(jointOffset, weightOffset) + 1;
+        return SkinWeights.fromInfluences(nbJoints, nbVertices, verticesCounts, vertexInfluences, influenceStride,
+                jointOffset, weightOffset, weightValues);
     }
 
     private Affine extractMatrixTransformation(final String[] matrixStringValues) {
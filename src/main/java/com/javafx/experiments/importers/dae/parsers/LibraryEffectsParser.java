@@ -7,8 +7,11 @@ import javafx.scene.paint.Material;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
@@ -24,16 +27,14 @@ final class LibraryEffectsParser extends AbstractParser {
     private static final String EFFECT_TAG = "effect";
     private static final String EMISSION_TAG = "emission";
     private static final String INIT_FROM_TAG = "init_from";
+    private static final String NEWPARAM_TAG = "newparam";
     private static final String PHONG_TAG = "phong";
     private static final String SPECULAR_TAG = "specular";
     private static final String SOURCE_TAG = "source";
     private static final String TEXTURE_TAG = "texture";
 
-    private final Map<String, String> currentId = new HashMap<>();
-    private final Map<String, String> currentSid = new HashMap<>();
-
     final Map<String, Material> effectIdToMaterialMap = new HashMap<>();
-    private final List<DaeEffect> effects = new ArrayList<>();
+    final List<DaeEffect> effects = new ArrayList<>();
 
     private DaeEffect currentEffect;
     private String tempTexture;
@@ -41,11 +42,7 @@ final class LibraryEffectsParser extends AbstractParser {
     private Color tempColor;
 
     LibraryEffectsParser() {
-        addStartElementBiConsumer("*", (qName, attributes) -> {
-            currentId.put(qName, attributes.getValue("id"));
-            currentSid.put(qName, attributes.getValue("sid"));
-        });
-        addStartElementBiConsumer(EFFECT_TAG, (qName, attributes) -> currentEffect = new DaeEffect(this.currentId.get("effect")));
+        addStartElementBiConsumer(EFFECT_TAG, (qName, attributes) -> currentEffect = new DaeEffect(getContext().getId(qName)));
         addStartElementBiConsumer(PHONG_TAG, (qName, attributes) -> currentEffect.setType(qName));
         addStartElementBiConsumer(COLOR_TAG, (qName, attributes) -> {
             tempColor = null;
@@ -66,17 +63,23 @@ final class LibraryEffectsParser extends AbstractParser {
                     }
                 }));
         addEndElementBiConsumer(EFFECT_TAG, (qName, content) -> effects.add(currentEffect));
-        addEndElementBiConsumer(INIT_FROM_TAG, (qName, content) -> currentEffect.surfaces.put(currentSid.get("newparam"), content));
-        addEndElementBiConsumer(SOURCE_TAG, (qName, content) -> currentEffect.samplers.put(currentSid.get("newparam"), content));
+        addEndElementBiConsumer(INIT_FROM_TAG, (qName, content) -> currentEffect.surfaces.put(getContext().getSid(NEWPARAM_TAG), content));
+        addEndElementBiConsumer(SOURCE_TAG, (qName, content) -> currentEffect.samplers.put(getContext().getSid(NEWPARAM_TAG), content));
     }
 
-    void buildEffects(final Map<String, Image> images) {
+    void buildEffects(final Function<String, Image> images, final SharedResources sharedResources) {
         effects.stream().
                 filter(DaeEffect::hasType).
-                forEach(effect -> effectIdToMaterialMap.put(effect.id, effect.build(images))
+                forEach(effect -> effectIdToMaterialMap.put(effect.id, sharedResources.shareMaterial(effect.build(images)))
                 );
     }
 
+    Set<String> getImageIds() {
+        final Set<String> imageIds = new HashSet<>();
+        effects.forEach(effect -> imageIds.addAll(effect.getImageIds()));
+        return imageIds;
+    }
+
     Material getEffectMaterial(final String effectId) {
         return effectIdToMaterialMap.get(effectId);
     }
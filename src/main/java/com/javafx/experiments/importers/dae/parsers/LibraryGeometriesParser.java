@@ -1,36 +1,49 @@
 package com.javafx.experiments.importers.dae.parsers;
 
+import com.javafx.experiments.importers.dae.geometry.Triangulator;
 import com.javafx.experiments.importers.dae.structures.Input;
+import com.javafx.experiments.importers.dae.structures.Source;
 import com.javafx.experiments.importers.dae.utils.ParserUtils;
 import javafx.scene.shape.TriangleMesh;
 import javafx.scene.shape.VertexFormat;
+import org.xml.sax.Attributes;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntUnaryOperator;
 import java.util.logging.Logger;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * @author Eclion
  */
 final class LibraryGeometriesParser extends AbstractParser {
     private static final Logger LOGGER = Logger.getLogger(LibraryGeometriesParser.class.getSimpleName());
-    private static final String FLOAT_ARRAY_TAG = "float_array";
+    private static final String GEOMETRY_TAG = "geometry";
+    private static final String H_TAG = "h";
     private static final String INPUT_TAG = "input";
+    private static final String MESH_TAG = "mesh";
     private static final String P_TAG = "p";
+    private static final String PH_TAG = "ph";
     private static final String POLYGONS_TAG = "polygons";
     private static final String POLYLIST_TAG = "polylist";
-    private static final String SOURCE_TAG = "source";
+    private static final String TRIANGLES_TAG = "triangles";
+    private static final String TRIFANS_TAG = "trifans";
+    private static final String TRISTRIPS_TAG = "tristrips";
     private static final String VCOUNT_TAG = "vcount";
     private static final String VERTICES_TAG = "vertices";
 
-    private final Map<String, String> currentId = new HashMap<>();
-    private final Map<String, float[]> floatArrays = new HashMap<>();
+    private final IdIndex idIndex;
+    private final SourceStore sourceStore;
     private final Map<String, Input> inputs = new HashMap<>();
-    private final List<int[]> pLists = new ArrayList<>();
+    private final List<CompletableFuture<int[]>> pLists = new ArrayList<>();
     final Map<String, List<TriangleMesh>> meshes = new HashMap<>();
     final Map<String, List<String>> materials = new HashMap<>();
-    private int[] vCounts;
-    private boolean triangulated = true;
+    private CompletableFuture<int[]> vCounts;
+    private int primitiveCount;
+    private int maxOffset;
+    private String primitivesTag;
 
     List<TriangleMesh> getMeshes(final String meshId) {
         return meshes.getOrDefault(meshId, new ArrayList<>());
@@ -40,71 +53,107 @@ final class LibraryGeometriesParser extends AbstractParser {
         return materials.getOrDefault(meshId, new ArrayList<>());
     }
 
+    /**
+     * Adds the geometries of another part of the library, parsed apart and completely decoded.
+     */
+    void merge(final LibraryGeometriesParser part) {
+        meshes.putAll(part.meshes);
+        materials.putAll(part.materials);
+    }
+
     LibraryGeometriesParser() {
-        addStartElementBiConsumer("*", (qName, attributes) -> currentId.put(qName, attributes.getValue("id")));
+        this(new IdIndex());
+    }
+
+    /**
+     * @param idIndex The index of the document, filled with the sources and vertices of the geometries
+     */
+    LibraryGeometriesParser(final IdIndex idIndex) {
+        this.idIndex = idIndex;
+        this.sourceStore = new SourceStore(idIndex);
+        sourceStore.collect(this);
+        // the other kinds of geometries, e.g. splines, and the extras are skipped by the pull engine
+        addPulledElements(GEOMETRY_TAG, MESH_TAG, PH_TAG);
         addStartElementBiConsumer(INPUT_TAG, (qName, attributes) -> {
             Input input = ParserUtils.createInput(attributes);
             this.inputs.put(input.semantic, input);
+            this.maxOffset = Math.max(maxOffset, input.offset);
         });
-        addStartElementBiConsumer(POLYLIST_TAG, (qName, attributes) -> {
-            Optional.ofNullable(attributes.getValue("material")).
-                    ifPresent(materialId -> {
-                        final String geometryId = currentId.get("geometry");
-                        if (!materials.containsKey(geometryId)) {
-                            materials.put(geometryId, new ArrayList<>());
-                        }
-                        materials.get(geometryId).add(materialId);
-                    });
-            this.inputs.clear();
-            this.pLists.clear();
+        Stream.of(POLYGONS_TAG, POLYLIST_TAG, TRIANGLES_TAG, TRIFANS_TAG, TRISTRIPS_TAG).forEach(tag -> {
+            addStartElementBiConsumer(tag, (qName, attributes) -> startPrimitives(qName, attributes));
+            addEndElementBiConsumer(tag, (qName, content) -> createTriangleMesh(qName));
         });
 
-        addEndElementBiConsumer(FLOAT_ARRAY_TAG, (qName, content) ->
-                floatArrays.put(currentId.get(SOURCE_TAG), ParserUtils.extractFloatArray(content)));
-        addEndElementBiConsumer(P_TAG, (qName, content) -> pLists.add(ParserUtils.extractIntArray(content)));
-        addEndElementBiConsumer(POLYGONS_TAG, (qName, content) -> createPolygonsTriangleMesh());
-        addEndElementBiConsumer(POLYLIST_TAG, (qName, content) -> createPolylistTriangleMesh());
-        addEndElementBiConsumer(VCOUNT_TAG, (qName, content) -> {
-            setTriangulatedFromContent(content);
-            saveVerticesCounts(content);
-        });
+        addDeferredIntArrayBiConsumer(P_TAG, attributes -> expectedIndexCount(), (qName, intArray) -> pLists.add(intArray));
+        addDeferredIntArrayBiConsumer(VCOUNT_TAG, attributes -> primitiveCount, (qName, intArray) -> vCounts = intArray);
+        addEndElementBiConsumer(H_TAG, (qName, content) -> LOGGER.warning("The holes of polygons aren't supported, they're filled"));
         addEndElementBiConsumer(VERTICES_TAG, (qName, content) -> saveVertices());
     }
 
-    private void createPolygonsTriangleMesh() {
-/*        final TriangleMesh mesh = new TriangleMesh();
-        final String geometryId = currentId.get("geometry");
-        if (!meshes.containsKey(geometryId)) {
-            meshes.put(geometryId, new ArrayList<>());
-        }
-        meshes.get(geometryId).add(mesh);*/
-        throw new UnsupportedOperationException("Need to implement TriangleMesh Polygons creation");
+    private void startPrimitives(final String qName, final Attributes attributes) {
+        Optional.ofNullable(attributes.getValue("material")).
+                ifPresent(materialId -> {
+                    final String geometryId = getContext().getId(GEOMETRY_TAG);
+                    if (!materials.containsKey(geometryId)) {
+                        materials.put(geometryId, new ArrayList<>());
+                    }
+                    materials.get(geometryId).add(materialId);
+                });
+        this.inputs.clear();
+        this.pLists.clear();
+        this.primitiveCount = ParserUtils.extractCount(attributes);
+        this.vCounts = null;
+        this.maxOffset = 0;
+        this.primitivesTag = qName;
     }
 
-    private void createPolylistTriangleMesh() {
-        if (!triangulated) {
-            LOGGER.warning("Not triangulated meshes aren't supported (yet)");
+    // The exact count is only known once the vcount content is decoded, triangles are assumed otherwise. The p of
+    // the primitives having one p per primitive are small, nothing is assumed for them.
+    private int expectedIndexCount() {
+        if (!POLYLIST_TAG.equals(primitivesTag) && !TRIANGLES_TAG.equals(primitivesTag)) {
+            return 0;
         }
+        final int verticesCount = vCounts != null && vCounts.isDone()
+                ? IntStream.of(vCounts.join()).sum()
+                : primitiveCount * 3;
+        return verticesCount * (maxOffset + 1);
+    }
 
+    private void createTriangleMesh(final String primitivesTag) {
         final TriangleMesh mesh = new TriangleMesh(VertexFormat.POINT_TEXCOORD);
 
-        final String geometryId = currentId.get("geometry");
+        final String geometryId = getContext().getId(GEOMETRY_TAG);
 
         final Input vertexInput = inputs.get("VERTEX");
         final Input texInput = inputs.get("TEXCOORD");
         final Input normalInput = inputs.get("NORMAL");
+        // the inputs sharing an offset share their indices too
+        final int stride = maxOffset + 1;
 
         if (normalInput != null) {
             mesh.setVertexFormat(VertexFormat.POINT_NORMAL_TEXCOORD);
         }
 
-        final float[] points = floatArrays.get(vertexInput.source.substring(1));
-        final int[] faces = calcFaces(vertexInput, texInput, normalInput);
-
-        mesh.getFaces().setAll(faces);
-        mesh.getPoints().setAll(points);
-        mesh.getTexCoords().setAll(calcTexCoords(texInput));
-        mesh.getNormals().setAll(calcNormals(normalInput));
+        final Optional<Source> points = sourceStore.find(idIndex.find(vertexInput.source, Input.class).
+                map(positionInput -> positionInput.source).
+                orElse(vertexInput.source));
+        final Optional<Source> texCoords = Optional.ofNullable(texInput).flatMap(input -> sourceStore.find(input.source));
+        final Optional<Source> normals = Optional.ofNullable(normalInput).flatMap(input -> sourceStore.find(input.source));
+        final List<CompletableFuture<int[]>> ps = new ArrayList<>(pLists);
+        final CompletableFuture<int[]> verticesCounts = vCounts != null ? vCounts : CompletableFuture.completedFuture(new int[0]);
+
+        final List<CompletableFuture<?>> arrays = new ArrayList<>(ps);
+        Stream.of(floatsOf(points), floatsOf(texCoords), floatsOf(normals), verticesCounts).forEach(arrays::add);
+        whenDecoded(() -> {
+            final float[] positions = points.map(source -> source.toPackedFloats(3)).orElse(new float[]{});
+            final int[] p = concatenate(ps);
+            final int[] corners = triangulate(primitivesTag, ps, verticesCounts.join(), stride,
+                    vertex -> p[vertex * stride + vertexInput.offset], positions);
+            mesh.getFaces().setAll(calcFaces(corners, p, stride, vertexInput, texInput, normalInput));
+            mesh.getPoints().setAll(positions);
+            mesh.getTexCoords().setAll(texCoords.map(source -> source.toPackedFloats(2)).orElse(new float[]{0, 0}));
+            mesh.getNormals().setAll(normals.map(source -> source.toPackedFloats(3)).orElse(new float[]{}));
+        }, arrays.toArray(new CompletableFuture<?>[0]));
 
         if (!meshes.containsKey(geometryId)) {
             meshes.put(geometryId, new ArrayList<>());
@@ -113,51 +162,70 @@ final class LibraryGeometriesParser extends AbstractParser {
         meshes.get(geometryId).add(mesh);
     }
 
-    private float[] calcTexCoords(final Input texInput) {
-        return Optional.ofNullable(texInput).
-                map(input -> floatArrays.get(input.source.substring(1))).
-                orElse(new float[]{0, 0});
+    private static CompletableFuture<float[]> floatsOf(final Optional<Source> source) {
+        return source.map(Source::getFloats).orElse(CompletableFuture.completedFuture(new float[]{}));
     }
 
-    private float[] calcNormals(final Input normalInput) {
-        return Optional.ofNullable(normalInput).
-                map(input -> floatArrays.get(input.source.substring(1))).
-                orElse(new float[]{});
+    private static int[] concatenate(final List<CompletableFuture<int[]>> arrays) {
+        if (arrays.size() == 1) {
+            return arrays.get(0).join();
+        }
+        final int[] array = new int[arrays.stream().mapToInt(future -> future.join().length).sum()];
+        int offset = 0;
+        for (final CompletableFuture<int[]> future : arrays) {
+            final int[] part = future.join();
+            System.arraycopy(part, 0, array, offset, part.length);
+            offset += part.length;
+        }
+        return array;
     }
 
-    private int[] calcFaces(final Input vertexInput, final Input texInput, final Input normalInput) {
-        final int inputCount = (normalInput == null) ? 2 : 3;
-        final int[] faces = new int[IntStream.of(vCounts).sum() * inputCount];
-        final int[] p = pLists.get(0);
-        final int faceStep = inputs.size();
-
-        int pIndex = 0;
-        int faceIndex = 0;
-
-        for (int vCount : vCounts) {
-            for (int v = 0; v < vCount; v++) {
-                faces[faceIndex + v * inputCount] = p[pIndex + vertexInput.offset];
-                if (normalInput != null)
-                    faces[faceIndex + v * 3 + 1] = p[pIndex + normalInput.offset];
-                faces[faceIndex + v * inputCount + inputCount - 1] = (texInput == null) ? 0 : p[pIndex + texInput.offset];
-                pIndex += faceStep;
-            }
-            faceIndex += vCount * inputCount;
+    /**
+     * @return The vertex numbers of the corners of the triangles, null if the vertices are the ones of triangles
+     * already
+     */
+    private static int[] triangulate(final String primitivesTag, final List<CompletableFuture<int[]>> ps,
+                                     final int[] verticesCounts, final int stride,
+                                     final IntUnaryOperator positionIndex, final float[] positions) {
+        switch (primitivesTag) {
+            case TRIANGLES_TAG:
+                return null;
+            case POLYLIST_TAG:
+                return IntStream.of(verticesCounts).allMatch(vCount -> vCount == 3)
+                        ? null
+                        : Triangulator.triangulatePolygons(verticesCounts, positionIndex, positions);
+            case POLYGONS_TAG:
+                return Triangulator.triangulatePolygons(vertexCountsOf(ps, stride), positionIndex, positions);
+            case TRIFANS_TAG:
+                return Triangulator.triangulateFans(vertexCountsOf(ps, stride));
+            default:
+                return Triangulator.triangulateStrips(vertexCountsOf(ps, stride));
         }
-        return faces;
     }
 
-    private void setTriangulatedFromContent(final String content) {
-        triangulated = content.replaceAll("[3 ]", "").isEmpty();
+    // every p holds one primitive
+    private static int[] vertexCountsOf(final List<CompletableFuture<int[]>> ps, final int stride) {
+        return ps.stream().mapToInt(p -> p.join().length / stride).toArray();
     }
 
-    private void saveVerticesCounts(final String content) {
-        vCounts = ParserUtils.extractIntArray(content);
+    private static int[] calcFaces(final int[] corners, final int[] p, final int stride,
+                                   final Input vertexInput, final Input texInput, final Input normalInput) {
+        final int inputCount = (normalInput == null) ? 2 : 3;
+        final int cornerCount = corners == null ? p.length / stride / 3 * 3 : corners.length;
+        final int[] faces = new int[cornerCount * inputCount];
+
+        for (int corner = 0, faceIndex = 0; corner < cornerCount; corner++, faceIndex += inputCount) {
+            final int pIndex = (corners == null ? corner : corners[corner]) * stride;
+            faces[faceIndex] = p[pIndex + vertexInput.offset];
+            if (normalInput != null)
+                faces[faceIndex + 1] = p[pIndex + normalInput.offset];
+            faces[faceIndex + inputCount - 1] = (texInput == null) ? 0 : p[pIndex + texInput.offset];
+        }
+        return faces;
     }
 
+    // the vertices element of a geometry only names its positions source, which its id resolves to
     private void saveVertices() {
-        final String sourceId = inputs.get("POSITION").source.substring(1);
-        float[] points = floatArrays.get(sourceId);
-        floatArrays.put(currentId.get(VERTICES_TAG), points);
+        idIndex.put(getContext().getId(VERTICES_TAG), inputs.get("POSITION"));
     }
 }
@@ -1,60 +1,341 @@
 package com.javafx.experiments.importers.dae.parsers;
 
+import com.javafx.experiments.importers.dae.utils.NumericArrayDecoder;
+import com.javafx.experiments.importers.dae.utils.ParallelArrayDecoder;
+import com.javafx.experiments.importers.dae.utils.ParserUtils;
 import org.xml.sax.Attributes;
 import org.xml.sax.helpers.DefaultHandler;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
 
 /**
  * @author Eclion
  */
 public final class LibraryHandler extends DefaultHandler {
-    private StringBuilder charBuf = new StringBuilder();
+    // Contents announcing at least this number of values are decoded on the fork-join pool.
+    static final int PARALLEL_DECODING_THRESHOLD = 1 << 16;
+    private static final int CHARS_PER_VALUE_ESTIMATE = 4;
+    private static final int MAX_INITIAL_RAW_LENGTH = 1 << 24;
+    private static final String WILDCARD = "*";
+    private static final int ANY_DEPTH = -1;
 
-    private final Map<String, BiConsumer<String, Attributes>> startElementBiConsumers = new HashMap<>();
-    private final Map<String, BiConsumer<String, String>> endElementBiConsumers = new HashMap<>();
+    // only the text of the elements having an end consumer is buffered, in a builder reused from an element to another
+    private final StringBuilder charBuf = new StringBuilder();
+    private boolean buffering;
+    private final NumericArrayDecoder decoder = new NumericArrayDecoder();
+    private int decodedTag = TagTable.UNKNOWN_TAG;
+    private ArrayConsumer decodedArrayConsumer;
+    private int decodedCount;
+    private char[] rawChars;
+    private int rawLength;
+    private LibraryHandler delegate;
+    private ElementContext context = new ElementContext();
+    private int depth;
+    private int elementCount;
+    private int dispatchDepth = ANY_DEPTH;
+
+    // indexed by tag id, the wildcard consumers being kept apart so that only the parsers registering them pay for them
+    private BiConsumer<String, Attributes>[] startElementBiConsumers = newConsumers(0);
+    private BiConsumer<String, String>[] endElementBiConsumers = newConsumers(0);
+    private ArrayConsumer[] arrayConsumers = new ArrayConsumer[0];
+    // the elements the parser descends into without consuming them, the pull engine skipping all the other ones
+    private boolean[] pulledElements = new boolean[0];
+    private boolean pulling;
+    private BiConsumer<String, Attributes> wildcardStartElementBiConsumer;
+    private BiConsumer<String, String> wildcardEndElementBiConsumer;
+    private int consumerCount;
+    private int endConsumerCount;
+
+    // the only unchecked cast of the consumer arrays, a generic array not being creatable
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T, U> BiConsumer<T, U>[] newConsumers(final int length) {
+        return new BiConsumer[length];
+    }
 
     protected void addStartElementBiConsumer(final String tag, final BiConsumer<String, Attributes> startElementBiConsumer) {
-        startElementBiConsumers.put(tag, startElementBiConsumer);
+        if (WILDCARD.equals(tag)) {
+            wildcardStartElementBiConsumer = startElementBiConsumer;
+        } else {
+            final int id = TagTable.register(tag);
+            startElementBiConsumers = ensureCapacity(startElementBiConsumers, id);
+            startElementBiConsumers[id] = startElementBiConsumer;
+        }
+        consumerCount++;
     }
 
     protected void addEndElementBiConsumer(final String tag, final BiConsumer<String, String> endElementBiConsumer) {
-        endElementBiConsumers.put(tag, endElementBiConsumer);
+        if (WILDCARD.equals(tag)) {
+            wildcardEndElementBiConsumer = endElementBiConsumer;
+        } else {
+            final int id = TagTable.register(tag);
+            endElementBiConsumers = ensureCapacity(endElementBiConsumers, id);
+            endElementBiConsumers[id] = endElementBiConsumer;
+        }
+        consumerCount++;
+        endConsumerCount++;
+    }
+
+    /**
+     * The consumer receives the floats once decoded; big contents are decoded in parallel, in which case the
+     * future is completed later on and waiting on it blocks the parsing.
+     */
+    protected void addFloatArrayBiConsumer(final String tag, final BiConsumer<String, CompletableFuture<float[]>> floatArrayBiConsumer) {
+        addArrayConsumer(tag, new ArrayConsumer(ParserUtils::extractCount, floatArrayBiConsumer, null));
+    }
+
+    /**
+     * @see #addFloatArrayBiConsumer(String, BiConsumer)
+     */
+    protected void addIntArrayBiConsumer(final String tag, final ToIntFunction<Attributes> countHint,
+                                         final BiConsumer<String, CompletableFuture<int[]>> intArrayBiConsumer) {
+        addArrayConsumer(tag, new ArrayConsumer(countHint, null, intArrayBiConsumer));
+    }
+
+    private void addArrayConsumer(final String tag, final ArrayConsumer arrayConsumer) {
+        final int id = TagTable.register(tag);
+        arrayConsumers = ensureCapacity(arrayConsumers, id);
+        arrayConsumers[id] = arrayConsumer;
+        consumerCount++;
+    }
+
+    /**
+     * Declares the elements the parser descends into to reach the ones it consumes, e.g. the mesh of a geometry. Once
+     * a parser declares them, the pull engine skips the subtrees of the elements it neither consumes nor descends into
+     * without dispatching their events, see {@link DaeStaxReader}. The push engine still dispatches them all.
+     */
+    protected void addPulledElements(final String... tags) {
+        for (final String tag : tags) {
+            final int id = TagTable.register(tag);
+            if (id >= pulledElements.length) {
+                pulledElements = Arrays.copyOf(pulledElements, id + 1);
+            }
+            pulledElements[id] = true;
+        }
+        pulling = true;
+    }
+
+    private static <T> T[] ensureCapacity(final T[] array, final int id) {
+        return id < array.length ? array : Arrays.copyOf(array, id + 1);
+    }
+
+    private static <T> T get(final T[] array, final int id) {
+        return id >= 0 && id < array.length ? array[id] : null;
+    }
+
+    /**
+     * Forwards all the following events to the given handler, the consumers of this handler still being called.
+     */
+    void setDelegate(final LibraryHandler delegate) {
+        this.delegate = delegate;
+        if (delegate != null) {
+            delegate.shareContext(context);
+        }
+    }
+
+    private void shareContext(final ElementContext sharedContext) {
+        context = sharedContext;
+        if (delegate != null) {
+            delegate.shareContext(sharedContext);
+        }
+    }
+
+    /**
+     * @return The elements being parsed, kept by the handler receiving the events and shared with its delegates
+     */
+    ElementContext getContext() {
+        return context;
+    }
+
+    /**
+     * Only calls the consumers of this handler for the elements at the given depth, the root element being at depth 0.
+     * The events are still forwarded to the delegate whatever their depth.
+     */
+    void setDispatchDepth(final int dispatchDepth) {
+        this.dispatchDepth = dispatchDepth;
+    }
+
+    /**
+     * @return The number of elements this handler received, the ones forwarded to it by another handler excluded
+     */
+    int getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * @return true if neither this handler nor its delegate consumes any event.
+     */
+    boolean isIdle() {
+        if (delegate != null) {
+            return delegate.isIdle();
+        }
+        return consumerCount == 0;
+    }
+
+    /**
+     * @return true if the element with the given tag id, and all its subtree, can be skipped without being dispatched,
+     * which is only the case for the elements of the libraries whose parser declared the elements it pulls
+     */
+    boolean skips(final int tag) {
+        if (delegate != null) {
+            return delegate.skips(tag);
+        }
+        return pulling && wildcardStartElementBiConsumer == null && wildcardEndElementBiConsumer == null
+                && !(tag >= 0 && tag < pulledElements.length && pulledElements[tag])
+                && get(startElementBiConsumers, tag) == null && get(endElementBiConsumers, tag) == null
+                && get(arrayConsumers, tag) == null;
     }
 
     @Override
     public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) {
-        charBuf = new StringBuilder();
         startElement(qName, attributes);
     }
 
     void startElement(final String qName, final Attributes attributes) {
-        if (startElementBiConsumers.containsKey("*")) {
-            startElementBiConsumers.get("*").accept(qName, attributes);
+        startTaggedElement(TagTable.lookup(qName), qName, attributes);
+    }
+
+    /**
+     * Receives an element whose tag id was already looked up, e.g. by the pull engine checking whether it skips it.
+     */
+    void startTaggedElement(final int tag, final String qName, final Attributes attributes) {
+        elementCount++;
+        context.push(qName, attributes);
+        startElement(tag, qName, attributes);
+    }
+
+    private void startElement(final int tag, final String qName, final Attributes attributes) {
+        if (dispatchDepth == ANY_DEPTH || dispatchDepth == depth) {
+            if (wildcardStartElementBiConsumer != null) {
+                wildcardStartElementBiConsumer.accept(qName, attributes);
+            }
+            final BiConsumer<String, Attributes> startElementBiConsumer = get(startElementBiConsumers, tag);
+            if (startElementBiConsumer != null) {
+                startElementBiConsumer.accept(qName, attributes);
+            }
         }
-        if (startElementBiConsumers.containsKey(qName)) {
-            startElementBiConsumers.get(qName).accept(qName, attributes);
+        depth++;
+
+        if (delegate != null) {
+            delegate.startElement(tag, qName, attributes);
+            return;
+        }
+
+        charBuf.setLength(0);
+        buffering = wildcardEndElementBiConsumer != null || get(endElementBiConsumers, tag) != null;
+        decodedTag = TagTable.UNKNOWN_TAG;
+        decodedArrayConsumer = get(arrayConsumers, tag);
+        if (decodedArrayConsumer != null) {
+            decodedTag = tag;
+            decodedCount = decodedArrayConsumer.countHint.applyAsInt(attributes);
+            if (decodedCount >= PARALLEL_DECODING_THRESHOLD) {
+                rawChars = new char[(int) Math.min((long) decodedCount * CHARS_PER_VALUE_ESTIMATE, MAX_INITIAL_RAW_LENGTH)];
+                rawLength = 0;
+            } else if (decodedArrayConsumer.isIntArrayConsumer()) {
+                rawChars = null;
+                decoder.resetForInts(decodedCount);
+            } else {
+                rawChars = null;
+                decoder.resetForFloats(decodedCount);
+            }
         }
     }
 
     @Override
     public void endElement(final String uri, final String localName, final String qName) {
-        endElement(qName, charBuf.toString().trim());
+        endElement(qName);
+    }
+
+    void endElement(final String qName) {
+        endTaggedElement(TagTable.lookup(qName), qName);
+    }
+
+    /**
+     * @see #startTaggedElement(int, String, Attributes)
+     */
+    void endTaggedElement(final int tag, final String qName) {
+        endElement(tag, qName);
+        context.pop();
     }
 
-    void endElement(final String qName, final String content) {
-        if (endElementBiConsumers.containsKey("*")) {
-            endElementBiConsumers.get("*").accept(qName, content);
+    private void endElement(final int tag, final String qName) {
+        if (delegate != null) {
+            delegate.endElement(tag, qName);
         }
-        if (endElementBiConsumers.containsKey(qName)) {
-            endElementBiConsumers.get(qName).accept(qName, content);
+        depth--;
+
+        if (decodedTag != TagTable.UNKNOWN_TAG && tag == decodedTag) {
+            decodedTag = TagTable.UNKNOWN_TAG;
+            consumeDecodedArray(qName);
+        }
+
+        if (endConsumerCount == 0 || (dispatchDepth != ANY_DEPTH && dispatchDepth != depth)) {
+            return;
+        }
+        final BiConsumer<String, String> endElementBiConsumer = get(endElementBiConsumers, tag);
+        if (endElementBiConsumer == null && wildcardEndElementBiConsumer == null) {
+            return;
+        }
+        final String content = charBuf.toString().trim();
+        charBuf.setLength(0);
+        buffering = false;
+        if (wildcardEndElementBiConsumer != null) {
+            wildcardEndElementBiConsumer.accept(qName, content);
+        }
+        if (endElementBiConsumer != null) {
+            endElementBiConsumer.accept(qName, content);
         }
     }
 
     @Override
     public void characters(final char[] ch, final int start, final int length) {
-        charBuf.append(ch, start, length);
+        if (delegate != null) {
+            delegate.characters(ch, start, length);
+        } else if (decodedTag != TagTable.UNKNOWN_TAG && rawChars != null) {
+            if (rawLength + length > rawChars.length) {
+                rawChars = Arrays.copyOf(rawChars, Math.max(rawLength + length, rawChars.length * 2));
+            }
+            System.arraycopy(ch, start, rawChars, rawLength, length);
+            rawLength += length;
+        } else if (decodedTag != TagTable.UNKNOWN_TAG) {
+            decoder.decode(ch, start, length);
+        } else if (buffering) {
+            charBuf.append(ch, start, length);
+        }
+    }
+
+    private void consumeDecodedArray(final String qName) {
+        final ArrayConsumer arrayConsumer = decodedArrayConsumer;
+        decodedArrayConsumer = null;
+        if (arrayConsumer.isIntArrayConsumer()) {
+            arrayConsumer.intArrayBiConsumer.accept(qName, rawChars == null
+                    ? CompletableFuture.completedFuture(decoder.toIntArray())
+                    : ParallelArrayDecoder.decodeIntsAsync(rawChars, rawLength, decodedCount));
+        } else {
+            arrayConsumer.floatArrayBiConsumer.accept(qName, rawChars == null
+                    ? CompletableFuture.completedFuture(decoder.toFloatArray())
+                    : ParallelArrayDecoder.decodeFloatsAsync(rawChars, rawLength, decodedCount));
+        }
+        rawChars = null;
+    }
+
+    private static final class ArrayConsumer {
+        private final ToIntFunction<Attributes> countHint;
+        private final BiConsumer<String, CompletableFuture<float[]>> floatArrayBiConsumer;
+        private final BiConsumer<String, CompletableFuture<int[]>> intArrayBiConsumer;
+
+        ArrayConsumer(final ToIntFunction<Attributes> countHint,
+                      final BiConsumer<String, CompletableFuture<float[]>> floatArrayBiConsumer,
+                      final BiConsumer<String, CompletableFuture<int[]>> intArrayBiConsumer) {
+            this.countHint = countHint;
+            this.floatArrayBiConsumer = floatArrayBiConsumer;
+            this.intArrayBiConsumer = intArrayBiConsumer;
+        }
+
+        boolean isIntArrayConsumer() {
+            return intArrayBiConsumer != null;
+        }
     }
 }
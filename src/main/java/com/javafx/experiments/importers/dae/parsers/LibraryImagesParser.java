@@ -1,36 +1,73 @@
 package com.javafx.experiments.importers.dae.parsers;
 
+import com.javafx.experiments.importers.dae.io.ResourceResolver;
 import javafx.scene.image.Image;
 
-import java.io.File;
-import java.nio.file.Path;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * @author Eclion
  */
 final class LibraryImagesParser extends AbstractParser {
+    private static final Logger LOGGER = Logger.getLogger(LibraryImagesParser.class.getSimpleName());
+    private static final String IMAGE_TAG = "image";
     private static final String INIT_FROM_TAG = "init_from";
 
-    private final Map<String, String> currentId = new HashMap<>();
-    final Map<String, Image> images = new HashMap<>();
-    private final String rootUrl;
+    final Map<String, String> imagePaths = new HashMap<>();
+    private final Map<String, Image> images = new HashMap<>();
+    private final ResourceResolver resourceResolver;
+    private final SharedResources sharedResources;
 
-    LibraryImagesParser(final String fileUrl) {
-        this.rootUrl = fileUrl;
+    LibraryImagesParser(final ResourceResolver resourceResolver, final SharedResources sharedResources) {
+        this.resourceResolver = resourceResolver;
+        this.sharedResources = sharedResources;
 
-        addStartElementBiConsumer("*", (qName, attributes) -> currentId.put(qName, attributes.getValue("id")));
+        addEndElementBiConsumer(INIT_FROM_TAG, (qName, content) -> addImage(getContext().getId(IMAGE_TAG), content));
+    }
 
-        addEndElementBiConsumer(INIT_FROM_TAG, (qName, content) -> {
-            final File folder = new File(rootUrl);
-            final Path imagePath = folder.toPath().resolve(content);
-            final Image image = new Image("file:" + imagePath.toString());
-            images.put(currentId.get("image"), image);
-        });
+    void addImage(final String imageId, final String relativePath) {
+        imagePaths.put(imageId, relativePath);
+    }
+
+    /**
+     * Loads the images the effects refer to, the other ones being left unread, before the scene is built so that the
+     * reading is done off the FX thread. An image already loaded by another file sharing the resources is reused.
+     */
+    void loadImages(final Collection<String> imageIds) {
+        imageIds.stream().
+                filter(imageId -> !images.containsKey(imageId)).
+                forEach(imageId -> {
+                    final Image image = loadImage(imageId);
+                    if (image != null) {
+                        images.put(imageId, image);
+                    }
+                });
     }
 
+    /**
+     * @return The loaded image, or null if it's unknown, can't be read or wasn't loaded by {@link #loadImages}
+     */
     Image getImage(final String imageId) {
         return images.get(imageId);
     }
-}
\ No newline at end of file
+
+    private Image loadImage(final String imageId) {
+        final String path = imagePaths.get(imageId);
+        if (path == null) {
+            return null;
+        }
+        return sharedResources.getImage(resourceResolver.resolve(path), url -> {
+            try {
+                return resourceResolver.loadImage(path);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Couldn''t load the image {0} : \n{1}", new Object[]{url, e.getMessage()});
+                return null;
+            }
+        });
+    }
+}
@@ -8,17 +8,15 @@ import java.util.Map;
  */
 final class LibraryMaterialsParser extends AbstractParser {
     private static final String INSTANCE_EFFECT_TAG = "instance_effect";
-
-    private final Map<String, String> currentId = new HashMap<>();
+    private static final String MATERIAL_TAG = "material";
 
     final Map<String, String> materialIdToEffectIdMap = new HashMap<>();
 
     LibraryMaterialsParser() {
-        addStartElementBiConsumer("*", (qName, attributes) -> currentId.put(qName, attributes.getValue("id")));
         addStartElementBiConsumer(INSTANCE_EFFECT_TAG, (qName, attributes) -> {
             final String effectUrl = attributes.getValue("url");
             if (effectUrl != null) {
-                materialIdToEffectIdMap.put(currentId.get("material"), effectUrl.substring(1));
+                materialIdToEffectIdMap.put(getContext().getId(MATERIAL_TAG), IdIndex.fragment(effectUrl));
             }
         });
     }
@@ -52,7 +52,7 @@ final class LibraryVisualSceneParser extends AbstractParser {
     }
 
     private String extractUrl(final Attributes attributes) {
-        return attributes.getValue(URL_STR).substring(1);
+        return IdIndex.fragment(attributes.getValue(URL_STR));
     }
 
     private void addTranslation(final String content) {
@@ -121,17 +121,17 @@ final class LibraryVisualSceneParser extends AbstractParser {
         final DaeNode thisNode = nodes.pop();
         if (nodes.isEmpty()) {
             scenes.peek().getChildren().add(thisNode);
-            buildSkeletonIfChildrenHaveJoints(thisNode);
+            buildSkeletonIfChildrenHaveJoints(scenes.peek(), thisNode);
         } else {
             nodes.peek().getChildren().add(thisNode);
         }
     }
 
-    private void buildSkeletonIfChildrenHaveJoints(final DaeNode node) {
+    static void buildSkeletonIfChildrenHaveJoints(final DaeScene scene, final DaeNode node) {
         if (node.hasJoints()) {
-            scenes.peek().skeletons.put(node.getId(), DaeSkeleton.fromDaeNode(node));
+            scene.skeletons.put(node.getId(), DaeSkeleton.fromDaeNode(node));
         } else {
-            node.getDaeNodeChildStream().forEach(this::buildSkeletonIfChildrenHaveJoints);
+            node.getDaeNodeChildStream().forEach(child -> buildSkeletonIfChildrenHaveJoints(scene, child));
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import javafx.scene.image.Image;
+import javafx.scene.paint.Material;
+import javafx.scene.paint.PhongMaterial;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Images and materials shared by all the files imported with the same instance: an image file is only loaded once
+ * and the effects resolving to the same colors and images share the same material.
+ * <p>
+ * This class is thread-safe, so that the files of a batch can be parsed concurrently.
+ *
+ * @author Eclion
+ */
+public final class SharedResources {
+    private final Map<String, Image> images = new ConcurrentHashMap<>();
+    private final Map<List<Object>, Material> materials = new ConcurrentHashMap<>();
+
+    Image getImage(final String url, final Function<String, Image> imageLoader) {
+        return images.computeIfAbsent(url, imageLoader);
+    }
+
+    Material shareMaterial(final Material material) {
+        if (!(material instanceof PhongMaterial)) {
+            return material;
+        }
+        final PhongMaterial phongMaterial = (PhongMaterial) material;
+        // images being shared too, they're compared by identity
+        final List<Object> signature = Arrays.asList(
+                phongMaterial.getDiffuseColor(),
+                phongMaterial.getSpecularColor(),
+                phongMaterial.getSpecularPower(),
+                phongMaterial.getDiffuseMap(),
+                phongMaterial.getSpecularMap(),
+                phongMaterial.getBumpMap(),
+                phongMaterial.getSelfIlluminationMap());
+        return materials.computeIfAbsent(signature, key -> material);
+    }
+
+    public int getImageCount() {
+        return images.size();
+    }
+
+    public int getMaterialCount() {
+        return materials.size();
+    }
+}
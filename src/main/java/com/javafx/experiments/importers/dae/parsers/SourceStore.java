@@ -0,0 +1,81 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import com.javafx.experiments.importers.dae.structures.Param;
+import com.javafx.experiments.importers.dae.structures.Source;
+import com.javafx.experiments.importers.dae.utils.ParserUtils;
+import org.xml.sax.Attributes;
+
+import java.util.Optional;
+
+/**
+ * Collects the sources a parser receives into the index of the document, shared by the parsers of the libraries
+ * holding sources: the geometries, the controllers and the animations. Each array is decoded once, by the parser
+ * it's found in, and then read by the parsers through the accessor of its source.
+ *
+ * @author Eclion
+ */
+final class SourceStore {
+    private static final String ACCESSOR_TAG = "accessor";
+    private static final String FLOAT_ARRAY_TAG = "float_array";
+    private static final String IDREF_ARRAY_TAG = "IDREF_array";
+    private static final String INT_ARRAY_TAG = "int_array";
+    private static final String NAME_ARRAY_TAG = "Name_array";
+    private static final String PARAM_TAG = "param";
+    private static final String SOURCE_TAG = "source";
+    private static final String TECHNIQUE_COMMON_TAG = "technique_common";
+    private static final String WHITESPACES_REGEX = "\\s+";
+
+    private final IdIndex idIndex;
+
+    SourceStore(final IdIndex idIndex) {
+        this.idIndex = idIndex;
+    }
+
+    /**
+     * Registers the consumers storing the sources the parser receives, so it mustn't register consumers for the
+     * source, accessor, param and array tags itself. The accessor is pulled through the common technique of the
+     * source, the other techniques being skipped by the pull engine.
+     */
+    void collect(final AbstractParser parser) {
+        parser.addPulledElements(TECHNIQUE_COMMON_TAG);
+        final Source[] currentSource = new Source[1];
+        parser.addStartElementBiConsumer(SOURCE_TAG, (qName, attributes) -> {
+            currentSource[0] = new Source(parser.getContext().getId(qName));
+            idIndex.put(currentSource[0].id, currentSource[0]);
+        });
+        parser.addStartElementBiConsumer(ACCESSOR_TAG, (qName, attributes) -> Optional.ofNullable(currentSource[0]).
+                ifPresent(source -> source.setAccessor(intValue(attributes, "count", -1),
+                        intValue(attributes, "stride", 1), intValue(attributes, "offset", 0))));
+        parser.addStartElementBiConsumer(PARAM_TAG, (qName, attributes) -> Optional.ofNullable(currentSource[0]).
+                ifPresent(source -> source.addParam(new Param(attributes.getValue("name"), attributes.getValue("type")))));
+        parser.addDeferredFloatArrayBiConsumer(FLOAT_ARRAY_TAG, (qName, floatArray) -> Optional.ofNullable(currentSource[0]).
+                ifPresent(source -> source.setFloats(floatArray)));
+        parser.addDeferredIntArrayBiConsumer(INT_ARRAY_TAG, ParserUtils::extractCount, (qName, intArray) ->
+                Optional.ofNullable(currentSource[0]).ifPresent(source -> source.setInts(intArray)));
+        parser.addEndElementBiConsumer(NAME_ARRAY_TAG, (qName, content) -> Optional.ofNullable(currentSource[0]).
+                ifPresent(source -> source.setNames(splitNames(parser, content))));
+        parser.addEndElementBiConsumer(IDREF_ARRAY_TAG, (qName, content) -> Optional.ofNullable(currentSource[0]).
+                ifPresent(source -> source.setNames(splitNames(parser, content))));
+    }
+
+    // the names are mostly ids, e.g. the ones of the joints, held as the other occurrences of these ids are
+    private static String[] splitNames(final AbstractParser parser, final String content) {
+        final String[] names = content.split(WHITESPACES_REGEX);
+        for (int i = 0; i < names.length; i++) {
+            names[i] = parser.getContext().deduplicate(names[i]);
+        }
+        return names;
+    }
+
+    private static int intValue(final Attributes attributes, final String name, final int defaultValue) {
+        final String value = attributes.getValue(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * @param reference The id of the source or a reference to it, e.g. the source of an input
+     */
+    Optional<Source> find(final String reference) {
+        return idIndex.find(reference, Source.class);
+    }
+}
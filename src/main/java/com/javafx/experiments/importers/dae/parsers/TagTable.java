@@ -0,0 +1,38 @@
+package com.javafx.experiments.importers.dae.parsers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dense ids of the tags the parsers register consumers for, so that every event is resolved with a single lookup and
+ * then dispatched through arrays down the handler chain.
+ * <p>
+ * The ids are shared by all the parsers and never reused, the tags being a small fixed set.
+ *
+ * @author Eclion
+ */
+final class TagTable {
+    static final int UNKNOWN_TAG = -1;
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private TagTable() {
+    }
+
+    /**
+     * @return The id of the tag, allocated on its first registration
+     */
+    static int register(final String tag) {
+        return IDS.computeIfAbsent(tag, key -> NEXT_ID.getAndIncrement());
+    }
+
+    /**
+     * @return The id of the tag, or {@link #UNKNOWN_TAG} if no parser registered it
+     */
+    static int lookup(final String tag) {
+        final Integer id = IDS.get(tag);
+        return id == null ? UNKNOWN_TAG : id;
+    }
+}
@@ -5,7 +5,6 @@ import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.beans.value.WritableValue;
 import javafx.scene.transform.Affine;
-import javafx.scene.transform.MatrixType;
 import javafx.util.Duration;
 
 import java.util.ArrayList;
@@ -22,7 +21,8 @@ public final class DaeAnimation {
 
     public final String id;
     private float[] input;
-    private double[] output;
+    private float[] output;
+    private String[] interpolations;
     private Interpolator[] interpolators;
     private String target;
     private final List<DaeAnimation> childAnimations = new ArrayList<>();
@@ -49,7 +49,11 @@ public final class DaeAnimation {
     private List<KeyFrame> calculateJointAnimation(Joint joint) {
         final List<KeyFrame> keyFrames = new ArrayList<>();
         for (int i = 0; i < this.input.length; i++) {
-            final Affine keyAffine = new Affine(this.output, MatrixType.MT_3D_4x4, i * 16);
+            final int m = i * 16;
+            final Affine keyAffine = new Affine(
+                    output[m], output[m + 1], output[m + 2], output[m + 3],
+                    output[m + 4], output[m + 5], output[m + 6], output[m + 7],
+                    output[m + 8], output[m + 9], output[m + 10], output[m + 11]);
             keyFrames.add(this.convertToKeyFrame(this.input[i] * TIMER_MS_RATIO, joint.a, keyAffine, this.interpolators[i]));
         }
         return keyFrames;
@@ -84,16 +88,25 @@ public final class DaeAnimation {
     }
 
     public void setInterpolations(final String[] interpolations) {
+        this.interpolations = interpolations;
         this.interpolators = new Interpolator[interpolations.length];
         for (int i = 0; i < interpolations.length; ++i) {
             interpolators[i] = Interpolator.LINEAR;
         }
     }
 
+    public String[] getInterpolations() {
+        return interpolations;
+    }
+
     public void addChild(final DaeAnimation animation) {
         childAnimations.add(animation);
     }
 
+    public List<DaeAnimation> getChildren() {
+        return childAnimations;
+    }
+
     public void setInput(final float[] input) {
         this.input = input;
     }
@@ -102,11 +115,14 @@ public final class DaeAnimation {
         return input;
     }
 
-    public void setOutput(final double[] output) {
+    /**
+     * @param output The 4x4 matrices of the key frames, in row-major order
+     */
+    public void setOutput(final float[] output) {
         this.output = output;
     }
 
-    public double[] getOutput() {
+    public float[] getOutput() {
         return output;
     }
 
@@ -16,6 +16,7 @@ import java.util.stream.Collectors;
 public final class DaeBuildHelper {
     private final Map<String, Material> materialMap = new HashMap<>();
     private final Map<String, List<TriangleMesh>> meshes = new HashMap<>();
+    private final Map<String, List<List<TriangleMesh>>> meshLevels = new HashMap<>();
     private final Map<String, List<String>> meshMaterialIds = new HashMap<>();
     private final Map<String, DaeController> controllers = new HashMap<>();
     private final Map<String, DaeSkeleton> skeletons = new HashMap<>();
@@ -26,6 +27,14 @@ public final class DaeBuildHelper {
         return this;
     }
 
+    /**
+     * @param meshLevels The coarser levels of detail of each mesh of the geometries, from the finest to the coarsest
+     */
+    public DaeBuildHelper withMeshLevels(final Map<String, List<List<TriangleMesh>>> meshLevels) {
+        this.meshLevels.putAll(meshLevels);
+        return this;
+    }
+
     public DaeBuildHelper withMeshMaterialIds(final Map<String, List<String>> meshMaterialIds) {
         this.meshMaterialIds.putAll(meshMaterialIds);
         return this;
@@ -50,6 +59,11 @@ public final class DaeBuildHelper {
         return meshes.get(geometryId);
     }
 
+    List<TriangleMesh> getMeshLevels(final String geometryId, final int meshIndex) {
+        final List<List<TriangleMesh>> levels = meshLevels.get(geometryId);
+        return levels != null && meshIndex < levels.size() ? levels.get(meshIndex) : new ArrayList<>();
+    }
+
     List<Material> getMaterials(final String geometryId) {
         return meshMaterialIds.getOrDefault(geometryId, new ArrayList<>()).
                 stream().
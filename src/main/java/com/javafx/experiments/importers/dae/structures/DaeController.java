@@ -1,5 +1,6 @@
 package com.javafx.experiments.importers.dae.structures;
 
+import com.javafx.experiments.shape3d.SkinWeights;
 import javafx.scene.transform.Affine;
 
 import java.util.ArrayList;
@@ -14,7 +15,7 @@ public final class DaeController {
     private String skinId;
     private Affine bindShapeMatrix;
     private String[] jointNames;
-    private float[][] vertexWeights;
+    private SkinWeights vertexWeights;
     public final List<Affine> bindPoses = new ArrayList<>();
 
     public DaeController(final String name) {
@@ -33,7 +34,7 @@ public final class DaeController {
         this.skinId = skinId;
     }
 
-    Affine getBindShapeMatrix() {
+    public Affine getBindShapeMatrix() {
         return bindShapeMatrix;
     }
 
@@ -49,11 +50,11 @@ public final class DaeController {
         this.jointNames = jointNames;
     }
 
-    public float[][] getVertexWeights() {
+    public SkinWeights getVertexWeights() {
         return vertexWeights;
     }
 
-    public void setVertexWeights(final float[][] vertexWeights) {
+    public void setVertexWeights(final SkinWeights vertexWeights) {
         this.vertexWeights = vertexWeights;
     }
 }
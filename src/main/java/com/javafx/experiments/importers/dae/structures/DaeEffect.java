@@ -5,8 +5,13 @@ import javafx.scene.paint.Color;
 import javafx.scene.paint.Material;
 import javafx.scene.paint.PhongMaterial;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * @author Eclion
@@ -32,14 +37,29 @@ public final class DaeEffect {
         this.id = id;
     }
 
-    public Material build(final Map<String, Image> images) {
+    public Material build(final Function<String, Image> images) {
         if (PHONG_TAG.equals(this.type)) {
             return buildPhongMaterial(images);
         }
         return null;
     }
 
-    private PhongMaterial buildPhongMaterial(final Map<String, Image> images) {
+    /**
+     * @return The ids of the images the textures of the built material refer to
+     */
+    public Set<String> getImageIds() {
+        if (!PHONG_TAG.equals(this.type)) {
+            return Collections.emptySet();
+        }
+        return textureIds.values().stream().
+                map(samplers::get).
+                filter(Objects::nonNull).
+                map(surfaces::get).
+                filter(Objects::nonNull).
+                collect(Collectors.toSet());
+    }
+
+    private PhongMaterial buildPhongMaterial(final Function<String, Image> images) {
         final PhongMaterial material = new PhongMaterial();
 
         buildPhongMaterialColors(material);
@@ -65,13 +85,15 @@ public final class DaeEffect {
         });
     }
 
-    private void buildPhongMaterialTextures(final PhongMaterial material, final Map<String, Image> images) {
+    private void buildPhongMaterialTextures(final PhongMaterial material, final Function<String, Image> images) {
         textureIds.entrySet().stream().
                 filter(entry -> samplers.containsKey(entry.getValue())).
                 filter(entry -> surfaces.containsKey(samplers.get(entry.getValue()))).
-                filter(entry -> images.get(surfaces.get(samplers.get(entry.getValue()))) != null).
                 forEach(entry -> {
-                    final Image image = images.get(surfaces.get(samplers.get(entry.getValue())));
+                    final Image image = images.apply(surfaces.get(samplers.get(entry.getValue())));
+                    if (image == null) {
+                        return;
+                    }
                     switch (entry.getKey()) {
                         case DIFFUSE_TAG:
                             material.setDiffuseMap(image);
@@ -87,6 +109,10 @@ public final class DaeEffect {
                 });
     }
 
+    public String getType() {
+        return type;
+    }
+
     public void setType(final String type) {
         this.type = type;
     }
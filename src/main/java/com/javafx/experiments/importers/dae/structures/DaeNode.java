@@ -3,8 +3,10 @@ package com.javafx.experiments.importers.dae.structures;
 import com.javafx.experiments.animation.SkinningMeshTimer;
 import com.javafx.experiments.importers.FeatureToggle;
 import com.javafx.experiments.importers.dae.utils.ParserUtils;
+import com.javafx.experiments.shape3d.LodGroup;
 import com.javafx.experiments.shape3d.SkinningMesh;
 import javafx.scene.Group;
+import javafx.scene.Node;
 import javafx.scene.paint.Material;
 import javafx.scene.shape.MeshView;
 import javafx.scene.shape.TriangleMesh;
@@ -23,8 +25,10 @@ public final class DaeNode extends Group {
     public final String type;
     private Category instanceCategory = Category.NONE;
     private String instanceId;
+    // the meshes merged by the StaticMeshBatcher, which this node doesn't show anymore
+    private final Set<Node> batchedMeshes = new HashSet<>();
 
-    private enum Category {
+    public enum Category {
         CAMERA,
         GEOMETRY,
         CONTROLLER,
@@ -58,6 +62,19 @@ public final class DaeNode extends Group {
         instanceCategory = Category.LIGHT;
     }
 
+    public Category getInstanceCategory() {
+        return instanceCategory;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstance(final Category instanceCategory, final String instanceId) {
+        this.instanceCategory = instanceCategory;
+        this.instanceId = instanceId;
+    }
+
     public boolean hasJoints() {
         return getDaeNodeChildStream().anyMatch(DaeNode::isJoint);
     }
@@ -127,31 +144,42 @@ public final class DaeNode extends Group {
         final List<Material> materials = buildHelper.getMaterials(controller.getSkinId());
 
         for (int i = 0; i < meshes.size(); i++) {
-            final SkinningMesh skinningMesh = new SkinningMesh(
-                    meshes.get(i), controller.getVertexWeights(), bindTransforms,
-                    controller.getBindShapeMatrix(), joints, Arrays.asList(skeleton));
-
-            final MeshView meshView = new MeshView(skinningMesh);
-
-            final SkinningMeshTimer skinningMeshTimer = new SkinningMeshTimer(skinningMesh);
-            if (meshView.getScene() != null) {
-                skinningMeshTimer.start();
+            final List<MeshView> levels = new ArrayList<>();
+            levels.add(createSkinnedMeshView(meshes.get(i), controller, bindTransforms, joints, skeleton));
+            for (final TriangleMesh level : buildHelper.getMeshLevels(controller.getSkinId(), i)) {
+                levels.add(createSkinnedMeshView(level, controller, bindTransforms, joints, skeleton));
             }
-            meshView.sceneProperty().addListener((observable, oldValue, newValue) -> {
-                if (newValue == null) {
-                    skinningMeshTimer.stop();
-                } else {
-                    skinningMeshTimer.start();
-                }
-            });
-
             if (i < materials.size()) {
-                meshView.setMaterial(materials.get(i));
+                final Material material = materials.get(i);
+                levels.forEach(meshView -> meshView.setMaterial(material));
             }
-            getChildren().add(meshView);
+            getChildren().add(levels.size() > 1 ? new LodGroup(levels) : levels.get(0));
         }
     }
 
+    private static MeshView createSkinnedMeshView(final TriangleMesh mesh, final DaeController controller,
+                                                  final Affine[] bindTransforms, final List<Joint> joints,
+                                                  final DaeSkeleton skeleton) {
+        final SkinningMesh skinningMesh = new SkinningMesh(
+                mesh, controller.getVertexWeights(), bindTransforms,
+                controller.getBindShapeMatrix(), joints, Arrays.asList(skeleton));
+
+        final MeshView meshView = new MeshView(skinningMesh);
+
+        final SkinningMeshTimer skinningMeshTimer = new SkinningMeshTimer(skinningMesh);
+        if (meshView.getScene() != null) {
+            skinningMeshTimer.start();
+        }
+        meshView.sceneProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue == null) {
+                skinningMeshTimer.stop();
+            } else {
+                skinningMeshTimer.start();
+            }
+        });
+        return meshView;
+    }
+
     private void buildSkeleton(final DaeBuildHelper buildHelper) {
         final DaeController controller = buildHelper.getController(instanceId);
 
@@ -169,20 +197,28 @@ public final class DaeNode extends Group {
         final List<Material> materials = buildHelper.getMaterials(instanceId);
 
         for (int i = 0; i < meshes.size(); i++) {
-            final MeshView meshView = new MeshView(meshes.get(i));
+            final List<MeshView> levels = new ArrayList<>();
+            levels.add(new MeshView(meshes.get(i)));
+            buildHelper.getMeshLevels(instanceId, i).forEach(level -> levels.add(new MeshView(level)));
             if (i < materials.size()) {
-                meshView.setMaterial(materials.get(i));
+                final Material material = materials.get(i);
+                levels.forEach(meshView -> meshView.setMaterial(material));
             }
-            addMeshViewAsChild(meshView);
+            addMeshAsChild(levels.size() > 1 ? new LodGroup(levels) : levels.get(0));
         }
     }
 
-    private void addMeshViewAsChild(final MeshView meshView) {
+    void removeBatchedMesh(final MeshView meshView) {
+        batchedMeshes.add(meshView);
+        getChildren().remove(meshView);
+    }
+
+    private void addMeshAsChild(final Node mesh) {
         FeatureToggle.onDisplayMeshsChange(bool -> {
-            if (bool) {
-                getChildren().add(meshView);
-            } else if (getChildren().contains(meshView)) {
-                getChildren().remove(meshView);
+            if (bool && !batchedMeshes.contains(mesh)) {
+                getChildren().add(mesh);
+            } else if (getChildren().contains(mesh)) {
+                getChildren().remove(mesh);
             }
         });
     }
@@ -21,6 +21,10 @@ public final class DaeSkeleton extends Parent {
         setId(id);
     }
 
+    public int getJointCount() {
+        return joints.size();
+    }
+
     public static DaeSkeleton fromDaeNode(final DaeNode rootNode) {
         final DaeSkeleton skeleton = new DaeSkeleton(rootNode.getId());
 
@@ -0,0 +1,129 @@
+package com.javafx.experiments.importers.dae.structures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A source element: its array, decoded once into its own primitive type, and the accessor telling how the elements
+ * are laid out in the array. The elements are read through the accessor rather than copied out of the array.
+ *
+ * @author Eclion
+ */
+public final class Source {
+    private static final CompletableFuture<float[]> NO_FLOATS = CompletableFuture.completedFuture(new float[0]);
+    private static final CompletableFuture<int[]> NO_INTS = CompletableFuture.completedFuture(new int[0]);
+
+    public final String id;
+    private CompletableFuture<float[]> floats = NO_FLOATS;
+    private CompletableFuture<int[]> ints = NO_INTS;
+    private String[] names = new String[0];
+    private int count = -1;
+    private int stride = 1;
+    private int offset;
+    private final List<Param> params = new ArrayList<>();
+
+    public Source(final String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return The content of the float_array, completed once decoded
+     */
+    public CompletableFuture<float[]> getFloats() {
+        return floats;
+    }
+
+    public void setFloats(final CompletableFuture<float[]> floats) {
+        this.floats = floats;
+    }
+
+    /**
+     * @return The content of the int_array, completed once decoded
+     */
+    public CompletableFuture<int[]> getInts() {
+        return ints;
+    }
+
+    public void setInts(final CompletableFuture<int[]> ints) {
+        this.ints = ints;
+    }
+
+    /**
+     * @return The content of the Name_array or IDREF_array
+     */
+    public String[] getNames() {
+        return names;
+    }
+
+    public void setNames(final String[] names) {
+        this.names = names;
+    }
+
+    public void setAccessor(final int count, final int stride, final int offset) {
+        this.count = count;
+        this.stride = Math.max(stride, 1);
+        this.offset = offset;
+    }
+
+    public void addParam(final Param param) {
+        params.add(param);
+    }
+
+    public List<Param> getParams() {
+        return Collections.unmodifiableList(params);
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return The number of elements of the accessor, bounded by the length of the decoded array
+     */
+    public int getCount() {
+        final int length = Math.max(floats.join().length, Math.max(ints.join().length, names.length));
+        final int available = Math.max(length - offset, 0) / stride;
+        return count < 0 ? available : Math.min(count, available);
+    }
+
+    /**
+     * @return The given component of an element of the decoded floats
+     */
+    public float getFloat(final int element, final int component) {
+        return floats.join()[offset + element * stride + component];
+    }
+
+    /**
+     * Lays the first components of every element out one after the other, e.g. the S and T of texture coordinates
+     * having a P too. The decoded array itself is returned when it's laid out this way already, which is the usual case.
+     */
+    public float[] toPackedFloats(final int components) {
+        final float[] values = floats.join();
+        final int elementCount = getCount();
+        if (offset == 0 && stride == components && values.length == elementCount * stride) {
+            return values;
+        }
+        final float[] packed = new float[elementCount * components];
+        final int copiedComponents = Math.min(components, stride);
+        for (int element = 0; element < elementCount; element++) {
+            System.arraycopy(values, offset + element * stride, packed, element * components, copiedComponents);
+        }
+        return packed;
+    }
+
+    @Override
+    public String toString() {
+        return "Source{"
+                + "id='" + this.id + '\''
+                + ", stride=" + this.stride
+                + ", offset=" + this.offset
+                + ", params=" + this.params
+                + '}';
+    }
+}
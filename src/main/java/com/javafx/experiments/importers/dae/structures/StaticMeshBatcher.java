@@ -0,0 +1,289 @@
+package com.javafx.experiments.importers.dae.structures;
+
+import com.javafx.experiments.importers.FeatureToggle;
+import com.javafx.experiments.importers.dae.utils.ParserUtils;
+import com.javafx.experiments.shape3d.BatchedMeshView;
+import com.javafx.experiments.shape3d.SkinningMesh;
+import javafx.scene.Group;
+import javafx.scene.paint.Material;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+import javafx.scene.transform.Affine;
+import javafx.scene.transform.NonInvertibleTransformException;
+import javafx.scene.transform.Transform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Merges the meshes of the static nodes of a scene into one mesh per material, so that a scene made of many small
+ * props sharing a few materials is drawn with a few big MeshViews instead of thousands of small ones.
+ * <p>
+ * The transforms of the nodes, up to the scene, are baked into the points and normals of the merged meshes, which are
+ * then added to the scene itself. The nodes under a joint are left as they are, their transforms being animated, as
+ * are the skinned meshes and the levels of detail. Each merged mesh keeps the range of faces of each node it was merged
+ * from, see {@link BatchedMeshView#getNodeId(int)}.
+ * <p>
+ * The merged meshes are prepared before the scene is built, e.g. off the FX thread, and only attached to it once
+ * built.
+ *
+ * @author Eclion
+ */
+public final class StaticMeshBatcher {
+    private StaticMeshBatcher() {
+    }
+
+    /**
+     * Merges the meshes of the geometry instances of a scene yet to be built.
+     *
+     * @param buildHelper The helper the scene is to be built with, holding the meshes and materials of its geometries
+     */
+    public static List<Batch> prepare(final DaeScene scene, final DaeBuildHelper buildHelper) {
+        final Map<List<Object>, List<BatchedMesh>> batches = new LinkedHashMap<>();
+        collect(scene, new Affine(), buildHelper, batches);
+
+        final List<Batch> merged = new ArrayList<>();
+        for (final Map.Entry<List<Object>, List<BatchedMesh>> batch : batches.entrySet()) {
+            if (batch.getValue().size() >= 2) {
+                merged.add(merge((Material) batch.getKey().get(0), batch.getValue()));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Replaces the MeshViews of the built scene by the merged ones.
+     *
+     * @return The number of MeshViews merged
+     */
+    public static int attach(final DaeScene scene, final List<Batch> batches) {
+        int mergedCount = 0;
+        for (final Batch batch : batches) {
+            final List<MeshView> meshViews = batch.findMeshViews();
+            if (meshViews == null) {
+                continue;
+            }
+            final BatchedMeshView batchedMeshView = new BatchedMeshView(batch.mesh, batch.firstFaces, batch.nodeIds);
+            batchedMeshView.setMaterial(batch.material);
+            for (int i = 0; i < meshViews.size(); i++) {
+                batch.nodes.get(i).removeBatchedMesh(meshViews.get(i));
+            }
+            FeatureToggle.onDisplayMeshsChange(bool -> {
+                if (bool) {
+                    scene.getChildren().add(batchedMeshView);
+                } else if (scene.getChildren().contains(batchedMeshView)) {
+                    scene.getChildren().remove(batchedMeshView);
+                }
+            });
+            mergedCount += meshViews.size();
+        }
+        return mergedCount;
+    }
+
+    // the meshes of the geometry instances, grouped by what they're drawn with
+    private static void collect(final Group parent, final Transform parentTransform, final DaeBuildHelper buildHelper,
+                                final Map<List<Object>, List<BatchedMesh>> batches) {
+        ParserUtils.getDaeNodeChildStream(parent).
+                filter(node -> !node.isJoint()).
+                forEach(node -> {
+                    final Transform transform = parentTransform.createConcatenation(node.getLocalToParentTransform());
+                    final List<TriangleMesh> meshes = buildHelper.getMeshes(node.getInstanceId());
+                    if (node.getInstanceCategory() == DaeNode.Category.GEOMETRY && meshes != null && transform.determinant() != 0) {
+                        final List<Material> materials = buildHelper.getMaterials(node.getInstanceId());
+                        for (int i = 0; i < meshes.size(); i++) {
+                            // the meshes having levels of detail are shown by a LodGroup
+                            if (isBatchable(meshes.get(i)) && buildHelper.getMeshLevels(node.getInstanceId(), i).isEmpty()) {
+                                final Material material = i < materials.size() ? materials.get(i) : null;
+                                batches.computeIfAbsent(Arrays.asList(material, meshes.get(i).getVertexFormat()),
+                                        key -> new ArrayList<>()).
+                                        add(new BatchedMesh(node, meshes.get(i), transform));
+                            }
+                        }
+                    }
+                    collect(node, transform, buildHelper, batches);
+                });
+    }
+
+    private static boolean isBatchable(final TriangleMesh mesh) {
+        return !(mesh instanceof SkinningMesh) && mesh.getFaces().size() > 0;
+    }
+
+    private static Batch merge(final Material material, final List<BatchedMesh> batch) {
+        final VertexFormat vertexFormat = batch.get(0).mesh.getVertexFormat();
+        final boolean hasNormals = vertexFormat == VertexFormat.POINT_NORMAL_TEXCOORD;
+        final int vertexIndexSize = vertexFormat.getVertexIndexSize();
+        int pointLength = 0;
+        int normalLength = 0;
+        int texCoordLength = 0;
+        int faceLength = 0;
+        boolean hasSmoothingGroups = false;
+        for (final BatchedMesh batchedMesh : batch) {
+            final TriangleMesh mesh = batchedMesh.mesh;
+            pointLength += mesh.getPoints().size();
+            normalLength += hasNormals ? mesh.getNormals().size() : 0;
+            texCoordLength += mesh.getTexCoords().size();
+            faceLength += mesh.getFaces().size();
+            hasSmoothingGroups |= mesh.getFaceSmoothingGroups().size() > 0;
+        }
+
+        final float[] points = new float[pointLength];
+        final float[] normals = new float[normalLength];
+        final float[] texCoords = new float[texCoordLength];
+        final int[] faces = new int[faceLength];
+        final int[] smoothingGroups = new int[hasSmoothingGroups ? faceLength / (vertexIndexSize * 3) : 0];
+        final int[] firstFaces = new int[batch.size()];
+        final String[] nodeIds = new String[batch.size()];
+        int pointStart = 0;
+        int normalStart = 0;
+        int texCoordStart = 0;
+        int faceStart = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            final BatchedMesh batchedMesh = batch.get(i);
+            final TriangleMesh mesh = batchedMesh.mesh;
+            final int faceCount = mesh.getFaces().size() / (vertexIndexSize * 3);
+            firstFaces[i] = faceStart / (vertexIndexSize * 3);
+            nodeIds[i] = batchedMesh.node.getId();
+
+            batchedMesh.transformPoints(mesh.getPoints().toArray(null), points, pointStart);
+            if (hasNormals) {
+                batchedMesh.transformNormals(mesh.getNormals().toArray(null), normals, normalStart);
+            }
+            System.arraycopy(mesh.getTexCoords().toArray(null), 0, texCoords, texCoordStart, mesh.getTexCoords().size());
+
+            final int[] meshFaces = mesh.getFaces().toArray(null);
+            final boolean mirrored = batchedMesh.transform.determinant() < 0;
+            for (int corner = 0; corner < meshFaces.length; corner += vertexIndexSize) {
+                // a mirroring transform turns the faces inside out, which is undone by swapping their last corners
+                final int cornerInFace = corner / vertexIndexSize % 3;
+                final int target = faceStart + (mirrored && cornerInFace > 0 ? corner + (3 - 2 * cornerInFace) * vertexIndexSize : corner);
+                faces[target + vertexFormat.getPointIndexOffset()] = meshFaces[corner + vertexFormat.getPointIndexOffset()] + pointStart / 3;
+                faces[target + vertexFormat.getTexCoordIndexOffset()] = meshFaces[corner + vertexFormat.getTexCoordIndexOffset()] + texCoordStart / 2;
+                if (hasNormals) {
+                    faces[target + vertexFormat.getNormalIndexOffset()] = meshFaces[corner + vertexFormat.getNormalIndexOffset()] + normalStart / 3;
+                }
+            }
+            if (hasSmoothingGroups) {
+                if (mesh.getFaceSmoothingGroups().size() == faceCount) {
+                    System.arraycopy(mesh.getFaceSmoothingGroups().toArray(null), 0, smoothingGroups, firstFaces[i], faceCount);
+                } else {
+                    // the faces of a mesh without smoothing groups are all smoothed together
+                    Arrays.fill(smoothingGroups, firstFaces[i], firstFaces[i] + faceCount, 1);
+                }
+            }
+
+            pointStart += mesh.getPoints().size();
+            normalStart += hasNormals ? mesh.getNormals().size() : 0;
+            texCoordStart += mesh.getTexCoords().size();
+            faceStart += meshFaces.length;
+        }
+
+        final TriangleMesh merged = new TriangleMesh(vertexFormat);
+        merged.getPoints().setAll(points);
+        merged.getNormals().setAll(normals);
+        merged.getTexCoords().setAll(texCoords);
+        merged.getFaces().setAll(faces);
+        merged.getFaceSmoothingGroups().setAll(smoothingGroups);
+        final List<DaeNode> nodes = new ArrayList<>();
+        final List<TriangleMesh> meshes = new ArrayList<>();
+        batch.forEach(batchedMesh -> {
+            nodes.add(batchedMesh.node);
+            meshes.add(batchedMesh.mesh);
+        });
+        return new Batch(material, merged, firstFaces, nodeIds, nodes, meshes);
+    }
+
+    /**
+     * A merged mesh, with the meshes of the nodes it was merged from.
+     */
+    public static final class Batch {
+        private final Material material;
+        private final TriangleMesh mesh;
+        private final int[] firstFaces;
+        private final String[] nodeIds;
+        private final List<DaeNode> nodes;
+        private final List<TriangleMesh> meshes;
+
+        private Batch(final Material material, final TriangleMesh mesh, final int[] firstFaces, final String[] nodeIds,
+                      final List<DaeNode> nodes, final List<TriangleMesh> meshes) {
+            this.material = material;
+            this.mesh = mesh;
+            this.firstFaces = firstFaces;
+            this.nodeIds = nodeIds;
+            this.nodes = nodes;
+            this.meshes = meshes;
+        }
+
+        // the views the built nodes show the merged meshes with, or null if any of them isn't shown
+        private List<MeshView> findMeshViews() {
+            final List<MeshView> meshViews = new ArrayList<>(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                final TriangleMesh nodeMesh = meshes.get(i);
+                final Optional<MeshView> meshView = nodes.get(i).getChildren().stream().
+                        filter(child -> child.getClass() == MeshView.class && ((MeshView) child).getMesh() == nodeMesh).
+                        map(child -> (MeshView) child).
+                        findFirst();
+                if (!meshView.isPresent()) {
+                    return null;
+                }
+                meshViews.add(meshView.get());
+            }
+            return meshViews;
+        }
+    }
+
+    /**
+     * A mesh to merge, with the transform of its node up to the scene.
+     */
+    private static final class BatchedMesh {
+        final DaeNode node;
+        final TriangleMesh mesh;
+        final Transform transform;
+
+        BatchedMesh(final DaeNode node, final TriangleMesh mesh, final Transform transform) {
+            this.node = node;
+            this.mesh = mesh;
+            this.transform = transform;
+        }
+
+        void transformPoints(final float[] source, final float[] target, final int start) {
+            final double[] point = new double[3];
+            for (int i = 0; i < source.length; i += 3) {
+                point[0] = source[i];
+                point[1] = source[i + 1];
+                point[2] = source[i + 2];
+                transform.transform3DPoints(point, 0, point, 0, 1);
+                target[start + i] = (float) point[0];
+                target[start + i + 1] = (float) point[1];
+                target[start + i + 2] = (float) point[2];
+            }
+        }
+
+        // the normals are transformed by the transpose of the inverse, so that they stay perpendicular to the faces
+        void transformNormals(final float[] source, final float[] target, final int start) {
+            final Transform inverse;
+            try {
+                inverse = transform.createInverse();
+            } catch (NonInvertibleTransformException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < source.length; i += 3) {
+                final double x = source[i];
+                final double y = source[i + 1];
+                final double z = source[i + 2];
+                final double nx = inverse.getMxx() * x + inverse.getMyx() * y + inverse.getMzx() * z;
+                final double ny = inverse.getMxy() * x + inverse.getMyy() * y + inverse.getMzy() * z;
+                final double nz = inverse.getMxz() * x + inverse.getMyz() * y + inverse.getMzz() * z;
+                final double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+                final double scale = length > 0 ? 1 / length : 0;
+                target[start + i] = (float) (nx * scale);
+                target[start + i + 1] = (float) (ny * scale);
+                target[start + i + 2] = (float) (nz * scale);
+            }
+        }
+    }
+}
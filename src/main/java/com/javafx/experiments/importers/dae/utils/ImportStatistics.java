@@ -0,0 +1,219 @@
+package com.javafx.experiments.importers.dae.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures of an import: the wall time and the bytes allocated by every library parser and every build phase, along
+ * with the size of the imported document and of its content.
+ * <p>
+ * Recording a phase only reads the clock and the allocation counter of the current thread, so the statistics are
+ * always recorded. The bytes allocated by the fork-join pool while decoding big numeric contents aren't accounted.
+ *
+ * @author Eclion
+ */
+public final class ImportStatistics {
+    private static final Logger LOGGER = Logger.getLogger(ImportStatistics.class.getSimpleName());
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = findAllocationBean();
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final Map<String, long[]> startedPhases = new HashMap<>();
+    private long totalNanos;
+    private long bytesRead;
+    private int elementCount;
+    private int meshCount;
+    private int vertexCount;
+    private int faceCount;
+    private int jointCount;
+    private int keyFrameCount;
+    private long weldedBytes;
+
+    private static com.sun.management.ThreadMXBean findAllocationBean() {
+        try {
+            final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            if (threadBean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+                if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                    return allocationBean;
+                }
+            }
+        } catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "Allocated bytes not available: {0}", e.getMessage());
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATION_BEAN != null
+                ? ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId())
+                : -1;
+    }
+
+    /**
+     * Starts measuring a phase, to be ended by {@link #endPhase(String)} on the same thread. The phases recorded
+     * several times are summed up.
+     */
+    public void startPhase(final String name) {
+        startedPhases.put(name, new long[]{System.nanoTime(), allocatedBytes()});
+    }
+
+    public void endPhase(final String name) {
+        final long[] start = startedPhases.remove(name);
+        if (start == null) {
+            return;
+        }
+        final long allocated = start[1] < 0 ? -1 : allocatedBytes() - start[1];
+        final Phase phase = phases.computeIfAbsent(name, Phase::new);
+        phase.wallNanos += System.nanoTime() - start[0];
+        phase.allocatedBytes = phase.allocatedBytes < 0 || allocated < 0 ? -1 : phase.allocatedBytes + allocated;
+    }
+
+    /**
+     * Adds the phases of another part of the import, e.g. of a library parsed on another thread, to the ones of this
+     * import. The phases of the parts run concurrently are summed up, so they may add up to more than the total time.
+     */
+    public void addPhases(final ImportStatistics part) {
+        part.phases.values().forEach(partPhase -> {
+            final Phase phase = phases.computeIfAbsent(partPhase.name, Phase::new);
+            phase.wallNanos += partPhase.wallNanos;
+            phase.allocatedBytes = phase.allocatedBytes < 0 || partPhase.allocatedBytes < 0
+                    ? -1
+                    : phase.allocatedBytes + partPhase.allocatedBytes;
+        });
+    }
+
+    /**
+     * @return The phases in the order they were first recorded
+     */
+    public Collection<Phase> getPhases() {
+        return Collections.unmodifiableCollection(phases.values());
+    }
+
+    public Phase getPhase(final String name) {
+        return phases.get(name);
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public void setTotalNanos(final long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public void setBytesRead(final long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    public int getElementCount() {
+        return elementCount;
+    }
+
+    public void setElementCount(final int elementCount) {
+        this.elementCount = elementCount;
+    }
+
+    public int getMeshCount() {
+        return meshCount;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    /**
+     * Accounts a mesh of the document.
+     */
+    public void addMesh(final int vertexCount, final int faceCount) {
+        this.meshCount++;
+        this.vertexCount += vertexCount;
+        this.faceCount += faceCount;
+    }
+
+    public int getJointCount() {
+        return jointCount;
+    }
+
+    public void setJointCount(final int jointCount) {
+        this.jointCount = jointCount;
+    }
+
+    public int getKeyFrameCount() {
+        return keyFrameCount;
+    }
+
+    public void setKeyFrameCount(final int keyFrameCount) {
+        this.keyFrameCount = keyFrameCount;
+    }
+
+    /**
+     * @return The bytes of the mesh arrays the welding saved, 0 if the meshes weren't welded
+     */
+    public long getWeldedBytes() {
+        return weldedBytes;
+    }
+
+    public void addWeldedBytes(final long weldedBytes) {
+        this.weldedBytes += weldedBytes;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder().
+                append(String.format("%.1f ms, %d bytes read, %d elements, %d meshes, %d vertices, %d faces, %d joints, %d key frames",
+                        totalNanos / 1e6, bytesRead, elementCount, meshCount, vertexCount, faceCount, jointCount, keyFrameCount));
+        if (weldedBytes > 0) {
+            builder.append(String.format(", %d bytes welded", weldedBytes));
+        }
+        phases.values().forEach(phase -> builder.append("\n  ").append(phase));
+        return builder.toString();
+    }
+
+    /**
+     * Wall time and allocated bytes of a part of the import.
+     */
+    public static final class Phase {
+        private final String name;
+        private long wallNanos;
+        private long allocatedBytes;
+
+        private Phase(final String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * @return The bytes allocated by the importing thread, -1 if the JVM doesn't measure them
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-24s %9.3f ms %12d bytes allocated", name, wallNanos / 1e6, allocatedBytes);
+        }
+    }
+}
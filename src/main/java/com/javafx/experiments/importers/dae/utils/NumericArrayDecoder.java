@@ -0,0 +1,259 @@
+package com.javafx.experiments.importers.dae.utils;
+
+import java.util.Arrays;
+
+/**
+ * Decodes whitespace separated numbers straight from character chunks into growable primitive buffers.
+ * <p>
+ * The chunks can be fed as they come from the SAX characters() callbacks: a number split over two chunks is
+ * kept in a small token buffer until its end is known. Most of the numbers are decoded without creating any
+ * String, the {@link Float#parseFloat(String)} path is only used for the tokens the fast path can't round exactly.
+ *
+ * @author Eclion
+ */
+public final class NumericArrayDecoder {
+    private static final int DEFAULT_CAPACITY = 16;
+    // the count announced by the document is only trusted up to it, the buffers growing past it with the content
+    private static final int MAX_EXPECTED_CAPACITY = 1 << 20;
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final int MAX_FAST_EXPONENT = 22;
+    private static final long DOUBLE_TO_FLOAT_TIE_MASK = 0x1FFFFFFFL;
+    private static final long DOUBLE_TO_FLOAT_TIE = 0x10000000L;
+    private static final float[] EMPTY_FLOATS = new float[0];
+    private static final int[] EMPTY_INTS = new int[0];
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_EXPONENT + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    private char[] token = new char[64];
+    private int tokenLength;
+
+    private boolean integers;
+    private float[] floats = EMPTY_FLOATS;
+    private int[] ints = EMPTY_INTS;
+    private int size;
+
+    /**
+     * Prepares the decoder for a new float content.
+     *
+     * @param expectedCount The number of values announced by the document (e.g. the count attribute), 0 if unknown
+     */
+    public void resetForFloats(final int expectedCount) {
+        reset(false, expectedCount);
+    }
+
+    /**
+     * Prepares the decoder for a new integer content.
+     *
+     * @param expectedCount The number of values announced by the document, 0 if unknown
+     */
+    public void resetForInts(final int expectedCount) {
+        reset(true, expectedCount);
+    }
+
+    private void reset(final boolean integers, final int expectedCount) {
+        this.integers = integers;
+        this.tokenLength = 0;
+        this.size = 0;
+        // the buffer kept from the previous content is reused when it's big enough
+        final int capacity = expectedCount > 0 ? Math.min(expectedCount, MAX_EXPECTED_CAPACITY) : DEFAULT_CAPACITY;
+        if (integers && ints.length < capacity) {
+            ints = new int[capacity];
+        } else if (!integers && floats.length < capacity) {
+            floats = new float[capacity];
+        }
+    }
+
+    public void decode(final char[] ch, final int start, final int length) {
+        final int end = start + length;
+        for (int i = start; i < end; i++) {
+            final char c = ch[i];
+            if (c <= ' ') {
+                if (tokenLength > 0) {
+                    flushToken();
+                }
+            } else {
+                if (tokenLength == token.length) {
+                    token = Arrays.copyOf(token, tokenLength * 2);
+                }
+                token[tokenLength++] = c;
+            }
+        }
+    }
+
+    public void decode(final String content) {
+        decode(content.toCharArray(), 0, content.length());
+    }
+
+    public int size() {
+        finish();
+        return size;
+    }
+
+    /**
+     * Hands over the decoded floats; the decoder doesn't keep any reference to the returned array, its buffer being
+     * only kept for the next content when the floats are copied out of it.
+     */
+    public float[] toFloatArray() {
+        finish();
+        final float[] array;
+        if (size == floats.length) {
+            array = floats;
+            floats = EMPTY_FLOATS;
+        } else {
+            array = Arrays.copyOf(floats, size);
+        }
+        size = 0;
+        return array;
+    }
+
+    /**
+     * Hands over the decoded integers; the decoder doesn't keep any reference to the returned array, its buffer being
+     * only kept for the next content when the integers are copied out of it.
+     */
+    public int[] toIntArray() {
+        finish();
+        final int[] array;
+        if (size == ints.length) {
+            array = ints;
+            ints = EMPTY_INTS;
+        } else {
+            array = Arrays.copyOf(ints, size);
+        }
+        size = 0;
+        return array;
+    }
+
+    private void finish() {
+        if (tokenLength > 0) {
+            flushToken();
+        }
+    }
+
+    private void flushToken() {
+        if (integers) {
+            if (size == ints.length) {
+                ints = Arrays.copyOf(ints, Math.max(DEFAULT_CAPACITY, size * 2));
+            }
+            ints[size++] = parseIntToken();
+        } else {
+            if (size == floats.length) {
+                floats = Arrays.copyOf(floats, Math.max(DEFAULT_CAPACITY, size * 2));
+            }
+            floats[size++] = parseFloatToken();
+        }
+        tokenLength = 0;
+    }
+
+    private int parseIntToken() {
+        int i = 0;
+        final boolean negative = token[0] == '-';
+        if (negative || token[0] == '+') {
+            i++;
+        }
+        if (i == tokenLength || tokenLength - i > 10) {
+            return (int) Float.parseFloat(new String(token, 0, tokenLength));
+        }
+        long value = 0;
+        for (; i < tokenLength; i++) {
+            final char c = token[i];
+            if (c < '0' || c > '9') {
+                return (int) Float.parseFloat(new String(token, 0, tokenLength));
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return (int) Float.parseFloat(new String(token, 0, tokenLength));
+        }
+        return (int) value;
+    }
+
+    // Clinger's fast path: an exact mantissa and power of ten give a correctly rounded double. Its conversion to
+    // float is only wrong when the double sits exactly between two floats, in which case the slow path is used.
+    private float parseFloatToken() {
+        int i = 0;
+        final boolean negative = token[0] == '-';
+        if (negative || token[0] == '+') {
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+
+        for (; i < tokenLength && isDigit(token[i]); i++) {
+            hasDigits = true;
+            mantissa = mantissa * 10 + (token[i] - '0');
+            if (mantissa != 0 && ++digits > MAX_FAST_DIGITS) {
+                return slowParseFloat();
+            }
+        }
+        if (i < tokenLength && token[i] == '.') {
+            for (i++; i < tokenLength && isDigit(token[i]); i++) {
+                hasDigits = true;
+                mantissa = mantissa * 10 + (token[i] - '0');
+                exponent--;
+                if (mantissa != 0 && ++digits > MAX_FAST_DIGITS) {
+                    return slowParseFloat();
+                }
+            }
+        }
+        if (!hasDigits) {
+            return slowParseFloat();
+        }
+        if (i < tokenLength && (token[i] == 'e' || token[i] == 'E')) {
+            i++;
+            final boolean negativeExponent = i < tokenLength && token[i] == '-';
+            if (i < tokenLength && (token[i] == '-' || token[i] == '+')) {
+                i++;
+            }
+            if (i == tokenLength) {
+                return slowParseFloat();
+            }
+            int explicitExponent = 0;
+            for (; i < tokenLength && isDigit(token[i]); i++) {
+                explicitExponent = explicitExponent * 10 + (token[i] - '0');
+                if (explicitExponent > 1000) {
+                    return slowParseFloat();
+                }
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (i != tokenLength) {
+            return slowParseFloat();
+        }
+
+        if (mantissa == 0) {
+            return negative ? -0.0f : 0.0f;
+        }
+        if (exponent < -MAX_FAST_EXPONENT || exponent > MAX_FAST_EXPONENT) {
+            return slowParseFloat();
+        }
+
+        final double value = exponent < 0
+                ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+        if (value < Float.MIN_NORMAL || value > Float.MAX_VALUE
+                || (Double.doubleToRawLongBits(value) & DOUBLE_TO_FLOAT_TIE_MASK) == DOUBLE_TO_FLOAT_TIE) {
+            return slowParseFloat();
+        }
+        return negative ? (float) -value : (float) value;
+    }
+
+    private float slowParseFloat() {
+        return Float.parseFloat(new String(token, 0, tokenLength));
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
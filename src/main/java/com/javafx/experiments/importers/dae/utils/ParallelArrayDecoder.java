@@ -0,0 +1,86 @@
+package com.javafx.experiments.importers.dae.utils;
+
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Decodes big numeric contents on the fork-join pool: the text is split at whitespace boundaries and every chunk is
+ * decoded by its own {@link NumericArrayDecoder} before the chunks are concatenated.
+ *
+ * @author Eclion
+ */
+public final class ParallelArrayDecoder {
+    private static final int MIN_CHUNK_LENGTH = 1 << 15;
+
+    private ParallelArrayDecoder() {
+    }
+
+    public static CompletableFuture<float[]> decodeFloatsAsync(final char[] chars, final int length, final int expectedCount) {
+        return decodeAsync(chars, length, expectedCount, NumericArrayDecoder::resetForFloats,
+                NumericArrayDecoder::toFloatArray, float[]::new);
+    }
+
+    public static CompletableFuture<int[]> decodeIntsAsync(final char[] chars, final int length, final int expectedCount) {
+        return decodeAsync(chars, length, expectedCount, NumericArrayDecoder::resetForInts,
+                NumericArrayDecoder::toIntArray, int[]::new);
+    }
+
+    /**
+     * Decodes the chunks in parallel, each into an array of type A, and concatenates them.
+     *
+     * @param reset    Prepares a decoder for a chunk, given the number of values expected in it
+     * @param toArray  Hands over the values a decoder decoded
+     * @param newArray Creates the array of the given length the chunks are concatenated into
+     */
+    private static <A> CompletableFuture<A> decodeAsync(final char[] chars, final int length, final int expectedCount,
+                                                        final ObjIntConsumer<NumericArrayDecoder> reset,
+                                                        final Function<NumericArrayDecoder, A> toArray,
+                                                        final IntFunction<A> newArray) {
+        return CompletableFuture.supplyAsync(() -> {
+            final int[] bounds = splitAtWhitespaces(chars, length);
+            // a value takes a character and a separator at least, whatever the count the document announces
+            final int chunkExpectedCount = bounds.length == 2 ? Math.min(expectedCount, length / 2 + 1) : 0;
+            final List<A> chunks = IntStream.range(0, bounds.length - 1).parallel().
+                    mapToObj(i -> {
+                        final NumericArrayDecoder decoder = new NumericArrayDecoder();
+                        reset.accept(decoder, chunkExpectedCount);
+                        decoder.decode(chars, bounds[i], bounds[i + 1] - bounds[i]);
+                        return toArray.apply(decoder);
+                    }).
+                    collect(Collectors.toList());
+            if (chunks.size() == 1) {
+                return chunks.get(0);
+            }
+            final A array = newArray.apply(chunks.stream().mapToInt(Array::getLength).sum());
+            int offset = 0;
+            for (final A chunk : chunks) {
+                System.arraycopy(chunk, 0, array, offset, Array.getLength(chunk));
+                offset += Array.getLength(chunk);
+            }
+            return array;
+        }, ForkJoinPool.commonPool());
+    }
+
+    // Returns the chunk bounds: every bound but the last one is moved forward to the next whitespace so that no
+    // number is split between two chunks.
+    private static int[] splitAtWhitespaces(final char[] chars, final int length) {
+        final int chunkCount = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), length / MIN_CHUNK_LENGTH));
+        final int[] bounds = new int[chunkCount + 1];
+        for (int i = 1; i < chunkCount; i++) {
+            int bound = Math.max(bounds[i - 1], (int) ((long) length * i / chunkCount));
+            while (bound < length && chars[bound] > ' ') {
+                bound++;
+            }
+            bounds[i] = bound;
+        }
+        bounds[chunkCount] = length;
+        return bounds;
+    }
+}
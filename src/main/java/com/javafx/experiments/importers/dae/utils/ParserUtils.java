@@ -6,7 +6,6 @@ import javafx.scene.Group;
 import org.xml.sax.Attributes;
 
 import java.util.Optional;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -18,12 +17,10 @@ public final class ParserUtils {
     }
 
     public static float[] extractFloatArray(final String content) {
-        final String[] numbers = content.split("\\s+");
-        final float[] array = new float[numbers.length];
-        for (int i = 0; i < numbers.length; i++) {
-            array[i] = Float.parseFloat(numbers[i].trim());
-        }
-        return array;
+        final NumericArrayDecoder decoder = new NumericArrayDecoder();
+        decoder.resetForFloats(0);
+        decoder.decode(content);
+        return decoder.toFloatArray();
     }
 
     public static Input createInput(final Attributes attributes) {
@@ -39,17 +36,37 @@ public final class ParserUtils {
     }
 
     public static double[] extractDoubleArray(final String content) {
-        final float[] floatArray = extractFloatArray(content);
-        return IntStream.range(0, floatArray.length).mapToDouble(i -> floatArray[i]).toArray();
+        return toDoubleArray(extractFloatArray(content));
+    }
+
+    public static double[] toDoubleArray(final float[] floatArray) {
+        final double[] doubleArray = new double[floatArray.length];
+        for (int i = 0; i < floatArray.length; i++) {
+            doubleArray[i] = floatArray[i];
+        }
+        return doubleArray;
     }
 
     public static int[] extractIntArray(final String content) {
-        final float[] floatArray = extractFloatArray(content);
-        final int[] intArray = new int[floatArray.length];
-        for (int i = 0; i < floatArray.length; ++i) {
-            intArray[i] = (int) floatArray[i];
+        final NumericArrayDecoder decoder = new NumericArrayDecoder();
+        decoder.resetForInts(0);
+        decoder.decode(content);
+        return decoder.toIntArray();
+    }
+
+    /**
+     * @return the value of the count attribute, 0 if it's missing or invalid.
+     */
+    public static int extractCount(final Attributes attributes) {
+        final String count = attributes.getValue("count");
+        if (count == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(count.trim()));
+        } catch (NumberFormatException ignored) {
+            return 0;
         }
-        return intArray;
     }
 
     public static Stream<DaeNode> getDaeNodeChildStream(final Group group) {
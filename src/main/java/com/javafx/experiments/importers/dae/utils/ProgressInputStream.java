@@ -0,0 +1,94 @@
+package com.javafx.experiments.importers.dae.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Reports the fraction of a stream that was read, by steps of a percent, and aborts the reading once cancelled.
+ *
+ * @author Eclion
+ */
+public final class ProgressInputStream extends FilterInputStream {
+    private static final double STEP = 0.01;
+
+    private final long length;
+    private final DoubleConsumer progressListener;
+    private final BooleanSupplier cancelled;
+    private long position;
+    private double reportedProgress;
+
+    /**
+     * @param length           The expected length of the stream, no progress is reported if it's unknown (negative)
+     * @param progressListener Called from the reading thread with a progress between 0 and 1
+     * @param cancelled        Polled on every read, an {@link InterruptedIOException} is thrown once it returns true
+     */
+    public ProgressInputStream(final InputStream inputStream, final long length, final DoubleConsumer progressListener,
+                               final BooleanSupplier cancelled) {
+        super(inputStream);
+        this.length = length;
+        this.progressListener = progressListener;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @return The number of bytes read or skipped so far
+     */
+    public long getBytesRead() {
+        return position;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkCancelled();
+        final int value = super.read();
+        if (value != -1) {
+            advance(1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        checkCancelled();
+        final int count = super.read(b, off, len);
+        if (count > 0) {
+            advance(count);
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        checkCancelled();
+        final long count = super.skip(n);
+        advance(count);
+        return count;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (cancelled.getAsBoolean()) {
+            throw new InterruptedIOException("loading cancelled");
+        }
+    }
+
+    private void advance(final long count) {
+        position += count;
+        if (length <= 0) {
+            return;
+        }
+        final double progress = Math.min(1.0, (double) position / length);
+        if (progress - reportedProgress >= STEP || (progress == 1.0 && reportedProgress < 1.0)) {
+            reportedProgress = progress;
+            progressListener.accept(progress);
+        }
+    }
+}
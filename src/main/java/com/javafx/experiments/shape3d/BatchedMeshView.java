@@ -0,0 +1,61 @@
+package com.javafx.experiments.shape3d;
+
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+import java.util.Arrays;
+
+/**
+ * MeshView of a mesh merged from the meshes of several nodes, which keeps the range of faces of each of these nodes so
+ * that a picked face can be traced back to the node it was merged from, e.g. with
+ * {@code getNodeId(pickResult.getIntersectedFace())}.
+ *
+ * @author Eclion
+ */
+public final class BatchedMeshView extends MeshView {
+    private final int[] firstFaces;
+    private final String[] nodeIds;
+
+    /**
+     * @param firstFaces The index of the first face of each merged mesh, in strictly ascending order
+     * @param nodeIds    The id of the node of each merged mesh
+     */
+    public BatchedMeshView(final TriangleMesh mesh, final int[] firstFaces, final String[] nodeIds) {
+        super(mesh);
+        if (firstFaces.length != nodeIds.length) {
+            throw new IllegalArgumentException(firstFaces.length + " face ranges for " + nodeIds.length + " nodes");
+        }
+        this.firstFaces = firstFaces.clone();
+        this.nodeIds = nodeIds.clone();
+    }
+
+    /**
+     * @return The number of meshes merged into this one
+     */
+    public int getBatchSize() {
+        return nodeIds.length;
+    }
+
+    /**
+     * @return The id of the node the given face was merged from, null if there's no such face
+     */
+    public String getNodeId(final int face) {
+        if (face < 0 || face >= getFaceCount() || nodeIds.length == 0) {
+            return null;
+        }
+        final int range = Arrays.binarySearch(firstFaces, face);
+        return nodeIds[range >= 0 ? range : -range - 2];
+    }
+
+    /**
+     * @return The index of the first face merged from the node of the given index, and the index after its last face
+     */
+    public int[] getFaceRange(final int index) {
+        return new int[]{firstFaces[index], index + 1 < firstFaces.length ? firstFaces[index + 1] : getFaceCount()};
+    }
+
+    private int getFaceCount() {
+        final TriangleMesh mesh = (TriangleMesh) getMesh();
+        return mesh.getFaces().size() / mesh.getFaceElementSize();
+    }
+}
@@ -0,0 +1,124 @@
+package com.javafx.experiments.shape3d;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point3D;
+import javafx.scene.Camera;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Group showing one of the levels of detail of a shape at a time, from the finest to the coarsest as it gets further
+ * from the camera of its scene. Only the shown level is a child of the group, so that the others aren't rendered, nor
+ * skinned when they're skinning meshes.
+ * <p>
+ * The first level is shown up to a distance of {@link #getDetailDistance()} times the radius of the shape, and each
+ * next level up to twice the distance of the previous one, the shape being about half as big on screen there. The
+ * level is updated at each pulse while the group is in a scene.
+ *
+ * @author Eclion
+ */
+public final class LodGroup extends Group {
+    public static final double DEFAULT_DETAIL_DISTANCE = 8;
+
+    private final List<Node> levels;
+    private final double detailDistance;
+    private int level = -1;
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(final long now) {
+            update();
+        }
+    };
+
+    public LodGroup(final List<? extends Node> levels) {
+        this(levels, DEFAULT_DETAIL_DISTANCE);
+    }
+
+    /**
+     * @param levels         The nodes of the shape, from the finest to the coarsest
+     * @param detailDistance The distance up to which the first level is shown, in radii of the shape
+     */
+    public LodGroup(final List<? extends Node> levels, final double detailDistance) {
+        if (levels.isEmpty()) {
+            throw new IllegalArgumentException("A LodGroup needs at least one level");
+        }
+        this.levels = Collections.unmodifiableList(new ArrayList<>(levels));
+        this.detailDistance = detailDistance;
+        selectLevel(0);
+        sceneProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue == null) {
+                timer.stop();
+            } else {
+                timer.start();
+            }
+        });
+    }
+
+    public List<Node> getLevels() {
+        return levels;
+    }
+
+    public double getDetailDistance() {
+        return detailDistance;
+    }
+
+    /**
+     * @return The index of the shown level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public void selectLevel(final int level) {
+        if (level < 0 || level >= levels.size()) {
+            throw new IndexOutOfBoundsException("No level " + level + " in " + levels.size() + " levels");
+        }
+        if (level != this.level) {
+            this.level = level;
+            getChildren().setAll(levels.get(level));
+        }
+    }
+
+    /**
+     * @return The index of the level to show at the given distance from the center of the shape
+     */
+    public int levelAt(final double distance) {
+        final Bounds bounds = levels.get(0).getBoundsInLocal();
+        final double radius = Math.sqrt(bounds.getWidth() * bounds.getWidth() + bounds.getHeight() * bounds.getHeight()
+                + bounds.getDepth() * bounds.getDepth()) / 2;
+        final double firstDistance = radius * detailDistance;
+        if (bounds.isEmpty() || distance <= firstDistance) {
+            return 0;
+        }
+        final int level = 1 + (int) Math.floor(Math.log(distance / firstDistance) / Math.log(2));
+        return Math.min(level, levels.size() - 1);
+    }
+
+    /**
+     * Shows the level matching the distance from the camera of the scene, the first level being shown when the scene
+     * has no camera of its own.
+     */
+    public void update() {
+        final Scene scene = getScene();
+        final Camera camera = scene != null ? scene.getCamera() : null;
+        if (camera == null) {
+            selectLevel(0);
+            return;
+        }
+        final Bounds bounds = levels.get(0).getBoundsInLocal();
+        final Point3D center = localToScene(
+                (bounds.getMinX() + bounds.getMaxX()) / 2,
+                (bounds.getMinY() + bounds.getMaxY()) / 2,
+                (bounds.getMinZ() + bounds.getMaxZ()) / 2);
+        final Point3D eye = camera.localToScene(0, 0, 0);
+        // the distance is measured in the local space of the group, as its radius is
+        final double scale = localToScene(1, 0, 0).distance(localToScene(0, 0, 0));
+        selectLevel(levelAt(center.distance(eye) / (scale > 0 ? scale : 1)));
+    }
+}
@@ -0,0 +1,162 @@
+package com.javafx.experiments.shape3d;
+
+import javafx.scene.shape.VertexFormat;
+
+import java.util.stream.IntStream;
+
+/**
+ * Computes the normals of a mesh from its points, each normal being the sum of the normals of the faces whose corners
+ * refer to it, weighted by their area, then normalized. The faces referring to each normal are gathered once, in
+ * compressed sparse rows, so that every update only goes through primitive arrays.
+ * <p>
+ * The face normals are computed by ranges of faces and summed by ranges of normals, each range writing its own
+ * elements only, which lets the big meshes be updated in parallel.
+ *
+ * @author Eclion
+ */
+final class NormalEngine {
+    // the meshes with fewer faces, or normals, are updated on the calling thread
+    private static final int MIN_PARALLEL_ELEMENTS = 1 << 13;
+
+    private final int[] faces;
+    private final int faceSize;
+    private final int cornerSize;
+    private final int pointOffset;
+    private final int normalCount;
+    // the faces referring to normal i are the ones from firstFaces[i] up to firstFaces[i + 1] in normalFaces
+    private final int[] firstFaces;
+    private final int[] normalFaces;
+    // the cross product of the edges of each face, its length being twice its area
+    private final double[] faceNormals;
+
+    /**
+     * @param faces       The faces of the mesh, not to be modified
+     * @param normalCount The number of normals of the mesh
+     */
+    NormalEngine(final int[] faces, final VertexFormat vertexFormat, final int normalCount) {
+        this.faces = faces;
+        this.cornerSize = vertexFormat.getVertexIndexSize();
+        this.faceSize = cornerSize * 3;
+        this.pointOffset = vertexFormat.getPointIndexOffset();
+        this.normalCount = normalCount;
+        final int faceCount = faces.length / faceSize;
+        this.faceNormals = new double[faceCount * 3];
+
+        final int normalOffset = vertexFormat.getNormalIndexOffset();
+        firstFaces = new int[normalCount + 1];
+        for (int face = 0; face < faceCount; face++) {
+            for (int corner = 0; corner < 3; corner++) {
+                final int normal = getNormal(face, corner, normalOffset);
+                if (normal >= 0) {
+                    firstFaces[normal + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < normalCount; i++) {
+            firstFaces[i + 1] += firstFaces[i];
+        }
+        normalFaces = new int[firstFaces[normalCount]];
+        final int[] next = new int[normalCount];
+        System.arraycopy(firstFaces, 0, next, 0, normalCount);
+        for (int face = 0; face < faceCount; face++) {
+            for (int corner = 0; corner < 3; corner++) {
+                final int normal = getNormal(face, corner, normalOffset);
+                if (normal >= 0) {
+                    normalFaces[next[normal]++] = face;
+                }
+            }
+        }
+    }
+
+    // Returns the normal index of the corner, or -1 if it's out of range or already referred to by a previous corner of
+    // the face, so that each face counts once per normal
+    private int getNormal(final int face, final int corner, final int normalOffset) {
+        final int normal = faces[face * faceSize + corner * cornerSize + normalOffset];
+        if (normal < 0 || normal >= normalCount) {
+            return -1;
+        }
+        for (int previous = 0; previous < corner; previous++) {
+            if (faces[face * faceSize + previous * cornerSize + normalOffset] == normal) {
+                return -1;
+            }
+        }
+        return normal;
+    }
+
+    /**
+     * Writes the normals referred to by the faces; the other ones are left as they are. A normal whose faces have no
+     * area is set to zero.
+     *
+     * @param points  The x, y, z coordinates of the points
+     * @param normals The x, y, z coordinates of the normals, normalCount * 3 long at least
+     */
+    void update(final float[] points, final float[] normals) {
+        final int faceCount = faceNormals.length / 3;
+        if (getChunkCount(faceCount) > 1) {
+            forEachChunk(faceCount, (from, to) -> updateFaceNormals(points, from, to));
+        } else {
+            updateFaceNormals(points, 0, faceCount);
+        }
+        if (getChunkCount(normalCount) > 1) {
+            forEachChunk(normalCount, (from, to) -> updateNormals(normals, from, to));
+        } else {
+            updateNormals(normals, 0, normalCount);
+        }
+    }
+
+    private void updateFaceNormals(final float[] points, final int from, final int to) {
+        for (int face = from; face < to; face++) {
+            final int p1 = faces[face * faceSize + pointOffset] * 3;
+            final int p2 = faces[face * faceSize + cornerSize + pointOffset] * 3;
+            final int p3 = faces[face * faceSize + cornerSize * 2 + pointOffset] * 3;
+
+            final double ux = (double) points[p2] - points[p1];
+            final double uy = (double) points[p2 + 1] - points[p1 + 1];
+            final double uz = (double) points[p2 + 2] - points[p1 + 2];
+            final double vx = (double) points[p3] - points[p1];
+            final double vy = (double) points[p3 + 1] - points[p1 + 1];
+            final double vz = (double) points[p3 + 2] - points[p1 + 2];
+            faceNormals[face * 3] = uy * vz - uz * vy;
+            faceNormals[face * 3 + 1] = uz * vx - ux * vz;
+            faceNormals[face * 3 + 2] = ux * vy - uy * vx;
+        }
+    }
+
+    private void updateNormals(final float[] normals, final int from, final int to) {
+        for (int normal = from; normal < to; normal++) {
+            if (firstFaces[normal] == firstFaces[normal + 1]) {
+                continue;
+            }
+            double nx = 0;
+            double ny = 0;
+            double nz = 0;
+            for (int i = firstFaces[normal]; i < firstFaces[normal + 1]; i++) {
+                final int face = normalFaces[i] * 3;
+                nx += faceNormals[face];
+                ny += faceNormals[face + 1];
+                nz += faceNormals[face + 2];
+            }
+            final double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            normals[normal * 3] = length == 0 ? 0 : (float) (nx / length);
+            normals[normal * 3 + 1] = length == 0 ? 0 : (float) (ny / length);
+            normals[normal * 3 + 2] = length == 0 ? 0 : (float) (nz / length);
+        }
+    }
+
+    private static int getChunkCount(final int count) {
+        return Math.max(1, count / MIN_PARALLEL_ELEMENTS);
+    }
+
+    // the small meshes are updated without going through it, so that they don't allocate the task
+    private static void forEachChunk(final int count, final RangeTask task) {
+        final int chunkCount = getChunkCount(count);
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> task.run(
+                (int) ((long) count * chunk / chunkCount),
+                (int) ((long) count * (chunk + 1) / chunkCount)));
+    }
+
+    @FunctionalInterface
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+}
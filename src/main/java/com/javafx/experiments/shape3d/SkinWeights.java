@@ -0,0 +1,208 @@
+package com.javafx.experiments.shape3d;
+
+import java.util.Arrays;
+
+/**
+ * Influences of the joints on the points of a skinned mesh, stored per point in compressed sparse rows: the influences
+ * of point i are the ones from {@code getFirstInfluence(i)} up to {@code getFirstInfluence(i + 1)}, each with its joint
+ * and its weight. A point is usually influenced by a few joints only, so the memory scales with the influences instead
+ * of the joints times the points.
+ * <p>
+ * The influences of each point are sorted by joint, each joint influencing a point at most once.
+ *
+ * @author Eclion
+ */
+public final class SkinWeights {
+    private final int jointCount;
+    private final int[] firstInfluences;
+    private final int[] joints;
+    private final float[] weights;
+
+    /**
+     * @param jointCount      The number of joints
+     * @param firstInfluences The index of the first influence of each point, followed by the number of influences
+     * @param joints          The joint of each influence, sorted per point
+     * @param weights         The weight of each influence
+     */
+    public SkinWeights(final int jointCount, final int[] firstInfluences, final int[] joints, final float[] weights) {
+        if (firstInfluences.length == 0 || firstInfluences[0] != 0
+                || firstInfluences[firstInfluences.length - 1] != joints.length || joints.length != weights.length) {
+            throw new IllegalArgumentException("Inconsistent influences: " + joints.length + " joints, "
+                    + weights.length + " weights");
+        }
+        this.jointCount = jointCount;
+        this.firstInfluences = firstInfluences;
+        this.joints = joints;
+        this.weights = weights;
+    }
+
+    /**
+     * Gathers the influences listed per point, as in the vertex_weights of a COLLADA skin: the counts of influences of
+     * the points, then the joint and weight indices of every influence. The influences of unknown joints are dropped,
+     * and the last one is kept when a joint influences a point several times.
+     *
+     * @param influenceCounts The number of influences of each point
+     * @param influences      The indices of every influence, stride ints apart
+     * @param jointOffset     The offset of the joint index in each influence
+     * @param weightOffset    The offset of the weight index in each influence
+     * @param weightValues    The weights the weight indices refer to
+     */
+    public static SkinWeights fromInfluences(final int jointCount, final int pointCount, final int[] influenceCounts,
+                                             final int[] influences, final int stride, final int jointOffset,
+                                             final int weightOffset, final float[] weightValues) {
+        final int[] firstInfluences = new int[pointCount + 1];
+        int influenceCount = 0;
+        for (int i = 0; i < Math.min(pointCount, influenceCounts.length); i++) {
+            influenceCount += influenceCounts[i];
+        }
+        final int[] joints = new int[influenceCount];
+        final float[] weights = new float[influenceCount];
+        int index = 0;
+        int count = 0;
+        for (int i = 0; i < pointCount; i++) {
+            firstInfluences[i] = count;
+            final int pointInfluenceCount = i < influenceCounts.length ? influenceCounts[i] : 0;
+            for (int influence = 0; influence < pointInfluenceCount; influence++, index += stride) {
+                final int joint = influences[index + jointOffset];
+                if (joint < 0 || joint >= jointCount) {
+                    continue;
+                }
+                // insertion by joint, the influences of a point being few
+                int position = count;
+                while (position > firstInfluences[i] && joints[position - 1] > joint) {
+                    position--;
+                }
+                final float weight = weightValues[influences[index + weightOffset]];
+                if (position > firstInfluences[i] && joints[position - 1] == joint) {
+                    weights[position - 1] = weight;
+                    continue;
+                }
+                System.arraycopy(joints, position, joints, position + 1, count - position);
+                System.arraycopy(weights, position, weights, position + 1, count - position);
+                joints[position] = joint;
+                weights[position] = weight;
+                count++;
+            }
+        }
+        firstInfluences[pointCount] = count;
+        return new SkinWeights(jointCount, firstInfluences, Arrays.copyOf(joints, count), Arrays.copyOf(weights, count));
+    }
+
+    /**
+     * @param jointsWeights A two-dimensional array (nJoints x nPoints) of the influence weights, the zero ones being
+     *                      dropped
+     */
+    public static SkinWeights fromJointsWeights(final float[][] jointsWeights) {
+        final int pointCount = jointsWeights.length == 0 ? 0 : jointsWeights[0].length;
+        final int[] firstInfluences = new int[pointCount + 1];
+        for (final float[] jointWeights : jointsWeights) {
+            for (int i = 0; i < pointCount; i++) {
+                if (jointWeights[i] != 0) {
+                    firstInfluences[i + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < pointCount; i++) {
+            firstInfluences[i + 1] += firstInfluences[i];
+        }
+        final int[] joints = new int[firstInfluences[pointCount]];
+        final float[] weights = new float[firstInfluences[pointCount]];
+        final int[] next = Arrays.copyOf(firstInfluences, pointCount);
+        for (int j = 0; j < jointsWeights.length; j++) {
+            for (int i = 0; i < pointCount; i++) {
+                if (jointsWeights[j][i] != 0) {
+                    joints[next[i]] = j;
+                    weights[next[i]++] = jointsWeights[j][i];
+                }
+            }
+        }
+        return new SkinWeights(jointsWeights.length, firstInfluences, joints, weights);
+    }
+
+    /**
+     * @return The influences whose weight is above the given one, or these weights if there's none below
+     */
+    public SkinWeights withoutWeightsBelow(final float minWeight) {
+        int kept = 0;
+        for (final float weight : weights) {
+            if (weight > minWeight) {
+                kept++;
+            }
+        }
+        if (kept == weights.length) {
+            return this;
+        }
+        final int pointCount = getPointCount();
+        final int[] keptFirstInfluences = new int[pointCount + 1];
+        final int[] keptJoints = new int[kept];
+        final float[] keptWeights = new float[kept];
+        int count = 0;
+        for (int i = 0; i < pointCount; i++) {
+            keptFirstInfluences[i] = count;
+            for (int influence = firstInfluences[i]; influence < firstInfluences[i + 1]; influence++) {
+                if (weights[influence] > minWeight) {
+                    keptJoints[count] = joints[influence];
+                    keptWeights[count++] = weights[influence];
+                }
+            }
+        }
+        keptFirstInfluences[pointCount] = count;
+        return new SkinWeights(jointCount, keptFirstInfluences, keptJoints, keptWeights);
+    }
+
+    public int getJointCount() {
+        return jointCount;
+    }
+
+    public int getPointCount() {
+        return firstInfluences.length - 1;
+    }
+
+    public int getInfluenceCount() {
+        return joints.length;
+    }
+
+    /**
+     * @return The index of the first influence of the point, or the number of influences for the point count
+     */
+    public int getFirstInfluence(final int point) {
+        return firstInfluences[point];
+    }
+
+    public int getJoint(final int influence) {
+        return joints[influence];
+    }
+
+    public float getWeight(final int influence) {
+        return weights[influence];
+    }
+
+    /**
+     * @return The weight of the joint on the point, 0 if it doesn't influence it
+     */
+    public float getWeight(final int joint, final int point) {
+        final int influence = Arrays.binarySearch(joints, firstInfluences[point], firstInfluences[point + 1], joint);
+        return influence >= 0 ? weights[influence] : 0;
+    }
+
+    /**
+     * @return The index of the first influence of each point, followed by the number of influences, not to be modified
+     */
+    public int[] getFirstInfluences() {
+        return firstInfluences;
+    }
+
+    /**
+     * @return The joint of each influence, not to be modified
+     */
+    public int[] getJoints() {
+        return joints;
+    }
+
+    /**
+     * @return The weight of each influence, not to be modified
+     */
+    public float[] getWeights() {
+        return weights;
+    }
+}
@@ -32,38 +32,58 @@
 package com.javafx.experiments.shape3d;
 
 import com.javafx.experiments.importers.dae.structures.Joint;
-import javafx.beans.InvalidationListener;
 import javafx.collections.ObservableFloatArray;
 import javafx.geometry.Point3D;
 import javafx.scene.Node;
 import javafx.scene.Parent;
-import javafx.scene.shape.ObservableFaceArray;
 import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
 import javafx.scene.transform.Affine;
-import javafx.scene.transform.MatrixType;
 import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.scene.transform.Transform;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 /**
  * PolygonMesh that knows how to update itself given changes in joint transforms.
  * The mesh can be updated with an AnimationTimer.
+ * The joint matrices, skinned points and normals are computed in primitive buffers reused from one update to the next,
+ * so that updating every frame doesn't allocate. The points of the big meshes are skinned in parallel, by ranges of
+ * points, and then set at once on the calling thread.
+ * The normals are the area-weighted sums of the normals of the faces referring to them, and may be updated less often
+ * than the points, see {@link #setNormalUpdateInterval(int)}.
  */
 public final class SkinningMesh extends TriangleMesh {
     private static final Logger LOGGER = Logger.getLogger(SkinningMesh.class.getSimpleName());
-    private final float[][] relativePoints; // nJoints x nPoints*3
-    private final float[][] weights; // nJoints x nPoints
-    private final List<Integer>[] weightIndices;
-    private final List<JointIndex> jointIndexForest = new ArrayList<>();
+    // the weights below it are ignored
+    private static final float MIN_WEIGHT = 0.0001f;
+    // the meshes with fewer points are skinned on the calling thread
+    private static final int MIN_PARALLEL_POINTS = 1 << 13;
+    private final float[] relativePoints; // nInfluences*3, each point relative to the binding transform of its joint
+    private final SkinWeights weights;
+    // the nodes of the joint forest in depth-first order, each one after its parent, and their joint index or -1
+    private final Node[] forestNodes;
+    private final int[] forestParents;
+    private final int[] forestJoints;
     private boolean jointsTransformDirty = true;
-    private Transform bindGlobalInverseTransform;
-    private final Transform[] jointToRootTransforms; // the root refers to the group containing all the mesh skinning nodes (i.e. the parent of jointForest)
+    private boolean facesDirty = true;
+    private final double[] bindGlobalInverseTransform = new double[12];
+    // the 3x4 matrices of the forest nodes relative to the root, the root referring to the group containing all the
+    // mesh skinning nodes (i.e. the parent of jointForest)
+    private final double[] nodeToRootMatrices;
+    private final double[] jointToRootMatrices; // nJoints*12, zero for the joints outside of the forest
+    // the buffers of the skinned points and normals, reused from one update to the next
+    private final float[] skinnedPoints;
+    private float[] skinnedNormals;
+    private NormalEngine normalEngine;
+    private int normalUpdateInterval = 1;
+    // the number of point updates since the normals were last updated
+    private int pointUpdatesSinceNormals;
     private final int nPoints;
     private final int nJoints;
 
@@ -80,88 +100,86 @@ public final class SkinningMesh extends TriangleMesh {
      */
     public SkinningMesh(final TriangleMesh mesh, final float[][] jointsWeights, final Affine[] bindTransforms,
                         final Affine bindGlobalTransform, final List<Joint> joints, final List<Parent> jointForest) {
+        this(mesh, SkinWeights.fromJointsWeights(jointsWeights), bindTransforms, bindGlobalTransform, joints, jointForest);
+    }
+
+    /**
+     * SkinningMesh constructor.
+     *
+     * @param mesh                The binding mesh
+     * @param jointsWeights       The sparse influences of the joints on the points used for skinning
+     * @param bindTransforms      The binding transforms for every joint
+     * @param bindGlobalTransform The global binding transform; all binding transforms are defined with respect to this frame
+     * @param joints              A list of joints used for skinning; the order of these are associated with the respective attributes of @weights and @bindPoses
+     * @param jointForest         A list of the top level trees that contain the joints; all the @joints should be contained in this forest
+     */
+    public SkinningMesh(final TriangleMesh mesh, final SkinWeights jointsWeights, final Affine[] bindTransforms,
+                        final Affine bindGlobalTransform, final List<Joint> joints, final List<Parent> jointForest) {
         this.copyMesh(mesh);
 
-        this.weights = jointsWeights;
+        this.weights = jointsWeights.withoutWeightsBelow(MIN_WEIGHT);
 
         this.nJoints = joints.size();
         this.nPoints = getPoints().size() / getPointElementSize();
 
-        this.initializeJointIndexForest(joints, jointForest);
+        final List<Node> nodes = new ArrayList<>();
+        final List<Integer> parents = new ArrayList<>();
+        for (final Parent jointRoot : jointForest) {
+            addForestNode(jointRoot, -1, nodes, parents);
+        }
+        this.forestNodes = nodes.toArray(new Node[nodes.size()]);
+        this.forestParents = parents.stream().mapToInt(Integer::intValue).toArray();
+        this.forestJoints = nodes.stream().mapToInt(joints::indexOf).toArray();
+        this.nodeToRootMatrices = new double[forestNodes.length * 12];
+        this.jointToRootMatrices = new double[nJoints * 12];
 
         try {
-            this.bindGlobalInverseTransform = bindGlobalTransform.createInverse();
+            toMatrix(bindGlobalTransform.createInverse(), bindGlobalInverseTransform, 0);
         } catch (NonInvertibleTransformException ex) {
             LOGGER.log(Level.SEVERE, "Caught NonInvertibleTransformException: " + ex.getMessage());
         }
 
-        this.jointToRootTransforms = new Transform[nJoints];
-
-        this.weightIndices = this.initializeWeightIndices();
+        this.skinnedPoints = new float[nPoints * 3];
+        this.skinnedNormals = getNormals().toArray(null);
+        getFaces().addListener((observableArray, sizeChanged, from, to) -> facesDirty = true);
 
         this.relativePoints = this.initializeRelativePoints(bindTransforms, bindGlobalTransform);
 
-        this.processJoints(joints, jointForest);
-
         jointsTransformDirty = true;
         update();
     }
 
-    // Create the jointIndexForest forest. Its structure is the same as jointForest, except that this forest have
-    // indices information and some branches are pruned if they don't contain joints.
-    private void initializeJointIndexForest(final List<Joint> joints, final List<Parent> jointForest) {
-        for (final Parent jointRoot : jointForest) {
-            jointIndexForest.add(new JointIndex(jointRoot, joints.indexOf(jointRoot), joints));
-        }
-    }
-
-    // For optimization purposes, store the indices of the non-zero weights
-    private List<Integer>[] initializeWeightIndices() {
-        final List<Integer>[] wIndices = new List[nJoints];
-        for (int j = 0; j < nJoints; j++) {
-            wIndices[j] = new ArrayList<>();
-            for (int i = 0; i < nPoints; i++) {
-                if (weights[j][i] > 0.0001) {
-                    wIndices[j].add(i);
-                }
-            }
+    // Flattens the joint forest in depth-first order; only the Parent nodes can hold joints
+    private static void addForestNode(final Node node, final int parent, final List<Node> nodes, final List<Integer> parents) {
+        final int index = nodes.size();
+        nodes.add(node);
+        parents.add(parent);
+        if (node instanceof Parent) {
+            ((Parent) node).getChildrenUnmodifiable().stream().
+                    filter(child -> child instanceof Parent).
+                    forEach(child -> addForestNode(child, index, nodes, parents));
         }
-        return wIndices;
     }
 
-    // Compute the points of the binding mesh relative to the binding transforms
-    private float[][] initializeRelativePoints(final Affine[] bindTransforms, final Affine bindGlobalTransform) {
+    // Compute the points of the binding mesh relative to the binding transforms of the joints influencing them
+    private float[] initializeRelativePoints(final Affine[] bindTransforms, final Affine bindGlobalTransform) {
         final ObservableFloatArray points = getPoints();
-        final float[][] relativePts = new float[nJoints][nPoints * 3];
+        final Transform[] postBindTransforms = new Transform[nJoints];
         for (int j = 0; j < nJoints; j++) {
-            final Transform postBindTransform = bindTransforms[j].createConcatenation(bindGlobalTransform);
-            for (int i = 0; i < nPoints; i++) {
-                final Point3D relativePt = postBindTransform.transform(points.get(3 * i), points.get(3 * i + 1), points.get(3 * i + 2));
-                relativePts[j][3 * i] = (float) relativePt.getX();
-                relativePts[j][3 * i + 1] = (float) relativePt.getY();
-                relativePts[j][3 * i + 2] = (float) relativePt.getZ();
-            }
+            postBindTransforms[j] = bindTransforms[j].createConcatenation(bindGlobalTransform);
         }
-        return relativePts;
-    }
-
-    // Add a listener to all the joints (and their parents nodes) so that we can track when any of their transforms have changed
-    // Set of joints that already have a listener (so we don't attach a listener to the same node more than once)
-    private void processJoints(final List<Joint> joints, final List<Parent> jointForest) {
-        final Set<Node> processedNodes = new HashSet<>(joints.size());
-        final InvalidationListener invalidationListener = observable -> jointsTransformDirty = true;
-        for (Joint joint : joints) {
-            Node node = joint;
-            while (!processedNodes.contains(node)) {
-                node.localToParentTransformProperty().addListener(invalidationListener);
-                processedNodes.add(node);
-                // Don't check for nodes above the jointForest
-                if (jointForest.contains(node) || node.parentProperty().isNull().get()) {
-                    break;
-                }
-                node = node.getParent();
+        final float[] relativePts = new float[weights.getInfluenceCount() * 3];
+        final int skinnedPoints = Math.min(nPoints, weights.getPointCount());
+        for (int i = 0; i < skinnedPoints; i++) {
+            for (int influence = weights.getFirstInfluence(i); influence < weights.getFirstInfluence(i + 1); influence++) {
+                final Point3D relativePt = postBindTransforms[weights.getJoint(influence)].
+                        transform(points.get(3 * i), points.get(3 * i + 1), points.get(3 * i + 2));
+                relativePts[3 * influence] = (float) relativePt.getX();
+                relativePts[3 * influence + 1] = (float) relativePt.getY();
+                relativePts[3 * influence + 2] = (float) relativePt.getZ();
             }
         }
+        return relativePts;
     }
 
     private void copyMesh(final TriangleMesh mesh) {
@@ -173,114 +191,173 @@ public final class SkinningMesh extends TriangleMesh {
         this.setVertexFormat(mesh.getVertexFormat());
     }
 
-    // Updates the jointToRootTransforms by doing a a depth-first search of the jointIndexForest
-    private void updateLocalToGlobalTransforms(final List<JointIndex> jointIndexForest) {
-        for (final JointIndex jointIndex : jointIndexForest) {
-            if (jointIndex.parent == null) {
-                jointIndex.localToGlobalTransform = bindGlobalInverseTransform.createConcatenation(jointIndex.node.getLocalToParentTransform());
+    // Updates the jointToRootMatrices, the parents of the forest nodes coming before them, and tells whether any of them
+    // has changed. The matrices are compared rather than listening to the transforms of the nodes, their invalidation
+    // being only notified again once the local to parent transform has been got, which allocates.
+    private boolean updateLocalToGlobalTransforms() {
+        boolean changed = false;
+        for (int i = 0; i < forestNodes.length; i++) {
+            if (forestParents[i] < 0) {
+                System.arraycopy(bindGlobalInverseTransform, 0, nodeToRootMatrices, i * 12, 12);
             } else {
-                jointIndex.localToGlobalTransform = jointIndex.parent.localToGlobalTransform.createConcatenation(jointIndex.node.getLocalToParentTransform());
+                System.arraycopy(nodeToRootMatrices, forestParents[i] * 12, nodeToRootMatrices, i * 12, 12);
             }
-            if (jointIndex.index != -1) {
-                jointToRootTransforms[jointIndex.index] = jointIndex.localToGlobalTransform;
+            concatenateLocalToParent(forestNodes[i], nodeToRootMatrices, i * 12);
+            if (forestJoints[i] != -1) {
+                final int joint = forestJoints[i] * 12;
+                for (int k = 0; k < 12; k++) {
+                    if (jointToRootMatrices[joint + k] != nodeToRootMatrices[i * 12 + k]) {
+                        jointToRootMatrices[joint + k] = nodeToRootMatrices[i * 12 + k];
+                        changed = true;
+                    }
+                }
             }
-            updateLocalToGlobalTransforms(jointIndex.children);
         }
+        return changed;
     }
 
-    // Updates its points only if any of the joints' transforms have changed
-    public void update() {
-        if (!jointsTransformDirty) {
+    // Concatenates the transform of the node to the given matrix, in place. The transforms of the node are concatenated
+    // one by one when it has no rotation nor scale of its own, like joints, as getting its local to parent transform
+    // allocates a new one whenever it has changed.
+    private static void concatenateLocalToParent(final Node node, final double[] m, final int offset) {
+        if (node.getRotate() != 0 || node.getScaleX() != 1 || node.getScaleY() != 1 || node.getScaleZ() != 1) {
+            concatenate(m, offset, node.getLocalToParentTransform(), m, offset);
             return;
         }
-
-        updateLocalToGlobalTransforms(jointIndexForest);
-
-        updatePoints();
-        updateNormals();
-
-        jointsTransformDirty = false;
+        final double tx = node.getLayoutX() + node.getTranslateX();
+        final double ty = node.getLayoutY() + node.getTranslateY();
+        final double tz = node.getTranslateZ();
+        for (int row = 0; row < 3; row++) {
+            m[offset + row * 4 + 3] += m[offset + row * 4] * tx + m[offset + row * 4 + 1] * ty + m[offset + row * 4 + 2] * tz;
+        }
+        final List<Transform> transforms = node.getTransforms();
+        for (int i = 0; i < transforms.size(); i++) {
+            concatenate(m, offset, transforms.get(i), m, offset);
+        }
     }
 
-
-    //TODO: problem with the point calculation.
-    private void updatePoints() {
-        final float[] points = new float[nPoints * 3];
-        final double[] t = new double[12];
-        float[] relativePoint;
-        for (int j = 0; j < nJoints; j++) {
-            jointToRootTransforms[j].toArray(MatrixType.MT_3D_3x4, t);
-            relativePoint = relativePoints[j];
-            for (Integer i : weightIndices[j]) {
-                points[3 * i] += weights[j][i] * (t[0] * relativePoint[3 * i] + t[1] * relativePoint[3 * i + 1] + t[2] * relativePoint[3 * i + 2] + t[3]);
-                points[3 * i + 1] += weights[j][i] * (t[4] * relativePoint[3 * i] + t[5] * relativePoint[3 * i + 1] + t[6] * relativePoint[3 * i + 2] + t[7]);
-                points[3 * i + 2] += weights[j][i] * (t[8] * relativePoint[3 * i] + t[9] * relativePoint[3 * i + 1] + t[10] * relativePoint[3 * i + 2] + t[11]);
-            }
+    // Writes the 3x4 matrix of the concatenation of the given 3x4 matrix and transform, which may be done in place
+    private static void concatenate(final double[] m, final int offset, final Transform t, final double[] result,
+                                    final int resultOffset) {
+        final double txx = t.getMxx();
+        final double txy = t.getMxy();
+        final double txz = t.getMxz();
+        final double ttx = t.getTx();
+        final double tyx = t.getMyx();
+        final double tyy = t.getMyy();
+        final double tyz = t.getMyz();
+        final double tty = t.getTy();
+        final double tzx = t.getMzx();
+        final double tzy = t.getMzy();
+        final double tzz = t.getMzz();
+        final double ttz = t.getTz();
+        for (int row = 0; row < 3; row++) {
+            final double x = m[offset + row * 4];
+            final double y = m[offset + row * 4 + 1];
+            final double z = m[offset + row * 4 + 2];
+            final double w = m[offset + row * 4 + 3];
+            result[resultOffset + row * 4] = x * txx + y * tyx + z * tzx;
+            result[resultOffset + row * 4 + 1] = x * txy + y * tyy + z * tzy;
+            result[resultOffset + row * 4 + 2] = x * txz + y * tyz + z * tzz;
+            result[resultOffset + row * 4 + 3] = x * ttx + y * tty + z * ttz + w;
         }
-        this.getPoints().set(0, points, 0, points.length);
     }
 
-    private void updateNormals() {
-        float[] normals = this.getNormals().toArray(null);
-        final ObservableFaceArray faces = this.getFaces();
-        final int faceSize = getFaceElementSize();
-        final int pointSize = getPointElementSize();
-
-        for (int i = 0; i < faces.size() / faceSize; i++) {
-            final int ptIndex1 = faces.get(i * faceSize);
-            final int ptIndex2 = faces.get(i * faceSize + pointSize);
-            final int ptIndex3 = faces.get(i * faceSize + pointSize * 2);
+    private static void toMatrix(final Transform t, final double[] result, final int offset) {
+        result[offset] = t.getMxx();
+        result[offset + 1] = t.getMxy();
+        result[offset + 2] = t.getMxz();
+        result[offset + 3] = t.getTx();
+        result[offset + 4] = t.getMyx();
+        result[offset + 5] = t.getMyy();
+        result[offset + 6] = t.getMyz();
+        result[offset + 7] = t.getTy();
+        result[offset + 8] = t.getMzx();
+        result[offset + 9] = t.getMzy();
+        result[offset + 10] = t.getMzz();
+        result[offset + 11] = t.getTz();
+    }
 
-            // should the normal Index checked to be the same for all the face?
-            final int nlIndex = faces.get(i * faceSize + 1);
+    /**
+     * @return The number of point updates per normal update, 0 if the normals are never updated
+     */
+    public int getNormalUpdateInterval() {
+        return normalUpdateInterval;
+    }
 
-            final Point3D p1 = getPoint(ptIndex1);
-            final Point3D p2 = getPoint(ptIndex2);
-            final Point3D p3 = getPoint(ptIndex3);
-            final Point3D newNormal = calculateNormal(p1, p2, p3);
+    /**
+     * Sets how often the normals are updated, as they often change less visibly than the points: every given number
+     * of point updates, and whenever the joints stop moving. The normals are never updated with 0, keeping those of
+     * the binding mesh.
+     *
+     * @param normalUpdateInterval The number of point updates per normal update, 1 by default
+     */
+    public void setNormalUpdateInterval(final int normalUpdateInterval) {
+        if (normalUpdateInterval < 0) {
+            throw new IllegalArgumentException("normalUpdateInterval must not be negative: " + normalUpdateInterval);
+        }
+        this.normalUpdateInterval = normalUpdateInterval;
+    }
 
-            normals[nlIndex * 3] = (float) newNormal.getX();
-            normals[nlIndex * 3 + 1] = (float) newNormal.getY();
-            normals[nlIndex * 3 + 2] = (float) newNormal.getZ();
+    // Updates its points only if any of the joints' transforms have changed, and its normals as often as requested
+    public void update() {
+        final boolean jointsMoved = updateLocalToGlobalTransforms() || jointsTransformDirty;
+        if (jointsMoved) {
+            updatePoints();
+            pointUpdatesSinceNormals++;
+            jointsTransformDirty = false;
         }
 
-        getNormals().setAll(normals);
+        if (pointUpdatesSinceNormals > 0 && normalUpdateInterval > 0
+                && (!jointsMoved || pointUpdatesSinceNormals >= normalUpdateInterval)
+                && getVertexFormat() == VertexFormat.POINT_NORMAL_TEXCOORD) {
+            updateNormals();
+            pointUpdatesSinceNormals = 0;
+        }
     }
 
-    private Point3D getPoint(final int index) {
-        return new Point3D(getPoints().get(3 * index), getPoints().get(3 * index + 1), getPoints().get(3 * index + 2));
+    // Skins the points in chunks of consecutive points, in parallel for the big meshes; each point only reads its own
+    // influences and writes its own coordinates, and the points are then set at once.
+    //TODO: problem with the point calculation.
+    private void updatePoints() {
+        final int skinnedPointCount = Math.min(nPoints, weights.getPointCount());
+        final int chunkCount = Math.max(1, skinnedPointCount / MIN_PARALLEL_POINTS);
+        if (chunkCount > 1) {
+            IntStream.range(0, chunkCount).parallel().forEach(chunk -> skinPoints(
+                    (int) ((long) skinnedPointCount * chunk / chunkCount),
+                    (int) ((long) skinnedPointCount * (chunk + 1) / chunkCount)));
+        } else {
+            skinPoints(0, skinnedPointCount);
+        }
+        this.getPoints().set(0, skinnedPoints, 0, skinnedPoints.length);
     }
 
-    private Point3D calculateNormal(final Point3D p1, final Point3D p2, final Point3D p3) {
-        final Point3D u = p2.subtract(p1);
-        final Point3D v = p3.subtract(p1);
-        return u.crossProduct(v).normalize();
+    private void skinPoints(final int from, final int to) {
+        final float[] points = skinnedPoints;
+        Arrays.fill(points, from * 3, to * 3, 0);
+        final double[] t = jointToRootMatrices;
+        for (int i = from; i < to; i++) {
+            // the influences of a point are sorted by joint, so that it's summed in the same order as joint by joint
+            for (int influence = weights.getFirstInfluence(i); influence < weights.getFirstInfluence(i + 1); influence++) {
+                final int m = weights.getJoint(influence) * 12;
+                final float weight = weights.getWeight(influence);
+                final int r = 3 * influence;
+                points[3 * i] += weight * (t[m] * relativePoints[r] + t[m + 1] * relativePoints[r + 1] + t[m + 2] * relativePoints[r + 2] + t[m + 3]);
+                points[3 * i + 1] += weight * (t[m + 4] * relativePoints[r] + t[m + 5] * relativePoints[r + 1] + t[m + 6] * relativePoints[r + 2] + t[m + 7]);
+                points[3 * i + 2] += weight * (t[m + 8] * relativePoints[r] + t[m + 9] * relativePoints[r + 1] + t[m + 10] * relativePoints[r + 2] + t[m + 11]);
+            }
+        }
     }
 
-    private final class JointIndex {
-        private final Node node;
-        private final int index;
-        private final List<JointIndex> children = new ArrayList<>();
-        private JointIndex parent;
-        private Transform localToGlobalTransform;
-
-        JointIndex(final Node n, final int ind, final List<Joint> orderedJoints) {
-            node = n;
-            index = ind;
-            if (!(node instanceof Parent)) {
-                return;
-            }
-            ((Parent) node).
-                    getChildrenUnmodifiable().
-                    stream().
-                    filter(childJoint -> childJoint instanceof Parent).
-                    forEach(childJoint -> {
-                                final int childInd = orderedJoints.indexOf(childJoint);
-                                final JointIndex childJointIndex = new JointIndex(childJoint, childInd, orderedJoints);
-                                childJointIndex.parent = this;
-                                children.add(childJointIndex);
-                            }
-                    );
+    // Recomputes the normals from the skinned points, the faces referring to each normal being gathered again when
+    // the faces or the normals change
+    private void updateNormals() {
+        if (facesDirty || skinnedNormals.length != getNormals().size()) {
+            skinnedNormals = getNormals().toArray(skinnedNormals.length == getNormals().size() ? skinnedNormals : null);
+            normalEngine = new NormalEngine(getFaces().toArray(null), getVertexFormat(), skinnedNormals.length / 3);
+            facesDirty = false;
         }
+        normalEngine.update(skinnedPoints, skinnedNormals);
+        getNormals().set(0, skinnedNormals, 0, skinnedNormals.length);
     }
 }
@@ -32,12 +32,12 @@
 package playground;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.List;
 
 import com.javafx.experiments.importers.dae.DaeImporter;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Group;
 import javafx.scene.PerspectiveCamera;
 import javafx.scene.Scene;
@@ -77,27 +77,28 @@ public final class SimpleViewerApp extends Application {
         camera.setNearClip(0.1);
         camera.setFarClip(100);
         scene.setCamera(camera);
-
-        final DaeImporter importer = new DaeImporter();
-        try {
-            if (args.isEmpty()) {
-                importer.load("models/animated_ball.dae");
-            } else {
-                importer.load(new File(args.get(0)).toURI().toURL().toExternalForm());
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        root3D.getChildren().addAll(camera, importer.getRoot());
-
-        final Timeline timeline = new Timeline();
-        importer.getTimelines().values().forEach(tl -> timeline.getKeyFrames().addAll(tl.getKeyFrames()));
-        timeline.setCycleCount(Timeline.INDEFINITE);
-        timeline.play();
+        root3D.getChildren().add(camera);
 
         stage.setScene(scene);
         stage.show();
+
+        final String url = args.isEmpty()
+                ? "models/animated_ball.dae"
+                : new File(args.get(0)).toURI().toURL().toExternalForm();
+        new DaeImporter().
+                loadAsync(url, progress -> Platform.runLater(() -> stage.setTitle(String.format("%s %d%%", url, (int) (progress * 100))))).
+                whenComplete((importer, throwable) -> {
+                    if (throwable != null) {
+                        throwable.printStackTrace();
+                        return;
+                    }
+                    root3D.getChildren().add(importer.getRoot());
+
+                    final Timeline timeline = new Timeline();
+                    importer.getTimelines().values().forEach(tl -> timeline.getKeyFrames().addAll(tl.getKeyFrames()));
+                    timeline.setCycleCount(Timeline.INDEFINITE);
+                    timeline.play();
+                });
     }
 
     public static void main(final String[] args) {
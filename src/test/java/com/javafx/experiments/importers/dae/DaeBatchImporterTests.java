@@ -0,0 +1,84 @@
+package com.javafx.experiments.importers.dae;
+
+import javafx.scene.shape.MeshView;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.javafx.experiments.importers.dae.DaeImporterTests.assertSameMeshes;
+import static com.javafx.experiments.importers.dae.DaeImporterTests.collectMeshes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eclion
+ */
+public final class DaeBatchImporterTests {
+
+    @Test
+    public void importFilesConcurrentlyLikeSequentially() throws Exception {
+        final List<String> models = Arrays.asList(
+                "models/animated_cube.dae",
+                "models/animated_ball.dae",
+                "models/nemuneko-animated.dae",
+                "models/animated_ball.dae");
+
+        final List<DaeBatchImporter.Result> results = new DaeBatchImporter().withParallelism(3).importAll(models);
+
+        assertEquals(models.size(), results.size());
+        for (int i = 0; i < models.size(); i++) {
+            final DaeBatchImporter.Result result = results.get(i);
+            assertEquals(models.get(i), result.getUrl());
+            assertTrue(result.isSuccess());
+
+            final DaeImporter importer = new DaeImporter();
+            importer.load(models.get(i));
+            assertSameMeshes(collectMeshes(importer.getRoot(), new ArrayList<>()),
+                    collectMeshes(result.getImporter().get().getRoot(), new ArrayList<>()));
+            assertEquals(importer.getTimelines().keySet(), result.getImporter().get().getTimelines().keySet());
+        }
+    }
+
+    @Test
+    public void shareMaterialsOfIdenticalEffects() {
+        final DaeBatchImporter batchImporter = new DaeBatchImporter();
+        final List<DaeBatchImporter.Result> results = batchImporter.
+                importAll(Arrays.asList("models/animated_cube.dae", "models/animated_cube.dae"));
+
+        final List<MeshView> firstMeshViews = collectMeshViews(results.get(0));
+        final List<MeshView> secondMeshViews = collectMeshViews(results.get(1));
+        assertFalse(firstMeshViews.isEmpty());
+        assertEquals(1, batchImporter.getSharedResources().getMaterialCount());
+        for (int i = 0; i < firstMeshViews.size(); i++) {
+            assertNotNull(firstMeshViews.get(i).getMaterial());
+            assertSame(firstMeshViews.get(i).getMaterial(), secondMeshViews.get(i).getMaterial());
+        }
+    }
+
+    @Test
+    public void reportFailuresWithoutAbortingTheBatch() {
+        final List<DaeBatchImporter.Result> results = new DaeBatchImporter().importAll(Arrays.asList(
+                "models/missing.dae",
+                "models/animated_cube.dae",
+                "models/animated_cube.obj"));
+
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(0).getImporter().isPresent());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertTrue(results.get(2).getFailure().isPresent());
+    }
+
+    private static List<MeshView> collectMeshViews(final DaeBatchImporter.Result result) {
+        final List<MeshView> meshViews = new ArrayList<>();
+        result.getImporter().get().getRoot().lookupAll("*").stream().
+                filter(node -> node instanceof MeshView).
+                forEach(node -> meshViews.add((MeshView) node));
+        return meshViews;
+    }
+}
@@ -0,0 +1,408 @@
+package com.javafx.experiments.importers.dae;
+
+import com.javafx.experiments.importers.dae.io.ResourceResolver;
+import com.javafx.experiments.importers.dae.utils.ImportStatistics;
+import com.javafx.experiments.shape3d.LodGroup;
+import com.javafx.experiments.shape3d.SkinningMesh;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eclion
+ */
+public final class DaeImporterTests {
+
+    private static final String[] MODELS = {
+            "models/animated_cube.dae",
+            "models/animated_ball.dae",
+            "models/nemuneko-animated.dae"
+    };
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    static List<TriangleMesh> collectMeshes(final Node node, final List<TriangleMesh> meshes) {
+        if (node instanceof MeshView) {
+            meshes.add((TriangleMesh) ((MeshView) node).getMesh());
+        }
+        if (node instanceof Parent) {
+            ((Parent) node).getChildrenUnmodifiable().forEach(child -> collectMeshes(child, meshes));
+        }
+        return meshes;
+    }
+
+    static void assertSameMeshes(final List<TriangleMesh> expectedMeshes, final List<TriangleMesh> actualMeshes) {
+        assertEquals(expectedMeshes.size(), actualMeshes.size());
+        for (int i = 0; i < expectedMeshes.size(); i++) {
+            final TriangleMesh expected = expectedMeshes.get(i);
+            final TriangleMesh actual = actualMeshes.get(i);
+            assertArrayEquals(expected.getPoints().toArray(null), actual.getPoints().toArray(null), 0.0f);
+            assertArrayEquals(expected.getNormals().toArray(null), actual.getNormals().toArray(null), 0.0f);
+            assertArrayEquals(expected.getTexCoords().toArray(null), actual.getTexCoords().toArray(null), 0.0f);
+            assertArrayEquals(expected.getFaces().toArray(null), actual.getFaces().toArray(null));
+            assertEquals(expected.getVertexFormat(), actual.getVertexFormat());
+        }
+    }
+
+    @Test
+    public void staxEngineImportsSameScenesAsSaxEngine() throws Exception {
+        for (final String model : MODELS) {
+            final DaeImporter saxImporter = new DaeImporter().withParserEngine(ParserEngine.SAX);
+            saxImporter.load(model);
+            final DaeImporter staxImporter = new DaeImporter().withParserEngine(ParserEngine.STAX);
+            staxImporter.load(model);
+
+            final List<TriangleMesh> saxMeshes = collectMeshes(saxImporter.getRoot(), new ArrayList<>());
+            assertFalse(saxMeshes.isEmpty());
+            assertSameMeshes(saxMeshes, collectMeshes(staxImporter.getRoot(), new ArrayList<>()));
+            assertEquals(saxImporter.getTimelines().keySet(), staxImporter.getTimelines().keySet());
+        }
+    }
+
+    @Test
+    public void loadCompressedDocumentsFromMemory() throws Exception {
+        for (final String model : MODELS) {
+            final DaeImporter fileImporter = new DaeImporter();
+            fileImporter.load(model);
+            final List<TriangleMesh> expectedMeshes = collectMeshes(fileImporter.getRoot(), new ArrayList<>());
+
+            final byte[] content = Files.readAllBytes(Paths.get(model));
+            final ByteArrayOutputStream gzipContent = new ByteArrayOutputStream();
+            try (OutputStream gzipStream = new GZIPOutputStream(gzipContent)) {
+                gzipStream.write(content);
+            }
+            final ByteArrayOutputStream zaeContent = new ByteArrayOutputStream();
+            try (ZipOutputStream zipStream = new ZipOutputStream(zaeContent)) {
+                zipStream.putNextEntry(new ZipEntry("manifest.xml"));
+                zipStream.write("<dae_root>./scene/model.dae</dae_root>".getBytes(StandardCharsets.UTF_8));
+                zipStream.putNextEntry(new ZipEntry("scene/model.dae"));
+                zipStream.write(content);
+            }
+
+            for (final byte[] document : Arrays.asList(content, gzipContent.toByteArray(), zaeContent.toByteArray())) {
+                final DaeImporter importer = new DaeImporter();
+                importer.load(document, ResourceResolver.none());
+                assertSameMeshes(expectedMeshes, collectMeshes(importer.getRoot(), new ArrayList<>()));
+                assertEquals(fileImporter.getTimelines().keySet(), importer.getTimelines().keySet());
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void failOnInvalidStream() throws Exception {
+        new DaeImporter().load("<COLLADA>".getBytes(StandardCharsets.UTF_8), ResourceResolver.none());
+    }
+
+    @Test
+    public void skipAnimationsWhenDisabled() throws Exception {
+        for (final ParserEngine parserEngine : ParserEngine.values()) {
+            final DaeImporter animatedImporter = new DaeImporter().withParserEngine(parserEngine);
+            animatedImporter.load(MODELS[2]);
+            final DaeImporter staticImporter = new DaeImporter().withParserEngine(parserEngine).withAnimations(false);
+            staticImporter.load(MODELS[2]);
+
+            assertFalse(animatedImporter.getTimelines().isEmpty());
+            assertTrue(staticImporter.getTimelines().isEmpty());
+            assertSameMeshes(collectMeshes(animatedImporter.getRoot(), new ArrayList<>()),
+                    collectMeshes(staticImporter.getRoot(), new ArrayList<>()));
+        }
+    }
+
+    @Test
+    public void reportStatisticsOfEveryLoad() throws Exception {
+        final List<ImportStatistics> statistics = new ArrayList<>();
+        final DaeImporter importer = new DaeImporter().withStatisticsListener(statistics::add);
+        importer.load(MODELS[2]);
+        importer.load(Files.readAllBytes(Paths.get(MODELS[2])), ResourceResolver.none());
+
+        assertEquals(2, statistics.size());
+        for (final ImportStatistics importStatistics : statistics) {
+            assertEquals(Files.size(Paths.get(MODELS[2])), importStatistics.getBytesRead());
+            assertTrue(importStatistics.getTotalNanos() > 0);
+            assertTrue(importStatistics.getElementCount() > 0);
+            assertEquals(collectMeshes(importer.getRoot(), new ArrayList<>()).size(), importStatistics.getMeshCount());
+            assertTrue(importStatistics.getVertexCount() > 0);
+            assertTrue(importStatistics.getFaceCount() > 0);
+            assertTrue(importStatistics.getJointCount() > 0);
+            assertTrue(importStatistics.getKeyFrameCount() > 0);
+            for (final String phase : Arrays.asList("library_geometries", "library_animations", "decoding", "materials", "scene", "key frames")) {
+                assertNotNull(phase, importStatistics.getPhase(phase));
+            }
+        }
+    }
+
+    @Test
+    public void sceneCacheReloadsSameScenes() throws Exception {
+        final Path cacheDirectory = temporaryFolder.newFolder("dae-cache").toPath();
+        for (final String model : MODELS) {
+            final DaeImporter parsedImporter = new DaeImporter().withSceneCache(cacheDirectory);
+            parsedImporter.load(model);
+            final DaeImporter cachedImporter = new DaeImporter().withSceneCache(cacheDirectory);
+            cachedImporter.load(model);
+
+            final List<TriangleMesh> parsedMeshes = collectMeshes(parsedImporter.getRoot(), new ArrayList<>());
+            assertFalse(parsedMeshes.isEmpty());
+            assertSameMeshes(parsedMeshes, collectMeshes(cachedImporter.getRoot(), new ArrayList<>()));
+            assertEquals(parsedImporter.getTimelines().keySet(), cachedImporter.getTimelines().keySet());
+            for (final String key : parsedImporter.getTimelines().keySet()) {
+                assertEquals(parsedImporter.getTimelines().get(key).getKeyFrames().size(),
+                        cachedImporter.getTimelines().get(key).getKeyFrames().size());
+            }
+        }
+        assertEquals(MODELS.length, listEntries(cacheDirectory).size());
+    }
+
+    @Test
+    public void sceneCacheKeepsProcessedMeshes() throws Exception {
+        final Path cacheDirectory = temporaryFolder.newFolder("dae-cache").toPath();
+        for (final String model : MODELS) {
+            final List<ImportStatistics> statistics = new ArrayList<>();
+            final DaeImporter parsedImporter = new DaeImporter().withSceneCache(cacheDirectory).
+                    withWelding(true).withVertexCacheOptimization(true).withStatisticsListener(statistics::add);
+            parsedImporter.load(model);
+            final DaeImporter cachedImporter = new DaeImporter().withSceneCache(cacheDirectory).
+                    withWelding(true).withVertexCacheOptimization(true).withStatisticsListener(statistics::add);
+            cachedImporter.load(model);
+
+            assertSameMeshes(collectMeshes(parsedImporter.getRoot(), new ArrayList<>()),
+                    collectMeshes(cachedImporter.getRoot(), new ArrayList<>()));
+            assertNotNull(statistics.get(0).getPhase("welding"));
+            assertNotNull(statistics.get(0).getPhase("vertex cache"));
+            assertNull(statistics.get(1).getPhase("welding"));
+            assertNull(statistics.get(1).getPhase("vertex cache"));
+            assertNotNull(statistics.get(1).getPhase("scene cache"));
+        }
+    }
+
+    @Test
+    public void corruptSceneCacheEntryIsReparsed() throws Exception {
+        final Path cacheDirectory = temporaryFolder.newFolder("dae-cache").toPath();
+        final String model = MODELS[0];
+        final DaeImporter parsedImporter = new DaeImporter().withSceneCache(cacheDirectory);
+        parsedImporter.load(model);
+
+        final Path entry = listEntries(cacheDirectory).get(0);
+        final byte[] bytes = Files.readAllBytes(entry);
+        bytes[bytes.length / 2] ^= 0xFF;
+        Files.write(entry, bytes, StandardOpenOption.TRUNCATE_EXISTING);
+
+        final DaeImporter reparsedImporter = new DaeImporter().withSceneCache(cacheDirectory);
+        reparsedImporter.load(model);
+        assertSameMeshes(collectMeshes(parsedImporter.getRoot(), new ArrayList<>()),
+                collectMeshes(reparsedImporter.getRoot(), new ArrayList<>()));
+        assertTrue(Files.size(listEntries(cacheDirectory).get(0)) > 0);
+    }
+
+    @Test
+    public void truncatedSceneCacheEntryIsReparsed() throws Exception {
+        final Path cacheDirectory = temporaryFolder.newFolder("dae-cache").toPath();
+        final String model = MODELS[2];
+        final DaeImporter parsedImporter = new DaeImporter().withSceneCache(cacheDirectory);
+        parsedImporter.load(model);
+
+        final Path entry = listEntries(cacheDirectory).get(0);
+        final long entrySize = Files.size(entry);
+        for (final int length : new int[]{2, 60, (int) entrySize / 2}) {
+            final byte[] bytes = Files.readAllBytes(entry);
+            Files.write(entry, Arrays.copyOf(bytes, length), StandardOpenOption.TRUNCATE_EXISTING);
+
+            final DaeImporter reparsedImporter = new DaeImporter().withSceneCache(cacheDirectory);
+            reparsedImporter.load(model);
+            assertSameMeshes(collectMeshes(parsedImporter.getRoot(), new ArrayList<>()),
+                    collectMeshes(reparsedImporter.getRoot(), new ArrayList<>()));
+            assertEquals(entrySize, Files.size(listEntries(cacheDirectory).get(0)));
+        }
+    }
+
+    @Test
+    public void referencedEntriesOnlyImportsSameScenes() throws Exception {
+        // a copy of the cube with a material and a geometry that only an earlier, unused scene refers to
+        final String cube = new String(Files.readAllBytes(Paths.get(MODELS[0])), StandardCharsets.UTF_8);
+        final String unusedDocument = cube.
+                replace("<library_materials>", "<library_materials>\n" +
+                        "    <material id=\"Unused-material\"><instance_effect url=\"#Material-effect\"/></material>").
+                replace("<library_geometries>", "<library_geometries>\n" +
+                        cube.substring(cube.indexOf("<geometry "), cube.indexOf("</geometry>") + "</geometry>".length()).
+                                replace("Cube-mesh", "Unused-mesh").replace("Material-material", "Unused-material")).
+                replace("<library_visual_scenes>", "<library_visual_scenes>\n" +
+                        "    <visual_scene id=\"Unused\"><node id=\"Unused\"><instance_geometry url=\"#Unused-mesh\"/></node></visual_scene>");
+        final Path document = temporaryFolder.newFolder("dae-unused").toPath().resolve("unused.dae");
+        Files.write(document, unusedDocument.getBytes(StandardCharsets.UTF_8));
+
+        final List<String> models = new ArrayList<>(Arrays.asList(MODELS));
+        models.add(document.toString());
+        for (final String model : models) {
+            final List<ImportStatistics> statistics = new ArrayList<>();
+            final DaeImporter wholeImporter = new DaeImporter().withStatisticsListener(statistics::add);
+            wholeImporter.load(model);
+            final DaeImporter referencedImporter = new DaeImporter().withStatisticsListener(statistics::add).
+                    withReferencedEntriesOnly(true);
+            referencedImporter.load(model);
+
+            assertSameMeshes(collectMeshes(wholeImporter.getRoot(), new ArrayList<>()),
+                    collectMeshes(referencedImporter.getRoot(), new ArrayList<>()));
+            assertEquals(wholeImporter.getTimelines().keySet(), referencedImporter.getTimelines().keySet());
+            assertNotNull(statistics.get(1).getPhase("index"));
+            if (model.equals(document.toString())) {
+                assertTrue(statistics.get(1).getElementCount() < statistics.get(0).getElementCount());
+                assertTrue(statistics.get(1).getBytesRead() < statistics.get(0).getBytesRead());
+            }
+        }
+    }
+
+    @Test
+    public void parallelSectionsImportSameScenes() throws Exception {
+        // a copy of the cube with enough unused geometries for the geometries library to be split in several chunks
+        final String cube = new String(Files.readAllBytes(Paths.get(MODELS[0])), StandardCharsets.UTF_8);
+        final String geometry = cube.substring(cube.indexOf("<geometry "), cube.indexOf("</geometry>") + "</geometry>".length());
+        final StringBuilder unusedGeometries = new StringBuilder();
+        for (int i = 0; unusedGeometries.length() < 6 << 20; i++) {
+            unusedGeometries.append(geometry.replace("Cube-mesh", "Unused-mesh-" + i)).append('\n');
+        }
+        final Path document = temporaryFolder.newFolder("dae-chunks").toPath().resolve("chunks.dae");
+        Files.write(document, cube.replace("</library_geometries>", unusedGeometries + "</library_geometries>").
+                getBytes(StandardCharsets.UTF_8));
+
+        final List<String> models = new ArrayList<>(Arrays.asList(MODELS));
+        models.add(document.toString());
+        for (final String model : models) {
+            final List<ImportStatistics> statistics = new ArrayList<>();
+            final DaeImporter serialImporter = new DaeImporter().withStatisticsListener(statistics::add);
+            serialImporter.load(model);
+            final DaeImporter parallelImporter = new DaeImporter().withStatisticsListener(statistics::add).
+                    withParallelSections(true);
+            parallelImporter.load(model);
+
+            assertSameMeshes(collectMeshes(serialImporter.getRoot(), new ArrayList<>()),
+                    collectMeshes(parallelImporter.getRoot(), new ArrayList<>()));
+            assertEquals(serialImporter.getTimelines().keySet(), parallelImporter.getTimelines().keySet());
+            assertEquals(statistics.get(0).getElementCount(), statistics.get(1).getElementCount());
+            assertNotNull(statistics.get(1).getPhase("sections"));
+            assertNotNull(statistics.get(1).getPhase("library_geometries"));
+        }
+    }
+
+    @Test
+    public void weldingKeepsSameTriangles() throws Exception {
+        final Path staticGrid = new SyntheticDaeGenerator().withVertexCount(1000).withJointCount(0).withKeyFrameCount(0).
+                write(temporaryFolder.newFolder("dae-welding").toPath(), "grid");
+        final List<String> models = new ArrayList<>(Arrays.asList(MODELS));
+        models.add(staticGrid.toString());
+        long weldedBytes = 0;
+        for (final String model : models) {
+            final DaeImporter importer = new DaeImporter();
+            importer.load(model);
+            final List<ImportStatistics> statistics = new ArrayList<>();
+            final DaeImporter weldingImporter = new DaeImporter().withStatisticsListener(statistics::add).withWelding(true);
+            weldingImporter.load(model);
+
+            final List<TriangleMesh> expectedMeshes = collectMeshes(importer.getRoot(), new ArrayList<>());
+            final List<TriangleMesh> actualMeshes = collectMeshes(weldingImporter.getRoot(), new ArrayList<>());
+            assertEquals(expectedMeshes.size(), actualMeshes.size());
+            for (int i = 0; i < expectedMeshes.size(); i++) {
+                // the normals of a skinned mesh are recomputed from the faces sharing them, which welding smooths
+                assertSameTriangles(expectedMeshes.get(i), actualMeshes.get(i), !(actualMeshes.get(i) instanceof SkinningMesh));
+            }
+            assertNotNull(statistics.get(0).getPhase("welding"));
+            weldedBytes += statistics.get(0).getWeldedBytes();
+        }
+        assertTrue(weldedBytes > 0);
+    }
+
+    @Test
+    public void levelsOfDetailAreSwitchedByDistance() throws Exception {
+        final Path staticGrid = new SyntheticDaeGenerator().withVertexCount(1000).withJointCount(0).withKeyFrameCount(0).
+                write(temporaryFolder.newFolder("dae-lod").toPath(), "grid");
+        for (final String model : Arrays.asList(MODELS[2], staticGrid.toString())) {
+            final List<ImportStatistics> statistics = new ArrayList<>();
+            final DaeImporter importer = new DaeImporter().withStatisticsListener(statistics::add).withLevelsOfDetail(2);
+            importer.load(model);
+
+            final List<LodGroup> lodGroups = collectLodGroups(importer.getRoot(), new ArrayList<>());
+            assertFalse(model, lodGroups.isEmpty());
+            assertNotNull(statistics.get(0).getPhase("levels of detail"));
+            for (final LodGroup lodGroup : lodGroups) {
+                int faceCount = Integer.MAX_VALUE;
+                for (final Node level : lodGroup.getLevels()) {
+                    final TriangleMesh mesh = (TriangleMesh) ((MeshView) level).getMesh();
+                    final int levelFaceCount = mesh.getFaces().size() / mesh.getFaceElementSize();
+                    assertTrue(model + ": " + levelFaceCount + " faces after " + faceCount, levelFaceCount < faceCount);
+                    faceCount = levelFaceCount;
+                }
+                assertEquals(0, lodGroup.getLevel());
+                assertEquals(0, lodGroup.levelAt(0));
+                assertEquals(lodGroup.getLevels().size() - 1, lodGroup.levelAt(Double.MAX_VALUE));
+                lodGroup.selectLevel(1);
+                assertEquals(Arrays.asList(lodGroup.getLevels().get(1)), lodGroup.getChildren());
+            }
+        }
+    }
+
+    private static List<LodGroup> collectLodGroups(final Node node, final List<LodGroup> lodGroups) {
+        if (node instanceof LodGroup) {
+            lodGroups.add((LodGroup) node);
+        } else if (node instanceof Parent) {
+            ((Parent) node).getChildrenUnmodifiable().forEach(child -> collectLodGroups(child, lodGroups));
+        }
+        return lodGroups;
+    }
+
+    // the same values at every corner of the faces, whatever their indices
+    private static void assertSameTriangles(final TriangleMesh expected, final TriangleMesh actual, final boolean normals) {
+        assertEquals(expected.getVertexFormat(), actual.getVertexFormat());
+        assertEquals(expected.getFaces().size(), actual.getFaces().size());
+        final VertexFormat vertexFormat = expected.getVertexFormat();
+        final int[] expectedFaces = expected.getFaces().toArray(null);
+        final int[] actualFaces = actual.getFaces().toArray(null);
+        for (int i = 0; i < expectedFaces.length; i += vertexFormat.getVertexIndexSize()) {
+            final int point = i + vertexFormat.getPointIndexOffset();
+            final int normal = i + vertexFormat.getNormalIndexOffset();
+            final int texCoord = i + vertexFormat.getTexCoordIndexOffset();
+            assertSameElement(expected.getPoints().toArray(null), expectedFaces[point], actual.getPoints().toArray(null), actualFaces[point], 3);
+            if (normals && vertexFormat == VertexFormat.POINT_NORMAL_TEXCOORD) {
+                assertSameElement(expected.getNormals().toArray(null), expectedFaces[normal], actual.getNormals().toArray(null), actualFaces[normal], 3);
+            }
+            assertSameElement(expected.getTexCoords().toArray(null), expectedFaces[texCoord], actual.getTexCoords().toArray(null), actualFaces[texCoord], 2);
+        }
+    }
+
+    private static void assertSameElement(final float[] expected, final int expectedIndex, final float[] actual,
+                                          final int actualIndex, final int elementSize) {
+        assertArrayEquals(Arrays.copyOfRange(expected, expectedIndex * elementSize, (expectedIndex + 1) * elementSize),
+                Arrays.copyOfRange(actual, actualIndex * elementSize, (actualIndex + 1) * elementSize), 0.0f);
+    }
+
+    private static List<Path> listEntries(final Path cacheDirectory) throws IOException {
+        final List<Path> entries = new ArrayList<>();
+        Files.list(cacheDirectory).forEach(entries::add);
+        return entries;
+    }
+}
@@ -0,0 +1,156 @@
+package com.javafx.experiments.importers.dae;
+
+import com.javafx.experiments.importers.dae.utils.ImportStatistics;
+import com.javafx.experiments.shape3d.SkinningMesh;
+import javafx.scene.Group;
+import javafx.scene.shape.TriangleMesh;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Imports generated documents of growing size. The scaling tests take minutes and need a big heap, so they only run
+ * with -Ddae.scaleTests=true, the vertex count of the smallest document being set by -Ddae.scaleTests.vertexCount.
+ *
+ * @author Eclion
+ */
+public final class ScaleTests {
+    private static final Logger LOGGER = Logger.getLogger(ScaleTests.class.getSimpleName());
+    private static final String SCALE_TESTS_PROPERTY = "dae.scaleTests";
+    private static final String VERTEX_COUNT_PROPERTY = "dae.scaleTests.vertexCount";
+    private static final int[] SIZE_FACTORS = {1, 2, 4};
+    // the growth exponent allowed between the smallest and the biggest documents, 1 being a linear growth
+    private static final double MAX_GROWTH_EXPONENT = 1.35;
+    private static final long HEAP_SAMPLING_MILLIS = 1;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void importGeneratedDocument() throws Exception {
+        final SyntheticDaeGenerator generator = new SyntheticDaeGenerator().
+                withVertexCount(400).
+                withJointCount(5).
+                withInfluencesPerVertex(3).
+                withKeyFrameCount(12).
+                withMaterialCount(3);
+        final Path document = generator.write(temporaryFolder.newFolder("dae-synthetic").toPath(), "grid");
+
+        final AtomicReference<ImportStatistics> statistics = new AtomicReference<>();
+        final DaeImporter importer = new DaeImporter().withStatisticsListener(statistics::set);
+        importer.load(document.toString());
+
+        final List<TriangleMesh> meshes = DaeImporterTests.collectMeshes(importer.getRoot(), new ArrayList<>());
+        assertEquals(3, meshes.size());
+        assertTrue(meshes.stream().allMatch(mesh -> mesh instanceof SkinningMesh));
+        assertEquals(3 * generator.getGridVertexCount(), statistics.get().getVertexCount());
+        assertEquals(generator.getTriangleCount(), statistics.get().getFaceCount());
+        assertEquals(5, statistics.get().getJointCount());
+        assertEquals(5 * 12, statistics.get().getKeyFrameCount());
+        assertEquals(5, importer.getTimelines().size());
+    }
+
+    @Test
+    public void importTimeGrowsLinearly() throws Exception {
+        final long[] measures = importGrowingDocuments(false);
+        assertLinearGrowth("import time", measures);
+    }
+
+    @Test
+    public void peakHeapGrowsLinearly() throws Exception {
+        final long[] measures = importGrowingDocuments(true);
+        assertLinearGrowth("peak heap", measures);
+    }
+
+    // Imports the documents from the smallest to the biggest, after a warm-up import of the smallest one, and returns
+    // either the best time of several imports or the peak heap used by an import.
+    private long[] importGrowingDocuments(final boolean heap) throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean(SCALE_TESTS_PROPERTY));
+        final int vertexCount = Integer.getInteger(VERTEX_COUNT_PROPERTY, 250_000);
+        final Path directory = temporaryFolder.newFolder("dae-scale").toPath();
+
+        final long[] measures = new long[SIZE_FACTORS.length];
+        for (int i = 0; i < SIZE_FACTORS.length; i++) {
+            final Path document = new SyntheticDaeGenerator().
+                    withVertexCount(vertexCount * SIZE_FACTORS[i]).
+                    withJointCount(32).
+                    withInfluencesPerVertex(4).
+                    withKeyFrameCount(48).
+                    withMaterialCount(4).
+                    write(directory, "grid" + SIZE_FACTORS[i]);
+            if (i == 0) {
+                importDocument(document);
+            }
+            measures[i] = heap ? measurePeakHeap(document) : measureBestTime(document);
+            Files.delete(document);
+        }
+        return measures;
+    }
+
+    private static Group importDocument(final Path document) throws Exception {
+        final DaeImporter importer = new DaeImporter();
+        importer.importFile(document.toString());
+        return importer.getRoot();
+    }
+
+    private static long measureBestTime(final Path document) throws Exception {
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            final long start = System.nanoTime();
+            importDocument(document);
+            bestTime = Math.min(bestTime, System.nanoTime() - start);
+        }
+        return bestTime;
+    }
+
+    // Samples the total used heap while importing. The peak usages of the heap pools can't be summed instead, each
+    // pool reaching its own peak at a different time, which would only give an upper bound. A peak shorter than the
+    // sampling period may be missed.
+    private static long measurePeakHeap(final Path document) throws Exception {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        final long baseline = memory.getHeapMemoryUsage().getUsed();
+        final AtomicLong peak = new AtomicLong(baseline);
+        final Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(HEAP_SAMPLING_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "heap-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+        try {
+            importDocument(document);
+        } finally {
+            sampler.interrupt();
+            sampler.join();
+        }
+        return peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max) - baseline;
+    }
+
+    private static void assertLinearGrowth(final String measure, final long[] measures) {
+        final int last = SIZE_FACTORS.length - 1;
+        final double exponent = Math.log((double) measures[last] / measures[0]) / Math.log(SIZE_FACTORS[last]);
+        LOGGER.info(String.format("%s: %s, growth exponent %.2f", measure, Arrays.toString(measures), exponent));
+        assertTrue(measure + " grows with an exponent of " + exponent, exponent <= MAX_GROWTH_EXPONENT);
+    }
+}
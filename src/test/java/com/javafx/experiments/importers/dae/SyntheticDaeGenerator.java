@@ -0,0 +1,561 @@
+package com.javafx.experiments.importers.dae;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes a valid COLLADA document of any size: a wavy grid of vertices split into polylists of the given polygon size,
+ * one per material, skinned to a chain of animated joints.
+ * <p>
+ * The document is streamed, so that documents of tens of millions of vertices are written without holding them in
+ * memory.
+ *
+ * @author Eclion
+ */
+public final class SyntheticDaeGenerator {
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final float FRAME_DURATION = 1f / 24;
+    private static final double MAX_JOINT_ANGLE = 30;
+    private static final int TEXTURE_SIZE = 4;
+
+    private int vertexCount = 1000;
+    private int polygonSize = 3;
+    private int jointCount = 2;
+    private int influencesPerVertex = 2;
+    private int keyFrameCount = 24;
+    private int materialCount = 1;
+    private int textureCount;
+
+    /**
+     * Sets the number of vertices, rounded up to fill the rows of the grid.
+     */
+    public SyntheticDaeGenerator withVertexCount(final int vertexCount) {
+        if (vertexCount < 4) {
+            throw new IllegalArgumentException("at least 4 vertices are needed: " + vertexCount);
+        }
+        this.vertexCount = vertexCount;
+        return this;
+    }
+
+    /**
+     * Sets the number of vertices of every polygon: a row of the grid is split into triangles by pairs of cells or into
+     * convex polygons spanning several cells otherwise.
+     */
+    public SyntheticDaeGenerator withPolygonSize(final int polygonSize) {
+        if (polygonSize < 3) {
+            throw new IllegalArgumentException("a polygon has at least 3 vertices: " + polygonSize);
+        }
+        this.polygonSize = polygonSize;
+        return this;
+    }
+
+    /**
+     * Sets the length of the chain of joints skinning the grid, the grid being neither skinned nor animated without
+     * joints.
+     */
+    public SyntheticDaeGenerator withJointCount(final int jointCount) {
+        this.jointCount = jointCount;
+        return this;
+    }
+
+    public SyntheticDaeGenerator withInfluencesPerVertex(final int influencesPerVertex) {
+        this.influencesPerVertex = influencesPerVertex;
+        return this;
+    }
+
+    /**
+     * Sets the number of key frames of the animation of every joint, at 24 frames per second.
+     */
+    public SyntheticDaeGenerator withKeyFrameCount(final int keyFrameCount) {
+        this.keyFrameCount = keyFrameCount;
+        return this;
+    }
+
+    public SyntheticDaeGenerator withMaterialCount(final int materialCount) {
+        this.materialCount = materialCount;
+        return this;
+    }
+
+    /**
+     * Sets the number of textures, used as diffuse maps by the materials in turn. The image files are only written by
+     * {@link #write(Path, String)}.
+     */
+    public SyntheticDaeGenerator withTextureCount(final int textureCount) {
+        this.textureCount = textureCount;
+        return this;
+    }
+
+    int getColumnCount() {
+        return Math.max(2, (int) Math.ceil(Math.sqrt(vertexCount)));
+    }
+
+    int getRowCount() {
+        return Math.max(2, (vertexCount + getColumnCount() - 1) / getColumnCount());
+    }
+
+    /**
+     * @return The number of vertices of the grid, at least the requested one
+     */
+    public int getGridVertexCount() {
+        return getRowCount() * getColumnCount();
+    }
+
+    public int getPolygonCount() {
+        return polygonSize == 3
+                ? (getRowCount() - 1) * (getColumnCount() - 1) * 2
+                : (getRowCount() - 1) * getPolygonsPerRow();
+    }
+
+    public int getTriangleCount() {
+        return getPolygonCount() * (polygonSize - 2);
+    }
+
+    private int getPolygonsPerRow() {
+        return (getColumnCount() - 1) / (getLowerVertexCount() - 1);
+    }
+
+    private int getLowerVertexCount() {
+        return (polygonSize + 1) / 2;
+    }
+
+    /**
+     * Writes the document and its textures in the given directory.
+     *
+     * @return The path of the document
+     */
+    public Path write(final Path directory, final String name) throws IOException {
+        Files.createDirectories(directory);
+        for (int t = 0; t < textureCount; t++) {
+            writeTexture(directory.resolve(textureFile(t)), t);
+        }
+        final Path document = directory.resolve(name + ".dae");
+        try (OutputStream outputStream = Files.newOutputStream(document)) {
+            write(outputStream);
+        }
+        return document;
+    }
+
+    /**
+     * Writes the document alone, its textures being referred to by their file name.
+     */
+    public void write(final OutputStream outputStream) throws IOException {
+        checkConfiguration();
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        writer.write("<COLLADA xmlns=\"http://www.collada.org/2005/11/COLLADASchema\" version=\"1.4.1\">\n");
+        writer.write("  <asset>\n    <unit name=\"meter\" meter=\"1\"/>\n    <up_axis>Z_UP</up_axis>\n  </asset>\n");
+        writeImages(writer);
+        writeEffects(writer);
+        writeMaterials(writer);
+        writeGeometry(writer);
+        if (jointCount > 0) {
+            writeAnimations(writer);
+            writeController(writer);
+        }
+        writeVisualScene(writer);
+        writer.write("  <scene>\n    <instance_visual_scene url=\"#Scene\"/>\n  </scene>\n");
+        writer.write("</COLLADA>\n");
+        writer.flush();
+    }
+
+    private void checkConfiguration() {
+        if (polygonSize > 3 && getLowerVertexCount() > getColumnCount()) {
+            throw new IllegalStateException("polygons of " + polygonSize + " vertices don't fit in a row of " + getColumnCount());
+        }
+        if (jointCount > 0 && (influencesPerVertex < 1 || influencesPerVertex > jointCount)) {
+            throw new IllegalStateException(influencesPerVertex + " influences per vertex for " + jointCount + " joints");
+        }
+        if (materialCount < 1 || materialCount > getPolygonCount()) {
+            throw new IllegalStateException(materialCount + " materials for " + getPolygonCount() + " polygons");
+        }
+    }
+
+    private static String textureFile(final int texture) {
+        return "texture" + texture + ".png";
+    }
+
+    private static void writeTexture(final Path file, final int texture) throws IOException {
+        final BufferedImage image = new BufferedImage(TEXTURE_SIZE, TEXTURE_SIZE, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < TEXTURE_SIZE; x++) {
+            for (int y = 0; y < TEXTURE_SIZE; y++) {
+                image.setRGB(x, y, (x + y) % 2 == 0 ? 0xFFFFFF : texture * 0x102040 & 0xFFFFFF);
+            }
+        }
+        ImageIO.write(image, "png", file.toFile());
+    }
+
+    private void writeImages(final Writer writer) throws IOException {
+        writer.write("  <library_images>\n");
+        for (int t = 0; t < textureCount; t++) {
+            writer.write("    <image id=\"Texture" + t + "\" name=\"Texture" + t + "\">\n");
+            writer.write("      <init_from>" + textureFile(t) + "</init_from>\n");
+            writer.write("    </image>\n");
+        }
+        writer.write("  </library_images>\n");
+    }
+
+    private void writeEffects(final Writer writer) throws IOException {
+        writer.write("  <library_effects>\n");
+        for (int m = 0; m < materialCount; m++) {
+            writer.write("    <effect id=\"Material" + m + "-effect\">\n      <profile_COMMON>\n");
+            final boolean textured = textureCount > 0;
+            final int texture = m % Math.max(1, textureCount);
+            if (textured) {
+                writer.write("        <newparam sid=\"Texture" + texture + "-surface\">\n");
+                writer.write("          <surface type=\"2D\">\n            <init_from>Texture" + texture + "</init_from>\n          </surface>\n");
+                writer.write("        </newparam>\n");
+                writer.write("        <newparam sid=\"Texture" + texture + "-sampler\">\n");
+                writer.write("          <sampler2D>\n            <source>Texture" + texture + "-surface</source>\n          </sampler2D>\n");
+                writer.write("        </newparam>\n");
+            }
+            writer.write("        <technique sid=\"common\">\n          <phong>\n");
+            writer.write("            <emission>\n              <color sid=\"emission\">0 0 0 1</color>\n            </emission>\n");
+            writer.write("            <ambient>\n              <color sid=\"ambient\">0 0 0 1</color>\n            </ambient>\n");
+            if (textured) {
+                writer.write("            <diffuse>\n              <texture texture=\"Texture" + texture + "-sampler\" texcoord=\"UVMap\"/>\n            </diffuse>\n");
+            } else {
+                final float shade = (float) (m + 1) / materialCount;
+                writer.write("            <diffuse>\n              <color sid=\"diffuse\">" + shade + " 0.5 " + (1 - shade) + " 1</color>\n            </diffuse>\n");
+            }
+            writer.write("            <specular>\n              <color sid=\"specular\">0.5 0.5 0.5 1</color>\n            </specular>\n");
+            writer.write("            <shininess>\n              <float sid=\"shininess\">50</float>\n            </shininess>\n");
+            writer.write("          </phong>\n        </technique>\n      </profile_COMMON>\n    </effect>\n");
+        }
+        writer.write("  </library_effects>\n");
+    }
+
+    private void writeMaterials(final Writer writer) throws IOException {
+        writer.write("  <library_materials>\n");
+        for (int m = 0; m < materialCount; m++) {
+            writer.write("    <material id=\"Material" + m + "-material\" name=\"Material" + m + "\">\n");
+            writer.write("      <instance_effect url=\"#Material" + m + "-effect\"/>\n");
+            writer.write("    </material>\n");
+        }
+        writer.write("  </library_materials>\n");
+    }
+
+    private void writeGeometry(final Writer writer) throws IOException {
+        final int rows = getRowCount();
+        final int columns = getColumnCount();
+        final int vertices = rows * columns;
+
+        writer.write("  <library_geometries>\n    <geometry id=\"Grid-mesh\" name=\"Grid\">\n      <mesh>\n");
+
+        writeSourceStart(writer, "Grid-mesh-positions", vertices * 3);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                writeFloats(writer, c, r, height(r, c));
+            }
+        }
+        writeSourceEnd(writer, "Grid-mesh-positions", vertices, "X", "Y", "Z");
+
+        writeSourceStart(writer, "Grid-mesh-normals", vertices * 3);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                // normal of the height field: (-dh/dx, -dh/dy, 1) normalized
+                final float dx = (float) (0.05 * Math.cos(c * 0.5) * Math.cos(r * 0.5));
+                final float dy = (float) (-0.05 * Math.sin(c * 0.5) * Math.sin(r * 0.5));
+                final float length = (float) Math.sqrt(dx * dx + dy * dy + 1);
+                writeFloats(writer, -dx / length, -dy / length, 1 / length);
+            }
+        }
+        writeSourceEnd(writer, "Grid-mesh-normals", vertices, "X", "Y", "Z");
+
+        writeSourceStart(writer, "Grid-mesh-map-0", vertices * 2);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                writeFloats(writer, (float) c / (columns - 1), (float) r / (rows - 1));
+            }
+        }
+        writeSourceEnd(writer, "Grid-mesh-map-0", vertices, "S", "T");
+
+        writer.write("        <vertices id=\"Grid-mesh-vertices\">\n");
+        writer.write("          <input semantic=\"POSITION\" source=\"#Grid-mesh-positions\"/>\n");
+        writer.write("        </vertices>\n");
+
+        final int polygons = getPolygonCount();
+        final int[] polygon = new int[polygonSize];
+        for (int m = 0; m < materialCount; m++) {
+            final int first = (int) ((long) polygons * m / materialCount);
+            final int last = (int) ((long) polygons * (m + 1) / materialCount);
+            writer.write("        <polylist material=\"Material" + m + "-material\" count=\"" + (last - first) + "\">\n");
+            writer.write("          <input semantic=\"VERTEX\" source=\"#Grid-mesh-vertices\" offset=\"0\"/>\n");
+            writer.write("          <input semantic=\"NORMAL\" source=\"#Grid-mesh-normals\" offset=\"1\"/>\n");
+            writer.write("          <input semantic=\"TEXCOORD\" source=\"#Grid-mesh-map-0\" offset=\"2\" set=\"0\"/>\n");
+            writer.write("          <vcount>");
+            final String vCount = polygonSize + " ";
+            for (int i = first; i < last; i++) {
+                writer.write(vCount);
+            }
+            writer.write("</vcount>\n          <p>");
+            for (int i = first; i < last; i++) {
+                fillPolygon(i, polygon);
+                for (final int vertex : polygon) {
+                    final String index = Integer.toString(vertex);
+                    writer.write(index);
+                    writer.write(' ');
+                    writer.write(index);
+                    writer.write(' ');
+                    writer.write(index);
+                    writer.write(' ');
+                }
+            }
+            writer.write("</p>\n        </polylist>\n");
+        }
+        writer.write("      </mesh>\n    </geometry>\n  </library_geometries>\n");
+    }
+
+    private static float height(final int row, final int column) {
+        return (float) (0.1 * Math.sin(column * 0.5) * Math.cos(row * 0.5));
+    }
+
+    // The vertices of the given polygon, counter-clockwise: the triangles split the cells of the grid in two, the
+    // bigger polygons go along the lower edge of a row of cells and come back along its upper edge.
+    private void fillPolygon(final int index, final int[] polygon) {
+        final int columns = getColumnCount();
+        if (polygonSize == 3) {
+            final int cell = index / 2;
+            final int row = cell / (columns - 1);
+            final int column = cell % (columns - 1);
+            final int lowerLeft = row * columns + column;
+            final int upperLeft = lowerLeft + columns;
+            polygon[0] = lowerLeft;
+            if (index % 2 == 0) {
+                polygon[1] = lowerLeft + 1;
+                polygon[2] = upperLeft + 1;
+            } else {
+                polygon[1] = upperLeft + 1;
+                polygon[2] = upperLeft;
+            }
+            return;
+        }
+        final int lowerCount = getLowerVertexCount();
+        final int upperCount = polygonSize - lowerCount;
+        final int row = index / getPolygonsPerRow();
+        final int column = index % getPolygonsPerRow() * (lowerCount - 1);
+        final int lowerLeft = row * columns + column;
+        for (int i = 0; i < lowerCount; i++) {
+            polygon[i] = lowerLeft + i;
+        }
+        for (int i = 0; i < upperCount; i++) {
+            polygon[lowerCount + i] = lowerLeft + columns + upperCount - 1 - i;
+        }
+    }
+
+    // the joints are evenly spread along the x axis of the grid, each one being translated from its parent
+    private float jointSpacing() {
+        return jointCount > 1 ? (float) (getColumnCount() - 1) / (jointCount - 1) : 0;
+    }
+
+    private void writeAnimations(final Writer writer) throws IOException {
+        if (keyFrameCount <= 0) {
+            return;
+        }
+        writer.write("  <library_animations>\n");
+        for (int j = 0; j < jointCount; j++) {
+            final String id = "Armature_Joint" + j + "_pose_matrix";
+            writer.write("    <animation id=\"" + id + "\">\n");
+
+            writeSourceStart(writer, id + "-input", keyFrameCount, 6);
+            for (int k = 0; k < keyFrameCount; k++) {
+                writeFloats(writer, k * FRAME_DURATION);
+            }
+            writeSourceEnd(writer, id + "-input", keyFrameCount, 6, "TIME");
+
+            writeSourceStart(writer, id + "-output", keyFrameCount * 16, 6);
+            for (int k = 0; k < keyFrameCount; k++) {
+                final double angle = MAX_JOINT_ANGLE * Math.sin(2 * Math.PI * k / keyFrameCount + j);
+                writeMatrix(writer, j == 0 ? 0 : jointSpacing(), Math.toRadians(angle));
+            }
+            writer.write("</float_array>\n");
+            writer.write("        <technique_common>\n");
+            writer.write("          <accessor source=\"#" + id + "-output-array\" count=\"" + keyFrameCount + "\" stride=\"16\">\n");
+            writer.write("            <param name=\"TRANSFORM\" type=\"float4x4\"/>\n");
+            writer.write("          </accessor>\n        </technique_common>\n      </source>\n");
+
+            writer.write("      <source id=\"" + id + "-interpolation\">\n");
+            writer.write("        <Name_array id=\"" + id + "-interpolation-array\" count=\"" + keyFrameCount + "\">");
+            for (int k = 0; k < keyFrameCount; k++) {
+                writer.write("LINEAR ");
+            }
+            writer.write("</Name_array>\n        <technique_common>\n");
+            writer.write("          <accessor source=\"#" + id + "-interpolation-array\" count=\"" + keyFrameCount + "\" stride=\"1\">\n");
+            writer.write("            <param name=\"INTERPOLATION\" type=\"name\"/>\n");
+            writer.write("          </accessor>\n        </technique_common>\n      </source>\n");
+
+            writer.write("      <sampler id=\"" + id + "-sampler\">\n");
+            writer.write("        <input semantic=\"INPUT\" source=\"#" + id + "-input\"/>\n");
+            writer.write("        <input semantic=\"OUTPUT\" source=\"#" + id + "-output\"/>\n");
+            writer.write("        <input semantic=\"INTERPOLATION\" source=\"#" + id + "-interpolation\"/>\n");
+            writer.write("      </sampler>\n");
+            writer.write("      <channel source=\"#" + id + "-sampler\" target=\"Joint" + j + "/transform\"/>\n");
+            writer.write("    </animation>\n");
+        }
+        writer.write("  </library_animations>\n");
+    }
+
+    private void writeController(final Writer writer) throws IOException {
+        final int vertices = getGridVertexCount();
+        final int columns = getColumnCount();
+        final float spacing = jointSpacing();
+
+        writer.write("  <library_controllers>\n");
+        writer.write("    <controller id=\"Armature_Grid-skin\" name=\"Armature\">\n");
+        writer.write("      <skin source=\"#Grid-mesh\">\n");
+        writer.write("        <bind_shape_matrix>1 0 0 0 0 1 0 0 0 0 1 0 0 0 0 1</bind_shape_matrix>\n");
+
+        writer.write("        <source id=\"Armature_Grid-skin-joints\">\n");
+        writer.write("          <Name_array id=\"Armature_Grid-skin-joints-array\" count=\"" + jointCount + "\">");
+        for (int j = 0; j < jointCount; j++) {
+            writer.write((j == 0 ? "" : " ") + "Joint" + j);
+        }
+        writer.write("</Name_array>\n          <technique_common>\n");
+        writer.write("            <accessor source=\"#Armature_Grid-skin-joints-array\" count=\"" + jointCount + "\" stride=\"1\">\n");
+        writer.write("              <param name=\"JOINT\" type=\"name\"/>\n");
+        writer.write("            </accessor>\n          </technique_common>\n        </source>\n");
+
+        writeSourceStart(writer, "Armature_Grid-skin-bind_poses", jointCount * 16, 8);
+        for (int j = 0; j < jointCount; j++) {
+            // the inverse of the global transform of the joint, a translation along the x axis
+            writeMatrix(writer, -j * spacing, 0);
+        }
+        writer.write("</float_array>\n          <technique_common>\n");
+        writer.write("            <accessor source=\"#Armature_Grid-skin-bind_poses-array\" count=\"" + jointCount + "\" stride=\"16\">\n");
+        writer.write("              <param name=\"TRANSFORM\" type=\"float4x4\"/>\n");
+        writer.write("            </accessor>\n          </technique_common>\n        </source>\n");
+
+        final int influences = vertices * influencesPerVertex;
+        final float[] weights = new float[influencesPerVertex];
+        writeSourceStart(writer, "Armature_Grid-skin-weights", influences, 8);
+        for (int v = 0; v < vertices; v++) {
+            final int column = v % columns;
+            final int firstJoint = firstInfluence(column);
+            float sum = 0;
+            for (int i = 0; i < influencesPerVertex; i++) {
+                final float distance = Math.abs(column - (firstJoint + i) * spacing);
+                weights[i] = 1 / (1 + distance);
+                sum += weights[i];
+            }
+            for (int i = 0; i < influencesPerVertex; i++) {
+                writeFloats(writer, weights[i] / sum);
+            }
+        }
+        writeSourceEnd(writer, "Armature_Grid-skin-weights", influences, 8, "WEIGHT");
+
+        writer.write("        <joints>\n");
+        writer.write("          <input semantic=\"JOINT\" source=\"#Armature_Grid-skin-joints\"/>\n");
+        writer.write("          <input semantic=\"INV_BIND_MATRIX\" source=\"#Armature_Grid-skin-bind_poses\"/>\n");
+        writer.write("        </joints>\n");
+        writer.write("        <vertex_weights count=\"" + vertices + "\">\n");
+        writer.write("          <input semantic=\"JOINT\" source=\"#Armature_Grid-skin-joints\" offset=\"0\"/>\n");
+        writer.write("          <input semantic=\"WEIGHT\" source=\"#Armature_Grid-skin-weights\" offset=\"1\"/>\n");
+        writer.write("          <vcount>");
+        final String vCount = influencesPerVertex + " ";
+        for (int v = 0; v < vertices; v++) {
+            writer.write(vCount);
+        }
+        writer.write("</vcount>\n          <v>");
+        for (int v = 0; v < vertices; v++) {
+            final int firstJoint = firstInfluence(v % columns);
+            for (int i = 0; i < influencesPerVertex; i++) {
+                writer.write(Integer.toString(firstJoint + i));
+                writer.write(' ');
+                writer.write(Integer.toString(v * influencesPerVertex + i));
+                writer.write(' ');
+            }
+        }
+        writer.write("</v>\n        </vertex_weights>\n      </skin>\n    </controller>\n  </library_controllers>\n");
+    }
+
+    // the first of the joints influencing the vertices of the given column, the closest ones to the column
+    private int firstInfluence(final int column) {
+        final int closestJoint = jointCount > 1 ? Math.round(column / jointSpacing()) : 0;
+        return Math.max(0, Math.min(jointCount - influencesPerVertex, closestJoint - (influencesPerVertex - 1) / 2));
+    }
+
+    private void writeVisualScene(final Writer writer) throws IOException {
+        writer.write("  <library_visual_scenes>\n    <visual_scene id=\"Scene\" name=\"Scene\">\n");
+        if (jointCount > 0) {
+            writer.write("      <node id=\"Armature\" name=\"Armature\" type=\"NODE\">\n");
+            for (int j = 0; j < jointCount; j++) {
+                writer.write("        <node id=\"Joint" + j + "\" name=\"Joint" + j + "\" sid=\"Joint" + j + "\" type=\"JOINT\">\n");
+                writer.write("          <matrix sid=\"transform\">");
+                writeMatrix(writer, j == 0 ? 0 : jointSpacing(), 0);
+                writer.write("</matrix>\n");
+            }
+            for (int j = 0; j < jointCount; j++) {
+                writer.write("        </node>\n");
+            }
+            writer.write("      </node>\n");
+        }
+        writer.write("      <node id=\"Grid\" name=\"Grid\" type=\"NODE\">\n");
+        if (jointCount > 0) {
+            writer.write("        <instance_controller url=\"#Armature_Grid-skin\">\n");
+            writer.write("          <skeleton>#Joint0</skeleton>\n");
+        } else {
+            writer.write("        <instance_geometry url=\"#Grid-mesh\" name=\"Grid\">\n");
+        }
+        writer.write("          <bind_material>\n            <technique_common>\n");
+        for (int m = 0; m < materialCount; m++) {
+            writer.write("              <instance_material symbol=\"Material" + m + "-material\" target=\"#Material" + m + "-material\"/>\n");
+        }
+        writer.write("            </technique_common>\n          </bind_material>\n");
+        writer.write(jointCount > 0 ? "        </instance_controller>\n" : "        </instance_geometry>\n");
+        writer.write("      </node>\n");
+        writer.write("    </visual_scene>\n  </library_visual_scenes>\n");
+    }
+
+    private static void writeSourceStart(final Writer writer, final String id, final int count) throws IOException {
+        writeSourceStart(writer, id, count, 8);
+    }
+
+    private static void writeSourceStart(final Writer writer, final String id, final int count, final int indent) throws IOException {
+        final String spaces = spaces(indent);
+        writer.write(spaces + "<source id=\"" + id + "\">\n");
+        writer.write(spaces + "  <float_array id=\"" + id + "-array\" count=\"" + count + "\">");
+    }
+
+    private static void writeSourceEnd(final Writer writer, final String id, final int count, final String... params) throws IOException {
+        writeSourceEnd(writer, id, count, 8, params);
+    }
+
+    private static void writeSourceEnd(final Writer writer, final String id, final int count, final int indent,
+                                       final String... params) throws IOException {
+        final String spaces = spaces(indent);
+        writer.write("</float_array>\n");
+        writer.write(spaces + "  <technique_common>\n");
+        writer.write(spaces + "    <accessor source=\"#" + id + "-array\" count=\"" + count + "\" stride=\"" + params.length + "\">\n");
+        for (final String param : params) {
+            writer.write(spaces + "      <param name=\"" + param + "\" type=\"float\"/>\n");
+        }
+        writer.write(spaces + "    </accessor>\n");
+        writer.write(spaces + "  </technique_common>\n");
+        writer.write(spaces + "</source>\n");
+    }
+
+    private static String spaces(final int count) {
+        return new String(new char[count]).replace('\0', ' ');
+    }
+
+    private static void writeFloats(final Writer writer, final float... values) throws IOException {
+        for (final float value : values) {
+            writer.write(Float.toString(value));
+            writer.write(' ');
+        }
+    }
+
+    // a row-major rotation around the z axis followed by a translation along the x axis
+    private static void writeMatrix(final Writer writer, final float translation, final double angle) throws IOException {
+        final float cos = (float) Math.cos(angle);
+        final float sin = (float) Math.sin(angle);
+        writeFloats(writer, cos, -sin, 0, translation, sin, cos, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1);
+    }
+}
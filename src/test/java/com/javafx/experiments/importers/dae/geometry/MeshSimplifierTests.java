@@ -0,0 +1,123 @@
+package com.javafx.experiments.importers.dae.geometry;
+
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eclion
+ */
+public final class MeshSimplifierTests {
+    private static final int SIZE = 20;
+
+    // a flat grid of SIZE x SIZE cells facing +z, the texture coordinates of its right half being another chart
+    private static TriangleMesh grid(final boolean seam) {
+        final TriangleMesh mesh = new TriangleMesh(VertexFormat.POINT_TEXCOORD);
+        for (int row = 0; row <= SIZE; row++) {
+            for (int column = 0; column <= SIZE; column++) {
+                mesh.getPoints().addAll(column, row, 0);
+                mesh.getTexCoords().addAll((float) column / SIZE, (float) row / SIZE);
+            }
+        }
+        final int chartOffset = (SIZE + 1) * (SIZE + 1);
+        for (int i = 0; i < chartOffset; i++) {
+            mesh.getTexCoords().addAll(mesh.getTexCoords().get(i * 2) + 1, mesh.getTexCoords().get(i * 2 + 1));
+        }
+        for (int row = 0; row < SIZE; row++) {
+            for (int column = 0; column < SIZE; column++) {
+                final int corner = row * (SIZE + 1) + column;
+                final int texCoordOffset = seam && column >= SIZE / 2 ? chartOffset : 0;
+                final int[] points = {corner, corner + 1, corner + SIZE + 2, corner, corner + SIZE + 2, corner + SIZE + 1};
+                for (final int point : points) {
+                    mesh.getFaces().addAll(point, point + texCoordOffset);
+                }
+            }
+        }
+        return mesh;
+    }
+
+    private static int faceCount(final TriangleMesh mesh) {
+        return mesh.getFaces().size() / mesh.getFaceElementSize();
+    }
+
+    private static Set<Integer> referencedPoints(final TriangleMesh mesh) {
+        final Set<Integer> points = new HashSet<>();
+        for (int i = 0; i < mesh.getFaces().size(); i += 2) {
+            points.add(mesh.getFaces().get(i));
+        }
+        return points;
+    }
+
+    private static void assertFacingUp(final TriangleMesh mesh) {
+        final float[] points = mesh.getPoints().toArray(null);
+        final int[] faces = mesh.getFaces().toArray(null);
+        for (int i = 0; i < faces.length; i += 6) {
+            final int a = faces[i] * 3;
+            final int b = faces[i + 2] * 3;
+            final int c = faces[i + 4] * 3;
+            final float z = (points[b] - points[a]) * (points[c + 1] - points[a + 1])
+                    - (points[b + 1] - points[a + 1]) * (points[c] - points[a]);
+            assertTrue("Face " + i / 6 + " is flipped or degenerate", z > 0);
+        }
+    }
+
+    @Test
+    public void collapseInnerPoints() {
+        final TriangleMesh mesh = grid(false);
+
+        final TriangleMesh simplified = MeshSimplifier.simplify(mesh, faceCount(mesh) / 4);
+
+        assertTrue(faceCount(simplified) + " faces", faceCount(simplified) <= faceCount(mesh) / 4);
+        assertFacingUp(simplified);
+        assertArrayEquals(mesh.getPoints().toArray(null), simplified.getPoints().toArray(null), 0.0f);
+        final Set<Integer> points = referencedPoints(simplified);
+        for (int i = 0; i <= SIZE; i++) {
+            // the border stays in place
+            assertTrue(points.contains(i));
+            assertTrue(points.contains(i * (SIZE + 1)));
+            assertTrue(points.contains(i * (SIZE + 1) + SIZE));
+            assertTrue(points.contains(SIZE * (SIZE + 1) + i));
+        }
+    }
+
+    @Test
+    public void keepTextureSeams() {
+        final TriangleMesh mesh = grid(true);
+
+        final TriangleMesh simplified = MeshSimplifier.simplify(mesh, 0);
+
+        assertTrue(faceCount(simplified) + " faces", faceCount(simplified) < faceCount(mesh) / 4);
+        assertFacingUp(simplified);
+        final Set<Integer> points = referencedPoints(simplified);
+        for (int row = 0; row <= SIZE; row++) {
+            assertTrue(points.contains(row * (SIZE + 1) + SIZE / 2));
+        }
+        // the corners keep the chart of their side of the seam
+        final int[] faces = simplified.getFaces().toArray(null);
+        final int chartOffset = (SIZE + 1) * (SIZE + 1);
+        for (int i = 0; i < faces.length; i += 6) {
+            final boolean rightChart = faces[i + 1] >= chartOffset;
+            for (int corner = i; corner < i + 6; corner += 2) {
+                assertEquals(rightChart, faces[corner + 1] >= chartOffset);
+                assertEquals(faces[corner] + (rightChart ? chartOffset : 0), faces[corner + 1]);
+            }
+        }
+    }
+
+    @Test
+    public void leaveBrokenMeshesUntouched() {
+        final TriangleMesh mesh = grid(false);
+        mesh.getFaces().set(0, -1);
+
+        final TriangleMesh simplified = MeshSimplifier.simplify(mesh, 0);
+
+        assertArrayEquals(mesh.getFaces().toArray(null), simplified.getFaces().toArray(null));
+    }
+}
@@ -0,0 +1,58 @@
+package com.javafx.experiments.importers.dae.geometry;
+
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Eclion
+ */
+public final class MeshWelderTests {
+
+    // a quad exported with a normal and a texture coordinate per corner, and an unused point
+    private static TriangleMesh createQuad() {
+        final TriangleMesh mesh = new TriangleMesh(VertexFormat.POINT_NORMAL_TEXCOORD);
+        mesh.getPoints().setAll(0, 0, 0, 9, 9, 9, 1, 0, 0, 1, 1, 0, 0, 1, 0, 0, 0, 0);
+        mesh.getNormals().setAll(0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, -0f, 0, 0, 1, 0, 0, 1);
+        mesh.getTexCoords().setAll(0, 0, 1, 0, 1, 1, 0, 0, 1, 1, 0, 1);
+        mesh.getFaces().setAll(0, 0, 0, 2, 1, 1, 3, 2, 2, 5, 3, 3, 3, 4, 4, 4, 5, 5);
+        return mesh;
+    }
+
+    @Test
+    public void weldDuplicatedAndUnusedElements() {
+        final TriangleMesh mesh = createQuad();
+
+        final long savedBytes = MeshWelder.weld(mesh, false);
+
+        assertArrayEquals(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0}, mesh.getPoints().toArray(null), 0.0f);
+        assertArrayEquals(new float[]{0, 0, 1, 0, 0, 0}, mesh.getNormals().toArray(null), 0.0f);
+        assertArrayEquals(new float[]{0, 0, 1, 0, 1, 1, 0, 1}, mesh.getTexCoords().toArray(null), 0.0f);
+        assertArrayEquals(new int[]{0, 0, 0, 1, 0, 1, 2, 0, 2, 0, 1, 0, 2, 0, 2, 3, 0, 3}, mesh.getFaces().toArray(null));
+        assertEquals((18 - 12 + 18 - 6 + 12 - 8) * Float.BYTES, savedBytes);
+    }
+
+    @Test
+    public void keepPointsOfSkinnedMeshes() {
+        final TriangleMesh mesh = createQuad();
+
+        MeshWelder.weld(mesh, true);
+
+        assertArrayEquals(createQuad().getPoints().toArray(null), mesh.getPoints().toArray(null), 0.0f);
+        assertArrayEquals(new float[]{0, 0, 1, 0, 0, 0}, mesh.getNormals().toArray(null), 0.0f);
+        assertArrayEquals(new int[]{0, 0, 0, 2, 0, 1, 3, 0, 2, 5, 1, 0, 3, 0, 2, 4, 0, 3}, mesh.getFaces().toArray(null));
+    }
+
+    @Test
+    public void leaveWeldedMeshesUntouched() {
+        final TriangleMesh mesh = createQuad();
+        MeshWelder.weld(mesh, false);
+        final int[] faces = mesh.getFaces().toArray(null);
+
+        assertEquals(0, MeshWelder.weld(mesh, false));
+        assertArrayEquals(faces, mesh.getFaces().toArray(null));
+    }
+}
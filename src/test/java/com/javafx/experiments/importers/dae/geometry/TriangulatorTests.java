@@ -0,0 +1,70 @@
+package com.javafx.experiments.importers.dae.geometry;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eclion
+ */
+public final class TriangulatorTests {
+
+    // a comb with three teeth, in the x = 1 plane and clockwise seen from +x
+    private static final float[] COMB = {
+            1, 0, 0, 1, 0, 3, 1, 1, 3, 1, 1, 1, 1, 2, 1, 1, 2, 3, 1, 3, 3, 1, 3, 1, 1, 4, 1, 1, 4, 3, 1, 5, 3, 1, 5, 0
+    };
+
+    // twice the signed area of the triangle in the y, z plane
+    private static float doubleArea(final float[] positions, final int a, final int b, final int c) {
+        return (positions[b * 3 + 1] - positions[a * 3 + 1]) * (positions[c * 3 + 2] - positions[a * 3 + 2])
+                - (positions[b * 3 + 2] - positions[a * 3 + 2]) * (positions[c * 3 + 1] - positions[a * 3 + 1]);
+    }
+
+    @Test
+    public void splitConvexPolygonsAsFans() {
+        final float[] square = {0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0};
+
+        final int[] corners = Triangulator.triangulatePolygons(new int[]{3, 4}, vertex -> vertex < 3 ? vertex : vertex - 3, square);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 3, 5, 6}, corners);
+    }
+
+    @Test
+    public void clipEarsOfConcavePolygons() {
+        final int[] corners = Triangulator.triangulatePolygons(new int[]{12}, vertex -> vertex, COMB);
+
+        assertEquals(10 * 3, corners.length);
+        float area = 0;
+        for (int i = 0; i < corners.length; i += 3) {
+            final float triangleArea = doubleArea(COMB, corners[i], corners[i + 1], corners[i + 2]);
+            assertTrue("Triangle " + i / 3 + " is flipped or outside the comb", triangleArea <= 0);
+            area += triangleArea;
+        }
+        assertEquals(-2 * 11, area, 1e-5f);
+    }
+
+    @Test
+    public void splitManyPolygonsInParallel() {
+        final int[] vertexCounts = new int[100_000];
+        Arrays.fill(vertexCounts, 12);
+        final int[] corners = Triangulator.triangulatePolygons(vertexCounts, vertex -> vertex % 12, COMB);
+        final int[] firstCorners = Triangulator.triangulatePolygons(new int[]{12}, vertex -> vertex, COMB);
+
+        assertEquals(Triangulator.countTriangles(vertexCounts) * 3, corners.length);
+        for (int polygon = 0; polygon < vertexCounts.length; polygon += 997) {
+            for (int i = 0; i < firstCorners.length; i++) {
+                assertEquals(firstCorners[i] + polygon * 12, corners[polygon * firstCorners.length + i]);
+            }
+        }
+    }
+
+    @Test
+    public void splitStripsAndFans() {
+        assertArrayEquals(new int[]{0, 1, 2, 2, 1, 3, 2, 3, 4}, Triangulator.triangulateStrips(new int[]{5, 2}));
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3, 4, 5, 6}, Triangulator.triangulateFans(new int[]{4, 3}));
+    }
+}
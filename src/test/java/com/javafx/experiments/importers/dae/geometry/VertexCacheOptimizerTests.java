@@ -0,0 +1,152 @@
+package com.javafx.experiments.importers.dae.geometry;
+
+import com.javafx.experiments.importers.dae.DaeImporter;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eclion
+ */
+public final class VertexCacheOptimizerTests {
+    private static final String[] MODELS = {
+            "models/animated_cube.dae",
+            "models/animated_ball.dae",
+            "models/nemuneko-animated.dae"
+    };
+
+    private static void collectMeshes(final Node node, final List<TriangleMesh> meshes) {
+        if (node instanceof MeshView) {
+            meshes.add((TriangleMesh) ((MeshView) node).getMesh());
+        }
+        if (node instanceof Parent) {
+            ((Parent) node).getChildrenUnmodifiable().forEach(child -> collectMeshes(child, meshes));
+        }
+    }
+
+    private static TriangleMesh copy(final TriangleMesh mesh) {
+        final TriangleMesh copy = new TriangleMesh(mesh.getVertexFormat());
+        copy.getPoints().setAll(mesh.getPoints());
+        copy.getNormals().setAll(mesh.getNormals());
+        copy.getTexCoords().setAll(mesh.getTexCoords());
+        copy.getFaces().setAll(mesh.getFaces());
+        return copy;
+    }
+
+    // every face as the values of its corners, sorted so that meshes drawing the same faces in another order are equal
+    private static List<String> describeFaces(final TriangleMesh mesh) {
+        final VertexFormat vertexFormat = mesh.getVertexFormat();
+        final int vertexIndexSize = vertexFormat.getVertexIndexSize();
+        final int[] faces = mesh.getFaces().toArray(null);
+        final List<String> descriptions = new ArrayList<>();
+        for (int face = 0; face < faces.length; face += vertexIndexSize * 3) {
+            final StringBuilder description = new StringBuilder();
+            for (int corner = face; corner < face + vertexIndexSize * 3; corner += vertexIndexSize) {
+                final int point = faces[corner + vertexFormat.getPointIndexOffset()] * 3;
+                final int texCoord = faces[corner + vertexFormat.getTexCoordIndexOffset()] * 2;
+                description.append(mesh.getPoints().get(point)).append(',').append(mesh.getPoints().get(point + 1)).
+                        append(',').append(mesh.getPoints().get(point + 2)).append('/').
+                        append(mesh.getTexCoords().get(texCoord)).append(',').append(mesh.getTexCoords().get(texCoord + 1));
+                if (vertexFormat == VertexFormat.POINT_NORMAL_TEXCOORD) {
+                    final int normal = faces[corner + vertexFormat.getNormalIndexOffset()] * 3;
+                    description.append('/').append(mesh.getNormals().get(normal)).append(',').
+                            append(mesh.getNormals().get(normal + 1)).append(',').append(mesh.getNormals().get(normal + 2));
+                }
+                description.append(' ');
+            }
+            descriptions.add(description.toString());
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    // the triangles of a grid of size x size cells, in a random order
+    private static int[] shuffledGrid(final int size) {
+        final List<int[]> triangles = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                final int corner = row * (size + 1) + column;
+                triangles.add(new int[]{corner, corner + 1, corner + size + 1});
+                triangles.add(new int[]{corner + 1, corner + size + 2, corner + size + 1});
+            }
+        }
+        Collections.shuffle(triangles, new Random(42));
+        return triangles.stream().flatMapToInt(Arrays::stream).toArray();
+    }
+
+    @Test
+    public void measureAverageCacheMissRatio() {
+        assertEquals(3.0, VertexCacheOptimizer.averageCacheMissRatio(new int[]{0, 1, 2, 3, 4, 5}, 4), 0.0);
+        assertEquals(2.0, VertexCacheOptimizer.averageCacheMissRatio(new int[]{0, 1, 2, 2, 1, 3}, 4), 0.0);
+        // the cache is a FIFO: 0 is pushed out by 4 even though it's used by the second triangle
+        assertEquals(3.0, VertexCacheOptimizer.averageCacheMissRatio(new int[]{0, 1, 2, 3, 4, 0}, 4), 0.0);
+    }
+
+    @Test
+    public void orderShuffledGrid() {
+        final int size = 40;
+        final int[] vertices = shuffledGrid(size);
+
+        final int[] order = VertexCacheOptimizer.orderTriangles(vertices, (size + 1) * (size + 1), VertexCacheOptimizer.CACHE_SIZE);
+        final int[] orderedVertices = new int[vertices.length];
+        for (int i = 0; i < order.length; i++) {
+            System.arraycopy(vertices, order[i] * 3, orderedVertices, i * 3, 3);
+        }
+
+        final int[] sortedOrder = order.clone();
+        Arrays.sort(sortedOrder);
+        assertArrayEquals(IntStream.range(0, order.length).toArray(), sortedOrder);
+        final double shuffledRatio = VertexCacheOptimizer.averageCacheMissRatio(vertices, VertexCacheOptimizer.CACHE_SIZE);
+        final double orderedRatio = VertexCacheOptimizer.averageCacheMissRatio(orderedVertices, VertexCacheOptimizer.CACHE_SIZE);
+        assertTrue("ACMR " + shuffledRatio + " -> " + orderedRatio, shuffledRatio > 1.5 && orderedRatio < 0.8);
+    }
+
+    @Test
+    public void optimizeModelMeshes() throws Exception {
+        for (final String model : MODELS) {
+            final DaeImporter importer = new DaeImporter();
+            importer.load(model);
+            final List<TriangleMesh> meshes = new ArrayList<>();
+            collectMeshes(importer.getRoot(), meshes);
+
+            for (final TriangleMesh mesh : meshes) {
+                final TriangleMesh optimized = copy(mesh);
+                VertexCacheOptimizer.optimize(optimized, false);
+
+                assertEquals(describeFaces(mesh), describeFaces(optimized));
+                assertEquals(mesh.getPoints().size(), optimized.getPoints().size());
+                final double ratio = VertexCacheOptimizer.averageCacheMissRatio(mesh, VertexCacheOptimizer.CACHE_SIZE);
+                final double optimizedRatio = VertexCacheOptimizer.averageCacheMissRatio(optimized, VertexCacheOptimizer.CACHE_SIZE);
+                assertTrue(model + ": ACMR " + ratio + " -> " + optimizedRatio, optimizedRatio <= ratio);
+            }
+        }
+    }
+
+    @Test
+    public void keepPointsOfSkinnedMeshes() throws Exception {
+        final DaeImporter importer = new DaeImporter();
+        importer.load(MODELS[2]);
+        final List<TriangleMesh> meshes = new ArrayList<>();
+        collectMeshes(importer.getRoot(), meshes);
+        final TriangleMesh optimized = copy(meshes.get(0));
+
+        VertexCacheOptimizer.optimize(optimized, true);
+
+        assertArrayEquals(meshes.get(0).getPoints().toArray(null), optimized.getPoints().toArray(null), 0.0f);
+        assertEquals(describeFaces(meshes.get(0)), describeFaces(optimized));
+    }
+}
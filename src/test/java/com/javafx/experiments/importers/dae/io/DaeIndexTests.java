@@ -0,0 +1,140 @@
+package com.javafx.experiments.importers.dae.io;
+
+import org.junit.Test;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eclion
+ */
+public final class DaeIndexTests {
+    private static final String DOCUMENT = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<!-- an <unused> library -->\n" +
+            "<COLLADA version=\"1.4.1\">\n" +
+            "  <asset><unit meter='1'/></asset>\n" +
+            "  <library_images>\n" +
+            "    <image id=\"wood\"><init_from>wood.png</init_from></image>\n" +
+            "    <image id=\"stone\"><init_from>stone.png</init_from></image>\n" +
+            "  </library_images>\n" +
+            "  <library_effects>\n" +
+            "    <effect id=\"wood-effect\"><newparam sid=\"surface\"><surface><init_from>wood</init_from></surface></newparam></effect>\n" +
+            "    <effect id=\"stone-effect\"><diffuse><texture texture=\"stone\"/></diffuse></effect>\n" +
+            "  </library_effects>\n" +
+            "  <library_materials>\n" +
+            "    <material id=\"wood-material\"><instance_effect url=\"#wood-effect\"/></material>\n" +
+            "    <material id=\"stone-material\"><instance_effect url=\"#stone-effect\"/></material>\n" +
+            "  </library_materials>\n" +
+            "  <library_geometries>\n" +
+            "    <geometry id=\"box\"><mesh><![CDATA[ </geometry> ]]></mesh></geometry>\n" +
+            "    <geometry id=\"sphere\"><mesh/></geometry>\n" +
+            "  </library_geometries>\n" +
+            "  <library_animations>\n" +
+            "    <animation id=\"box-move\"><channel source=\"#box-sampler\" target=\"Box/transform\"/></animation>\n" +
+            "    <animation id=\"sphere-move\"><channel source=\"#sphere-sampler\" target=\"Sphere/transform\"/></animation>\n" +
+            "  </library_animations>\n" +
+            "  <library_visual_scenes>\n" +
+            "    <visual_scene id=\"unused\"><node id=\"Sphere\"><instance_geometry url=\"#sphere\"/></node></visual_scene>\n" +
+            "    <visual_scene id=\"main\">\n" +
+            "      <node id=\"Box\"><instance_geometry url=\"#box\">\n" +
+            "        <bind_material><instance_material symbol=\"m\" target=\"#wood-material\"/></bind_material>\n" +
+            "      </instance_geometry></node>\n" +
+            "    </visual_scene>\n" +
+            "  </library_visual_scenes>\n" +
+            "  <scene><instance_visual_scene url=\"#main\"/></scene>\n" +
+            "</COLLADA>\n";
+
+    private static DaeIndex index(final String document) throws IOException {
+        return DaeIndex.scan(ByteBuffer.wrap(document.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String readAll(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[7];
+        for (int count = inputStream.read(buffer); count != -1; count = inputStream.read(buffer)) {
+            content.write(buffer, 0, count);
+        }
+        return new String(content.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void indexSectionsAndEntries() throws IOException {
+        final DaeIndex index = index(DOCUMENT);
+
+        assertEquals(Arrays.asList("asset", "library_images", "library_effects", "library_materials",
+                "library_geometries", "library_animations", "library_visual_scenes", "scene"),
+                index.getSections().stream().map(DaeIndex.Section::getName).collect(Collectors.toList()));
+        final List<DaeIndex.Entry> geometries = index.getSections().get(4).getEntries();
+        assertEquals(Arrays.asList("box", "sphere"), geometries.stream().map(DaeIndex.Entry::getId).collect(Collectors.toList()));
+        assertEquals("<geometry id=\"box\"><mesh><![CDATA[ </geometry> ]]></mesh></geometry>",
+                DOCUMENT.substring(geometries.get(0).getStart(), geometries.get(0).getEnd()));
+        assertEquals("<geometry id=\"sphere\"><mesh/></geometry>",
+                DOCUMENT.substring(geometries.get(1).getStart(), geometries.get(1).getEnd()));
+    }
+
+    @Test
+    public void indexModels() throws IOException {
+        for (final String model : Arrays.asList("models/animated_cube.dae", "models/animated_ball.dae", "models/nemuneko-animated.dae")) {
+            final DaeIndex index = DaeIndex.map(Paths.get(model));
+            assertTrue(index.getSections().stream().anyMatch(section -> "library_geometries".equals(section.getName())));
+            for (final DaeIndex.Section section : index.getSections()) {
+                for (final DaeIndex.Entry entry : section.getEntries()) {
+                    final String content = readAll(index.open(new HashSet<>(section.getEntries())));
+                    assertTrue(entry.toString(), entry.getEnd() > entry.getStart());
+                    assertTrue(content.contains("<" + entry.getName()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void closureHoldsEntriesReferencedByLastScene() throws IOException {
+        final DaeIndex index = index(DOCUMENT);
+
+        final Set<String> ids = index.getSceneClosure().stream().
+                map(DaeIndex.Entry::getId).
+                collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList(null, "main", "box", "wood-material", "wood-effect", "wood", "box-move")), ids);
+        assertEquals(new HashSet<>(Arrays.asList("stone")), index.getReferences(index.getEntry("stone-effect").get()));
+    }
+
+    @Test
+    public void openReducedDocument() throws Exception {
+        final DaeIndex index = index(DOCUMENT);
+        final Set<DaeIndex.Entry> closure = index.getSceneClosure();
+
+        final String reduced = readAll(index.open(closure));
+        assertEquals(index.getLength(closure), reduced.getBytes(StandardCharsets.UTF_8).length);
+        assertTrue(reduced.contains("<unit meter='1'/>"));
+        assertTrue(reduced.contains("<instance_visual_scene url=\"#main\"/>"));
+        assertTrue(reduced.contains("<library_geometries>"));
+        assertFalse(reduced.contains("sphere"));
+        assertFalse(reduced.contains("stone"));
+        SAXParserFactory.newInstance().newSAXParser().parse(index.open(closure), new DefaultHandler());
+    }
+
+    @Test(expected = IOException.class)
+    public void failOnUtf16Document() throws IOException {
+        DaeIndex.scan(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_16)));
+    }
+
+    @Test(expected = IOException.class)
+    public void failOnTruncatedDocument() throws IOException {
+        index(DOCUMENT.substring(0, DOCUMENT.length() / 2));
+    }
+}
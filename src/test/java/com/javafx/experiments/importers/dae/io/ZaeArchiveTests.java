@@ -0,0 +1,85 @@
+package com.javafx.experiments.importers.dae.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * @author Eclion
+ */
+public final class ZaeArchiveTests {
+
+    static byte[] zip(final String... namesAndContents) throws IOException {
+        final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zipStream = new ZipOutputStream(archive)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zipStream.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zipStream.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zipStream.closeEntry();
+            }
+        }
+        return archive.toByteArray();
+    }
+
+    private static String readAll(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (int b = inputStream.read(); b != -1; b = inputStream.read()) {
+            content.write(b);
+        }
+        return new String(content.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void readDocumentNamedByManifest() throws IOException {
+        final byte[] archive = zip(
+                "manifest.xml", "<dae_root>./scenes/main.dae</dae_root>",
+                "other.dae", "other",
+                "scenes/main.dae", "main",
+                "textures/wood.png", "wood");
+
+        final String[] resolved = new String[2];
+        final String document = ZaeArchive.read(new ByteArrayInputStream(archive), (documentStream, resolver) -> {
+            resolved[0] = resolver.resolve("../textures/wood.png");
+            resolved[1] = resolver.resolve("./../textures/wood.png");
+            return readAll(documentStream);
+        });
+
+        assertEquals("main", document);
+        assertEquals(resolved[0], resolved[1]);
+    }
+
+    @Test
+    public void resolveEntriesFollowingTheDocument() throws IOException {
+        final byte[] archive = zip(
+                "model.dae", "model",
+                "textures/wood.png", "wood");
+
+        final ResourceResolver[] resourceResolver = new ResourceResolver[1];
+        ZaeArchive.read(new ByteArrayInputStream(archive), (documentStream, resolver) -> resourceResolver[0] = resolver);
+
+        assertEquals("wood", readAll(resourceResolver[0].open("textures/wood.png")));
+    }
+
+    @Test
+    public void keepArchivesApart() throws IOException {
+        final byte[] archive = zip("model.dae", "model");
+        final String first = ZaeArchive.read(new ByteArrayInputStream(archive), (documentStream, resolver) -> resolver.resolve("a.png"));
+        final String second = ZaeArchive.read(new ByteArrayInputStream(archive), (documentStream, resolver) -> resolver.resolve("a.png"));
+
+        assertNotEquals(first, second);
+    }
+
+    @Test(expected = IOException.class)
+    public void failWithoutDocument() throws IOException {
+        ZaeArchive.read(new ByteArrayInputStream(zip("textures/wood.png", "wood")), (documentStream, resolver) -> null);
+    }
+}
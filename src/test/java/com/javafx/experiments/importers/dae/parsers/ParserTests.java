@@ -1,9 +1,13 @@
 package com.javafx.experiments.importers.dae.parsers;
 
+import com.javafx.experiments.importers.dae.SyntheticDaeGenerator;
+import com.javafx.experiments.importers.dae.io.ResourceResolver;
 import com.javafx.experiments.importers.dae.structures.DaeAnimation;
 import com.javafx.experiments.importers.dae.structures.DaeController;
 import com.javafx.experiments.importers.dae.structures.DaeScene;
+import com.javafx.experiments.shape3d.BatchedMeshView;
 import javafx.scene.PerspectiveCamera;
+import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.TriangleMesh;
@@ -16,16 +20,23 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 
 import static org.junit.Assert.fail;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -50,7 +61,7 @@ public final class ParserTests {
         final LibraryHandler parser = effectsParser.getLibraryHandler();
         executeParsing("effects_1.xml", parser);
 
-        effectsParser.buildEffects(new HashMap<>());
+        effectsParser.buildEffects(imageId -> null, new SharedResources());
 
         final PhongMaterial actualMaterial = (PhongMaterial) effectsParser.getEffectMaterial("shine-fx");
 
@@ -115,7 +126,13 @@ public final class ParserTests {
         assertEquals("Cube-mesh", actualController.getSkinId());
         //assertEquals(new Affine(1.0, 0.0, 0.0, 0.0, 0.0, 1.0, 0.0, 0.0, 0.0, 0.0, 1.0, 1.0), actualController.bindShapeMatrix);
         assertArrayEquals(new String[]{"Bone", "Bone_001"}, actualController.getJointNames());
-        assertEquals(2, actualController.getVertexWeights().length);
+        assertEquals(2, actualController.getVertexWeights().getJointCount());
+        assertEquals(8, actualController.getVertexWeights().getPointCount());
+        assertEquals(16, actualController.getVertexWeights().getInfluenceCount());
+        assertEquals(0.1416047f, actualController.getVertexWeights().getWeight(1, 1), 0.0f);
+        assertEquals(0.847219f, actualController.getVertexWeights().getWeight(1, 4), 0.0f);
+        assertEquals(2, actualController.bindPoses.size());
+        assertEquals(-0.996825098991394, actualController.bindPoses.get(1).getTy(), 1e-6);
         /*assertArrayEquals(new Affine[]{
                 new Affine(1.0, 0.0, 0.0, 0.0, 0.0, 0.0, 1.0, 0.0, 0.0, -1.0, 0.0, 0.0),
                 new Affine(1.0, 0.0, 0.0, 0.0, 0.0, 0.0, 1.0, -0.996825098991394, 0.0, -1.0, 0.0, 0.0)
@@ -138,6 +155,34 @@ public final class ParserTests {
         assertEquals("Material-material", geometriesParser.getMaterialIds("Cube-mesh").get(0));
     }
 
+    @Test
+    public void parseGeometriesThroughAccessors() throws Exception {
+        final LibraryGeometriesParser geometriesParser = new LibraryGeometriesParser();
+        executeParsing("geometries_2.xml", geometriesParser.getLibraryHandler());
+
+        final TriangleMesh actualMesh = geometriesParser.getMeshes("Quad-mesh").get(0);
+        assertArrayEquals(new float[]{-1, -1, 0, 1, -1, 0, 1, 1, 0, -1, 1, 0}, actualMesh.getPoints().toArray(null), 0.0f);
+        assertArrayEquals(new float[]{0, 0, 1, 0, 1, 1, 0, 1}, actualMesh.getTexCoords().toArray(null), 0.0f);
+        assertEquals(VertexFormat.POINT_TEXCOORD, actualMesh.getVertexFormat());
+    }
+
+    @Test
+    public void parseGeometriesOfAllPrimitives() throws Exception {
+        final LibraryGeometriesParser geometriesParser = new LibraryGeometriesParser();
+        executeParsing("geometries_3.xml", geometriesParser.getLibraryHandler());
+
+        final List<TriangleMesh> actualMeshes = geometriesParser.getMeshes("Shapes-mesh");
+        assertEquals(4, actualMeshes.size());
+        assertArrayEquals(new int[]{0, 0, 1, 0, 2, 0, 0, 0, 2, 0, 3, 0, 5, 0, 0, 0, 3, 0, 5, 0, 3, 0, 4, 0},
+                actualMeshes.get(0).getFaces().toArray(null));
+        assertArrayEquals(new int[]{0, 0, 1, 1, 2, 2, 0, 0, 2, 2, 3, 3}, actualMeshes.get(1).getFaces().toArray(null));
+        assertArrayEquals(new float[]{0, 0, 1, 0, 1, 0.5f, 0.5f, 0.5f, 0.5f, 1, 0, 1},
+                actualMeshes.get(1).getTexCoords().toArray(null), 0.0f);
+        assertArrayEquals(new int[]{0, 0, 1, 0, 3, 0, 3, 0, 1, 0, 2, 0}, actualMeshes.get(2).getFaces().toArray(null));
+        assertArrayEquals(new int[]{0, 0, 1, 0, 2, 0, 0, 0, 2, 0, 3, 0, 3, 0, 4, 0, 5, 0},
+                actualMeshes.get(3).getFaces().toArray(null));
+    }
+
     @Ignore
     @Test
     public void parseLights() throws Exception {
@@ -157,6 +202,16 @@ public final class ParserTests {
         assertEquals("Material-effect", materialsParser.getEffectId("Material-material"));
     }
 
+    @Test
+    public void parseMaterialsReferencingOtherDocuments() throws Exception {
+        final LibraryMaterialsParser materialsParser = new LibraryMaterialsParser();
+        final LibraryHandler parser = materialsParser.getLibraryHandler();
+        executeParsing("materials_2.xml", parser);
+
+        assertEquals("Material-effect", materialsParser.getEffectId("Material-material"));
+        assertEquals("Shared-effect", materialsParser.getEffectId("Shared-material"));
+    }
+
     @Test
     public void parseVisualScenes() throws Exception {
         final LibraryVisualSceneParser visualSceneParser = new LibraryVisualSceneParser();
@@ -168,4 +223,105 @@ public final class ParserTests {
         assertEquals("Scene", actualScene.getId());
         assertEquals(1, actualScene.skeletons.size());
     }
+
+    @Test
+    public void dispatchLibrariesOnlyFromRootChildren() throws Exception {
+        final DaeSaxHandler daeHandler = new DaeSaxHandler(".");
+        executeParsing("nested_asset_1.xml", daeHandler.getLibraryHandler());
+
+        final AssetParser assetParser = (AssetParser) daeHandler.getParser(DaeSaxHandler.ASSET_TAG);
+        assertEquals("Y_UP", assetParser.getUpAxis());
+        assertEquals("Blender User", assetParser.getAuthor());
+
+        final LibraryVisualSceneParser visualSceneParser =
+                (LibraryVisualSceneParser) daeHandler.getParser(DaeSaxHandler.LIBRARY_VISUAL_SCENES_TAG);
+        assertEquals(1, visualSceneParser.scenes.get(0).getChildren().size());
+    }
+
+    @Test
+    public void pullOnlyTheElementsTheParsersNeed() throws Exception {
+        final String document = "<COLLADA><library_geometries><geometry id=\"g\"><mesh>"
+                + "<source id=\"s\"><float_array id=\"a\" count=\"9\">0 0 0 1 0 0 0 1 0</float_array>"
+                + "<technique_common><accessor source=\"#a\" count=\"3\" stride=\"3\">"
+                + "<param name=\"X\" type=\"float\"/><param name=\"Y\" type=\"float\"/><param name=\"Z\" type=\"float\"/>"
+                + "</accessor></technique_common><technique profile=\"OTHER\"><param name=\"W\"/></technique></source>"
+                + "<vertices id=\"v\"><input semantic=\"POSITION\" source=\"#s\"/></vertices>"
+                + "<triangles count=\"1\"><input semantic=\"VERTEX\" source=\"#v\" offset=\"0\"/><p>0 1 2</p></triangles>"
+                + "<extra><technique profile=\"OTHER\"><input semantic=\"NORMAL\" source=\"#s\" offset=\"0\"/></technique></extra>"
+                + "</mesh></geometry></library_geometries></COLLADA>";
+        final DaeSaxHandler pushHandler = new DaeSaxHandler(".");
+        SAXParserFactory.newInstance().newSAXParser().parse(
+                new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), pushHandler.getLibraryHandler());
+        final DaeSaxHandler pullHandler = new DaeSaxHandler(".");
+        DaeStaxReader.read(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), pullHandler);
+        pullHandler.completeParsersDecoding();
+
+        final TriangleMesh mesh = ((LibraryGeometriesParser) pullHandler.getParser(DaeSaxHandler.LIBRARY_GEOMETRIES_TAG)).
+                getMeshes("g").get(0);
+        assertArrayEquals(new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, mesh.getPoints().toArray(null), 0.0f);
+        assertArrayEquals(new int[]{0, 0, 1, 0, 2, 0}, mesh.getFaces().toArray(null));
+        // the technique of the other profile and the extra, with their children, are skipped
+        assertEquals(pushHandler.getLibraryHandler().getElementCount() - 5, pullHandler.getLibraryHandler().getElementCount());
+    }
+
+    @Test
+    public void loadTheReferredImagesBeforeBuildingTheScene() throws Exception {
+        // the single material only refers to the first of the two textures
+        final ByteArrayOutputStream document = new ByteArrayOutputStream();
+        new SyntheticDaeGenerator().withVertexCount(100).withJointCount(0).withKeyFrameCount(0).
+                withMaterialCount(1).withTextureCount(2).write(document);
+        final List<String> loadedPaths = new ArrayList<>();
+        final ResourceResolver resourceResolver = mock(ResourceResolver.class);
+        when(resourceResolver.resolve(any())).then(invocation -> invocation.getArgument(0));
+        when(resourceResolver.loadImage(any())).then(invocation -> {
+            loadedPaths.add(invocation.getArgument(0));
+            return mock(Image.class);
+        });
+        final SharedResources sharedResources = new SharedResources();
+        final DaeSaxHandler daeHandler = new DaeSaxHandler(resourceResolver, sharedResources);
+        SAXParserFactory.newInstance().newSAXParser().parse(
+                new ByteArrayInputStream(document.toByteArray()), daeHandler.getLibraryHandler());
+        daeHandler.completeParsersDecoding();
+
+        assertEquals(Collections.singletonList("texture0.png"), loadedPaths);
+        final LibraryImagesParser imagesParser = (LibraryImagesParser) daeHandler.getParser(DaeSaxHandler.LIBRARY_IMAGES_TAG);
+        assertNotNull(imagesParser.getImage("Texture0"));
+        assertNull(imagesParser.getImage("Texture1"));
+        assertEquals(1, sharedResources.getImageCount());
+        assertNotNull(daeHandler.getStatistics().getPhase("images"));
+
+        daeHandler.buildScene();
+        assertEquals(1, loadedPaths.size());
+    }
+
+    @Test
+    public void mergeStaticMeshesBeforeBuildingTheScene() throws Exception {
+        final String document = "<COLLADA><library_geometries><geometry id=\"g\"><mesh>"
+                + "<source id=\"s\"><float_array id=\"a\" count=\"9\">0 0 0 1 0 0 0 1 0</float_array>"
+                + "<technique_common><accessor source=\"#a\" count=\"3\" stride=\"3\">"
+                + "<param name=\"X\" type=\"float\"/><param name=\"Y\" type=\"float\"/><param name=\"Z\" type=\"float\"/>"
+                + "</accessor></technique_common></source>"
+                + "<vertices id=\"v\"><input semantic=\"POSITION\" source=\"#s\"/></vertices>"
+                + "<triangles count=\"1\"><input semantic=\"VERTEX\" source=\"#v\" offset=\"0\"/><p>0 1 2</p></triangles>"
+                + "</mesh></geometry></library_geometries><library_visual_scenes><visual_scene id=\"scene\">"
+                + "<node id=\"moved\" type=\"NODE\"><translate>10 0 0</translate><instance_geometry url=\"#g\"/></node>"
+                + "<node id=\"origin\" type=\"NODE\"><instance_geometry url=\"#g\"/></node>"
+                + "</visual_scene></library_visual_scenes></COLLADA>";
+        final DaeSaxHandler daeHandler = new DaeSaxHandler(".").withStaticBatching(true);
+        SAXParserFactory.newInstance().newSAXParser().parse(
+                new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), daeHandler.getLibraryHandler());
+        // the meshes are merged with the decoding, e.g. off the FX thread
+        daeHandler.completeParsersDecoding();
+        assertNotNull(daeHandler.getStatistics().getPhase("static batching"));
+
+        final List<BatchedMeshView> batchedMeshViews = daeHandler.buildScene().getChildren().stream().
+                filter(child -> child instanceof BatchedMeshView).
+                map(child -> (BatchedMeshView) child).
+                collect(Collectors.toList());
+        assertEquals(1, batchedMeshViews.size());
+        assertEquals(2, batchedMeshViews.get(0).getBatchSize());
+        assertEquals("moved", batchedMeshViews.get(0).getNodeId(0));
+        assertArrayEquals(new float[]{10, 0, 0, 11, 0, 0, 10, 1, 0, 0, 0, 0, 1, 0, 0, 0, 1, 0},
+                ((TriangleMesh) batchedMeshViews.get(0).getMesh()).getPoints().toArray(null), 1e-6f);
+    }
 }
@@ -0,0 +1,194 @@
+package com.javafx.experiments.importers.dae.structures;
+
+import com.javafx.experiments.importers.dae.geometry.MeshWelder;
+import com.javafx.experiments.shape3d.SkinningMesh;
+import javafx.scene.Parent;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+import javafx.scene.transform.Affine;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eclion
+ */
+public final class SkinningMeshTests {
+    private static final int SIZE = 30;
+
+    // a strip of size x 1 cells along x, the second joint, child of the first one, weighing more and more along x
+    private static SkinningMesh createSkinningMesh(final Joint root, final Joint child, final int size) {
+        final TriangleMesh mesh = new TriangleMesh(VertexFormat.POINT_NORMAL_TEXCOORD);
+        final float[][] weights = new float[2][(size + 1) * 2];
+        for (int column = 0; column <= size; column++) {
+            mesh.getPoints().addAll(column, 0, 0, column, 1, 0);
+            mesh.getTexCoords().addAll(0, 0);
+            for (int row = 0; row < 2; row++) {
+                weights[1][column * 2 + row] = (float) column / size;
+                weights[0][column * 2 + row] = 1 - weights[1][column * 2 + row];
+            }
+        }
+        for (int column = 0; column < size; column++) {
+            final int point = column * 2;
+            mesh.getNormals().addAll(0, 0, 1, 0, 0, 1);
+            mesh.getFaces().addAll(point, column * 2, 0, point + 2, column * 2, 0, point + 1, column * 2, 0,
+                    point + 1, column * 2 + 1, 0, point + 2, column * 2 + 1, 0, point + 3, column * 2 + 1, 0);
+        }
+        root.getChildren().add(child);
+        return new SkinningMesh(mesh, weights, new Affine[]{new Affine(), new Affine()}, new Affine(),
+                Arrays.asList(root, child), Collections.<Parent>singletonList(root));
+    }
+
+    @Test
+    public void skinPointsAndNormals() {
+        final Joint root = new Joint();
+        final Joint child = new Joint();
+        final SkinningMesh skinningMesh = createSkinningMesh(root, child, SIZE);
+
+        child.a.setTz(2);
+        skinningMesh.update();
+
+        final float[] points = skinningMesh.getPoints().toArray(null);
+        for (int column = 0; column <= SIZE; column++) {
+            assertArrayEquals(new float[]{column, 0, 2f * column / SIZE}, Arrays.copyOfRange(points, column * 6, column * 6 + 3), 1e-5f);
+        }
+        // the strip is tilted around y, its normals too
+        final float length = (float) Math.sqrt(SIZE * SIZE + 4);
+        assertArrayEquals(new float[]{-2 / length, 0, SIZE / length}, skinningMesh.getNormals().toArray(0, null, 3), 1e-5f);
+    }
+
+    @Test
+    public void followJointsMovingAgain() {
+        final Joint root = new Joint();
+        final Joint child = new Joint();
+        final SkinningMesh skinningMesh = createSkinningMesh(root, child, SIZE);
+
+        for (int tz = 1; tz <= 3; tz++) {
+            child.a.setTz(tz);
+            skinningMesh.update();
+            assertArrayEquals(new float[]{SIZE, 0, tz}, skinningMesh.getPoints().toArray(SIZE * 6, null, 3), 1e-5f);
+        }
+        root.setTranslateY(4);
+        skinningMesh.update();
+        assertArrayEquals(new float[]{SIZE, 4, 3}, skinningMesh.getPoints().toArray(SIZE * 6, null, 3), 1e-5f);
+    }
+
+    @Test
+    public void smoothWeldedNormals() {
+        // a roof whose ridge is along y, exported with a normal per face corner, the ones of the ridge being vertical
+        final float side = (float) Math.sqrt(0.5);
+        final TriangleMesh mesh = new TriangleMesh(VertexFormat.POINT_NORMAL_TEXCOORD);
+        mesh.getPoints().setAll(0, 0, 1, 0, 1, 1, -1, 0, 0, -1, 1, 0, 1, 0, 0, 1, 1, 0);
+        mesh.getTexCoords().setAll(0, 0);
+        final int[] points = {2, 0, 1, 2, 1, 3, 0, 4, 5, 0, 5, 1};
+        for (int corner = 0; corner < points.length; corner++) {
+            if (points[corner] < 2) {
+                mesh.getNormals().addAll(0, 0, 1);
+            } else {
+                mesh.getNormals().addAll(points[corner] < 4 ? -side : side, 0, side);
+            }
+            mesh.getFaces().addAll(points[corner], corner, 0);
+        }
+        MeshWelder.weld(mesh, true);
+        assertEquals(3, mesh.getNormals().size() / 3);
+
+        final Joint root = new Joint();
+        final float[][] weights = new float[1][6];
+        Arrays.fill(weights[0], 1);
+        final SkinningMesh skinningMesh = new SkinningMesh(mesh, weights, new Affine[]{new Affine()}, new Affine(),
+                Collections.singletonList(root), Collections.<Parent>singletonList(root));
+        root.setTranslateX(1);
+        skinningMesh.update();
+
+        // the four faces share the normal of the ridge, which stays vertical
+        final int ridgeNormal = skinningMesh.getFaces().get(4);
+        assertArrayEquals(new float[]{0, 0, 1}, skinningMesh.getNormals().toArray(ridgeNormal * 3, null, 3), 1e-5f);
+        for (int corner = 0; corner < points.length; corner++) {
+            if (points[corner] < 2) {
+                assertEquals(ridgeNormal, skinningMesh.getFaces().get(corner * 3 + 1));
+            }
+        }
+    }
+
+    @Test
+    public void skinBigMeshesInParallel() {
+        // split into two chunks, with no weight below the minimum one
+        final int size = 9_000;
+        final Joint root = new Joint();
+        final Joint child = new Joint();
+        final SkinningMesh skinningMesh = createSkinningMesh(root, child, size);
+
+        child.a.setTz(2);
+        skinningMesh.update();
+
+        final float[] points = skinningMesh.getPoints().toArray(null);
+        for (int column = 0; column <= size; column++) {
+            assertArrayEquals(new float[]{column, 1, 2f * column / size}, Arrays.copyOfRange(points, column * 6 + 3, column * 6 + 6), 1e-2f);
+        }
+        final float length = (float) Math.sqrt((double) size * size + 4);
+        final float[] normals = skinningMesh.getNormals().toArray(null);
+        for (int normal = 0; normal < size * 2; normal++) {
+            assertArrayEquals(new float[]{-2 / length, 0, size / length}, Arrays.copyOfRange(normals, normal * 3, normal * 3 + 3), 1e-5f);
+        }
+    }
+
+    @Test
+    public void updateNormalsLessOftenThanPoints() {
+        final Joint root = new Joint();
+        final Joint child = new Joint();
+        final SkinningMesh skinningMesh = createSkinningMesh(root, child, SIZE);
+        skinningMesh.setNormalUpdateInterval(2);
+        final float length = (float) Math.sqrt(SIZE * SIZE + 4);
+
+        child.a.setTz(2);
+        skinningMesh.update();
+        assertArrayEquals(new float[]{0, 0, 1}, skinningMesh.getNormals().toArray(0, null, 3), 1e-5f);
+        child.a.setTz(-2);
+        skinningMesh.update();
+        assertArrayEquals(new float[]{2 / length, 0, SIZE / length}, skinningMesh.getNormals().toArray(0, null, 3), 1e-5f);
+
+        // the normals catch up with the points once the joints stop moving
+        child.a.setTz(2);
+        skinningMesh.update();
+        assertArrayEquals(new float[]{2 / length, 0, SIZE / length}, skinningMesh.getNormals().toArray(0, null, 3), 1e-5f);
+        skinningMesh.update();
+        assertArrayEquals(new float[]{-2 / length, 0, SIZE / length}, skinningMesh.getNormals().toArray(0, null, 3), 1e-5f);
+
+        skinningMesh.setNormalUpdateInterval(0);
+        child.a.setTz(-2);
+        skinningMesh.update();
+        skinningMesh.update();
+        assertArrayEquals(new float[]{-2 / length, 0, SIZE / length}, skinningMesh.getNormals().toArray(0, null, 3), 1e-5f);
+    }
+
+    @Test
+    public void updateWithoutAllocating() {
+        final Joint root = new Joint();
+        final Joint child = new Joint();
+        final SkinningMesh skinningMesh = createSkinningMesh(root, child, SIZE);
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < 20_000; i++) {
+            child.a.setTx(i % 7);
+            skinningMesh.update();
+        }
+        // moving the joint allocates in the scene graph, only the updates are measured
+        long allocatedBytes = 0;
+        final int updateCount = 10_000;
+        for (int i = 0; i < updateCount; i++) {
+            child.a.setTx(i % 7);
+            final long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+            skinningMesh.update();
+            allocatedBytes += threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        }
+
+        assertTrue(allocatedBytes / updateCount + " bytes allocated per update", allocatedBytes / updateCount < 8);
+    }
+}
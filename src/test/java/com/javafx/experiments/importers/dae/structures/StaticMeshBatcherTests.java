@@ -0,0 +1,109 @@
+package com.javafx.experiments.importers.dae.structures;
+
+import com.javafx.experiments.shape3d.BatchedMeshView;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.paint.Material;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Translate;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Eclion
+ */
+public final class StaticMeshBatcherTests {
+
+    // one triangle in the z = 0 plane, facing +z
+    private static TriangleMesh triangle() {
+        final TriangleMesh mesh = new TriangleMesh(VertexFormat.POINT_NORMAL_TEXCOORD);
+        mesh.getPoints().addAll(0, 0, 0, 1, 0, 0, 0, 1, 0);
+        mesh.getNormals().addAll(0, 0, 1);
+        mesh.getTexCoords().addAll(0, 0, 1, 0, 0, 1);
+        mesh.getFaces().addAll(0, 0, 0, 1, 0, 1, 2, 0, 2);
+        return mesh;
+    }
+
+    private static DaeNode geometryNode(final String id, final String geometryId) {
+        final DaeNode node = new DaeNode(id, id, "NODE");
+        node.setInstanceGeometryId(geometryId);
+        return node;
+    }
+
+    private static List<MeshView> meshViews(final Node node) {
+        return ((Parent) node).getChildrenUnmodifiable().stream().
+                filter(child -> child instanceof MeshView).
+                map(child -> (MeshView) child).
+                collect(Collectors.toList());
+    }
+
+    @Test
+    public void mergeStaticMeshesPerMaterial() {
+        final Material material = new PhongMaterial();
+        final Map<String, List<TriangleMesh>> meshes = new HashMap<>();
+        meshes.put("triangle", Collections.singletonList(triangle()));
+        meshes.put("other", Collections.singletonList(triangle()));
+        final Map<String, List<String>> materialIds = new HashMap<>();
+        materialIds.put("triangle", Collections.singletonList("material"));
+        final DaeBuildHelper buildHelper = new DaeBuildHelper().
+                withMeshes(meshes).
+                withMeshMaterialIds(materialIds).
+                withMaterialMap(Collections.singletonMap("material", material));
+
+        final DaeScene scene = new DaeScene("scene");
+        final DaeNode moved = geometryNode("moved", "triangle");
+        moved.getTransforms().add(new Translate(10, 0, 0));
+        final DaeNode parent = new DaeNode("parent", "parent", "NODE");
+        parent.getTransforms().add(new Translate(0, 5, 0));
+        // mirrored along x, its face must be flipped to keep facing +z
+        final DaeNode mirrored = geometryNode("mirrored", "triangle");
+        mirrored.getTransforms().add(new Scale(-1, 1, 1));
+        parent.getChildren().add(mirrored);
+        final DaeNode joint = new DaeNode("joint", "joint", "JOINT");
+        joint.getChildren().add(geometryNode("animated", "triangle"));
+        final DaeNode alone = geometryNode("alone", "other");
+        scene.getChildren().addAll(moved, parent, joint, alone);
+        // the meshes are merged before the scene is built
+        final List<StaticMeshBatcher.Batch> batches = StaticMeshBatcher.prepare(scene, buildHelper);
+        assertEquals(1, batches.size());
+        scene.build(buildHelper);
+
+        assertEquals(2, StaticMeshBatcher.attach(scene, batches));
+
+        final List<MeshView> batched = meshViews(scene);
+        assertEquals(1, batched.size());
+        final BatchedMeshView batchedMeshView = (BatchedMeshView) batched.get(0);
+        assertEquals(material, batchedMeshView.getMaterial());
+        assertEquals(2, batchedMeshView.getBatchSize());
+        assertEquals("moved", batchedMeshView.getNodeId(0));
+        assertEquals("mirrored", batchedMeshView.getNodeId(1));
+        assertNull(batchedMeshView.getNodeId(2));
+        assertArrayEquals(new int[]{1, 2}, batchedMeshView.getFaceRange(1));
+
+        final TriangleMesh mesh = (TriangleMesh) batchedMeshView.getMesh();
+        assertArrayEquals(new float[]{10, 0, 0, 11, 0, 0, 10, 1, 0, 0, 5, 0, -1, 5, 0, 0, 6, 0},
+                mesh.getPoints().toArray(null), 1e-6f);
+        assertArrayEquals(new float[]{0, 0, 1, 0, 0, 1}, mesh.getNormals().toArray(null), 1e-6f);
+        assertArrayEquals(new int[]{0, 0, 0, 1, 0, 1, 2, 0, 2, 3, 1, 3, 5, 1, 5, 4, 1, 4}, mesh.getFaces().toArray(null));
+
+        assertTrue(meshViews(moved).isEmpty());
+        assertTrue(meshViews(mirrored).isEmpty());
+        assertEquals(1, meshViews(joint.getChildren().get(0)).size());
+        assertEquals(Arrays.asList(alone.getChildren().get(0)), meshViews(alone));
+    }
+}
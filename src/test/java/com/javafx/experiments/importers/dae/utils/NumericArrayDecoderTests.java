@@ -0,0 +1,98 @@
+package com.javafx.experiments.importers.dae.utils;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Eclion
+ */
+public final class NumericArrayDecoderTests {
+
+    private static float[] decodeFloats(final String content, final int chunkSize) {
+        final NumericArrayDecoder decoder = new NumericArrayDecoder();
+        decoder.resetForFloats(0);
+        final char[] chars = content.toCharArray();
+        for (int start = 0; start < chars.length; start += chunkSize) {
+            decoder.decode(chars, start, Math.min(chunkSize, chars.length - start));
+        }
+        return decoder.toFloatArray();
+    }
+
+    @Test
+    public void decodeFloatsSplitAcrossChunks() {
+        final String content = " 1 -2.5\n0.04166662  1e-3 -0.996825098991394\t3.4028235E38 +7.0 ";
+        final float[] expected = {1f, -2.5f, 0.04166662f, 1e-3f, -0.996825098991394f, 3.4028235E38f, 7f};
+
+        for (int chunkSize = 1; chunkSize <= content.length(); chunkSize++) {
+            assertArrayEquals(expected, decodeFloats(content, chunkSize), 0.0f);
+        }
+    }
+
+    @Test
+    public void decodeFloatsLikeFloatParseFloat() {
+        final Random random = new Random(42);
+        final StringBuilder content = new StringBuilder();
+        final float[] expected = new float[10000];
+        for (int i = 0; i < expected.length; i++) {
+            final String number = i % 2 == 0
+                    ? Float.toString((random.nextFloat() - 0.5f) * 1000f)
+                    : String.format(Locale.ROOT, "%.6f", random.nextDouble() * 2 - 1);
+            expected[i] = Float.parseFloat(number);
+            content.append(number).append(' ');
+        }
+
+        assertArrayEquals(expected, decodeFloats(content.toString(), 4096), 0.0f);
+    }
+
+    @Test
+    public void decodeIntsWithCountHint() {
+        final NumericArrayDecoder decoder = new NumericArrayDecoder();
+        decoder.resetForInts(4);
+        decoder.decode("0 12 ".toCharArray(), 0, 5);
+        decoder.decode("34 -5".toCharArray(), 0, 5);
+
+        assertEquals(4, decoder.size());
+        assertArrayEquals(new int[]{0, 12, 34, -5}, decoder.toIntArray());
+    }
+
+    @Test
+    public void reuseBufferDespiteHugeCountHint() {
+        final NumericArrayDecoder decoder = new NumericArrayDecoder();
+        decoder.resetForFloats(2_000_000_000);
+        decoder.decode("1 2.5");
+        assertArrayEquals(new float[]{1, 2.5f}, decoder.toFloatArray(), 0.0f);
+
+        decoder.resetForFloats(3);
+        decoder.decode("-4 5");
+        assertArrayEquals(new float[]{-4, 5}, decoder.toFloatArray(), 0.0f);
+    }
+
+    @Test
+    public void decodeEmptyContent() {
+        assertEquals(0, ParserUtils.extractFloatArray("  \n ").length);
+        assertEquals(0, ParserUtils.extractIntArray("").length);
+    }
+
+    @Test
+    public void decodeInParallelLikeSequentially() {
+        final Random random = new Random(7);
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            content.append(random.nextInt(100000)).append(i % 10 == 0 ? "\n" : " ");
+        }
+        final char[] chars = content.toString().toCharArray();
+
+        assertArrayEquals(
+                ParserUtils.extractIntArray(content.toString()),
+                ParallelArrayDecoder.decodeIntsAsync(chars, chars.length, 200000).join());
+        assertArrayEquals(
+                ParserUtils.extractFloatArray(content.toString()),
+                ParallelArrayDecoder.decodeFloatsAsync(chars, chars.length, 0).join(),
+                0.0f);
+    }
+}
@@ -0,0 +1,58 @@
+package com.javafx.experiments.importers.dae.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Eclion
+ */
+public final class ProgressInputStreamTests {
+
+    @Test
+    public void reportIncreasingProgressUpToCompletion() throws IOException {
+        final byte[] content = new byte[10000];
+        final List<Double> progresses = new ArrayList<>();
+        try (InputStream inputStream = new ProgressInputStream(new ByteArrayInputStream(content), content.length,
+                progresses::add, () -> false)) {
+            final byte[] buffer = new byte[37];
+            while (inputStream.read(buffer) != -1) {
+                // reading the whole content
+            }
+        }
+
+        assertTrue(progresses.size() <= 100);
+        for (int i = 1; i < progresses.size(); i++) {
+            assertTrue(progresses.get(i) > progresses.get(i - 1));
+        }
+        assertEquals(1.0, progresses.get(progresses.size() - 1), 0.0);
+    }
+
+    @Test
+    public void abortReadingOnceCancelled() throws IOException {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        try (InputStream inputStream = new ProgressInputStream(new ByteArrayInputStream(new byte[100]), 100,
+                progress -> cancelled.set(progress >= 0.5), cancelled::get)) {
+            final byte[] buffer = new byte[10];
+            int read = 0;
+            try {
+                while (inputStream.read(buffer) != -1) {
+                    read += 10;
+                }
+                fail();
+            } catch (InterruptedIOException e) {
+                assertEquals(50, read);
+            }
+        }
+    }
+}
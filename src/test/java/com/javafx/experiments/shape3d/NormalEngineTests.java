@@ -0,0 +1,27 @@
+package com.javafx.experiments.shape3d;
+
+import javafx.scene.shape.VertexFormat;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * @author Eclion
+ */
+public final class NormalEngineTests {
+
+    @Test
+    public void weighFaceNormalsByArea() {
+        // two faces sharing the normal 0 at their common edge: a big one facing +z and a small one facing +x,
+        // the second face referring twice to the normal 1, and the normal 2 being unused
+        final float[] points = {0, 0, 0, 0, 2, 0, 2, 0, 0, 0, 0, 1, 0, 1, 0};
+        final int[] faces = {0, 0, 0, 2, 0, 0, 1, 0, 0, 0, 0, 0, 4, 1, 0, 3, 1, 0};
+        final float[] normals = {0, 0, 0, 0, 0, 0, 7, 8, 9};
+
+        new NormalEngine(faces, VertexFormat.POINT_NORMAL_TEXCOORD, 3).update(points, normals);
+
+        // the big face weighs four times more than the small one
+        final float length = (float) Math.sqrt(1 + 4 * 4);
+        assertArrayEquals(new float[]{1 / length, 0, 4 / length, 1, 0, 0, 7, 8, 9}, normals, 1e-6f);
+    }
+}
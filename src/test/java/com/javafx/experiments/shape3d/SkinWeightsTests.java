@@ -0,0 +1,54 @@
+package com.javafx.experiments.shape3d;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Eclion
+ */
+public final class SkinWeightsTests {
+
+    @Test
+    public void gatherInfluencesSortedByJoint() {
+        final float[] weightValues = {0.5f, 0.25f, 0.75f, 1, 0.1f};
+        // point 0: joint 2 then joint 0, point 1: an unknown joint, point 2: joint 1 twice, the last one being kept
+        final int[] influences = {2, 0, 0, 1, -1, 3, 1, 4, 1, 2};
+
+        final SkinWeights weights = SkinWeights.fromInfluences(3, 3, new int[]{2, 1, 2}, influences, 2, 0, 1, weightValues);
+
+        assertEquals(3, weights.getJointCount());
+        assertEquals(3, weights.getPointCount());
+        assertArrayEquals(new int[]{0, 2, 2, 3}, weights.getFirstInfluences());
+        assertArrayEquals(new int[]{0, 2, 1}, weights.getJoints());
+        assertArrayEquals(new float[]{0.25f, 0.5f, 0.75f}, weights.getWeights(), 0.0f);
+        assertEquals(0.5f, weights.getWeight(2, 0), 0.0f);
+        assertEquals(0, weights.getWeight(1, 0), 0.0f);
+        assertEquals(0, weights.getWeight(0, 1), 0.0f);
+    }
+
+    @Test
+    public void compressDenseWeights() {
+        final float[][] jointsWeights = {
+                {1, 0, 0.3f, 0},
+                {0, 0, 0.7f, 0.00001f}
+        };
+
+        final SkinWeights weights = SkinWeights.fromJointsWeights(jointsWeights);
+
+        assertEquals(4, weights.getPointCount());
+        assertEquals(4, weights.getInfluenceCount());
+        for (int j = 0; j < jointsWeights.length; j++) {
+            for (int i = 0; i < jointsWeights[j].length; i++) {
+                assertEquals(jointsWeights[j][i], weights.getWeight(j, i), 0.0f);
+            }
+        }
+
+        final SkinWeights significantWeights = weights.withoutWeightsBelow(0.0001f);
+        assertArrayEquals(new int[]{0, 1, 1, 3, 3}, significantWeights.getFirstInfluences());
+        assertArrayEquals(new int[]{0, 0, 1}, significantWeights.getJoints());
+        assertSame(significantWeights, significantWeights.withoutWeightsBelow(0.0001f));
+    }
+}